@@ -32,9 +32,11 @@ import de.avanux.smartapplianceenabler.notification.Notification;
 import de.avanux.smartapplianceenabler.notification.NotificationHandler;
 import de.avanux.smartapplianceenabler.notification.NotificationProvider;
 import de.avanux.smartapplianceenabler.schedule.*;
+import de.avanux.smartapplianceenabler.semp.webservice.Device2EMSnapshot;
+import de.avanux.smartapplianceenabler.webservice.ApplianceStatusSnapshot;
 import de.avanux.smartapplianceenabler.semp.webservice.DeviceInfo;
 import de.avanux.smartapplianceenabler.configuration.Validateable;
-import java.time.LocalDate;
+import de.avanux.smartapplianceenabler.util.TaskScheduler;
 import java.time.LocalDateTime;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -273,7 +275,7 @@ public class Appliance implements Validateable, ControlStateChangedListener, Tim
         }
     }
 
-    public void start(Timer timer) {
+    public void start(TaskScheduler timer) {
         logger.info("{}: Starting appliance", id);
         LocalDateTime now = LocalDateTime.now();
         if(timeframeIntervalHandler != null) {
@@ -282,6 +284,9 @@ public class Appliance implements Validateable, ControlStateChangedListener, Tim
         if(meter != null) {
             logger.info("{}: Starting {}", id, meter.getClass().getSimpleName());
             meter.start(now, timer);
+            if(timeframeIntervalHandler != null && timer != null) {
+                meter.addPowerUpdateListener(timeframeIntervalHandler);
+            }
         }
         if(control != null) {
             logger.info("{}: Starting {}", id, control.getClass().getSimpleName());
@@ -307,7 +312,7 @@ public class Appliance implements Validateable, ControlStateChangedListener, Tim
         }
     }
 
-    public void setHolidays(List<LocalDate> holidays) {
+    public void setHolidays(HolidayIndex holidays) {
         if(schedules != null) {
             for(Schedule schedule : schedules) {
                 final Timeframe timeframe = schedule.getTimeframe();
@@ -368,7 +373,11 @@ public class Appliance implements Validateable, ControlStateChangedListener, Tim
         return this.control instanceof ElectricVehicleCharger;
     }
 
-    public void setApplianceState(LocalDateTime now, boolean switchOn, Integer chargePower, String logMessage) {
+    /**
+     * Switches the control of the appliance.
+     * @return false, if the appliance has no control or the control could not be switched
+     */
+    public boolean setApplianceState(LocalDateTime now, boolean switchOn, Integer chargePower, String logMessage) {
         if(control != null) {
             logger.debug("{}: {}", id, logMessage);
             if(switchOn && isEvCharger()) {
@@ -379,17 +388,18 @@ public class Appliance implements Validateable, ControlStateChangedListener, Tim
                     ((ElectricVehicleCharger) control).setChargePowerToMinimum();
                 }
             }
-            control.on(now, switchOn);
+            return control.on(now, switchOn);
         }
         else {
             logger.warn("{}: Appliance configuration does not contain control.", id);
         }
+        return false;
     }
 
     public void setEnergyDemand(LocalDateTime now, Integer evId, Integer socCurrent, Integer socRequested, LocalDateTime chargeEnd) {
         if (isEvCharger()) {
             ElectricVehicleCharger evCharger = (ElectricVehicleCharger) this.control;
-            if(getMeter().getEnergy() > 0.1) {
+            if(getMeter().getEnergy(Meter.averagingInterval) > 0.1) {
                 logger.debug("{}: skipping ev charger configuration to continue charging process already started", id);
             }
             else {
@@ -475,10 +485,11 @@ public class Appliance implements Validateable, ControlStateChangedListener, Tim
         }
         else if(schedules != null) {
             for (Schedule schedule : schedules) {
-                if (schedule.getRequest() != null
-                        && schedule.getRequest().getMin(now) != null
-                        && schedule.getRequest().getMax(now) > schedule.getRequest().getMin(now)) {
-                    return true;
+                if (schedule.getRequest() != null) {
+                    Integer min = schedule.getRequest().getMin(now);
+                    if(min != null && schedule.getRequest().getMax(now) > min) {
+                        return true;
+                    }
                 }
             }
         }
@@ -491,11 +502,13 @@ public class Appliance implements Validateable, ControlStateChangedListener, Tim
 
     @Override
     public void controlStateChanged(LocalDateTime now, boolean switchOn) {
+        requestSnapshotUpdates();
     }
 
     @Override
     public void onEVChargerStateChanged(LocalDateTime now, EVChargerState previousState, EVChargerState newState,
                                         ElectricVehicle ev) {
+        requestSnapshotUpdates();
     }
 
     @Override
@@ -511,6 +524,7 @@ public class Appliance implements Validateable, ControlStateChangedListener, Tim
                 meter.resetEnergyMeter();
             }
         }
+        requestSnapshotUpdates();
     }
 
     @Override
@@ -520,6 +534,15 @@ public class Appliance implements Validateable, ControlStateChangedListener, Tim
         timeframeInterval.getRequest().setMeter(meter);
         timeframeInterval.getRequest().setControl(control);
         control.addControlStateChangedListener(timeframeInterval.getRequest());
+        requestSnapshotUpdates();
+    }
+
+    /**
+     * Requests new snapshots of the appliance states served by the web services.
+     */
+    private void requestSnapshotUpdates() {
+        Device2EMSnapshot.getInstance().requestUpdate();
+        ApplianceStatusSnapshot.getInstance().requestUpdate();
     }
 
     @Override
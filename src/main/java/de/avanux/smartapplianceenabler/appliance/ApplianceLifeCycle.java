@@ -18,15 +18,15 @@
 
 package de.avanux.smartapplianceenabler.appliance;
 
-import java.time.LocalDateTime;
+import de.avanux.smartapplianceenabler.util.TaskScheduler;
 
-import java.util.Timer;
+import java.time.LocalDateTime;
 
 public interface ApplianceLifeCycle {
 
     void init();
 
-    void start(LocalDateTime now, Timer timer);
+    void start(LocalDateTime now, TaskScheduler timer);
 
     void stop(LocalDateTime now);
 }
@@ -29,15 +29,21 @@ import de.avanux.smartapplianceenabler.meter.HttpElectricityMeter;
 import de.avanux.smartapplianceenabler.meter.Meter;
 import de.avanux.smartapplianceenabler.meter.MeterValueName;
 import de.avanux.smartapplianceenabler.meter.ModbusElectricityMeter;
+import de.avanux.smartapplianceenabler.modbus.ModbusConnectionPool;
 import de.avanux.smartapplianceenabler.modbus.ModbusRead;
 import de.avanux.smartapplianceenabler.modbus.ModbusTcp;
 import de.avanux.smartapplianceenabler.notification.NotificationHandler;
+import de.avanux.smartapplianceenabler.schedule.HolidayIndex;
 import de.avanux.smartapplianceenabler.schedule.Schedule;
 import de.avanux.smartapplianceenabler.semp.webservice.Device2EM;
+import de.avanux.smartapplianceenabler.semp.webservice.Device2EMSnapshot;
+import de.avanux.smartapplianceenabler.webservice.ApplianceStatusSnapshot;
 import de.avanux.smartapplianceenabler.semp.webservice.DeviceInfo;
 import de.avanux.smartapplianceenabler.semp.webservice.DeviceStatus;
 import de.avanux.smartapplianceenabler.util.FileHandler;
 import de.avanux.smartapplianceenabler.util.GuardedTimerTask;
+import de.avanux.smartapplianceenabler.util.MetricsLogger;
+import de.avanux.smartapplianceenabler.util.TaskScheduler;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -55,7 +61,8 @@ public class ApplianceManager implements Runnable {
     private FileHandler fileHandler = new FileHandler();
     private Device2EM device2EM;
     private Appliances appliances;
-    private Timer timer;
+    private volatile ApplianceRegistry registry = ApplianceRegistry.EMPTY;
+    private TaskScheduler timer;
     private GuardedTimerTask holidaysDownloaderTimerTask;
     private Integer autoclearSeconds;
     private boolean initializationCompleted;
@@ -68,7 +75,7 @@ public class ApplianceManager implements Runnable {
         if(instance == null) {
             instance = new ApplianceManager();
             // creating the timer here disables the it during unit tests
-            instance.timer = new Timer();
+            instance.timer = new TaskScheduler();
             String autoClear = System.getProperty("sae.autoclear", null);
             if(autoClear != null) {
                 instance.autoclearSeconds = Integer.parseInt(autoClear);
@@ -181,6 +188,7 @@ public class ApplianceManager implements Runnable {
             deviceInfos = new ArrayList<>();
             device2EM.setDeviceInfo(deviceInfos);
         }
+        updateRegistry();
         if(appliances != null) {
             init();
         }
@@ -193,6 +201,9 @@ public class ApplianceManager implements Runnable {
     private void stopAppliances() {
         logger.info("Stopping appliances ...");
         initializationCompleted = false;
+        Device2EMSnapshot.getInstance().stop();
+        ApplianceStatusSnapshot.getInstance().stop();
+        MetricsLogger.getInstance().stop();
         if(this.appliances != null) {
             if(appliances.getAppliances() != null) {
                 for(Appliance appliance : appliances.getAppliances()) {
@@ -206,6 +217,7 @@ public class ApplianceManager implements Runnable {
                 }
             }
         }
+        ModbusConnectionPool.getInstance().close();
     }
 
     private void restartAppliances() {
@@ -217,14 +229,14 @@ public class ApplianceManager implements Runnable {
     }
 
     public void startMeterAveragingInterval(LocalDateTime now, int secondsForDeviceStatusAndPlanningRequests) {
-        if(this.appliances != null && appliances.getAppliances() != null) {
+        if(! getAppliances().isEmpty()) {
             if(this.currentMeterAveragingIntervalStartTime == null
                     || Duration.between(this.currentMeterAveragingIntervalStartTime, now).toSeconds() > 50) {
                 this.currentMeterAveragingIntervalStartTime = now;
                 int nextPollCompletedSecondsFromNow = Meter.averagingInterval - secondsForDeviceStatusAndPlanningRequests - 3;
                 logger.debug("Start meter averaging interval: secondsForDeviceStatusAndPlanningRequests={} nextPollCompletedSecondsFromNow={}",
                         secondsForDeviceStatusAndPlanningRequests, nextPollCompletedSecondsFromNow);
-                for(Appliance appliance : appliances.getAppliances()) {
+                for(Appliance appliance : getAppliances()) {
                     try {
                         Meter meter = appliance.getMeter();
                         if(meter != null) {
@@ -235,6 +247,8 @@ public class ApplianceManager implements Runnable {
                         logger.error("{}: Error during startAveragingInterval", appliance.getId(), e);
                     }
                 }
+                // the next snapshot should contain the power values of the meter polls just scheduled
+                Device2EMSnapshot.getInstance().scheduleUpdate(nextPollCompletedSecondsFromNow + 1);
             }
             else {
                 logger.debug("Current meter averaging interval was started only {} seconds ago - skipping",
@@ -310,8 +324,9 @@ public class ApplianceManager implements Runnable {
 
                     List<LocalDate> holidays = fileHandler.loadHolidays();
                     if(holidays != null) {
+                        HolidayIndex holidayIndex = HolidayIndex.of(holidays);
                         for (Appliance appliance : getAppliances()) {
-                            appliance.setHolidays(holidays);
+                            appliance.setHolidays(holidayIndex);
                         }
                     }
                 }
@@ -321,6 +336,11 @@ public class ApplianceManager implements Runnable {
         else {
             logger.debug("Holidays are NOT used.");
         }
+        if(timer != null) {
+            Device2EMSnapshot.getInstance().start(timer);
+            ApplianceStatusSnapshot.getInstance().start(timer);
+            MetricsLogger.getInstance().start(timer);
+        }
         initializationCompleted = true;
     }
 
@@ -335,15 +355,15 @@ public class ApplianceManager implements Runnable {
         if(writeDevice2EM || writeAppliances) {
             restartAppliances();
             if(this.autoclearSeconds != null) {
-                this.timer.schedule(new TimerTask() {
+                this.timer.schedule(new GuardedTimerTask(null, "AutoClear", 0) {
                     @Override
-                    public void run() {
+                    public void runTask() {
                         logger.info("*** AUTO CLEAR ENABLED ***");
                         if(device2EM.getDeviceInfo() != null) {
-                            device2EM.getDeviceInfo().clear();
+                            device2EM.setDeviceInfo(new ArrayList<>());
                         }
                         if(appliances.getAppliances() != null) {
-                            appliances.getAppliances().clear();
+                            appliances.setAppliances(new ArrayList<>());
                         }
                         fileHandler.save(device2EM);
                         fileHandler.save(appliances);
@@ -364,53 +384,39 @@ public class ApplianceManager implements Runnable {
      */
     public void setDevice2EM(Device2EM device2EM) {
         this.device2EM = device2EM;
+        updateRegistry();
     }
 
     /**
-     * Return the corresponding DeviceInfo for an appliance.
-     * @param applianceId
-     * @return
+     * Replaces the registry by one reflecting the current configuration.
      */
-    public DeviceInfo getDeviceInfo(String applianceId) {
-        for(DeviceInfo deviceInfo : this.device2EM.getDeviceInfo()) {
-            if(deviceInfo.getIdentification().getDeviceId().equals(applianceId)) {
-                return deviceInfo;
-            }
-        }
-        return null;
+    private void updateRegistry() {
+        this.registry = new ApplianceRegistry(appliances != null ? appliances.getAppliances() : null, device2EM);
+    }
+
+    public ApplianceRegistry getRegistry() {
+        return registry;
     }
 
     /**
-     * Return the corresponding DeviceStatus for an appliance.
+     * Return the corresponding DeviceInfo for an appliance.
      * @param applianceId
      * @return
      */
-    private DeviceStatus getDeviceStatus(String applianceId) {
-        List<DeviceStatus> deviceStatuses = this.device2EM.getDeviceStatus();
-        if(deviceStatuses != null) {
-            for(DeviceStatus deviceStatus : deviceStatuses) {
-                if(deviceStatus.getDeviceId().equals(applianceId)) {
-                    return deviceStatus;
-                }
-            }
-        }
-        return null;
+    public DeviceInfo getDeviceInfo(String applianceId) {
+        return registry.getDeviceInfo(applianceId);
     }
 
     public Appliance getAppliance(String applianceId) {
-        for (Appliance appliance: this.appliances.getAppliances()) {
-            if(appliance.getId().equals(applianceId)) {
-                return appliance;
-            }
-        }
-        return null;
+        return registry.getAppliance(applianceId);
     }
 
+    /**
+     * Returns the appliances configured. The list returned is immutable and not affected by subsequent changes.
+     * @return
+     */
     public List<Appliance> getAppliances() {
-        if(appliances != null && appliances.getAppliances() != null) {
-            return appliances.getAppliances();
-        }
-        return Collections.EMPTY_LIST;
+        return registry.getAppliances();
     }
 
     /**
@@ -419,18 +425,18 @@ public class ApplianceManager implements Runnable {
      */
     public void setAppliances(Appliances appliances) {
         this.appliances = appliances;
+        updateRegistry();
     }
 
-    public void addAppliance(Appliance appliance, DeviceInfo deviceInfo) {
+    public synchronized void addAppliance(Appliance appliance, DeviceInfo deviceInfo) {
         logger.debug("{}: Add appliance", appliance.getId());
-        List<DeviceInfo> deviceInfos = device2EM.getDeviceInfo();
+        List<DeviceInfo> deviceInfos = new ArrayList<>(registry.getDeviceInfos());
         deviceInfos.add(deviceInfo);
-        List<Appliance> appliances = this.appliances.getAppliances();
-        if(appliances == null) {
-            appliances = new ArrayList<>();
-            this.appliances.setAppliances(appliances);
-        }
+        device2EM.setDeviceInfo(deviceInfos);
+        List<Appliance> appliances = new ArrayList<>(registry.getAppliances());
         appliances.add(appliance);
+        this.appliances.setAppliances(appliances);
+        updateRegistry();
         save(true, true);
     }
 
@@ -439,35 +445,27 @@ public class ApplianceManager implements Runnable {
      * @param deviceInfo
      * @return true, if the update was successful; false, if the appliance with the given id was not found
      */
-    public boolean updateAppliance(Appliance appliance, DeviceInfo deviceInfo) {
+    public synchronized boolean updateAppliance(Appliance appliance, DeviceInfo deviceInfo) {
         logger.debug("{}: Update appliance", appliance.getId());
+        ApplianceRegistry registry = this.registry;
 
-        Integer applianceReplaceIndex = null;
-        for(int i=0;i<this.appliances.getAppliances().size();i++) {
-            if(appliance.getId().equals(this.appliances.getAppliances().get(i).getId())) {
-                applianceReplaceIndex = i;
-                break;
-            }
-        }
-        if(applianceReplaceIndex != null) {
-            this.appliances.getAppliances().remove(applianceReplaceIndex.intValue());
-            this.appliances.getAppliances().add(applianceReplaceIndex, appliance);
+        Appliance applianceToBeReplaced = registry.getAppliance(appliance.getId());
+        if(applianceToBeReplaced != null) {
+            List<Appliance> appliances = new ArrayList<>(registry.getAppliances());
+            appliances.set(appliances.indexOf(applianceToBeReplaced), appliance);
+            this.appliances.setAppliances(appliances);
         }
 
-        Integer device2EMReplaceIndex = null;
-        for(int i=0;i<device2EM.getDeviceInfo().size();i++) {
-            if(appliance.getId().equals(device2EM.getDeviceInfo().get(i).getIdentification().getDeviceId())) {
-                device2EMReplaceIndex = i;
-                break;
-            }
-        }
-        if(device2EMReplaceIndex != null) {
-            device2EM.getDeviceInfo().remove(device2EMReplaceIndex.intValue());
-            device2EM.getDeviceInfo().add(device2EMReplaceIndex, deviceInfo);
+        DeviceInfo deviceInfoToBeReplaced = registry.getDeviceInfo(appliance.getId());
+        if(deviceInfoToBeReplaced != null) {
+            List<DeviceInfo> deviceInfos = new ArrayList<>(registry.getDeviceInfos());
+            deviceInfos.set(deviceInfos.indexOf(deviceInfoToBeReplaced), deviceInfo);
+            device2EM.setDeviceInfo(deviceInfos);
         }
 
-        if(applianceReplaceIndex != null || device2EMReplaceIndex != null) {
-            save(device2EMReplaceIndex != null, applianceReplaceIndex != null);
+        if(applianceToBeReplaced != null || deviceInfoToBeReplaced != null) {
+            updateRegistry();
+            save(deviceInfoToBeReplaced != null, applianceToBeReplaced != null);
             return true;
         }
         return false;
@@ -478,20 +476,33 @@ public class ApplianceManager implements Runnable {
      * @param applianceId
      * @return true, if the deletion was successful; false, if the appliance with the given id was not found
      */
-    public boolean deleteAppliance(String applianceId) {
+    public synchronized boolean deleteAppliance(String applianceId) {
         logger.debug("{}: Delete appliance", applianceId);
+        ApplianceRegistry registry = this.registry;
 
-        DeviceInfo deviceInfoToBeDeleted = getDeviceInfo(applianceId);
-        device2EM.getDeviceInfo().remove(deviceInfoToBeDeleted);
+        DeviceInfo deviceInfoToBeDeleted = registry.getDeviceInfo(applianceId);
+        if(deviceInfoToBeDeleted != null) {
+            List<DeviceInfo> deviceInfos = new ArrayList<>(registry.getDeviceInfos());
+            deviceInfos.remove(deviceInfoToBeDeleted);
+            device2EM.setDeviceInfo(deviceInfos);
+        }
+
+        DeviceStatus deviceStatus = registry.getDeviceStatus(applianceId);
+        if(deviceStatus != null) {
+            List<DeviceStatus> deviceStatuses = new ArrayList<>(device2EM.getDeviceStatus());
+            deviceStatuses.remove(deviceStatus);
+            device2EM.setDeviceStatus(deviceStatuses);
+        }
 
-        DeviceStatus deviceStatus = getDeviceStatus(applianceId);
-        if(device2EM.getDeviceStatus() != null) {
-            device2EM.getDeviceStatus().remove(deviceStatus);
+        Appliance applianceToBeDeleted = registry.getAppliance(applianceId);
+        if(applianceToBeDeleted != null) {
+            List<Appliance> appliances = new ArrayList<>(registry.getAppliances());
+            appliances.remove(applianceToBeDeleted);
+            this.appliances.setAppliances(appliances);
         }
+        updateRegistry();
 
-        Appliance applianceToBeDeleted = getAppliance(applianceId);
         if(applianceToBeDeleted != null) {
-            appliances.getAppliances().remove(applianceToBeDeleted);
             save(true, true);
             return true;
         }
@@ -499,13 +510,7 @@ public class ApplianceManager implements Runnable {
     }
 
     public Appliance findAppliance(String applianceId) {
-        List<Appliance> appliances = ApplianceManager.getInstance().getAppliances();
-        for (Appliance appliance : appliances) {
-            if(appliance.getId().equals(applianceId)) {
-                return appliance;
-            }
-        }
-        return null;
+        return getAppliance(applianceId);
     }
 
     /**
@@ -0,0 +1,85 @@
+/*
+ * Copyright (C) 2021 Axel Müller <axel.mueller@avanux.de>
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package de.avanux.smartapplianceenabler.appliance;
+
+import de.avanux.smartapplianceenabler.semp.webservice.Device2EM;
+import de.avanux.smartapplianceenabler.semp.webservice.DeviceInfo;
+import de.avanux.smartapplianceenabler.semp.webservice.DeviceStatus;
+
+import java.util.*;
+
+/**
+ * Immutable view of the configured appliances and their SEMP device configuration indexed by id.
+ * <p>
+ * The registry is replaced as a whole whenever the configuration changes, so that readers always see a consistent
+ * state without locking and lookups by id take constant time regardless of the number of appliances.
+ * If ids are not unique the first entry wins like with a linear search.
+ */
+public class ApplianceRegistry {
+    public static final ApplianceRegistry EMPTY = new ApplianceRegistry(null, null);
+    private List<Appliance> appliances;
+    private Map<String, Appliance> appliancesById = new HashMap<>();
+    private List<DeviceInfo> deviceInfos;
+    private Map<String, DeviceInfo> deviceInfosById = new HashMap<>();
+    private Map<String, DeviceStatus> deviceStatusesById = new HashMap<>();
+
+    public ApplianceRegistry(List<Appliance> appliances, Device2EM device2EM) {
+        this.appliances = appliances != null
+                ? Collections.unmodifiableList(new ArrayList<>(appliances)) : Collections.emptyList();
+        for(Appliance appliance : this.appliances) {
+            appliancesById.putIfAbsent(appliance.getId(), appliance);
+        }
+        List<DeviceInfo> deviceInfos = device2EM != null ? device2EM.getDeviceInfo() : null;
+        this.deviceInfos = deviceInfos != null
+                ? Collections.unmodifiableList(new ArrayList<>(deviceInfos)) : Collections.emptyList();
+        for(DeviceInfo deviceInfo : this.deviceInfos) {
+            deviceInfosById.putIfAbsent(deviceInfo.getIdentification().getDeviceId(), deviceInfo);
+        }
+        List<DeviceStatus> deviceStatuses = device2EM != null ? device2EM.getDeviceStatus() : null;
+        if(deviceStatuses != null) {
+            for(DeviceStatus deviceStatus : deviceStatuses) {
+                deviceStatusesById.putIfAbsent(deviceStatus.getDeviceId(), deviceStatus);
+            }
+        }
+    }
+
+    public List<Appliance> getAppliances() {
+        return appliances;
+    }
+
+    public Appliance getAppliance(String applianceId) {
+        return applianceId != null ? appliancesById.get(applianceId) : null;
+    }
+
+    public List<DeviceInfo> getDeviceInfos() {
+        return deviceInfos;
+    }
+
+    public DeviceInfo getDeviceInfo(String deviceId) {
+        return deviceId != null ? deviceInfosById.get(deviceId) : null;
+    }
+
+    public DeviceStatus getDeviceStatus(String deviceId) {
+        return deviceId != null ? deviceStatusesById.get(deviceId) : null;
+    }
+
+    public int size() {
+        return appliances.size();
+    }
+}
@@ -30,6 +30,7 @@ import de.avanux.smartapplianceenabler.protocol.ContentProtocolType;
 import de.avanux.smartapplianceenabler.protocol.JsonContentProtocolHandler;
 import de.avanux.smartapplianceenabler.util.ParentWithChild;
 import de.avanux.smartapplianceenabler.configuration.Validateable;
+import de.avanux.smartapplianceenabler.util.TaskScheduler;
 import org.apache.http.HttpStatus;
 import org.apache.http.client.methods.CloseableHttpResponse;
 import org.slf4j.Logger;
@@ -109,6 +110,10 @@ public class HttpSwitch implements Control, ApplianceLifeCycle, Validateable, Ap
             this.httpTransactionExecutor.setConfiguration(this.httpConfiguration);
         }
         this.httpHandler.setHttpTransactionExecutor(httpTransactionExecutor);
+        if(this.httpRead != null) {
+            HttpRead.compileSelectors(applianceId, Collections.singletonList(this.httpRead),
+                    getContentContentProtocolHandler());
+        }
     }
 
 
@@ -129,7 +134,7 @@ public class HttpSwitch implements Control, ApplianceLifeCycle, Validateable, Ap
     }
 
     @Override
-    public void start(LocalDateTime now, Timer timer) {
+    public void start(LocalDateTime now, TaskScheduler timer) {
     }
 
     @Override
@@ -24,6 +24,7 @@ import de.avanux.smartapplianceenabler.notification.NotificationHandler;
 import de.avanux.smartapplianceenabler.notification.NotificationProvider;
 import de.avanux.smartapplianceenabler.notification.NotificationType;
 import de.avanux.smartapplianceenabler.notification.Notifications;
+import de.avanux.smartapplianceenabler.util.TaskScheduler;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -34,7 +35,6 @@ import javax.xml.bind.annotation.XmlElement;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Timer;
 
 @XmlAccessorType(XmlAccessType.FIELD)
 public class MeterReportingSwitch implements Control, ApplianceIdConsumer, NotificationProvider {
@@ -100,7 +100,7 @@ public class MeterReportingSwitch implements Control, ApplianceIdConsumer, Notif
     }
 
     @Override
-    public void start(LocalDateTime now, Timer timer) {
+    public void start(LocalDateTime now, TaskScheduler timer) {
         logger.info("{}: Starting: powerThreshold={} offDetectionDelay={} notificationHandlerSet={}",
                 applianceId, getPowerThreshold(), getOffDetectionDelay(), this.notificationHandler != null);
     }
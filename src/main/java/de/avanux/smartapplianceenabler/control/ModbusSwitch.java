@@ -20,12 +20,15 @@ package de.avanux.smartapplianceenabler.control;
 import de.avanux.smartapplianceenabler.configuration.ConfigurationException;
 import de.avanux.smartapplianceenabler.modbus.*;
 import de.avanux.smartapplianceenabler.modbus.executor.*;
+import de.avanux.smartapplianceenabler.modbus.transformer.IntegerValueTransformer;
+import de.avanux.smartapplianceenabler.modbus.transformer.ValueTransformer;
 import de.avanux.smartapplianceenabler.notification.NotificationHandler;
 import de.avanux.smartapplianceenabler.notification.NotificationType;
 import de.avanux.smartapplianceenabler.notification.NotificationProvider;
 import de.avanux.smartapplianceenabler.notification.Notifications;
 import de.avanux.smartapplianceenabler.util.ParentWithChild;
 import de.avanux.smartapplianceenabler.configuration.Validateable;
+import de.avanux.smartapplianceenabler.util.TaskScheduler;
 import java.time.LocalDateTime;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -34,7 +37,6 @@ import javax.xml.bind.annotation.XmlElement;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
-import java.util.Timer;
 
 public class ModbusSwitch extends ModbusSlave implements Control, Validateable, NotificationProvider {
 
@@ -79,7 +81,7 @@ public class ModbusSwitch extends ModbusSlave implements Control, Validateable,
     }
 
     @Override
-    public void start(LocalDateTime now, Timer timer) {
+    public void start(LocalDateTime now, TaskScheduler timer) {
     }
 
     @Override
@@ -108,12 +110,12 @@ public class ModbusSwitch extends ModbusSlave implements Control, Validateable,
                         registerWrite.getType(), registerWrite.getAddress(),registerWrite.getFactorToValue());
                 if(executor instanceof WriteCoilExecutor) {
                     executor.setValue(1 == Integer.valueOf(write.child().getValue()));
-                    executeTransaction(executor, true);
+                    executeTransaction(executor);
                     result = switchOn == ((WriteCoilExecutor) executor).getResult();
                 }
                 else if(executor instanceof WriteHoldingRegisterExecutor) {
                     executor.setValue(Integer.valueOf(write.child().getValue()));
-                    executeTransaction(executor, true);
+                    executeTransaction(executor);
                     result = Integer.valueOf(write.child().getValue()).equals(((WriteHoldingRegisterExecutor) executor).getResult());
                 }
                 if(this.notificationHandler != null && switchOn != on) {
@@ -146,14 +148,15 @@ public class ModbusSwitch extends ModbusSlave implements Control, Validateable,
                         registerWrite.getReadRegisterType(), registerWrite.getValueType());
                 ModbusReadTransactionExecutor executor = ModbusExecutorFactory.getReadExecutor(getApplianceId(),
                         registerWrite.getAddress(), registerWrite.getReadRegisterType(), registerValueType);
-                executeTransaction(executor, true);
+                executeTransaction(executor);
                 if(executor instanceof ReadCoilExecutorImpl) {
                     on = ((ReadCoilExecutorImpl) executor).getValue();
                 }
                 else if(executor instanceof ReadHoldingRegisterExecutor) {
-                    Object registerValue = ((ReadHoldingRegisterExecutor) executor).getValueTransformer().getValue();
-                    if(registerValue instanceof Integer) {
-                        on = Integer.valueOf(write.child().getValue()).equals((Integer) registerValue);
+                    ValueTransformer<?> transformer = ((ReadHoldingRegisterExecutor) executor).getValueTransformer();
+                    if(transformer instanceof IntegerValueTransformer) {
+                        on = ((IntegerValueTransformer) transformer).valueEquals(
+                                Integer.parseInt(write.child().getValue()));
                     }
                 }
             }
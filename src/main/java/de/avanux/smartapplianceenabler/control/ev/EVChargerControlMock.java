@@ -23,6 +23,7 @@ import java.time.LocalDateTime;
 
 import de.avanux.smartapplianceenabler.meter.PowerUpdateListener;
 import de.avanux.smartapplianceenabler.notification.NotificationHandler;
+import de.avanux.smartapplianceenabler.util.TaskScheduler;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -131,7 +132,7 @@ public class EVChargerControlMock implements EVChargerControl, Meter {
     }
 
     @Override
-    public void start(LocalDateTime now, Timer timer) {
+    public void start(LocalDateTime now, TaskScheduler timer) {
         logDebug("start");
     }
 
@@ -141,7 +142,7 @@ public class EVChargerControlMock implements EVChargerControl, Meter {
     }
 
     @Override
-    public void startAveragingInterval(LocalDateTime now, Timer timer, int nextPollCompletedSecondsFromNow) {
+    public void startAveragingInterval(LocalDateTime now, TaskScheduler timer, int nextPollCompletedSecondsFromNow) {
     }
 
     @Override
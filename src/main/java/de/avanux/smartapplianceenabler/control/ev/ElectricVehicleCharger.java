@@ -30,6 +30,7 @@ import de.avanux.smartapplianceenabler.schedule.*;
 import de.avanux.smartapplianceenabler.semp.webservice.DeviceInfo;
 import de.avanux.smartapplianceenabler.util.GuardedTimerTask;
 import de.avanux.smartapplianceenabler.configuration.Validateable;
+import de.avanux.smartapplianceenabler.util.TaskScheduler;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -309,7 +310,7 @@ public class ElectricVehicleCharger implements Control, ApplianceLifeCycle, Vali
     }
 
     @Override
-    public void start(LocalDateTime now, Timer timer) {
+    public void start(LocalDateTime now, TaskScheduler timer) {
         logger.debug("{}: Starting ...", this.applianceId);
         if(timer != null) {
             this.updateStateTimerTask = new GuardedTimerTask(this.applianceId,"UpdateState",
@@ -721,7 +722,8 @@ public class ElectricVehicleCharger implements Control, ApplianceLifeCycle, Vali
     private int getEnergyMeteredSinceLastSocScriptExecution() {
         if(appliance.getMeter() != null) {
             // in Wh
-            return Float.valueOf((appliance.getMeter().getEnergy() - socRetrievalEnergyMeterValue) * 1000.0f).intValue();
+            return Float.valueOf((appliance.getMeter().getEnergy(Meter.averagingInterval) - socRetrievalEnergyMeterValue)
+                    * 1000.0f).intValue();
         }
         return 0;
     }
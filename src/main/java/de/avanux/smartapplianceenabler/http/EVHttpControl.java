@@ -114,6 +114,7 @@ public class EVHttpControl implements EVChargerControl {
     public void init() {
         int cacheMaxAgeSeconds = this.pollInterval - 1;
         this.requestCache = new RequestCache<ParentWithChild<HttpRead, HttpReadValue>, String>(applianceId, cacheMaxAgeSeconds);
+        HttpRead.compileSelectors(applianceId, this.httpReads, getContentProtocolHandler());
         if(this.httpConfiguration != null) {
             this.httpTransactionExecutor.setConfiguration(this.httpConfiguration);
         }
@@ -163,7 +164,7 @@ public class EVHttpControl implements EVChargerControl {
         if(read != null) {
             String response = this.requestCache.get(read);
             if(response == null) {
-                response = this.httpTransactionExecutor.execute(HttpMethod.GET, read.parent().getUrl(), null);
+                response = this.httpTransactionExecutor.executeRead(HttpMethod.GET, read.parent().getUrl(), null);
                 this.requestCache.put(read, response);
             }
             else {
@@ -173,8 +174,7 @@ public class EVHttpControl implements EVChargerControl {
                 String value = response;
                 ContentProtocolHandler contentProtocolHandler = getContentProtocolHandler();
                 if(contentProtocolHandler != null) {
-                    contentProtocolHandler.parse(response);
-                    value = contentProtocolHandler.readValue(read.child().getPath());
+                    value = contentProtocolHandler.readValue(response, read.child().getPath());
                 }
                 String regex = read.child().getExtractionRegex();
                 boolean match = value.matches(regex);
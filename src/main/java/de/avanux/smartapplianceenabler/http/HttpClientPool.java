@@ -0,0 +1,129 @@
+/*
+ * Copyright (C) 2021 Axel Müller <axel.mueller@avanux.de>
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package de.avanux.smartapplianceenabler.http;
+
+import org.apache.http.auth.AuthScope;
+import org.apache.http.auth.UsernamePasswordCredentials;
+import org.apache.http.client.AuthCache;
+import org.apache.http.client.CredentialsProvider;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpRequestBase;
+import org.apache.http.client.protocol.HttpClientContext;
+import org.apache.http.impl.client.BasicAuthCache;
+import org.apache.http.impl.client.BasicCredentialsProvider;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.DefaultHttpRequestRetryHandler;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * HTTP client shared by all appliances. Connections are pooled per host and kept alive between requests
+ * so that polling a device does not require a new TCP connection each time. The number of concurrent connections
+ * (and therefore concurrent requests) per host is limited in order not to flood small devices.
+ * <p>
+ * Credentials are cached per username and password together with the authentication state so that subsequent
+ * requests to the same host authenticate preemptively instead of waiting for a challenge.
+ */
+public class HttpClientPool {
+    public static final String MAX_CONNECTIONS_PER_HOST_PROPERTY = "sae.http.maxConnectionsPerHost";
+    private static final int DEFAULT_MAX_CONNECTIONS_PER_HOST = 2;
+    private static final int MAX_CONNECTIONS_TOTAL = 50;
+    private static final int TIMEOUT_SECONDS = 5;
+    private static final int VALIDATE_AFTER_INACTIVITY_MILLIS = 1000;
+    private static final int IDLE_TIMEOUT_SECONDS = 30;
+    private static HttpClientPool instance;
+    private transient Logger logger = LoggerFactory.getLogger(HttpClientPool.class);
+    private CloseableHttpClient client;
+    private Map<List<String>, Authentication> authentications = new ConcurrentHashMap<>();
+
+    private HttpClientPool() {
+        int maxConnectionsPerHost = Integer.getInteger(MAX_CONNECTIONS_PER_HOST_PROPERTY,
+                DEFAULT_MAX_CONNECTIONS_PER_HOST);
+        PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager();
+        connectionManager.setDefaultMaxPerRoute(maxConnectionsPerHost);
+        connectionManager.setMaxTotal(MAX_CONNECTIONS_TOTAL);
+        connectionManager.setValidateAfterInactivity(VALIDATE_AFTER_INACTIVITY_MILLIS);
+        RequestConfig requestConfig = RequestConfig.custom()
+                .setConnectTimeout(TIMEOUT_SECONDS * 1000)
+                .setConnectionRequestTimeout(TIMEOUT_SECONDS * 1000)
+                .setSocketTimeout(TIMEOUT_SECONDS * 1000).build();
+        this.client = HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .setDefaultRequestConfig(requestConfig)
+                .setRetryHandler(new DefaultHttpRequestRetryHandler(0, false))
+                .evictExpiredConnections()
+                .evictIdleConnections(IDLE_TIMEOUT_SECONDS, TimeUnit.SECONDS)
+                .build();
+        logger.debug("HTTP client pool created with {} connections per host", maxConnectionsPerHost);
+    }
+
+    public static synchronized HttpClientPool getInstance() {
+        if(instance == null) {
+            instance = new HttpClientPool();
+        }
+        return instance;
+    }
+
+    /**
+     * Executes the request using a pooled connection. The response has to be closed by the caller in order to
+     * return the connection to the pool.
+     * @param request
+     * @param configuration the configuration containing the credentials; may be null
+     * @return the response
+     * @throws IOException
+     */
+    public CloseableHttpResponse execute(HttpRequestBase request, HttpConfiguration configuration)
+            throws IOException {
+        HttpClientContext context = HttpClientContext.create();
+        Authentication authentication = getAuthentication(configuration);
+        if(authentication != null) {
+            context.setCredentialsProvider(authentication.credentialsProvider);
+            context.setAuthCache(authentication.authCache);
+        }
+        return this.client.execute(request, context);
+    }
+
+    private Authentication getAuthentication(HttpConfiguration configuration) {
+        if(configuration == null || configuration.getUsername() == null || configuration.getPassword() == null) {
+            return null;
+        }
+        return this.authentications.computeIfAbsent(
+                Arrays.asList(configuration.getUsername(), configuration.getPassword()),
+                key -> new Authentication(key.get(0), key.get(1)));
+    }
+
+    private static class Authentication {
+        private CredentialsProvider credentialsProvider = new BasicCredentialsProvider();
+        private AuthCache authCache = new BasicAuthCache();
+
+        Authentication(String username, String password) {
+            this.credentialsProvider.setCredentials(AuthScope.ANY, new UsernamePasswordCredentials(username, password));
+        }
+    }
+}
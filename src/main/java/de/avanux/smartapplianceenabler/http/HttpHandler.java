@@ -81,15 +81,14 @@ public class HttpHandler implements ApplianceIdConsumer {
             String url = read.parent().getUrl();
             HttpMethod method = read.child().getMethod() != null ? read.child().getMethod() : HttpMethod.GET;
             String data = method == HttpMethod.POST ? read.child().getData() : null;
-            String response = this.httpTransactionExecutor.execute(method, url, data);
+            String response = this.httpTransactionExecutor.executeRead(method, url, data);
             String path = read.child().getPath();
             logger.debug("{}: url={} method={} data={} path={}", applianceId, url, method, data, path);
             if(response != null) {
                 logger.debug("{}: Response: {}", applianceId, response);
                 String protocolHandlerValue = response;
                 if(contentProtocolHandler != null && path != null) {
-                    contentProtocolHandler.parse(response);
-                    protocolHandlerValue = contentProtocolHandler.readValue(path);
+                    protocolHandlerValue = contentProtocolHandler.readValue(response, path);
                 }
                 return protocolHandlerValue;
             }
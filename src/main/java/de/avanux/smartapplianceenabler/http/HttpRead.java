@@ -18,6 +18,7 @@
 
 package de.avanux.smartapplianceenabler.http;
 
+import de.avanux.smartapplianceenabler.protocol.ContentProtocolHandler;
 import de.avanux.smartapplianceenabler.util.ParentWithChild;
 import org.apache.commons.lang3.builder.EqualsBuilder;
 import org.apache.commons.lang3.builder.HashCodeBuilder;
@@ -70,6 +71,28 @@ public class HttpRead {
         return null;
     }
 
+    /**
+     * Compiles the selectors of all read values so that they don't have to be compiled while polling.
+     */
+    public static void compileSelectors(String applianceId, List<HttpRead> reads,
+                                        ContentProtocolHandler contentProtocolHandler) {
+        if(reads != null && contentProtocolHandler != null) {
+            for(HttpRead read: reads) {
+                for(HttpReadValue readValue: read.getReadValues()) {
+                    if(readValue.getPath() != null) {
+                        try {
+                            contentProtocolHandler.compile(readValue.getPath());
+                        }
+                        catch(RuntimeException e) {
+                            LoggerFactory.getLogger(HttpRead.class).error("{}: Invalid path {}", applianceId,
+                                    readValue.getPath(), e);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
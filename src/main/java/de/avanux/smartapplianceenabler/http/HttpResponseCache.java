@@ -0,0 +1,135 @@
+/*
+ * Copyright (C) 2021 Axel Müller <axel.mueller@avanux.de>
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package de.avanux.smartapplianceenabler.http;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.net.URI;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Shares the responses of read requests across all appliances. Requests are identified by method, url, data and
+ * credentials. While a request is in flight, identical requests wait for its response instead of being sent
+ * to the device again. A successful response is shared for the duration of the freshness window so that all values
+ * read from one device within a poll cycle (e.g. power and energy of a Shelly) come from the same response.
+ * <p>
+ * The freshness window can be configured in milliseconds by setting the system property {@value #MAX_AGE_PROPERTY}.
+ * A value of 0 shares in-flight requests only.
+ * <p>
+ * Requests changing the state of a device invalidate all responses of that device (see {@link #invalidate(String)}),
+ * so that the state read afterwards reflects the change.
+ */
+public class HttpResponseCache {
+    public static final String MAX_AGE_PROPERTY = "sae.http.responseMaxAge";
+    private static final long DEFAULT_MAX_AGE_MILLIS = 2000;
+    private static HttpResponseCache instance;
+    private transient Logger logger = LoggerFactory.getLogger(HttpResponseCache.class);
+    private Map<List<String>, Entry> entries = new ConcurrentHashMap<>();
+    private long maxAgeMillis;
+
+    protected HttpResponseCache(long maxAgeMillis) {
+        this.maxAgeMillis = maxAgeMillis;
+    }
+
+    public static synchronized HttpResponseCache getInstance() {
+        if(instance == null) {
+            instance = new HttpResponseCache(Long.getLong(MAX_AGE_PROPERTY, DEFAULT_MAX_AGE_MILLIS));
+        }
+        return instance;
+    }
+
+    /**
+     * Returns the shared response for the request or executes the request using the loader.
+     * @param httpMethod
+     * @param url
+     * @param data
+     * @param configuration the configuration containing the credentials; may be null
+     * @param loader executes the request; returns null if the request failed
+     * @return the response or null if the request failed
+     */
+    public String get(HttpMethod httpMethod, String url, String data, HttpConfiguration configuration,
+                      Supplier<String> loader) {
+        List<String> key = Arrays.asList(String.valueOf(httpMethod), url, data,
+                configuration != null ? configuration.getUsername() : null,
+                configuration != null ? configuration.getPassword() : null);
+        long now = System.currentTimeMillis();
+        Entry[] created = new Entry[1];
+        Entry entry = this.entries.compute(key, (k, existing) -> {
+            if(existing != null && (! existing.response.isDone() || now - existing.timestamp < this.maxAgeMillis)) {
+                return existing;
+            }
+            created[0] = new Entry();
+            return created[0];
+        });
+        if(entry != created[0]) {
+            logger.trace("Sharing response: method={} url={}", httpMethod, url);
+            return entry.response.join();
+        }
+        String response = null;
+        try {
+            response = loader.get();
+        }
+        finally {
+            entry.timestamp = System.currentTimeMillis();
+            entry.response.complete(response);
+            if(response == null) {
+                // failed requests are retried by the next caller
+                this.entries.remove(key, entry);
+            }
+        }
+        return response;
+    }
+
+    /**
+     * Removes all responses of the host addressed by the url including requests in flight.
+     * @param url the url of a request which has changed the state of the device
+     */
+    public void invalidate(String url) {
+        String host = getHost(url);
+        if(this.entries.keySet().removeIf(key -> host.equals(getHost(key.get(1))))) {
+            logger.trace("Invalidated responses: host={}", host);
+        }
+    }
+
+    private static String getHost(String url) {
+        if(url != null) {
+            try {
+                String authority = URI.create(url).getAuthority();
+                if(authority != null) {
+                    return authority;
+                }
+            }
+            catch(IllegalArgumentException e) {
+                // fall through and use the complete url
+            }
+        }
+        return String.valueOf(url);
+    }
+
+    private static class Entry {
+        private CompletableFuture<String> response = new CompletableFuture<>();
+        private volatile long timestamp;
+    }
+}
@@ -20,17 +20,9 @@ package de.avanux.smartapplianceenabler.http;
 import de.avanux.smartapplianceenabler.notification.NotificationHandler;
 import de.avanux.smartapplianceenabler.notification.NotificationType;
 import org.apache.http.HttpStatus;
-import org.apache.http.auth.AuthScope;
-import org.apache.http.auth.UsernamePasswordCredentials;
-import org.apache.http.client.CredentialsProvider;
-import org.apache.http.client.config.RequestConfig;
 import org.apache.http.client.methods.*;
 import org.apache.http.entity.ContentType;
 import org.apache.http.entity.StringEntity;
-import org.apache.http.impl.client.BasicCredentialsProvider;
-import org.apache.http.impl.client.CloseableHttpClient;
-import org.apache.http.impl.client.DefaultHttpRequestRetryHandler;
-import org.apache.http.impl.client.HttpClientBuilder;
 import org.apache.http.util.EntityUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -43,7 +35,6 @@ import java.io.IOException;
 public class HttpTransactionExecutor {
     private Logger logger = LoggerFactory.getLogger(HttpTransactionExecutor.class);
     private String applianceId;
-    private RequestConfig requestConfig;
     private HttpConfiguration configuration = new HttpConfiguration();
     private NotificationHandler notificationHandler = null;
 
@@ -59,10 +50,23 @@ public class HttpTransactionExecutor {
         this.notificationHandler = notificationHandler;
     }
 
+    /**
+     * Executes a request which may change the state of the device. Responses of the device shared by
+     * {@link HttpResponseCache} are invalidated afterwards.
+     */
     public String execute(HttpMethod httpMethod, String url, String data) {
+        try {
+            return executeAndRead(httpMethod, url, data);
+        }
+        finally {
+            HttpResponseCache.getInstance().invalidate(url);
+        }
+    }
+
+    private String executeAndRead(HttpMethod httpMethod, String url, String data) {
         CloseableHttpResponse response = null;
         try {
-            response = executeLeaveOpen(httpMethod, url, data);
+            response = send(httpMethod, url, data);
             if (response != null && response.getStatusLine().getStatusCode() == HttpStatus.SC_OK) {
                 return EntityUtils.toString(response.getEntity());
             }
@@ -74,70 +78,76 @@ public class HttpTransactionExecutor {
         return null;
     }
 
+    /**
+     * Executes a request reading values from the device. The response is shared with identical read requests
+     * of other appliances or values (see {@link HttpResponseCache}). Must not be used for requests changing
+     * the state of the device.
+     */
+    public String executeRead(HttpMethod httpMethod, String url, String data) {
+        return HttpResponseCache.getInstance().get(httpMethod, url, data, configuration,
+                () -> executeAndRead(httpMethod, url, data));
+    }
+
+    /**
+     * Executes a request which may change the state of the device leaving the response open. Responses of
+     * the device shared by {@link HttpResponseCache} are invalidated afterwards.
+     */
     public CloseableHttpResponse executeLeaveOpen(HttpMethod httpMethod, String url, String data) {
+        try {
+            return send(httpMethod, url, data);
+        }
+        finally {
+            HttpResponseCache.getInstance().invalidate(url);
+        }
+    }
+
+    private CloseableHttpResponse send(HttpMethod httpMethod, String url, String data) {
         logger.debug("{}: HTTP request: method={} url={} data={}", applianceId, httpMethod, url, data);
         CloseableHttpResponse response = null;
         try {
-            HttpClientBuilder httpClientBuilder = HttpClientBuilder.create();
-            withUsernameAndPassword(httpClientBuilder, configuration.getUsername(), configuration.getPassword());
-            CloseableHttpClient client = httpClientBuilder
-                    .setDefaultRequestConfig(getRequestConfig())
-                    .setRetryHandler(new DefaultHttpRequestRetryHandler(0, false))
-                    .build();
-            try {
-                HttpRequestBase request = null;
-                if(httpMethod == null || httpMethod == HttpMethod.GET) {
-                    request = new HttpGet(url);
-                }
-                else if (httpMethod == HttpMethod.POST) {
-                    request = new HttpPost(url);
-                }
-                else if (httpMethod == HttpMethod.PATCH) {
-                    request = new HttpPatch(url);
-                }
-                else if (httpMethod == HttpMethod.PUT) {
-                    request = new HttpPut(url);
-                }
-                else if (httpMethod == HttpMethod.DELETE) {
-                    request = new HttpDelete(url);
-                }
-                if(request != null) {
-                    if(request instanceof HttpEntityEnclosingRequestBase) {
-                        ((HttpEntityEnclosingRequestBase) request)
-                                .setEntity(new StringEntity(data, configuration.getContentType()));
-                    }
-                    response = client.execute(request);
-                    logResponse(response);
-                }
+            HttpRequestBase request = null;
+            if(httpMethod == null || httpMethod == HttpMethod.GET) {
+                request = new HttpGet(url);
+            }
+            else if (httpMethod == HttpMethod.POST) {
+                request = new HttpPost(url);
+            }
+            else if (httpMethod == HttpMethod.PATCH) {
+                request = new HttpPatch(url);
+            }
+            else if (httpMethod == HttpMethod.PUT) {
+                request = new HttpPut(url);
+            }
+            else if (httpMethod == HttpMethod.DELETE) {
+                request = new HttpDelete(url);
             }
-            catch(IOException e) {
-                logger.error("{}: Error executing GET request.", applianceId, e);
-                if(this.notificationHandler != null) {
-                    this.notificationHandler.sendNotification(NotificationType.COMMUNICATION_ERROR);
+            if(request != null) {
+                if(request instanceof HttpEntityEnclosingRequestBase) {
+                    ((HttpEntityEnclosingRequestBase) request)
+                            .setEntity(new StringEntity(data, configuration.getContentType()));
                 }
+                response = HttpClientPool.getInstance().execute(request, configuration);
+                logResponse(response);
             }
-
             return response;
-        } catch (Exception e) {
+        }
+        catch(IOException e) {
+            logger.error("{}: Error executing GET request.", applianceId, e);
+            if(this.notificationHandler != null) {
+                this.notificationHandler.sendNotification(NotificationType.COMMUNICATION_ERROR);
+            }
+        }
+        catch (Exception e) {
             logger.error("{}: Error reading HTTP response", applianceId, e);
         }
         return null;
     }
 
-    protected HttpClientBuilder withUsernameAndPassword(HttpClientBuilder httpClientBuilder, String username, String password) {
-        if(username != null && password != null) {
-            logger.debug("{}: username={} password={}", applianceId, username, password);
-            CredentialsProvider provider = new BasicCredentialsProvider();
-            UsernamePasswordCredentials credentials = new UsernamePasswordCredentials(username, password);
-            provider.setCredentials(AuthScope.ANY, credentials);
-            httpClientBuilder.setDefaultCredentialsProvider(provider);
-        }
-        return httpClientBuilder;
-    }
-
     public void closeResponse(CloseableHttpResponse response) {
         try {
             if(response != null) {
+                // consuming the remaining content allows the connection to be reused
+                EntityUtils.consumeQuietly(response.getEntity());
                 response.close();
             }
         } catch (IOException e) {
@@ -150,16 +160,4 @@ public class HttpTransactionExecutor {
         logger.debug("{}: Response code is {}", applianceId, responseCode);
         return response;
     }
-
-    private RequestConfig getRequestConfig() {
-        if(this.requestConfig == null) {
-            int timeout = 5; // seconds
-            this.requestConfig = RequestConfig.custom()
-                    .setConnectTimeout(timeout * 1000)
-                    .setConnectionRequestTimeout(timeout * 1000)
-                    .setSocketTimeout(timeout * 1000).build();
-
-        }
-        return this.requestConfig;
-    }
 }
@@ -0,0 +1,144 @@
+/*
+ * Copyright (C) 2021 Axel Müller <axel.mueller@avanux.de>
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package de.avanux.smartapplianceenabler.meter;
+
+import de.avanux.smartapplianceenabler.util.GuardedTimerTask;
+import de.avanux.smartapplianceenabler.util.NamedThreadFactory;
+import de.avanux.smartapplianceenabler.util.TaskScheduler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Executes the device I/O of meter polls on a shared pool of lightweight threads so that the polls of all appliances
+ * run concurrently instead of one after another. Every poll has a deadline: if the device does not answer in time
+ * the poll result is handed over as missing sample (null) and the poll cycle continues. The result is processed
+ * in the lane of the appliance within the {@link TaskScheduler}.
+ * <p>
+ * The concurrent mode can be disabled by setting the system property {@value #CONCURRENT_PROPERTY} to false.
+ * In this case the poll is executed synchronously by the calling thread.
+ */
+public class ConcurrentPoller {
+    public static final String CONCURRENT_PROPERTY = "sae.poll.concurrent";
+    public static final String DEADLINE_PROPERTY = "sae.poll.deadline"; // milliseconds
+    private static final long DEFAULT_DEADLINE_MILLIS = 5000;
+    private static ExecutorService executor;
+    private transient Logger logger = LoggerFactory.getLogger(ConcurrentPoller.class);
+    private String applianceId;
+    private String name;
+    private long deadlineMillis;
+    private AtomicBoolean pollInProgress = new AtomicBoolean();
+
+    /**
+     * @param applianceId
+     * @param name name of the poll used for logging
+     * @param periodMillis the poll period; the deadline will never exceed it
+     */
+    public ConcurrentPoller(String applianceId, String name, long periodMillis) {
+        this.applianceId = applianceId;
+        this.name = name;
+        this.deadlineMillis = Math.min(Long.getLong(DEADLINE_PROPERTY, DEFAULT_DEADLINE_MILLIS), periodMillis);
+    }
+
+    public static boolean isEnabled() {
+        return Boolean.parseBoolean(System.getProperty(CONCURRENT_PROPERTY, Boolean.TRUE.toString()));
+    }
+
+    private static synchronized ExecutorService getExecutor() {
+        if(executor == null) {
+            executor = Executors.newCachedThreadPool(new NamedThreadFactory("MeterPoll", true));
+        }
+        return executor;
+    }
+
+    /**
+     * Returns the delay until the next multiple of the period so that polls with the same period are started
+     * at the same time across all appliances.
+     * @param periodMillis
+     * @return delay in milliseconds
+     */
+    public static long getAlignedDelay(long periodMillis) {
+        if(! isEnabled() || periodMillis <= 0) {
+            return 0;
+        }
+        return periodMillis - System.currentTimeMillis() % periodMillis;
+    }
+
+    public long getDeadlineMillis() {
+        return deadlineMillis;
+    }
+
+    public boolean isPollInProgress() {
+        return pollInProgress.get();
+    }
+
+    /**
+     * Executes the poll and passes its result to the result handler. If a timer is given and concurrent mode is
+     * enabled, the poll is executed asynchronously and this method returns immediately.
+     * @param timer the timer used for executing the result handler in the lane of the appliance
+     * @param poll the device I/O
+     * @param resultHandler receives the value polled or null if the poll failed or missed its deadline
+     */
+    public <T> void poll(TaskScheduler timer, Supplier<T> poll, Consumer<T> resultHandler) {
+        if(timer == null || ! isEnabled()) {
+            resultHandler.accept(poll.get());
+            return;
+        }
+        if(! pollInProgress.compareAndSet(false, true)) {
+            logger.warn("{}: Previous poll {} still in progress - recording missing sample", applianceId, name);
+            resultHandler.accept(null);
+            return;
+        }
+        CompletableFuture
+                .supplyAsync(() -> {
+                    try {
+                        return poll.get();
+                    }
+                    finally {
+                        pollInProgress.set(false);
+                    }
+                }, getExecutor())
+                .orTimeout(deadlineMillis, TimeUnit.MILLISECONDS)
+                .handle((value, throwable) -> {
+                    if(throwable instanceof TimeoutException || throwable != null && throwable.getCause() instanceof TimeoutException) {
+                        logger.warn("{}: Poll {} missed deadline of {}ms - recording missing sample",
+                                applianceId, name, deadlineMillis);
+                    }
+                    else if(throwable != null) {
+                        logger.error("{}: Error executing poll {}", applianceId, name, throwable);
+                    }
+                    T result = throwable == null ? value : null;
+                    timer.schedule(new GuardedTimerTask(applianceId, name + "Result", 0) {
+                        @Override
+                        public void runTask() {
+                            resultHandler.accept(result);
+                        }
+                    }, 0);
+                    return result;
+                });
+    }
+}
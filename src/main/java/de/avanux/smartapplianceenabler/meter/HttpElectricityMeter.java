@@ -30,6 +30,7 @@ import de.avanux.smartapplianceenabler.protocol.ContentProtocolType;
 import de.avanux.smartapplianceenabler.protocol.JsonContentProtocolHandler;
 import de.avanux.smartapplianceenabler.util.ParentWithChild;
 import de.avanux.smartapplianceenabler.configuration.Validateable;
+import de.avanux.smartapplianceenabler.util.TaskScheduler;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -161,10 +162,11 @@ public class HttpElectricityMeter implements Meter, ApplianceLifeCycle, Validate
             this.httpTransactionExecutor.setConfiguration(this.httpConfiguration);
         }
         this.httpHandler.setHttpTransactionExecutor(httpTransactionExecutor);
+        HttpRead.compileSelectors(applianceId, this.httpReads, getContentContentProtocolHandler());
     }
 
     @Override
-    public void start(LocalDateTime now, Timer timer) {
+    public void start(LocalDateTime now, TaskScheduler timer) {
         logger.debug("{}: Starting ...", applianceId);
         if(pollPowerMeter != null) {
             pollPowerMeter.start(timer, getPollInterval(), this);
@@ -178,7 +180,7 @@ public class HttpElectricityMeter implements Meter, ApplianceLifeCycle, Validate
     public void stop(LocalDateTime now) {
         logger.debug("{}: Stopping ...", applianceId);
         if(pollEnergyMeter != null) {
-            pollEnergyMeter.cancelTimer();
+            pollEnergyMeter.stop();
         }
         if(pollPowerMeter != null) {
             pollPowerMeter.cancelTimer();
@@ -186,7 +188,7 @@ public class HttpElectricityMeter implements Meter, ApplianceLifeCycle, Validate
     }
 
     @Override
-    public void startAveragingInterval(LocalDateTime now, Timer timer, int nextPollCompletedSecondsFromNow) {
+    public void startAveragingInterval(LocalDateTime now, TaskScheduler timer, int nextPollCompletedSecondsFromNow) {
         if(pollEnergyMeter != null) {
             pollEnergyMeter.scheduleNext(timer, nextPollCompletedSecondsFromNow, averagingInterval);
         }
@@ -222,7 +224,7 @@ public class HttpElectricityMeter implements Meter, ApplianceLifeCycle, Validate
     public int getMinPower() {
         int power = 0;
         if(pollEnergyMeter != null) {
-            power = pollEnergyMeter.getAveragePower();
+            power = pollEnergyMeter.getMinPower();
         }
         else if(pollPowerMeter != null) {
             power = pollPowerMeter.getMinPower(LocalDateTime.now());
@@ -235,7 +237,7 @@ public class HttpElectricityMeter implements Meter, ApplianceLifeCycle, Validate
     public int getMaxPower() {
         int power = 0;
         if(pollEnergyMeter != null) {
-            power = pollEnergyMeter.getAveragePower();
+            power = pollEnergyMeter.getMaxPower();
         }
         else if(pollPowerMeter != null) {
             power = pollPowerMeter.getMaxPower(LocalDateTime.now());
@@ -255,6 +257,11 @@ public class HttpElectricityMeter implements Meter, ApplianceLifeCycle, Validate
         return pollEnergyMeter != null ? (float) this.pollEnergyMeter.getEnergy() : 0.0f;
     }
 
+    @Override
+    public float getEnergy(int maxAgeSeconds) {
+        return pollEnergyMeter != null ? (float) this.pollEnergyMeter.getEnergy(maxAgeSeconds) : 0.0f;
+    }
+
     @Override
     public void startEnergyMeter() {
         if(pollEnergyMeter != null) {
@@ -18,9 +18,9 @@
 package de.avanux.smartapplianceenabler.meter;
 
 import de.avanux.smartapplianceenabler.appliance.ApplianceLifeCycle;
+import de.avanux.smartapplianceenabler.util.TaskScheduler;
 
 import java.time.LocalDateTime;
-import java.util.Timer;
 
 public interface Meter extends ApplianceLifeCycle {
 
@@ -45,11 +45,22 @@ public interface Meter extends ApplianceLifeCycle {
     int getMaxPower();
 
     /**
-     * Returns the energy metered since energy counter was started.
+     * Returns the energy metered since energy counter was started. Meters polling a device read the device.
      * @return energy in kWh
      */
     float getEnergy();
 
+    /**
+     * Returns the energy metered since energy counter was started based on a counter value not older than
+     * the given age if possible. Meters polling a device return the value polled last and refresh it in the
+     * background if it is too old instead of reading the device.
+     * @param maxAgeSeconds the maximum age of the counter value
+     * @return energy in kWh
+     */
+    default float getEnergy(int maxAgeSeconds) {
+        return getEnergy();
+    }
+
     /**
      * Start counting energy.
      */
@@ -66,7 +77,7 @@ public interface Meter extends ApplianceLifeCycle {
      */
     void resetEnergyMeter();
 
-    void startAveragingInterval(LocalDateTime now, Timer timer, int nextPollCompletedSecondsFromNow);
+    void startAveragingInterval(LocalDateTime now, TaskScheduler timer, int nextPollCompletedSecondsFromNow);
 
     void addPowerUpdateListener(PowerUpdateListener listener);
 }
@@ -19,12 +19,11 @@
 package de.avanux.smartapplianceenabler.meter;
 
 import de.avanux.smartapplianceenabler.appliance.ApplianceIdConsumer;
+import de.avanux.smartapplianceenabler.util.TaskScheduler;
 import java.time.LocalDateTime;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.Timer;
-
 public class MockElectricityMeter implements Meter, ApplianceIdConsumer {
 
     private transient Logger logger = LoggerFactory.getLogger(MockElectricityMeter.class);
@@ -51,7 +50,7 @@ public class MockElectricityMeter implements Meter, ApplianceIdConsumer {
     }
 
     @Override
-    public void start(LocalDateTime now, Timer timer) {
+    public void start(LocalDateTime now, TaskScheduler timer) {
     }
 
     @Override
@@ -59,7 +58,7 @@ public class MockElectricityMeter implements Meter, ApplianceIdConsumer {
     }
 
     @Override
-    public void startAveragingInterval(LocalDateTime now, Timer timer, int nextPollCompletedSecondsFromNow) {
+    public void startAveragingInterval(LocalDateTime now, TaskScheduler timer, int nextPollCompletedSecondsFromNow) {
     }
 
     @Override
@@ -21,13 +21,16 @@ import de.avanux.smartapplianceenabler.appliance.ApplianceIdConsumer;
 import de.avanux.smartapplianceenabler.configuration.ConfigurationException;
 import de.avanux.smartapplianceenabler.configuration.Validateable;
 import de.avanux.smartapplianceenabler.modbus.*;
-import de.avanux.smartapplianceenabler.modbus.executor.ModbusExecutorFactory;
 import de.avanux.smartapplianceenabler.modbus.executor.ModbusReadTransactionExecutor;
+import de.avanux.smartapplianceenabler.modbus.transformer.NumericValueTransformer;
+import de.avanux.smartapplianceenabler.modbus.transformer.ValueTransformer;
 import de.avanux.smartapplianceenabler.notification.NotificationHandler;
 import de.avanux.smartapplianceenabler.notification.NotificationProvider;
 import de.avanux.smartapplianceenabler.notification.NotificationType;
 import de.avanux.smartapplianceenabler.notification.Notifications;
 import de.avanux.smartapplianceenabler.util.ParentWithChild;
+import de.avanux.smartapplianceenabler.util.RequestCache;
+import de.avanux.smartapplianceenabler.util.TaskScheduler;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -36,7 +39,7 @@ import javax.xml.bind.annotation.XmlElement;
 import java.time.LocalDateTime;
 import java.util.Collections;
 import java.util.List;
-import java.util.Timer;
+import java.util.Map;
 
 /**
  * Represents a ModBus electricity meter device accessible by ModBus TCP.
@@ -47,6 +50,7 @@ public class ModbusElectricityMeter extends ModbusSlave implements Meter, Applia
         Validateable, PollPowerExecutor, PollEnergyExecutor, NotificationProvider {
 
     private transient Logger logger = LoggerFactory.getLogger(ModbusElectricityMeter.class);
+    private static final int READ_PLAN_MAX_AGE_SECONDS = 1;
     @XmlElement(name = "ModbusRead")
     private List<ModbusRead> modbusReads;
     @XmlAttribute
@@ -56,6 +60,8 @@ public class ModbusElectricityMeter extends ModbusSlave implements Meter, Applia
     private transient PollPowerMeter pollPowerMeter;
     private transient PollEnergyMeter pollEnergyMeter;
     private transient NotificationHandler notificationHandler;
+    private transient ModbusReadPlan readPlan;
+    private transient RequestCache<ModbusRead, ModbusReadTransactionExecutor> requestCache;
 
     @Override
     public void setApplianceId(String applianceId) {
@@ -127,10 +133,13 @@ public class ModbusElectricityMeter extends ModbusSlave implements Meter, Applia
             this.pollEnergyMeter.setApplianceId(getApplianceId());
             this.pollEnergyMeter.setPollEnergyExecutor(this);
         }
+        // power and energy are read together if polled at the same time
+        this.readPlan = new ModbusReadPlan(getApplianceId(), this.modbusReads);
+        this.requestCache = new RequestCache<>(getApplianceId(), READ_PLAN_MAX_AGE_SECONDS);
     }
 
     @Override
-    public void start(LocalDateTime now, Timer timer) {
+    public void start(LocalDateTime now, TaskScheduler timer) {
         logger.debug("{}: Starting ...", getApplianceId());
         if(pollPowerMeter != null) {
             pollPowerMeter.start(timer, getPollInterval(), this);
@@ -147,12 +156,12 @@ public class ModbusElectricityMeter extends ModbusSlave implements Meter, Applia
             pollPowerMeter.cancelTimer();
         }
         if(pollEnergyMeter != null) {
-            pollEnergyMeter.cancelTimer();
+            pollEnergyMeter.stop();
         }
     }
 
     @Override
-    public void startAveragingInterval(LocalDateTime now, Timer timer, int nextPollCompletedSecondsFromNow) {
+    public void startAveragingInterval(LocalDateTime now, TaskScheduler timer, int nextPollCompletedSecondsFromNow) {
         if(pollEnergyMeter != null) {
             pollEnergyMeter.scheduleNext(timer, nextPollCompletedSecondsFromNow, averagingInterval);
         }
@@ -178,7 +187,7 @@ public class ModbusElectricityMeter extends ModbusSlave implements Meter, Applia
     public int getMinPower() {
         int power = 0;
         if(pollEnergyMeter != null) {
-            power = pollEnergyMeter.getAveragePower();
+            power = pollEnergyMeter.getMinPower();
         }
         else if(pollPowerMeter != null) {
             power = pollPowerMeter.getMinPower(LocalDateTime.now());
@@ -191,7 +200,7 @@ public class ModbusElectricityMeter extends ModbusSlave implements Meter, Applia
     public int getMaxPower() {
         int power = 0;
         if(pollEnergyMeter != null) {
-            power = pollEnergyMeter.getAveragePower();
+            power = pollEnergyMeter.getMaxPower();
         }
         else if(pollPowerMeter != null) {
             power = pollPowerMeter.getMaxPower(LocalDateTime.now());
@@ -213,6 +222,11 @@ public class ModbusElectricityMeter extends ModbusSlave implements Meter, Applia
         return pollEnergyMeter != null ? (float) this.pollEnergyMeter.getEnergy() : 0.0f;
     }
 
+    @Override
+    public float getEnergy(int maxAgeSeconds) {
+        return pollEnergyMeter != null ? (float) this.pollEnergyMeter.getEnergy(maxAgeSeconds) : 0.0f;
+    }
+
     @Override
     public void startEnergyMeter() {
         logger.debug("{}: Start energy meter ...", getApplianceId());
@@ -248,16 +262,28 @@ public class ModbusElectricityMeter extends ModbusSlave implements Meter, Applia
         return readRegister(read.parent());
     }
 
-    private double readRegister(ModbusRead registerRead) {
+    private synchronized double readRegister(ModbusRead registerRead) {
         try {
-            ModbusReadTransactionExecutor executor = ModbusExecutorFactory.getReadExecutor(getApplianceId(),
-                    registerRead.getAddress(), registerRead.getType(), registerRead.getValueType(), registerRead.getWords(),
-                    registerRead.getByteOrder(), registerRead.getFactorToValue());
+            ModbusReadTransactionExecutor executor = this.requestCache.get(registerRead);
+            if(executor == null) {
+                Map<ModbusRead, ModbusReadTransactionExecutor> executors = this.readPlan.execute(this);
+                executors.forEach(this.requestCache::put);
+                executor = executors.get(registerRead);
+            }
+            this.readPlan.verify(registerRead);
             if(executor != null) {
-                executeTransaction(executor, true);
-                Object registerValue = executor.getValueTransformer().getValue();
-                if(registerValue instanceof Double) {
-                    return (Double) registerValue;
+                ValueTransformer<?> transformer = executor.getValueTransformer();
+                if(transformer instanceof NumericValueTransformer) {
+                    NumericValueTransformer<?> numericTransformer = (NumericValueTransformer<?>) transformer;
+                    if(numericTransformer.hasValue()) {
+                        return numericTransformer.getDoubleValue();
+                    }
+                }
+                else {
+                    Object registerValue = transformer.getValue();
+                    if(registerValue instanceof Double) {
+                        return (Double) registerValue;
+                    }
                 }
             }
             else {
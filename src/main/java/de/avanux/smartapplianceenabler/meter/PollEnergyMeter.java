@@ -20,7 +20,8 @@ package de.avanux.smartapplianceenabler.meter;
 
 import de.avanux.smartapplianceenabler.appliance.ApplianceIdConsumer;
 import de.avanux.smartapplianceenabler.util.GuardedTimerTask;
-import de.avanux.smartapplianceenabler.util.TimestampBasedCache;
+import de.avanux.smartapplianceenabler.util.TaskScheduler;
+import de.avanux.smartapplianceenabler.util.TimeSeries;
 
 import java.text.DecimalFormat;
 import java.text.NumberFormat;
@@ -41,15 +42,25 @@ public class PollEnergyMeter implements ApplianceIdConsumer {
     private PollEnergyExecutor pollEnergyExecutor;
     private transient Double startEnergyCounter;
     private transient Double totalEnergy;
-    private TimestampBasedCache<Double> cache = new TimestampBasedCache<>("Energy");
+    private TimeSeries cache = new TimeSeries("Energy");
     private GuardedTimerTask pollTimerTask;
+    private ConcurrentPoller poller;
     private long lastPollDurationMillis = 0;
     private boolean started;
-    private List<PowerUpdateListener> powerUpdateListeners = new ArrayList<>();
+    private PowerUpdateNotifier powerUpdateNotifier = new PowerUpdateNotifier();
     private DecimalFormat energyFormat;
+    private long previousTimestampMillis = -1;
+    private double previousEnergy;
+    private int lastPower;
+    private SlidingWindowStatistics powerStatistics;
+    private volatile double latestEnergyCounter = Double.NaN;
+    private volatile long latestEnergyCounterMillis;
+    private ConcurrentPoller refreshPoller;
+    private TaskScheduler timer;
 
     public PollEnergyMeter() {
         this.cache.setMaxAgeSeconds(Double.valueOf(1.9 * Meter.averagingInterval).intValue());
+        this.powerStatistics = new SlidingWindowStatistics(this.cache.getMaxAgeSeconds());
         NumberFormat nf = NumberFormat.getNumberInstance(Locale.ENGLISH);
         energyFormat = (DecimalFormat) nf;
         energyFormat.applyPattern("#.#####");
@@ -59,25 +70,29 @@ public class PollEnergyMeter implements ApplianceIdConsumer {
     public void setApplianceId(String applianceId) {
         this.applianceId = applianceId;
         this.cache.setApplianceId(applianceId);
+        this.powerUpdateNotifier.setApplianceId(applianceId);
     }
 
     public void setPollEnergyExecutor(PollEnergyExecutor pollEnergyExecutor) {
         this.pollEnergyExecutor = pollEnergyExecutor;
     }
 
-    public void start(Timer timer, PollEnergyExecutor pollEnergyExecutor) {
+    public void start(TaskScheduler timer, PollEnergyExecutor pollEnergyExecutor) {
+        this.timer = timer;
+        this.powerUpdateNotifier.start(timer);
         if(timer != null) {
-            this.pollTimerTask = buildPollTimerTask();
+            this.pollTimerTask = buildPollTimerTask(timer);
             timer.schedule(this.pollTimerTask, 0, this.pollTimerTask.getPeriod());
         }
     }
 
-    public void scheduleNext(Timer timer, int nextPollCompletedSecondsFromNow, int averagingInterval) {
+    public void scheduleNext(TaskScheduler timer, int nextPollCompletedSecondsFromNow, int averagingInterval) {
         long nextPollMillisFromNow = nextPollCompletedSecondsFromNow * 1000L - lastPollDurationMillis;
         if(timer != null && nextPollMillisFromNow > 0) {
             logger.trace("{}: Schedule next poll in {}ms lastPollDuration={}ms", applianceId, nextPollMillisFromNow, lastPollDurationMillis);
             cancelTimer();
-            this.pollTimerTask = buildPollTimerTask();
+            this.timer = timer;
+            this.pollTimerTask = buildPollTimerTask(timer);
             timer.schedule(this.pollTimerTask, nextPollMillisFromNow, averagingInterval * 1000L);
         }
         else {
@@ -85,19 +100,25 @@ public class PollEnergyMeter implements ApplianceIdConsumer {
         }
     }
 
-    private GuardedTimerTask buildPollTimerTask() {
+    private GuardedTimerTask buildPollTimerTask(TaskScheduler timer) {
+        if(this.poller == null) {
+            this.poller = new ConcurrentPoller(this.applianceId, "PollEnergyMeter", Meter.averagingInterval * 1000);
+        }
         return new GuardedTimerTask(this.applianceId, "PollEnergyMeter", Meter.averagingInterval * 1000) {
             @Override
             public void runTask() {
                 LocalDateTime now = LocalDateTime.now();
-                Double energy = pollEnergyExecutor.pollEnergy(now);
-                setLastPollDurationMillis(Duration.between(now, LocalDateTime.now()).toMillis());
-                if (energy != null && energy.floatValue() > 0.0f) {
-                    // the energy counter we poll might already have been reset and we don't want to add 0 to the cache
-                    // except we reset the counter ourselves
-                    addValue(now, energy);
-                    powerUpdateListeners.forEach(listener -> listener.onPowerUpdate(getAveragePower()));
-                }
+                poller.poll(timer, () -> pollEnergyExecutor.pollEnergy(now), energy -> {
+                    setLastPollDurationMillis(Duration.between(now, LocalDateTime.now()).toMillis());
+                    if (energy != null && energy.floatValue() > 0.0f) {
+                        // the energy counter we poll might already have been reset and we don't want to add 0 to the cache
+                        // except we reset the counter ourselves
+                        addValue(now, energy);
+                        if(powerUpdateNotifier.hasListeners()) {
+                            powerUpdateNotifier.notifyListeners(getAveragePower());
+                        }
+                    }
+                });
             }
         };
     }
@@ -109,6 +130,11 @@ public class PollEnergyMeter implements ApplianceIdConsumer {
         }
     }
 
+    public void stop() {
+        cancelTimer();
+        this.powerUpdateNotifier.stop();
+    }
+
     public void setLastPollDurationMillis(long lastPollDurationMillis) {
         this.lastPollDurationMillis = lastPollDurationMillis;
     }
@@ -120,39 +146,112 @@ public class PollEnergyMeter implements ApplianceIdConsumer {
 
     public void addValue(LocalDateTime now, double value) {
         logger.debug("{}: Adding value: timestamp={} value={}", applianceId, now, value);
-        cache.addValue(now, value);
+        long timestampMillis = TimeSeries.toMillis(now);
+        cache.addValue(timestampMillis, value);
+        setLatestEnergyCounter(value);
+        derivePower(timestampMillis, value);
     }
 
-    public int getAveragePower() {
-        Vector<Integer> powerValues = new Vector<>();
-        LocalDateTime previousTimestamp = null;
-        Double previousEnergy = null;
-        if(this.cache.getTimestampWithValue().size() == 0) {
-            logger.debug("{}: Energy cache is empty", applianceId);
-        }
-        else {
-            for(LocalDateTime timestamp: this.cache.getTimestampWithValue().keySet()) {
-                Double energy = this.cache.getTimestampWithValue().get(timestamp);
-                logger.trace("{}: Energy timestamp={} energy={}", applianceId, timestamp, energy);
-                if (previousTimestamp != null && previousEnergy != null) {
-                    long diffTime = Duration.between(previousTimestamp, timestamp).toMillis();
-                    double diffEnergy = energy - previousEnergy;
-                    // diffEnergy kWh * 1000W/kW * 3600s/1h * 1000ms/1s / diffTime ms
-                    double power = diffEnergy * 1000.0 * 3600.0 * 1000.0 / diffTime;
-                    logger.debug("{}: Calculating power from energy: power={} energy={} previousEnergy={} diffEnergy={} diffTime={}",
-                            applianceId, (int) power, energyFormat.format(energy), energyFormat.format(previousEnergy),
-                            energyFormat.format(diffEnergy), diffTime);
-                    powerValues.add(power > 0 ? Double.valueOf(power).intValue() : 0);
-                }
-                previousTimestamp = timestamp;
-                previousEnergy = energy;
+    /**
+     * Derives the power from the energy consumed since the previous value. If the energy counter has been reset
+     * or has wrapped around, the counter is assumed to have restarted from 0.
+     */
+    private synchronized void derivePower(long timestampMillis, double energy) {
+        if(this.previousTimestampMillis >= 0) {
+            long diffTime = timestampMillis - this.previousTimestampMillis;
+            if(diffTime <= 0) {
+                logger.debug("{}: Ignoring energy value not after previous value: timestamp={} previousTimestamp={}",
+                        applianceId, timestampMillis, this.previousTimestampMillis);
+                return;
             }
+            double diffEnergy = energy - this.previousEnergy;
+            if(diffEnergy < 0) {
+                logger.debug("{}: Energy counter has been reset: energy={} previousEnergy={}",
+                        applianceId, energy, this.previousEnergy);
+                diffEnergy = energy;
+            }
+            // diffEnergy kWh * 1000W/kW * 3600s/1h * 1000ms/1s / diffTime ms
+            double power = diffEnergy * 1000.0 * 3600.0 * 1000.0 / diffTime;
+            if(logger.isTraceEnabled()) {
+                logger.trace("{}: Calculating power from energy: power={} energy={} previousEnergy={} diffEnergy={} diffTime={}",
+                        applianceId, (int) power, energyFormat.format(energy), energyFormat.format(this.previousEnergy),
+                        energyFormat.format(diffEnergy), diffTime);
+            }
+            this.lastPower = power > 0 ? (int) power : 0;
+            this.powerStatistics.addValue(timestampMillis, this.lastPower);
         }
-        return powerValues.size() > 0 ? powerValues.lastElement() : 0;
+        this.previousTimestampMillis = timestampMillis;
+        this.previousEnergy = energy;
+    }
+
+    /**
+     * Returns the power derived from the last two energy values.
+     */
+    public int getAveragePower() {
+        return this.lastPower;
+    }
+
+    /**
+     * Returns the minimum power derived from the energy values not expired.
+     */
+    public int getMinPower() {
+        return (int) this.powerStatistics.getMin(TimeSeries.toMillis(LocalDateTime.now()));
+    }
+
+    /**
+     * Returns the maximum power derived from the energy values not expired.
+     */
+    public int getMaxPower() {
+        return (int) this.powerStatistics.getMax(TimeSeries.toMillis(LocalDateTime.now()));
+    }
+
+    private void setLatestEnergyCounter(double energyCounter) {
+        this.latestEnergyCounterMillis = System.currentTimeMillis();
+        this.latestEnergyCounter = energyCounter;
     }
 
+    /**
+     * Returns the energy metered since the energy counter was started reading the current counter value.
+     */
     public double getEnergy() {
         double currentEnergyCounter = this.pollEnergyExecutor.pollEnergy(LocalDateTime.now());
+        setLatestEnergyCounter(currentEnergyCounter);
+        return calculateEnergy(currentEnergyCounter);
+    }
+
+    /**
+     * Returns the energy metered since the energy counter was started using the counter value polled last.
+     * If this value is older than the given age, a refresh is triggered in the background.
+     * The device is read directly only if there is no value polled yet.
+     * @param maxAgeSeconds the maximum age of the counter value
+     */
+    public double getEnergy(int maxAgeSeconds) {
+        if(Double.isNaN(this.latestEnergyCounter)) {
+            return getEnergy();
+        }
+        long ageMillis = System.currentTimeMillis() - this.latestEnergyCounterMillis;
+        if(ageMillis > maxAgeSeconds * 1000L) {
+            logger.trace("{}: Refreshing energy counter polled {}ms ago", applianceId, ageMillis);
+            refreshEnergyCounter();
+        }
+        return calculateEnergy(this.latestEnergyCounter);
+    }
+
+    private synchronized void refreshEnergyCounter() {
+        if(this.refreshPoller == null) {
+            this.refreshPoller = new ConcurrentPoller(this.applianceId, "PollEnergyMeterRefresh",
+                    Meter.averagingInterval * 1000);
+        }
+        if(! this.refreshPoller.isPollInProgress()) {
+            this.refreshPoller.poll(this.timer, () -> pollEnergyExecutor.pollEnergy(LocalDateTime.now()), energy -> {
+                if(energy != null) {
+                    setLatestEnergyCounter(energy);
+                }
+            });
+        }
+    }
+
+    private double calculateEnergy(double currentEnergyCounter) {
         double energy = 0.0f;
         if(this.startEnergyCounter != null) {
             if(this.totalEnergy != null) {
@@ -175,6 +274,9 @@ public class PollEnergyMeter implements ApplianceIdConsumer {
     public Double startEnergyCounter() {
         if(! this.started) {
             this.startEnergyCounter = this.pollEnergyExecutor.pollEnergy(LocalDateTime.now());
+            if(this.startEnergyCounter != null) {
+                setLatestEnergyCounter(this.startEnergyCounter);
+            }
             logger.debug("{}: Start energy counter: {}", applianceId, startEnergyCounter);
             this.started = true;
         }
@@ -183,12 +285,12 @@ public class PollEnergyMeter implements ApplianceIdConsumer {
 
     public Double stopEnergyCounter() {
         double stopEnergyCounter = this.pollEnergyExecutor.pollEnergy(LocalDateTime.now());
+        setLatestEnergyCounter(stopEnergyCounter);
         if(stopEnergyCounter == 0.0f) {
             // the event causing the the counter to stop may have already reset the counter we poll
             // in this case we use the last value from cache
-            Double lastValue = this.cache.getLastValue();
-            if(lastValue != null) {
-                stopEnergyCounter = lastValue;
+            if(! this.cache.isEmpty()) {
+                stopEnergyCounter = this.cache.getLastValue();
             }
         }
         if(this.startEnergyCounter != null) {
@@ -210,6 +312,11 @@ public class PollEnergyMeter implements ApplianceIdConsumer {
         this.startEnergyCounter = null;
         this.totalEnergy = null;
         this.cache.clear();
+        synchronized (this) {
+            this.previousTimestampMillis = -1;
+            this.lastPower = 0;
+            this.powerStatistics.clear();
+        }
     }
 
     public boolean isStarted() {
@@ -217,6 +324,6 @@ public class PollEnergyMeter implements ApplianceIdConsumer {
     }
 
     public void addPowerUpateListener(PowerUpdateListener listener) {
-        this.powerUpdateListeners.add(listener);
+        this.powerUpdateNotifier.addListener(listener);
     }
 }
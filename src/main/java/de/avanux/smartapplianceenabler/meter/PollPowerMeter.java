@@ -19,15 +19,14 @@ package de.avanux.smartapplianceenabler.meter;
 
 import de.avanux.smartapplianceenabler.appliance.ApplianceIdConsumer;
 import de.avanux.smartapplianceenabler.util.GuardedTimerTask;
-import de.avanux.smartapplianceenabler.util.TimestampBasedCache;
+import de.avanux.smartapplianceenabler.util.TaskScheduler;
+import de.avanux.smartapplianceenabler.util.TimeSeries;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.time.LocalDateTime;
-import java.util.ArrayList;
-import java.util.Collections;
 import java.util.List;
-import java.util.Timer;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
  * A PollPowerMeter calculates power consumption by polling.
@@ -35,37 +34,43 @@ import java.util.Timer;
 public class PollPowerMeter implements ApplianceIdConsumer {
 
     private Logger logger = LoggerFactory.getLogger(PollPowerMeter.class);
-    private TimestampBasedCache<Double> cache = new TimestampBasedCache<Double>("Power");
+    private List<SlidingWindowStatistics> windows = new CopyOnWriteArrayList<>();
+    private SlidingWindowStatistics statistics = getStatistics(Meter.averagingInterval);
     private String applianceId;
     private GuardedTimerTask pollTimerTask;
-    private List<PowerUpdateListener> powerUpdateListeners = new ArrayList<>();
+    private PowerUpdateNotifier powerUpdateNotifier = new PowerUpdateNotifier();
     private LocalDateTime averagingIntervalBegin;
 
-    public PollPowerMeter() {
-        this.cache.setMaxAgeSeconds(Meter.averagingInterval);
-    }
-
     @Override
     public void setApplianceId(String applianceId) {
         this.applianceId = applianceId;
-        this.cache.setApplianceId(applianceId);
+        this.powerUpdateNotifier.setApplianceId(applianceId);
     }
 
     public void setAveragingIntervalBegin(LocalDateTime averagingIntervalBegin) {
         this.averagingIntervalBegin = averagingIntervalBegin;
     }
 
-    public void start(Timer timer, Integer pollInterval, PollPowerExecutor pollPowerExecutor) {
+    public void start(TaskScheduler timer, Integer pollInterval, PollPowerExecutor pollPowerExecutor) {
+        this.powerUpdateNotifier.start(timer);
+        ConcurrentPoller poller = new ConcurrentPoller(this.applianceId, "PollPowerMeter", pollInterval * 1000);
         this.pollTimerTask = new GuardedTimerTask(this.applianceId, "PollPowerMeter", pollInterval * 1000) {
             @Override
             public void runTask() {
                 LocalDateTime now = LocalDateTime.now();
-                addValue(now, pollPowerExecutor);
-                powerUpdateListeners.forEach(listener -> listener.onPowerUpdate(getAveragePower(now)));
+                poller.poll(timer, pollPowerExecutor::pollPower, power -> {
+                    if(power != null) {
+                        addValue(now, power);
+                    }
+                    if(powerUpdateNotifier.hasListeners()) {
+                        powerUpdateNotifier.notifyListeners(getAveragePower(now));
+                    }
+                });
             }
         };
         if(timer != null) {
-            timer.schedule(this.pollTimerTask, 0, this.pollTimerTask.getPeriod());
+            timer.schedule(this.pollTimerTask, ConcurrentPoller.getAlignedDelay(this.pollTimerTask.getPeriod()),
+                    this.pollTimerTask.getPeriod());
         }
     }
 
@@ -73,6 +78,7 @@ public class PollPowerMeter implements ApplianceIdConsumer {
         if(this.pollTimerTask != null) {
             this.pollTimerTask.cancel();
         }
+        this.powerUpdateNotifier.stop();
     }
 
     public void addValue(LocalDateTime timestamp, PollPowerExecutor pollPowerExecutor) {
@@ -83,38 +89,47 @@ public class PollPowerMeter implements ApplianceIdConsumer {
     }
 
     public void addValue(LocalDateTime timestamp, double power) {
-        cache.addValue(timestamp, power);
+        long timestampMillis = TimeSeries.toMillis(timestamp);
+        for(SlidingWindowStatistics window : this.windows) {
+            window.addValue(timestampMillis, power);
+        }
     }
 
     public void reset() {
-        this.cache.clear();
+        this.windows.forEach(SlidingWindowStatistics::clear);
     }
 
-    public int getAveragePower(LocalDateTime now) {
-        List<Double> powerValues = new ArrayList<>(cache.getNotExpiredTimestampWithValue(now).values());
-        if(powerValues.size() == 0) {
-            return 0;
-        }
-        int sum = 0;
-        for (double value : powerValues) {
-            sum += value;
+    /**
+     * Returns the statistics of the power values within a window of the given length. The statistics of a window
+     * requested for the first time contain the values added afterwards only.
+     * @param windowSeconds the length of the window
+     */
+    public SlidingWindowStatistics getStatistics(int windowSeconds) {
+        synchronized (this.windows) {
+            for(SlidingWindowStatistics window : this.windows) {
+                if(window.getWindowSeconds() == windowSeconds) {
+                    return window;
+                }
+            }
+            SlidingWindowStatistics window = new SlidingWindowStatistics(windowSeconds);
+            this.windows.add(window);
+            return window;
         }
-        return sum / powerValues.size();
+    }
+
+    public int getAveragePower(LocalDateTime now) {
+        return (int) statistics.getAverage(TimeSeries.toMillis(now));
     }
 
     public int getMinPower(LocalDateTime now) {
-        List<Double> powerValues = new ArrayList<>(cache.getNotExpiredTimestampWithValue(now).values());
-        Collections.sort(powerValues);
-        return powerValues.size() > 0 ? powerValues.get(0).intValue() : 0;
+        return (int) statistics.getMin(TimeSeries.toMillis(now));
     }
 
     public int getMaxPower(LocalDateTime now) {
-        List<Double> powerValues = new ArrayList<>(cache.getNotExpiredTimestampWithValue(now).values());
-        Collections.sort(powerValues);
-        return powerValues.size() > 0 ? powerValues.get(powerValues.size() - 1).intValue() : 0;
+        return (int) statistics.getMax(TimeSeries.toMillis(now));
     }
 
     public void addPowerUpateListener(PowerUpdateListener listener) {
-        this.powerUpdateListeners.add(listener);
+        this.powerUpdateNotifier.addListener(listener);
     }
 }
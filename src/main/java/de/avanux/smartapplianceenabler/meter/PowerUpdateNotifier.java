@@ -0,0 +1,103 @@
+/*
+ * Copyright (C) 2021 Axel Müller <axel.mueller@avanux.de>
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package de.avanux.smartapplianceenabler.meter;
+
+import de.avanux.smartapplianceenabler.appliance.ApplianceIdConsumer;
+import de.avanux.smartapplianceenabler.util.EventBus;
+import de.avanux.smartapplianceenabler.util.TaskScheduler;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+
+/**
+ * Delivers the power updates of a meter to its {@link PowerUpdateListener}s through the {@link EventBus}.
+ * Meters are not blocked by slow listeners and a listener falling behind only receives the latest power.
+ * <p>
+ * While started the power updates are delivered in the lane of the appliance so that listeners are never called
+ * concurrently with the timer tasks of the appliance.
+ */
+public class PowerUpdateNotifier implements ApplianceIdConsumer {
+    private String applianceId;
+    private EventBus eventBus;
+    private Executor dispatcher;
+    private List<PowerUpdateListener> listeners = new CopyOnWriteArrayList<>();
+    private List<EventBus.Subscription<Integer>> subscriptions = new CopyOnWriteArrayList<>();
+
+    public PowerUpdateNotifier() {
+        this(EventBus.getInstance());
+    }
+
+    public PowerUpdateNotifier(EventBus eventBus) {
+        this.eventBus = eventBus;
+    }
+
+    @Override
+    public void setApplianceId(String applianceId) {
+        this.applianceId = applianceId;
+    }
+
+    public synchronized void addListener(PowerUpdateListener listener) {
+        if(! this.listeners.contains(listener)) {
+            this.listeners.add(listener);
+            this.subscriptions.add(subscribe(listener));
+        }
+    }
+
+    /**
+     * Delivers the power updates in the lane of the appliance from now on.
+     */
+    public synchronized void start(TaskScheduler timer) {
+        this.dispatcher = timer != null ? timer.getLane(this.applianceId) : null;
+        unsubscribe();
+        for(PowerUpdateListener listener : this.listeners) {
+            this.subscriptions.add(subscribe(listener));
+        }
+    }
+
+    /**
+     * Removes the subscriptions of the listeners until started again.
+     */
+    public synchronized void stop() {
+        unsubscribe();
+        this.dispatcher = null;
+    }
+
+    private EventBus.Subscription<Integer> subscribe(PowerUpdateListener listener) {
+        return this.eventBus.subscribe(this.applianceId + "." + listener.getClass().getSimpleName(),
+                (applianceId, power) -> listener.onPowerUpdate(power), this.dispatcher);
+    }
+
+    private void unsubscribe() {
+        for(EventBus.Subscription<Integer> subscription : this.subscriptions) {
+            this.eventBus.unsubscribe(subscription);
+        }
+        this.subscriptions.clear();
+    }
+
+    public boolean hasListeners() {
+        return ! this.subscriptions.isEmpty();
+    }
+
+    public void notifyListeners(int averagePower) {
+        for(EventBus.Subscription<Integer> subscription : this.subscriptions) {
+            subscription.publish(this.applianceId, averagePower);
+        }
+    }
+}
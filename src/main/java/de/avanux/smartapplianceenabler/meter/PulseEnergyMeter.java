@@ -31,7 +31,7 @@ public class PulseEnergyMeter implements ApplianceIdConsumer {
     private String applianceId;
     private Integer impulsesPerKwh;
     private int pulseCounter;
-    private boolean started;
+    private volatile boolean started;
 
     @Override
     public void setApplianceId(String applianceId) {
@@ -42,15 +42,17 @@ public class PulseEnergyMeter implements ApplianceIdConsumer {
         this.impulsesPerKwh = impulsesPerKwh;
     }
 
-    public void increasePulseCounter() {
+    public synchronized void increasePulseCounter() {
         if(started) {
             pulseCounter++;
         }
-        logger.debug("{}: energy={}kWh started={} pulses={} pulses/kWh={}", applianceId, getEnergy(),
-                started, pulseCounter, impulsesPerKwh);
+        if(logger.isTraceEnabled()) {
+            logger.trace("{}: energy={}kWh started={} pulses={} pulses/kWh={}", applianceId, getEnergy(),
+                    started, pulseCounter, impulsesPerKwh);
+        }
     }
 
-    public float getEnergy() {
+    public synchronized float getEnergy() {
         return Double.valueOf(pulseCounter / Double.valueOf(impulsesPerKwh)).floatValue();
     }
 
@@ -62,7 +64,7 @@ public class PulseEnergyMeter implements ApplianceIdConsumer {
         started = false;
     }
 
-    public void resetEnergyCounter() {
+    public synchronized void resetEnergyCounter() {
         pulseCounter = 0;
     }
 
@@ -21,17 +21,26 @@ package de.avanux.smartapplianceenabler.meter;
 import de.avanux.smartapplianceenabler.appliance.ApplianceIdConsumer;
 import de.avanux.smartapplianceenabler.configuration.ConfigurationException;
 import de.avanux.smartapplianceenabler.configuration.Validateable;
+import de.avanux.smartapplianceenabler.util.TimestampValueDeque;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.List;
-
+/**
+ * Calculates power from the timestamps of S0 impulses.
+ * <p>
+ * The power of each pair of consecutive impulses is calculated once when the impulse is added and kept together with
+ * its timestamp. Average, minimum and maximum are maintained incrementally using a running sum and monotonic deques,
+ * so that neither adding impulses nor reading the power depends on the number of impulses within the averaging interval.
+ */
 public class PulsePowerMeter implements ApplianceIdConsumer, Validateable {
     private Logger logger = LoggerFactory.getLogger(PulsePowerMeter.class);
     private String applianceId;
-    private List<Long> impulseTimestamps = Collections.synchronizedList(new ArrayList<Long>());
+    // impulse timestamps with the power of the pair ending with that impulse (the value of the first one is unused)
+    private TimestampValueDeque impulses = new TimestampValueDeque();
+    private TimestampValueDeque minPowers = new TimestampValueDeque();
+    private TimestampValueDeque maxPowers = new TimestampValueDeque();
+    private double powerSum;
+    private int removedSinceSumRecalculation;
     private Integer impulsesPerKwh;
 
     @Override
@@ -53,32 +62,51 @@ public class PulsePowerMeter implements ApplianceIdConsumer, Validateable {
         this.applianceId = applianceId;
     }
 
-    protected void addTimestamp(long timestampMillis) {
-        impulseTimestamps.add(timestampMillis);
+    /**
+     * Adds the timestamp of an impulse. Timestamps not after the most recent one are ignored.
+     */
+    protected synchronized void addTimestamp(long timestampMillis) {
+        if(impulses.isEmpty()) {
+            impulses.addLast(timestampMillis, 0.0);
+            return;
+        }
+        if(timestampMillis <= impulses.lastTimestamp()) {
+            return;
+        }
+        double power = calculatePower(impulses.lastTimestamp(), timestampMillis);
+        impulses.addLast(timestampMillis, power);
+        powerSum += power;
+        while(! minPowers.isEmpty() && minPowers.lastValue() >= power) {
+            minPowers.removeLast();
+        }
+        minPowers.addLast(timestampMillis, power);
+        while(! maxPowers.isEmpty() && maxPowers.lastValue() <= power) {
+            maxPowers.removeLast();
+        }
+        maxPowers.addLast(timestampMillis, power);
     }
 
+    /**
+     * Removes expired timestamps but keeps the 2 most recent ones.
+     */
     private void maintainTimestamps(long timestampNow) {
-        List<Long> impulseTimestampsForRemoval = new ArrayList<Long>();
-        this.impulseTimestamps.stream()
-                .filter(timestamp -> isTimestampExpired(timestampNow, timestamp))
-                .forEach(impulseTimestampsForRemoval::add);
-
-        // remove expired timestamps but keep the 2 most most recent ones
-        Long secondMostRecentTimestamp = getSecondMostRecentTimestamp();
-        Long mostRecentTimestamp = getMostRecentTimestamp();
-        this.impulseTimestamps.removeAll(impulseTimestampsForRemoval);
-        if(this.impulseTimestamps.size() == 1) {
-            if(secondMostRecentTimestamp != null) {
-                this.impulseTimestamps.add(0, secondMostRecentTimestamp);
-            }
+        while(impulses.size() > 2 && isTimestampExpired(timestampNow, impulses.firstTimestamp())) {
+            impulses.removeFirst();
+            // the power of the new first impulse refers to the removed one
+            powerSum -= impulses.firstValue();
+            removedSinceSumRecalculation++;
         }
-        else if(this.impulseTimestamps.size() == 0) {
-            if(secondMostRecentTimestamp != null) {
-                this.impulseTimestamps.add(secondMostRecentTimestamp);
-            }
-            if(mostRecentTimestamp != null) {
-                this.impulseTimestamps.add(mostRecentTimestamp);
-            }
+        long firstTimestamp = impulses.isEmpty() ? Long.MIN_VALUE : impulses.firstTimestamp();
+        while(! minPowers.isEmpty() && minPowers.firstTimestamp() <= firstTimestamp) {
+            minPowers.removeFirst();
+        }
+        while(! maxPowers.isEmpty() && maxPowers.firstTimestamp() <= firstTimestamp) {
+            maxPowers.removeFirst();
+        }
+        if(removedSinceSumRecalculation > impulses.capacity()) {
+            // avoid accumulating rounding errors of the running sum
+            powerSum = impulses.sum() - impulses.firstValue();
+            removedSinceSumRecalculation = 0;
         }
     }
 
@@ -86,14 +114,15 @@ public class PulsePowerMeter implements ApplianceIdConsumer, Validateable {
         return timestampNow - timestamp > Meter.averagingInterval * 1000;
     }
 
-    private Long getMostRecentTimestamp() {
-        return this.impulseTimestamps.size() > 0
-                ? this.impulseTimestamps.get(this.impulseTimestamps.size() - 1) : null;
+    /**
+     * Returns the power of the 2 impulses remaining if all impulses are expired.
+     */
+    private double calculateExpiredPower(long timestampNow) {
+        return calculatePower(timestampNow, impulses.firstTimestamp(), impulses.lastTimestamp());
     }
 
-    private Long getSecondMostRecentTimestamp() {
-        return this.impulseTimestamps.size() > 1
-                ? this.impulseTimestamps.get(this.impulseTimestamps.size() - 2) : null;
+    private boolean isMostRecentTimestampExpired(long timestampNow) {
+        return isTimestampExpired(timestampNow, impulses.lastTimestamp());
     }
 
     protected double calculatePower(long timestampNow, long timestamp1, long timestamp2) {
@@ -104,76 +133,56 @@ public class PulsePowerMeter implements ApplianceIdConsumer, Validateable {
                 return 0.0;
             }
         }
+        return calculatePower(timestamp1, timestamp2);
+    }
+
+    private double calculatePower(long timestamp1, long timestamp2) {
         // 3600s * 1000 W/Kw / (timestampDelta ms * 1s/1000ms * imp/KWh)
-        double power = 3600.0 * 1000.0 / (timestampDelta12 / 1000.0 * this.impulsesPerKwh);
-//        logger.debug("{}: timestamp1={} timestamp2={} timestampDelta12={} power={}",
-//                applianceId, timestamp1, timestamp2, timestampDelta12, power);
-        return power;
+        return 3600.0 * 1000.0 / ((timestamp2 - timestamp1) / 1000.0 * this.impulsesPerKwh);
     }
 
     public int getAveragePower() {
         return getAveragePower(System.currentTimeMillis());
     }
 
-    int getAveragePower(long timestampNow) {
+    synchronized int getAveragePower(long timestampNow) {
         this.maintainTimestamps(timestampNow);
-        if(this.impulseTimestamps.size() == 0 || this.impulseTimestamps.size() == 1) {
+        if(impulses.size() < 2) {
             return 0;
         }
-
-        Double powerValuesSum = 0.0;
-        for(int i=0; i<this.impulseTimestamps.size() - 1; i ++) {
-            powerValuesSum += calculatePower(timestampNow, impulseTimestamps.get(i), impulseTimestamps.get(i + 1));
+        if(isMostRecentTimestampExpired(timestampNow)) {
+            return (int) calculateExpiredPower(timestampNow);
         }
-        int power = Double.valueOf(powerValuesSum / (impulseTimestamps.size() - 1)).intValue();
-//        logger.debug("{}: impulseTimestamps-1={} powerValuesSum={} power={}",
-//                applianceId, impulseTimestamps.size() - 1, powerValuesSum, power);
-        return power;
+        return (int) (powerSum / (impulses.size() - 1));
     }
 
     public int getMinPower() {
         return getMinPower(System.currentTimeMillis());
     }
 
-    int getMinPower(long timestampNow) {
+    synchronized int getMinPower(long timestampNow) {
         this.maintainTimestamps(timestampNow);
-        if(this.impulseTimestamps.size() == 0) {
+        if(impulses.size() < 2) {
             return 0;
         }
-        if(this.impulseTimestamps.size() == 1) {
-            return getAveragePower(timestampNow);
-        }
-
-        double minPower = Double.MAX_VALUE;
-        for(int i=0; i<this.impulseTimestamps.size() - 1; i ++) {
-            double power = calculatePower(timestampNow, this.impulseTimestamps.get(i), this.impulseTimestamps.get(i + 1));
-            if(power < minPower) {
-                minPower = power;
-            }
+        if(isMostRecentTimestampExpired(timestampNow)) {
+            return (int) calculateExpiredPower(timestampNow);
         }
-        return Double.valueOf(minPower).intValue();
+        return (int) minPowers.firstValue();
     }
 
     public int getMaxPower() {
         return getMaxPower(System.currentTimeMillis());
     }
 
-    int getMaxPower(long timestampNow) {
+    synchronized int getMaxPower(long timestampNow) {
         this.maintainTimestamps(timestampNow);
-        if(this.impulseTimestamps.size() == 0) {
+        if(impulses.size() < 2) {
             return 0;
         }
-        if(this.impulseTimestamps.size() == 1) {
-            return getAveragePower(timestampNow);
-        }
-
-        double maxPower = Double.MIN_VALUE;
-        for(int i=0; i<this.impulseTimestamps.size() - 1; i ++) {
-            double power = calculatePower(timestampNow, this.impulseTimestamps.get(i), this.impulseTimestamps.get(i + 1));
-            if(power > maxPower) {
-                maxPower = power;
-            }
+        if(isMostRecentTimestampExpired(timestampNow)) {
+            return (int) calculateExpiredPower(timestampNow);
         }
-        return Double.valueOf(maxPower).intValue();
+        return (int) maxPowers.firstValue();
     }
 }
@@ -0,0 +1,86 @@
+/*
+ * Copyright (C) 2021 Axel Müller <axel.mueller@avanux.de>
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package de.avanux.smartapplianceenabler.meter;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongConsumer;
+
+/**
+ * Lock-free ring buffer of pulse timestamps for exactly one producer thread and one consumer thread.
+ * If the consumer falls behind so far that the buffer is full, further pulses are dropped and counted.
+ */
+public class PulseTimestampBuffer {
+    private final long[] timestamps;
+    private final int mask;
+    // position of the next timestamp to be read - written by the consumer only
+    private final AtomicLong readPosition = new AtomicLong();
+    // position of the next timestamp to be written - written by the producer only
+    private final AtomicLong writePosition = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+
+    /**
+     * @param capacity the number of timestamps which can be buffered; rounded up to a power of 2
+     */
+    public PulseTimestampBuffer(int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+        this.timestamps = new long[size];
+        this.mask = size - 1;
+    }
+
+    public int getCapacity() {
+        return timestamps.length;
+    }
+
+    /**
+     * Adds a timestamp. Must only be called by the producer thread.
+     * @return false, if the buffer is full and the timestamp has been dropped
+     */
+    public boolean offer(long timestamp) {
+        long position = writePosition.get();
+        if(position - readPosition.get() == timestamps.length) {
+            dropped.incrementAndGet();
+            return false;
+        }
+        timestamps[(int) position & mask] = timestamp;
+        writePosition.lazySet(position + 1);
+        return true;
+    }
+
+    /**
+     * Passes all timestamps buffered to the consumer and removes them from the buffer.
+     * Must only be called by one consumer thread at a time.
+     * @return the number of timestamps passed to the consumer
+     */
+    public int drain(LongConsumer consumer) {
+        long position = readPosition.get();
+        long limit = writePosition.get();
+        for(long i=position; i<limit; i++) {
+            consumer.accept(timestamps[(int) i & mask]);
+        }
+        readPosition.lazySet(limit);
+        return (int) (limit - position);
+    }
+
+    /**
+     * Returns the number of timestamps dropped since the last call and resets the counter.
+     */
+    public long getAndResetDropped() {
+        return dropped.getAndSet(0);
+    }
+}
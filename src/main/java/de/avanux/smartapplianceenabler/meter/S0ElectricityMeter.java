@@ -26,15 +26,28 @@ import de.avanux.smartapplianceenabler.notification.NotificationHandler;
 import de.avanux.smartapplianceenabler.notification.NotificationType;
 import de.avanux.smartapplianceenabler.notification.NotificationProvider;
 import de.avanux.smartapplianceenabler.notification.Notifications;
+import de.avanux.smartapplianceenabler.util.GuardedTimerTask;
+import de.avanux.smartapplianceenabler.util.TaskScheduler;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.xml.bind.annotation.*;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Timer;
+import java.util.function.LongConsumer;
 
+/**
+ * Meter counting S0 impulses received on a GPIO pin.
+ * <p>
+ * The GPIO listener only records the timestamp of each impulse in a lock-free ring buffer. The impulses are
+ * processed into power and energy by the consumers of the meter values and by a timer task which notifies the
+ * power update listeners at most once per notification interval. The interval defaults to
+ * {@value #DEFAULT_NOTIFICATION_INTERVAL_MILLIS}ms and can be set with the system property
+ * {@value #NOTIFICATION_INTERVAL_PROPERTY} (milliseconds).
+ */
 public class S0ElectricityMeter extends GpioControllable implements Meter, NotificationProvider {
+    public static final String NOTIFICATION_INTERVAL_PROPERTY = "sae.s0.notificationInterval";
+    private static final long DEFAULT_NOTIFICATION_INTERVAL_MILLIS = 1000;
+    private static final int PULSE_BUFFER_CAPACITY = 1024;
+    private static final long NO_PULSE = Long.MIN_VALUE;
 
     private transient Logger logger = LoggerFactory.getLogger(S0ElectricityMeter.class);
     @XmlAttribute
@@ -43,11 +56,15 @@ public class S0ElectricityMeter extends GpioControllable implements Meter, Notif
     private Integer minPulseDuration; // milliseconds
     @XmlElement(name = "Notifications")
     private Notifications notifications;
-    private transient Long pulseTimestamp;
+    private transient long pulseTimestamp = NO_PULSE;
+    private transient PulseTimestampBuffer pulseTimestamps = new PulseTimestampBuffer(PULSE_BUFFER_CAPACITY);
+    private transient LongConsumer pulseConsumer = this::addPulse;
+    private transient boolean powerUpdatePending;
+    private transient GuardedTimerTask notificationTimerTask;
     private transient GpioPin inputPin;
     private transient PulsePowerMeter pulsePowerMeter = new PulsePowerMeter();
     private transient PulseEnergyMeter pulseEnergyMeter = new PulseEnergyMeter();
-    private transient List<PowerUpdateListener> powerMeterListeners = new ArrayList<>();
+    private transient PowerUpdateNotifier powerUpdateNotifier = new PowerUpdateNotifier();
     private transient NotificationHandler notificationHandler;
 
     @Override
@@ -76,6 +93,7 @@ public class S0ElectricityMeter extends GpioControllable implements Meter, Notif
         super.setApplianceId(applianceId);
         this.pulsePowerMeter.setApplianceId(applianceId);
         this.pulseEnergyMeter.setApplianceId(applianceId);
+        this.powerUpdateNotifier.setApplianceId(applianceId);
     }
 
     protected void setPulsePowerMeter(PulsePowerMeter pulsePowerMeter) {
@@ -88,21 +106,25 @@ public class S0ElectricityMeter extends GpioControllable implements Meter, Notif
 
     @Override
     public int getAveragePower() {
+        processPulses();
         return pulsePowerMeter.getAveragePower();
     }
 
     @Override
     public int getMinPower() {
+        processPulses();
         return pulsePowerMeter.getMinPower();
     }
 
     @Override
     public int getMaxPower() {
+        processPulses();
         return pulsePowerMeter.getMaxPower();
     }
 
     @Override
     public float getEnergy() {
+        processPulses();
         return this.pulseEnergyMeter.getEnergy();
     }
 
@@ -123,7 +145,7 @@ public class S0ElectricityMeter extends GpioControllable implements Meter, Notif
 
     @Override
     public void addPowerUpdateListener(PowerUpdateListener listener) {
-        this.powerMeterListeners.add(listener);
+        this.powerUpdateNotifier.addListener(listener);
     }
 
     @Override
@@ -136,8 +158,9 @@ public class S0ElectricityMeter extends GpioControllable implements Meter, Notif
     }
 
     @Override
-    public void start(LocalDateTime now, Timer timer) {
+    public void start(LocalDateTime now, TaskScheduler timer) {
         logger.debug("{}: Starting {}", getApplianceId(), getClass().getSimpleName());
+        powerUpdateNotifier.start(timer);
         GpioController gpioController = getGpioController();
         if(gpioController != null) {
             try {
@@ -148,6 +171,7 @@ public class S0ElectricityMeter extends GpioControllable implements Meter, Notif
                 inputPin.addListener((GpioPinListenerDigital) event -> {
                     handleEvent(event.getPin(), event.getState(), getPinPullResistance(), System.currentTimeMillis());
                 });
+                startNotificationTimer(timer);
             }
             catch(Exception e) {
                 logger.error("{}: Error start metering using {}", getApplianceId(), getGpio(), e);
@@ -171,25 +195,79 @@ public class S0ElectricityMeter extends GpioControllable implements Meter, Notif
         else {
             logGpioAccessDisabled(logger);
         }
+        if(notificationTimerTask != null) {
+            notificationTimerTask.cancel();
+        }
+        powerUpdateNotifier.stop();
     }
 
     @Override
-    public void startAveragingInterval(LocalDateTime now, Timer timer, int nextPollCompletedSecondsFromNow) {
+    public void startAveragingInterval(LocalDateTime now, TaskScheduler timer, int nextPollCompletedSecondsFromNow) {
+    }
+
+    private void startNotificationTimer(TaskScheduler timer) {
+        long notificationInterval = Long.getLong(NOTIFICATION_INTERVAL_PROPERTY, DEFAULT_NOTIFICATION_INTERVAL_MILLIS);
+        this.notificationTimerTask = new GuardedTimerTask(getApplianceId(), "S0ElectricityMeter", notificationInterval) {
+            @Override
+            public void runTask() {
+                notifyPowerUpdateListeners();
+            }
+        };
+        if(timer != null) {
+            timer.schedule(this.notificationTimerTask, notificationInterval, notificationInterval);
+        }
     }
 
-    protected synchronized void handleEvent(GpioPin pin, PinState state, PinPullResistance pinPullResistance, Long timestamp) {
+    /**
+     * Records the timestamp of an impulse. Called by the GPIO listener thread only.
+     */
+    protected void handleEvent(GpioPin pin, PinState state, PinPullResistance pinPullResistance, long timestamp) {
         if((pinPullResistance == PinPullResistance.PULL_DOWN && state == PinState.HIGH)
                 || (pinPullResistance == PinPullResistance.PULL_UP && state == PinState.LOW)) {
             pulseTimestamp = timestamp;
         }
-        else if (pulseTimestamp != null && (timestamp - pulseTimestamp) > getMinPulseDuration()) {
-            logger.debug("{}: S0 impulse detected on GPIO {}", getApplianceId(), pin.getPin().getAddress());
-            pulsePowerMeter.addTimestamp(pulseTimestamp);
-            pulseEnergyMeter.increasePulseCounter();
-            int averagePower = getAveragePower();
-            logger.debug("{}: power: {}W", getApplianceId(), averagePower);
-            powerMeterListeners.forEach(listener -> listener.onPowerUpdate(averagePower));
-            pulseTimestamp = null;
+        else if (pulseTimestamp != NO_PULSE && (timestamp - pulseTimestamp) > getMinPulseDuration()) {
+            pulseTimestamps.offer(pulseTimestamp);
+            pulseTimestamp = NO_PULSE;
+        }
+    }
+
+    /**
+     * Passes the impulses recorded since the last call to the power meter and the energy meter.
+     * @return the number of impulses processed
+     */
+    protected synchronized int processPulses() {
+        int pulses = pulseTimestamps.drain(pulseConsumer);
+        long dropped = pulseTimestamps.getAndResetDropped();
+        if(dropped > 0) {
+            logger.warn("{}: {} S0 impulses dropped on GPIO {}", getApplianceId(), dropped,
+                    getGpio() != null ? getGpio().getAddress() : null);
+        }
+        if(pulses > 0) {
+            logger.debug("{}: {} S0 impulse(s) processed", getApplianceId(), pulses);
+            powerUpdatePending = true;
+        }
+        return pulses;
+    }
+
+    private void addPulse(long timestamp) {
+        pulsePowerMeter.addTimestamp(timestamp);
+        pulseEnergyMeter.increasePulseCounter();
+    }
+
+    /**
+     * Notifies the power update listeners once if impulses have been processed since the last notification.
+     */
+    protected void notifyPowerUpdateListeners() {
+        synchronized(this) {
+            processPulses();
+            if(! powerUpdatePending) {
+                return;
+            }
+            powerUpdatePending = false;
         }
+        int averagePower = getAveragePower();
+        logger.debug("{}: power: {}W", getApplianceId(), averagePower);
+        powerUpdateNotifier.notifyListeners(averagePower);
     }
 }
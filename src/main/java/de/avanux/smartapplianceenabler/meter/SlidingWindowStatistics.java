@@ -0,0 +1,130 @@
+/*
+ * Copyright (C) 2021 Axel Müller <axel.mueller@avanux.de>
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package de.avanux.smartapplianceenabler.meter;
+
+import de.avanux.smartapplianceenabler.util.TimestampValueDeque;
+
+/**
+ * Minimum, maximum and average of the values within a sliding time window.
+ * <p>
+ * The statistics are updated once per value added: the average is derived from a running sum while minimum and
+ * maximum are the heads of monotonic deques. Values leaving the window are removed from the heads, so that reading
+ * the statistics takes constant amortized time and creates no objects. Timestamps are expected in ascending order.
+ */
+public class SlidingWindowStatistics {
+
+    private long windowMillis;
+    private TimestampValueDeque values = new TimestampValueDeque();
+    private TimestampValueDeque minValues = new TimestampValueDeque();
+    private TimestampValueDeque maxValues = new TimestampValueDeque();
+    private double sum;
+    private int removedSinceSumRecalculation;
+
+    public SlidingWindowStatistics(int windowSeconds) {
+        this.windowMillis = windowSeconds * 1000L;
+    }
+
+    public int getWindowSeconds() {
+        return (int) (windowMillis / 1000);
+    }
+
+    public synchronized void addValue(long timestampMillis, double value) {
+        if(! values.isEmpty() && timestampMillis < values.lastTimestamp()) {
+            timestampMillis = values.lastTimestamp();
+        }
+        values.addLast(timestampMillis, value);
+        sum += value;
+        while(! minValues.isEmpty() && minValues.lastValue() >= value) {
+            minValues.removeLast();
+        }
+        minValues.addLast(timestampMillis, value);
+        while(! maxValues.isEmpty() && maxValues.lastValue() <= value) {
+            maxValues.removeLast();
+        }
+        maxValues.addLast(timestampMillis, value);
+        // values are removed here as well so that the window is bounded even if it is rarely read
+        expire(timestampMillis);
+    }
+
+    public synchronized void clear() {
+        values.clear();
+        minValues.clear();
+        maxValues.clear();
+        sum = 0.0;
+    }
+
+    /**
+     * Returns the number of values within the window ending at the given time.
+     */
+    public synchronized int getCount(long nowMillis) {
+        expire(nowMillis);
+        return values.size();
+    }
+
+    /**
+     * Returns the average of the values within the window ending at the given time or 0 if there are none.
+     */
+    public synchronized double getAverage(long nowMillis) {
+        expire(nowMillis);
+        return values.isEmpty() ? 0.0 : sum / values.size();
+    }
+
+    /**
+     * Returns the minimum of the values within the window ending at the given time or 0 if there are none.
+     */
+    public synchronized double getMin(long nowMillis) {
+        expire(nowMillis);
+        return minValues.isEmpty() ? 0.0 : minValues.firstValue();
+    }
+
+    /**
+     * Returns the maximum of the values within the window ending at the given time or 0 if there are none.
+     */
+    public synchronized double getMax(long nowMillis) {
+        expire(nowMillis);
+        return maxValues.isEmpty() ? 0.0 : maxValues.firstValue();
+    }
+
+    /**
+     * Removes values not after the begin of the window.
+     */
+    private void expire(long nowMillis) {
+        long windowBegin = nowMillis - windowMillis;
+        while(! values.isEmpty() && values.firstTimestamp() <= windowBegin) {
+            sum -= values.firstValue();
+            values.removeFirst();
+            removedSinceSumRecalculation++;
+        }
+        while(! minValues.isEmpty() && minValues.firstTimestamp() <= windowBegin) {
+            minValues.removeFirst();
+        }
+        while(! maxValues.isEmpty() && maxValues.firstTimestamp() <= windowBegin) {
+            maxValues.removeFirst();
+        }
+        if(values.isEmpty()) {
+            sum = 0.0;
+            removedSinceSumRecalculation = 0;
+        }
+        else if(removedSinceSumRecalculation > values.capacity()) {
+            // avoid accumulating rounding errors of the running sum
+            sum = values.sum();
+            removedSinceSumRecalculation = 0;
+        }
+    }
+}
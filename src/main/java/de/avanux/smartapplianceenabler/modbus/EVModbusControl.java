@@ -35,6 +35,7 @@ import javax.xml.bind.annotation.XmlAccessType;
 import javax.xml.bind.annotation.XmlAccessorType;
 import javax.xml.bind.annotation.XmlElement;
 import java.util.List;
+import java.util.Map;
 
 @XmlAccessorType(XmlAccessType.FIELD)
 public class EVModbusControl extends ModbusSlave implements EVChargerControl {
@@ -46,6 +47,7 @@ public class EVModbusControl extends ModbusSlave implements EVChargerControl {
     private List<ModbusWrite> modbusWrites;
     private transient Integer pollInterval; // seconds
     private transient RequestCache<ModbusRead, ModbusReadTransactionExecutor> requestCache;
+    private transient ModbusReadPlan readPlan;
     private transient NotificationHandler notificationHandler;
 
     public List<ModbusRead> getModbusReads() {
@@ -85,7 +87,7 @@ public class EVModbusControl extends ModbusSlave implements EVChargerControl {
     public void init() {
         int cacheMaxAgeSeconds = this.pollInterval - 1;
         this.requestCache = new RequestCache<>(getApplianceId(), cacheMaxAgeSeconds);
-
+        this.readPlan = new ModbusReadPlan(getApplianceId(), this.modbusReads);
     }
 
     @Override
@@ -142,10 +144,10 @@ public class EVModbusControl extends ModbusSlave implements EVChargerControl {
                     ModbusReadTransactionExecutor executor = this.requestCache.get(registerRead);
                     if (executor == null) {
                         registerAddress = registerRead.getAddress();
-                        executor = ModbusExecutorFactory.getReadExecutor(getApplianceId(),
-                                registerRead.getAddress(), registerRead.getType(), registerRead.getValueType(), registerRead.getWords());
-                        executeTransaction(executor, true);
-                        this.requestCache.put(registerRead, executor);
+                        // all registers are read at once so that the other states are cached as well
+                        Map<ModbusRead, ModbusReadTransactionExecutor> executors = this.readPlan.execute(this);
+                        executors.forEach(this.requestCache::put);
+                        executor = executors.get(registerRead);
                     }
                     else {
                         if(executor instanceof BaseTransactionExecutor) {
@@ -154,6 +156,7 @@ public class EVModbusControl extends ModbusSlave implements EVChargerControl {
                             fromCache = true;
                         }
                     }
+                    this.readPlan.verify(registerRead);
 
                     Object value;
                     if(executor instanceof ReadCoilExecutor) {
@@ -205,7 +208,7 @@ public class EVModbusControl extends ModbusSlave implements EVChargerControl {
                         registerWrite.getType(), registerWrite.getAddress(), registerWrite.getFactorToValue());
                 if(executor != null) {
                     executor.setValue(current);
-                    executeTransaction(executor, true);
+                    executeTransaction(executor);
                 }
             }
             catch(Exception e) {
@@ -252,7 +255,7 @@ public class EVModbusControl extends ModbusSlave implements EVChargerControl {
                         value = Integer.valueOf(stringValue);
                     }
                     executor.setValue(value);
-                    executeTransaction(executor, true);
+                    executeTransaction(executor);
                 }
             }
             catch(Exception e) {
@@ -0,0 +1,297 @@
+/*
+ * Copyright (C) 2021 Axel Müller <axel.mueller@avanux.de>
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package de.avanux.smartapplianceenabler.modbus;
+
+import com.ghgande.j2mod.modbus.ModbusException;
+import com.ghgande.j2mod.modbus.ModbusIOException;
+import com.ghgande.j2mod.modbus.ModbusSlaveException;
+import com.ghgande.j2mod.modbus.io.AbstractModbusTransport;
+import com.ghgande.j2mod.modbus.msg.ExceptionResponse;
+import com.ghgande.j2mod.modbus.msg.ModbusRequest;
+import com.ghgande.j2mod.modbus.msg.ModbusResponse;
+import com.ghgande.j2mod.modbus.net.TCPMasterConnection;
+import de.avanux.smartapplianceenabler.modbus.executor.BaseTransactionExecutor;
+import de.avanux.smartapplianceenabler.modbus.executor.ModbusTransactionExecutor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps one long-lived connection per {@link ModbusTcp} which is shared by all slaves using it.
+ * Transactions using the same connection are executed one after another.
+ * <p>
+ * A connection failing is closed and re-established by the next transaction. If a connection has not been used
+ * for a while it may have been dropped by the device without notice - in this case a failing transaction is retried
+ * once using a new connection. Subsequent failures delay further connection attempts with exponential backoff
+ * since some devices throttle or refuse fast reconnects.
+ * <p>
+ * Multiple transactions executed together are pipelined: up to {@value #MAX_OUTSTANDING_REQUESTS} requests are sent
+ * without waiting for the responses which are matched by transaction id. If pipelining fails while serial
+ * execution succeeds, the connection falls back to serial mode permanently. Pipelining can be disabled by setting
+ * the system property {@value #PIPELINING_PROPERTY} to false.
+ */
+public class ModbusConnectionPool {
+    public static final String PIPELINING_PROPERTY = "sae.modbus.pipelining";
+    private static final int MAX_OUTSTANDING_REQUESTS = 8;
+    private static final long INITIAL_BACKOFF_MILLIS = 1000;
+    private static final long MAX_BACKOFF_MILLIS = 60000;
+    private static final long VALIDATE_AFTER_INACTIVITY_MILLIS = 30000;
+    private static ModbusConnectionPool instance;
+    private Map<String, PooledConnection> connections = new ConcurrentHashMap<>();
+
+    protected ModbusConnectionPool() {
+    }
+
+    public static synchronized ModbusConnectionPool getInstance() {
+        if(instance == null) {
+            instance = new ModbusConnectionPool();
+        }
+        return instance;
+    }
+
+    /**
+     * Executes the transaction using the connection of the ModbusTcp.
+     * @param applianceId
+     * @param modbusTcp
+     * @param executor
+     * @param slaveAddress
+     * @throws Exception if no connection could be established or the transaction failed
+     */
+    public void execute(String applianceId, ModbusTcp modbusTcp, ModbusTransactionExecutor executor, int slaveAddress)
+            throws Exception {
+        Map<ModbusTransactionExecutor, ModbusSlaveException> rejected
+                = execute(applianceId, modbusTcp, Collections.singletonList(executor), slaveAddress);
+        if(rejected.containsKey(executor)) {
+            throw rejected.get(executor);
+        }
+    }
+
+    /**
+     * Executes the transactions using the connection of the ModbusTcp.
+     * @param applianceId
+     * @param modbusTcp
+     * @param executors
+     * @param slaveAddress
+     * @return the transactions rejected by the slave with an exception response
+     * @throws Exception if no connection could be established or a transaction failed otherwise
+     */
+    public Map<ModbusTransactionExecutor, ModbusSlaveException> execute(String applianceId, ModbusTcp modbusTcp,
+            List<? extends ModbusTransactionExecutor> executors, int slaveAddress) throws Exception {
+        String key = modbusTcp.getId() != null ? modbusTcp.getId() : modbusTcp.toString();
+        PooledConnection connection = this.connections.compute(key, (id, existing) -> {
+            if(existing != null && existing.modbusTcp.toString().equals(modbusTcp.toString())) {
+                return existing;
+            }
+            if(existing != null) {
+                existing.close();
+            }
+            return new PooledConnection(modbusTcp);
+        });
+        return connection.execute(applianceId, executors, slaveAddress);
+    }
+
+    /**
+     * Thrown if a connection attempt is rejected because the backoff after previous failures has not elapsed yet.
+     * This is not a failure of its own and therefore does not extend the backoff.
+     */
+    public static class ReconnectDelayedException extends ModbusIOException {
+        public ReconnectDelayedException(String message) {
+            super(message);
+        }
+    }
+
+    /**
+     * Closes all connections, e.g. because the appliances are stopped. Connections are established again
+     * when needed.
+     */
+    public void close() {
+        for(String key : this.connections.keySet()) {
+            PooledConnection connection = this.connections.remove(key);
+            if(connection != null) {
+                connection.retire();
+            }
+        }
+    }
+
+    private static class PooledConnection {
+        private transient Logger logger = LoggerFactory.getLogger(ModbusConnectionPool.class);
+        private ModbusTcp modbusTcp;
+        private TCPMasterConnection connection;
+        private boolean pipelining = Boolean.parseBoolean(System.getProperty(PIPELINING_PROPERTY,
+                Boolean.TRUE.toString()));
+        private int transactionId;
+        private long lastUsedMillis;
+        private int failures;
+        private long nextConnectMillis;
+        private boolean retired;
+
+        PooledConnection(ModbusTcp modbusTcp) {
+            this.modbusTcp = modbusTcp;
+        }
+
+        synchronized Map<ModbusTransactionExecutor, ModbusSlaveException> execute(String applianceId,
+                List<? extends ModbusTransactionExecutor> executors, int slaveAddress) throws Exception {
+            boolean validate = this.connection != null
+                    && System.currentTimeMillis() - this.lastUsedMillis > VALIDATE_AFTER_INACTIVITY_MILLIS;
+            try {
+                return executeOnce(applianceId, executors, slaveAddress);
+            }
+            catch(ReconnectDelayedException e) {
+                throw e;
+            }
+            catch(Exception e) {
+                close();
+                if(! validate) {
+                    failed(applianceId);
+                    throw e;
+                }
+                logger.debug("{}: Connection to modbus {} has been dropped - reconnecting", applianceId, modbusTcp);
+                try {
+                    return executeOnce(applianceId, executors, slaveAddress);
+                }
+                catch(ReconnectDelayedException e2) {
+                    throw e2;
+                }
+                catch(Exception e2) {
+                    close();
+                    failed(applianceId);
+                    throw e2;
+                }
+            }
+        }
+
+        private Map<ModbusTransactionExecutor, ModbusSlaveException> executeOnce(String applianceId,
+                List<? extends ModbusTransactionExecutor> executors, int slaveAddress) throws Exception {
+            connect(applianceId);
+            Map<ModbusTransactionExecutor, ModbusSlaveException> rejected;
+            if(this.pipelining && executors.size() > 1
+                    && executors.stream().allMatch(executor -> executor instanceof BaseTransactionExecutor)) {
+                try {
+                    rejected = executePipelined(executors, slaveAddress);
+                }
+                catch(ModbusException e) {
+                    logger.debug("{}: Pipelined transactions with modbus {} failed - retrying serially",
+                            applianceId, modbusTcp, e);
+                    close();
+                    connect(applianceId);
+                    rejected = executeSerially(executors, slaveAddress);
+                    logger.warn("{}: Modbus {} does not support pipelined transactions - using serial mode",
+                            applianceId, modbusTcp);
+                    this.pipelining = false;
+                }
+            }
+            else {
+                rejected = executeSerially(executors, slaveAddress);
+            }
+            this.lastUsedMillis = System.currentTimeMillis();
+            this.failures = 0;
+            return rejected;
+        }
+
+        private void connect(String applianceId) throws Exception {
+            if(this.retired) {
+                // a transaction started before the pool was closed must not leave a connection open
+                throw new ModbusIOException("Connection to modbus " + modbusTcp + " has been closed");
+            }
+            if(this.connection == null) {
+                long backoffMillis = this.nextConnectMillis - System.currentTimeMillis();
+                if(backoffMillis > 0) {
+                    throw new ReconnectDelayedException("Waiting " + backoffMillis + "ms before reconnecting to modbus "
+                            + modbusTcp);
+                }
+                logger.debug("{}: Connecting to modbus {}", applianceId, modbusTcp);
+                TCPMasterConnection connection = modbusTcp.getConnection();
+                connection.connect();
+                this.connection = connection;
+            }
+        }
+
+        private Map<ModbusTransactionExecutor, ModbusSlaveException> executeSerially(
+                List<? extends ModbusTransactionExecutor> executors, int slaveAddress) throws ModbusException {
+            Map<ModbusTransactionExecutor, ModbusSlaveException> rejected = new HashMap<>();
+            for(ModbusTransactionExecutor executor : executors) {
+                try {
+                    executor.execute(this.connection, slaveAddress);
+                }
+                catch(ModbusSlaveException e) {
+                    // the device responded with an exception - the connection itself is fine
+                    rejected.put(executor, e);
+                }
+            }
+            return rejected;
+        }
+
+        private Map<ModbusTransactionExecutor, ModbusSlaveException> executePipelined(
+                List<? extends ModbusTransactionExecutor> executors, int slaveAddress) throws ModbusException {
+            Map<ModbusTransactionExecutor, ModbusSlaveException> rejected = new HashMap<>();
+            AbstractModbusTransport transport = this.connection.getModbusTransport();
+            for(int start = 0; start < executors.size(); start += MAX_OUTSTANDING_REQUESTS) {
+                Map<Integer, BaseTransactionExecutor> outstanding = new HashMap<>();
+                for(ModbusTransactionExecutor executor :
+                        executors.subList(start, Math.min(start + MAX_OUTSTANDING_REQUESTS, executors.size()))) {
+                    ModbusRequest request = ((BaseTransactionExecutor) executor).createRequest(slaveAddress);
+                    this.transactionId = this.transactionId % 0xFFFF + 1;
+                    request.setTransactionID(this.transactionId);
+                    outstanding.put(this.transactionId, (BaseTransactionExecutor) executor);
+                    transport.writeMessage(request);
+                }
+                while(! outstanding.isEmpty()) {
+                    ModbusResponse response = transport.readResponse();
+                    BaseTransactionExecutor executor = outstanding.remove(response.getTransactionID());
+                    if(executor == null) {
+                        throw new ModbusIOException("Unexpected transaction id " + response.getTransactionID());
+                    }
+                    if(response instanceof ExceptionResponse) {
+                        rejected.put((ModbusTransactionExecutor) executor,
+                                new ModbusSlaveException(((ExceptionResponse) response).getExceptionCode()));
+                    }
+                    else {
+                        executor.handleResponse(response);
+                    }
+                }
+            }
+            return rejected;
+        }
+
+        private void failed(String applianceId) {
+            long backoffMillis = Math.min(INITIAL_BACKOFF_MILLIS << Math.min(this.failures, 16), MAX_BACKOFF_MILLIS);
+            this.failures++;
+            this.nextConnectMillis = System.currentTimeMillis() + backoffMillis;
+            logger.warn("{}: Connection to modbus {} failed {} time(s) - next attempt in {}ms", applianceId,
+                    modbusTcp, this.failures, backoffMillis);
+        }
+
+        synchronized void close() {
+            if(this.connection != null) {
+                this.connection.close();
+                this.connection = null;
+            }
+        }
+
+        synchronized void retire() {
+            this.retired = true;
+            close();
+        }
+    }
+}
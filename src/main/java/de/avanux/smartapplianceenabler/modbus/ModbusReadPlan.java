@@ -0,0 +1,274 @@
+/*
+ * Copyright (C) 2021 Axel Müller <axel.mueller@avanux.de>
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package de.avanux.smartapplianceenabler.modbus;
+
+import com.ghgande.j2mod.modbus.ModbusSlaveException;
+import de.avanux.smartapplianceenabler.modbus.executor.*;
+import de.avanux.smartapplianceenabler.modbus.transformer.ValueTransformer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+
+/**
+ * Plan for reading all registers configured for a slave with as few transactions as possible.
+ * <p>
+ * Holding registers and input registers are sorted by address and combined into block reads spanning
+ * at most {@value #MAX_REGISTERS_PER_READ} registers. Registers are only combined if at most
+ * {@value #MAX_GAP_REGISTERS} unconfigured registers lie between them since many devices reject reading
+ * unmapped addresses. The registers of a block read are handed over to the
+ * {@link ValueTransformer} of each {@link ModbusRead} contained. If the slave rejects a block read (e.g. because
+ * it contains unmapped addresses) the registers of this block are read individually from then on.
+ * Coils, discrete inputs and reads not covered by a block are read individually.
+ * <p>
+ * All transactions of the plan are handed over to the slave together so that they can be pipelined.
+ * A read rejected by the slave does not affect the other reads; use {@link #verify(ModbusRead)} to check it.
+ */
+public class ModbusReadPlan {
+    public static final int MAX_REGISTERS_PER_READ = 125;
+    public static final int MAX_GAP_REGISTERS = 8;
+    private transient Logger logger = LoggerFactory.getLogger(ModbusReadPlan.class);
+    private String applianceId;
+    private List<ModbusRead> reads;
+    private Map<ModbusRead, ModbusReadTransactionExecutor> executors = new LinkedHashMap<>();
+    private List<Block> blocks;
+    private volatile Map<ModbusRead, ModbusSlaveException> rejectedReads = Collections.emptyMap();
+
+    public ModbusReadPlan(String applianceId, List<ModbusRead> reads) {
+        this.applianceId = applianceId;
+        this.reads = reads;
+    }
+
+    /**
+     * Creates the executors and combines the registers into blocks.
+     */
+    private void compile() {
+        this.blocks = new ArrayList<>();
+        List<Part> parts = new ArrayList<>();
+        if(this.reads != null) {
+            for(ModbusRead read : this.reads) {
+                ModbusReadTransactionExecutor executor;
+                try {
+                    executor = ModbusExecutorFactory.getReadExecutor(applianceId, read.getAddress(), read.getType(),
+                            read.getValueType(), read.getWords(), read.getByteOrder(), read.getFactorToValue());
+                }
+                catch(RuntimeException e) {
+                    logger.error("{}: Cannot read register {}", applianceId, read.getAddress(), e);
+                    continue;
+                }
+                this.executors.put(read, executor);
+                if(isBlockReadable(read, executor)) {
+                    parts.add(new Part(read, ((BaseTransactionExecutor) executor).getAddress(), read.getWords()));
+                }
+            }
+        }
+        parts.sort(Comparator.comparing((Part part) -> part.read.getType()).thenComparing(part -> part.address));
+        Block block = null;
+        for(Part part : parts) {
+            if(block == null || ! block.add(part)) {
+                block = new Block(part);
+                this.blocks.add(block);
+            }
+        }
+        this.blocks.removeIf(b -> b.parts.size() < 2);
+        this.blocks.forEach(b -> b.createExecutor(applianceId));
+        logger.debug("{}: Read plan contains {} reads with {} block reads", applianceId, this.executors.size(),
+                this.blocks.size());
+    }
+
+    private boolean isBlockReadable(ModbusRead read, ModbusReadTransactionExecutor executor) {
+        return (read.getType() == ReadRegisterType.Holding || read.getType() == ReadRegisterType.Input)
+                && read.getWords() != null
+                && executor instanceof BaseTransactionExecutor
+                && ! (executor instanceof ModbusTestingExecutor);
+    }
+
+    /**
+     * Reads all registers of the plan.
+     * @param slave the slave to read from
+     * @return the executors containing the values read for each ModbusRead of the plan; the values of
+     * reads rejected by the slave are not valid (see {@link #verify(ModbusRead)})
+     * @throws Exception if a transaction failed other than by being rejected by the slave
+     */
+    public Map<ModbusRead, ModbusReadTransactionExecutor> execute(ModbusSlave slave) throws Exception {
+        if(this.blocks == null) {
+            compile();
+        }
+        Set<ModbusRead> pending = new LinkedHashSet<>(this.executors.keySet());
+        Map<ModbusTransactionExecutor, Block> blockExecutors = new LinkedHashMap<>();
+        for(Block block : this.blocks) {
+            if(! block.split) {
+                block.transformer.registers = null;
+                blockExecutors.put(block.executor, block);
+                block.parts.forEach(part -> pending.remove(part.read));
+            }
+        }
+        List<ModbusTransactionExecutor> transactions = new ArrayList<>(blockExecutors.keySet());
+        pending.forEach(read -> transactions.add(this.executors.get(read)));
+        Map<ModbusTransactionExecutor, ModbusSlaveException> rejected = slave.executeTransactions(transactions);
+
+        List<ModbusTransactionExecutor> retries = new ArrayList<>();
+        for(Map.Entry<ModbusTransactionExecutor, Block> entry : blockExecutors.entrySet()) {
+            Block block = entry.getValue();
+            if(rejected.containsKey(entry.getKey())) {
+                logger.warn("{}: Block read of {} registers at {} rejected - reading registers individually",
+                        applianceId, block.words, block.address, rejected.get(entry.getKey()));
+                block.split = true;
+                block.parts.forEach(part -> retries.add(this.executors.get(part.read)));
+                continue;
+            }
+            BlockValueTransformer transformer = block.transformer;
+            for(Part part : block.parts) {
+                int offset = part.address - block.address;
+                if(transformer.registers != null && offset + part.words <= transformer.length) {
+                    offset += transformer.offset;
+                    this.executors.get(part.read).getValueTransformer().setRegisters(
+                            transformer.registers, offset, part.words);
+                }
+                else {
+                    retries.add(this.executors.get(part.read));
+                }
+            }
+        }
+        if(! retries.isEmpty()) {
+            rejected = new HashMap<>(rejected);
+            rejected.putAll(slave.executeTransactions(retries));
+        }
+        Map<ModbusRead, ModbusSlaveException> rejectedReads = new HashMap<>();
+        for(Map.Entry<ModbusRead, ModbusReadTransactionExecutor> entry : this.executors.entrySet()) {
+            ModbusSlaveException e = rejected.get(entry.getValue());
+            if(e != null) {
+                rejectedReads.put(entry.getKey(), e);
+            }
+        }
+        this.rejectedReads = rejectedReads;
+        return this.executors;
+    }
+
+    /**
+     * Checks if the read was successful during the last execution of the plan.
+     * @param read
+     * @throws ModbusSlaveException the exception response of the slave if it rejected the read
+     */
+    public void verify(ModbusRead read) throws ModbusSlaveException {
+        ModbusSlaveException e = this.rejectedReads.get(read);
+        if(e != null) {
+            throw e;
+        }
+    }
+
+    /**
+     * Registers of the same type read by a single transaction.
+     */
+    private static class Block {
+        private ReadRegisterType type;
+        private int address;
+        private int words;
+        private List<Part> parts = new ArrayList<>();
+        private boolean split;
+        private BlockValueTransformer transformer;
+        private ModbusReadTransactionExecutor executor;
+
+        Block(Part part) {
+            this.type = part.read.getType();
+            this.address = part.address;
+            this.words = part.words;
+            this.parts.add(part);
+        }
+
+        boolean add(Part part) {
+            int words = Math.max(this.words, part.address + part.words - this.address);
+            int gap = part.address - (this.address + this.words);
+            if(part.read.getType() != this.type || words > MAX_REGISTERS_PER_READ || gap > MAX_GAP_REGISTERS) {
+                return false;
+            }
+            this.words = words;
+            this.parts.add(part);
+            return true;
+        }
+
+        void createExecutor(String applianceId) {
+            this.transformer = new BlockValueTransformer();
+            if(this.type == ReadRegisterType.Holding) {
+                this.executor = new ReadHoldingRegisterExecutor(String.valueOf(this.address), this.words,
+                        this.transformer);
+            }
+            else {
+                this.executor = new ReadInputRegisterExecutor(String.valueOf(this.address), this.words,
+                        this.transformer);
+            }
+            this.executor.setApplianceId(applianceId);
+        }
+    }
+
+    /**
+     * The registers of a ModbusRead within a block.
+     */
+    private static class Part {
+        private ModbusRead read;
+        private int address;
+        private int words;
+
+        Part(ModbusRead read, int address, int words) {
+            this.read = read;
+            this.address = address;
+            this.words = words;
+        }
+    }
+
+    /**
+     * Keeps the registers of a block read for distribution. The register array is owned by the executor
+     * of the block and reused by each read.
+     */
+    private static class BlockValueTransformer implements ValueTransformer<int[]> {
+        private int[] registers;
+        private int offset;
+        private int length;
+
+        @Override
+        public void setApplianceId(String applianceId) {
+        }
+
+        @Override
+        public void setByteValues(Integer[] byteValues) {
+            int[] registers = new int[byteValues.length];
+            for(int i=0; i<byteValues.length; i++) {
+                registers[i] = byteValues[i];
+            }
+            setRegisters(registers, 0, registers.length);
+        }
+
+        @Override
+        public void setRegisters(int[] registers, int offset, int length) {
+            this.registers = registers;
+            this.offset = offset;
+            this.length = length;
+        }
+
+        @Override
+        public int[] getValue() {
+            return this.registers;
+        }
+
+        @Override
+        public boolean valueMatches(String regex) {
+            return false;
+        }
+    }
+}
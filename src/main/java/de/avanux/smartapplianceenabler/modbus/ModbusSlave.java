@@ -17,7 +17,7 @@
  */
 package de.avanux.smartapplianceenabler.modbus;
 
-import com.ghgande.j2mod.modbus.net.TCPMasterConnection;
+import com.ghgande.j2mod.modbus.ModbusSlaveException;
 import de.avanux.smartapplianceenabler.appliance.ApplianceIdConsumer;
 import de.avanux.smartapplianceenabler.modbus.executor.ModbusTestingExecutor;
 import de.avanux.smartapplianceenabler.modbus.executor.ModbusTransactionExecutor;
@@ -28,6 +28,10 @@ import javax.xml.bind.annotation.XmlAccessType;
 import javax.xml.bind.annotation.XmlAccessorType;
 import javax.xml.bind.annotation.XmlAttribute;
 import javax.xml.bind.annotation.XmlTransient;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
 
 /**
  * Base class for ModBus slaves.
@@ -42,7 +46,6 @@ abstract public class ModbusSlave implements ApplianceIdConsumer {
     private int slaveAddress;
     private transient String applianceId;
     private transient ModbusTcp modbusTcp;
-    private transient TCPMasterConnection connection;
 
     @Override
     public void setApplianceId(String applianceId) {
@@ -69,28 +72,38 @@ abstract public class ModbusSlave implements ApplianceIdConsumer {
         this.idref = idref;
     }
 
-    protected synchronized void executeTransaction(ModbusTransactionExecutor modbusTransactionExecutor, boolean closeConnection) throws Exception {
+    protected void executeTransaction(ModbusTransactionExecutor modbusTransactionExecutor) throws Exception {
         if(! (modbusTransactionExecutor instanceof ModbusTestingExecutor)) {
             ModbusTcp modbusTcp = getModbusTcp();
             if(modbusTcp != null) {
-                if(connection == null) {
-                    logger.debug("{}: Connecting to modbus {}", applianceId, modbusTcp.toString());
-                    connection = modbusTcp.getConnection();
-                }
-                if(! connection.isConnected()) {
-                    connection.connect();
-                }
-            }
-            if(connection != null && connection.isConnected()) {
-                modbusTransactionExecutor.execute(connection, slaveAddress);
-                if(closeConnection) {
-                    connection.close();
-                    connection = null;
-                }
+                ModbusConnectionPool.getInstance().execute(applianceId, modbusTcp, modbusTransactionExecutor,
+                        slaveAddress);
             }
             else {
                 logger.error("{}: Cannot connect to modbus {}", applianceId, idref);
             }
         }
     }
+
+    /**
+     * Executes the transactions together allowing them to be pipelined.
+     * @param executors
+     * @return the transactions rejected by the slave with an exception response
+     * @throws Exception if a transaction failed otherwise
+     */
+    protected Map<ModbusTransactionExecutor, ModbusSlaveException> executeTransactions(
+            List<? extends ModbusTransactionExecutor> executors) throws Exception {
+        List<ModbusTransactionExecutor> modbusExecutors = executors.stream()
+                .filter(executor -> ! (executor instanceof ModbusTestingExecutor))
+                .collect(Collectors.toList());
+        if(modbusExecutors.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        ModbusTcp modbusTcp = getModbusTcp();
+        if(modbusTcp == null) {
+            logger.error("{}: Cannot connect to modbus {}", applianceId, idref);
+            return Collections.emptyMap();
+        }
+        return ModbusConnectionPool.getInstance().execute(applianceId, modbusTcp, modbusExecutors, slaveAddress);
+    }
 }
@@ -18,6 +18,11 @@
 
 package de.avanux.smartapplianceenabler.modbus.executor;
 
+import com.ghgande.j2mod.modbus.ModbusException;
+import com.ghgande.j2mod.modbus.io.ModbusTCPTransaction;
+import com.ghgande.j2mod.modbus.msg.ModbusRequest;
+import com.ghgande.j2mod.modbus.msg.ModbusResponse;
+import com.ghgande.j2mod.modbus.net.TCPMasterConnection;
 import de.avanux.smartapplianceenabler.appliance.ApplianceIdConsumer;
 import de.avanux.smartapplianceenabler.modbus.transformer.ValueTransformer;
 
@@ -27,6 +32,7 @@ abstract public class BaseTransactionExecutor implements ApplianceIdConsumer {
     private final Integer address;
     private final int requestWords;
     private final ValueTransformer<?> transformer;
+    private int[] registers;
 
     public BaseTransactionExecutor(String address, ValueTransformer<?> transformer) {
         this(address, 1, transformer);
@@ -57,11 +63,46 @@ abstract public class BaseTransactionExecutor implements ApplianceIdConsumer {
         return address;
     }
 
-    protected int getRequestWords() {
+    public int getRequestWords() {
         return requestWords;
     }
 
     public ValueTransformer<?> getValueTransformer() {
         return transformer;
     }
+
+    /**
+     * Returns an array for the registers of a response which is reused by subsequent responses.
+     * @param words the number of registers
+     */
+    protected int[] getRegisterBuffer(int words) {
+        if(this.registers == null || this.registers.length != words) {
+            this.registers = new int[words];
+        }
+        return this.registers;
+    }
+
+    /**
+     * Returns the request to be sent to the slave.
+     * @param slaveAddress the address of the slave
+     */
+    public abstract ModbusRequest createRequest(int slaveAddress);
+
+    /**
+     * Processes the response received from the slave.
+     * @param response the response or null if no response has been received
+     */
+    public abstract void handleResponse(ModbusResponse response);
+
+    /**
+     * Sends the request and waits for the response. Requests may also be sent pipelined by
+     * {@link de.avanux.smartapplianceenabler.modbus.ModbusConnectionPool} using {@link #createRequest(int)} and
+     * {@link #handleResponse(ModbusResponse)}.
+     */
+    public void execute(TCPMasterConnection con, int slaveAddress) throws ModbusException {
+        ModbusTCPTransaction trans = new ModbusTCPTransaction(con);
+        trans.setRequest(createRequest(slaveAddress));
+        trans.execute();
+        handleResponse(trans.getResponse());
+    }
 }
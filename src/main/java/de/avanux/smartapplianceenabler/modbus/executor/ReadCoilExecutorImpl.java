@@ -17,11 +17,10 @@
  */
 package de.avanux.smartapplianceenabler.modbus.executor;
 
-import com.ghgande.j2mod.modbus.ModbusException;
-import com.ghgande.j2mod.modbus.io.ModbusTCPTransaction;
+import com.ghgande.j2mod.modbus.msg.ModbusRequest;
+import com.ghgande.j2mod.modbus.msg.ModbusResponse;
 import com.ghgande.j2mod.modbus.msg.ReadCoilsRequest;
 import com.ghgande.j2mod.modbus.msg.ReadCoilsResponse;
-import com.ghgande.j2mod.modbus.net.TCPMasterConnection;
 import de.avanux.smartapplianceenabler.modbus.transformer.ValueTransformer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -41,16 +40,16 @@ public class ReadCoilExecutorImpl extends BaseTransactionExecutor
     }
 
     @Override
-    public void execute(TCPMasterConnection con, int slaveAddress) throws ModbusException {
+    public ModbusRequest createRequest(int slaveAddress) {
         logger.trace("{}: Reading coil register={}", getApplianceId(), getAddress());
         ReadCoilsRequest req = new ReadCoilsRequest(getAddress(), 1);
         req.setUnitID(slaveAddress);
-        
-        ModbusTCPTransaction trans = new ModbusTCPTransaction(con);
-        trans.setRequest(req);
-        trans.execute();
-        
-        ReadCoilsResponse res = (ReadCoilsResponse) trans.getResponse();
+        return req;
+    }
+
+    @Override
+    public void handleResponse(ModbusResponse response) {
+        ReadCoilsResponse res = (ReadCoilsResponse) response;
         if(res != null) {
             coil = res.getCoils().getBit(0);
             logger.debug("{}: Coil register={} value={}", getApplianceId(), getAddress(), coil);
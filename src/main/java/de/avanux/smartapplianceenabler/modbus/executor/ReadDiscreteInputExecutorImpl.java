@@ -18,11 +18,10 @@
 
 package de.avanux.smartapplianceenabler.modbus.executor;
 
-import com.ghgande.j2mod.modbus.ModbusException;
-import com.ghgande.j2mod.modbus.io.ModbusTCPTransaction;
+import com.ghgande.j2mod.modbus.msg.ModbusRequest;
+import com.ghgande.j2mod.modbus.msg.ModbusResponse;
 import com.ghgande.j2mod.modbus.msg.ReadInputDiscretesRequest;
 import com.ghgande.j2mod.modbus.msg.ReadInputDiscretesResponse;
-import com.ghgande.j2mod.modbus.net.TCPMasterConnection;
 import de.avanux.smartapplianceenabler.modbus.transformer.ValueTransformer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -38,16 +37,16 @@ public class ReadDiscreteInputExecutorImpl extends BaseTransactionExecutor
     }
 
     @Override
-    public void execute(TCPMasterConnection con, int slaveAddress) throws ModbusException {
+    public ModbusRequest createRequest(int slaveAddress) {
         logger.trace("{}: Reading discrete input register={}", getApplianceId(), getAddress());
         ReadInputDiscretesRequest req = new ReadInputDiscretesRequest(getAddress(), 1);
         req.setUnitID(slaveAddress);
+        return req;
+    }
 
-        ModbusTCPTransaction trans = new ModbusTCPTransaction(con);
-        trans.setRequest(req);
-        trans.execute();
-
-        ReadInputDiscretesResponse res = (ReadInputDiscretesResponse) trans.getResponse();
+    @Override
+    public void handleResponse(ModbusResponse response) {
+        ReadInputDiscretesResponse res = (ReadInputDiscretesResponse) response;
         if(res != null) {
             discrete = res.getDiscreteStatus(0);
             logger.debug("{}: Discrete input register={} value={}", getApplianceId(), getAddress(), discrete);
@@ -17,11 +17,10 @@
  */
 package de.avanux.smartapplianceenabler.modbus.executor;
 
-import com.ghgande.j2mod.modbus.ModbusException;
-import com.ghgande.j2mod.modbus.io.ModbusTCPTransaction;
+import com.ghgande.j2mod.modbus.msg.ModbusRequest;
+import com.ghgande.j2mod.modbus.msg.ModbusResponse;
 import com.ghgande.j2mod.modbus.msg.ReadMultipleRegistersRequest;
 import com.ghgande.j2mod.modbus.msg.ReadMultipleRegistersResponse;
-import com.ghgande.j2mod.modbus.net.TCPMasterConnection;
 import de.avanux.smartapplianceenabler.modbus.transformer.ValueTransformer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -34,23 +33,23 @@ public class ReadHoldingRegisterExecutor extends BaseTransactionExecutor impleme
     }
 
     @Override
-    public void execute(TCPMasterConnection con, int slaveAddress) throws ModbusException {
+    public ModbusRequest createRequest(int slaveAddress) {
         logger.trace("{}: Reading holding register={} requestWords={}", getApplianceId(), getAddress(), getRequestWords());
         ReadMultipleRegistersRequest req = new ReadMultipleRegistersRequest(getAddress(), getRequestWords());
         req.setUnitID(slaveAddress);
+        return req;
+    }
 
-        ModbusTCPTransaction trans = new ModbusTCPTransaction(con);
-        trans.setRequest(req);
-        trans.execute();
-
-        ReadMultipleRegistersResponse res = (ReadMultipleRegistersResponse) trans.getResponse();
+    @Override
+    public void handleResponse(ModbusResponse response) {
+        ReadMultipleRegistersResponse res = (ReadMultipleRegistersResponse) response;
         if (res != null) {
-            Integer[] byteValues = new Integer[res.getWordCount()];
-            for (int i = 0; i < res.getWordCount(); i++) {
-                byteValues[i] = res.getRegisterValue(i);
+            int[] registers = getRegisterBuffer(res.getWordCount());
+            for (int i = 0; i < registers.length; i++) {
+                registers[i] = res.getRegisterValue(i);
             }
-            logger.debug("{}: Holding register={} value={}", getApplianceId(), getAddress(), byteValues);
-            getValueTransformer().setByteValues(byteValues);
+            logger.debug("{}: Holding register={} value={}", getApplianceId(), getAddress(), registers);
+            getValueTransformer().setRegisters(registers, 0, registers.length);
         } else {
             logger.error("{}: No response received.", getApplianceId());
         }
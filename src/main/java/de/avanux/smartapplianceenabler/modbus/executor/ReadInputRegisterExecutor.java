@@ -17,11 +17,10 @@
  */
 package de.avanux.smartapplianceenabler.modbus.executor;
 
-import com.ghgande.j2mod.modbus.ModbusException;
-import com.ghgande.j2mod.modbus.io.ModbusTCPTransaction;
+import com.ghgande.j2mod.modbus.msg.ModbusRequest;
+import com.ghgande.j2mod.modbus.msg.ModbusResponse;
 import com.ghgande.j2mod.modbus.msg.ReadInputRegistersRequest;
 import com.ghgande.j2mod.modbus.msg.ReadInputRegistersResponse;
-import com.ghgande.j2mod.modbus.net.TCPMasterConnection;
 import de.avanux.smartapplianceenabler.modbus.transformer.ValueTransformer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -38,23 +37,23 @@ public class ReadInputRegisterExecutor extends BaseTransactionExecutor implement
     }
 
     @Override
-    public void execute(TCPMasterConnection con, int slaveAddress) throws ModbusException {
+    public ModbusRequest createRequest(int slaveAddress) {
         logger.trace("{}: Reading input register={} requestWords={}", getApplianceId(), getAddress(), getRequestWords());
         ReadInputRegistersRequest req = new ReadInputRegistersRequest(getAddress(), getRequestWords());
         req.setUnitID(slaveAddress);
+        return req;
+    }
 
-        ModbusTCPTransaction trans = new ModbusTCPTransaction(con);
-        trans.setRequest(req);
-        trans.execute();
-
-        ReadInputRegistersResponse res = (ReadInputRegistersResponse) trans.getResponse();
+    @Override
+    public void handleResponse(ModbusResponse response) {
+        ReadInputRegistersResponse res = (ReadInputRegistersResponse) response;
         if (res != null) {
-            Integer[] byteValues = new Integer[res.getWordCount()];
-            for (int i = 0; i < res.getWordCount(); i++) {
-                byteValues[i] = res.getRegisterValue(i);
+            int[] registers = getRegisterBuffer(res.getWordCount());
+            for (int i = 0; i < registers.length; i++) {
+                registers[i] = res.getRegisterValue(i);
             }
-            logger.debug("{}: Input register={} value={}", getApplianceId(), getAddress(), byteValues);
-            getValueTransformer().setByteValues(byteValues);
+            logger.debug("{}: Input register={} value={}", getApplianceId(), getAddress(), registers);
+            getValueTransformer().setRegisters(registers, 0, registers.length);
         } else {
             logger.error("{}: No response received.", getApplianceId());
         }
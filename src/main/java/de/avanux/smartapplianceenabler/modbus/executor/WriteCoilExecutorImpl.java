@@ -17,11 +17,10 @@
  */
 package de.avanux.smartapplianceenabler.modbus.executor;
 
-import com.ghgande.j2mod.modbus.ModbusException;
-import com.ghgande.j2mod.modbus.io.ModbusTCPTransaction;
+import com.ghgande.j2mod.modbus.msg.ModbusRequest;
+import com.ghgande.j2mod.modbus.msg.ModbusResponse;
 import com.ghgande.j2mod.modbus.msg.WriteCoilRequest;
 import com.ghgande.j2mod.modbus.msg.WriteCoilResponse;
-import com.ghgande.j2mod.modbus.net.TCPMasterConnection;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -51,15 +50,15 @@ public class WriteCoilExecutorImpl extends BaseTransactionExecutor
     }
 
     @Override
-    public void execute(TCPMasterConnection con, int slaveAddress) throws ModbusException {
+    public ModbusRequest createRequest(int slaveAddress) {
         WriteCoilRequest req = new WriteCoilRequest(getAddress(), value);
         req.setUnitID(slaveAddress);
-        
-        ModbusTCPTransaction trans = new ModbusTCPTransaction(con);
-        trans.setRequest(req);
-        trans.execute();
-        
-        WriteCoilResponse res = (WriteCoilResponse) trans.getResponse();
+        return req;
+    }
+
+    @Override
+    public void handleResponse(ModbusResponse response) {
+        WriteCoilResponse res = (WriteCoilResponse) response;
         if(res != null) {
             result = res.getCoil();
             logger.debug("{}: Write coil register={} coil={} confirmedValue={}", getApplianceId(), getAddress(), value, result);
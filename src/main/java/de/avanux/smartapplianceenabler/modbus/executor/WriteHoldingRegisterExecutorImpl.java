@@ -18,10 +18,7 @@
 
 package de.avanux.smartapplianceenabler.modbus.executor;
 
-import com.ghgande.j2mod.modbus.ModbusException;
-import com.ghgande.j2mod.modbus.io.ModbusTCPTransaction;
 import com.ghgande.j2mod.modbus.msg.*;
-import com.ghgande.j2mod.modbus.net.TCPMasterConnection;
 import com.ghgande.j2mod.modbus.procimg.SimpleRegister;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -50,27 +47,28 @@ public class WriteHoldingRegisterExecutorImpl extends BaseTransactionExecutor
     }
 
     @Override
-    public void execute(TCPMasterConnection con, int slaveAddress) throws ModbusException {
+    public ModbusRequest createRequest(int slaveAddress) {
         logger.debug("{}: Write holding register={} value={}", getApplianceId(), getAddress(), this.value);
-        Integer factoredValue = factorToValue != null ? Double.valueOf(this.value * this.factorToValue).intValue() : this.value;
-        logger.debug("{}: Write holding register={} factoredValue={}", getApplianceId(), getAddress(), factoredValue);
-        SimpleRegister register = new SimpleRegister(factoredValue);
-
+        SimpleRegister register = new SimpleRegister(getFactoredValue());
         WriteSingleRegisterRequest req = new WriteSingleRegisterRequest(getAddress(), register);
         req.setUnitID(slaveAddress);
+        return req;
+    }
 
-        ModbusTCPTransaction trans = new ModbusTCPTransaction(con);
-        trans.setRequest(req);
-        trans.execute();
-
-        WriteSingleRegisterResponse res = (WriteSingleRegisterResponse) trans.getResponse();
+    @Override
+    public void handleResponse(ModbusResponse response) {
+        WriteSingleRegisterResponse res = (WriteSingleRegisterResponse) response;
         if(res != null) {
             this.result = res.getRegisterValue();
             logger.debug("{}: Write holding register={} confirmedValue={}", getApplianceId(), getAddress(), this.result);
         }
         else {
             logger.error("{}: No response received: register={} value={} ", getApplianceId(), getAddress(),
-                    factoredValue);
+                    getFactoredValue());
         }
     }
+
+    private Integer getFactoredValue() {
+        return factorToValue != null ? Double.valueOf(this.value * this.factorToValue).intValue() : this.value;
+    }
 }
@@ -18,33 +18,49 @@
 
 package de.avanux.smartapplianceenabler.modbus.transformer;
 
+import de.avanux.smartapplianceenabler.modbus.ByteOrder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-public class FloatValueTransformer extends ValueTransformerBase implements ValueTransformer<Double> {
+public class FloatValueTransformer extends ValueTransformerBase implements NumericValueTransformer<Double> {
     private Logger logger = LoggerFactory.getLogger(FloatValueTransformer.class);
-    private Double value = null;
-
-    public void setByteValues(Integer[] byteValues) {
-        if(byteValues != null) {
-            if(byteValues.length == 2) {
-                value = Float.valueOf(Float.intBitsToFloat(byteValues[0] << 16 | byteValues[1])).doubleValue();
-                logger.debug("{}: transformed value={}", applianceId, value);
-            }
-            else {
-                logger.error("{}: Cannot handle response composed of {} bytes", applianceId, byteValues.length);
-            }
+    private double value;
+    private boolean valid;
+
+    @Override
+    public void setRegisters(int[] registers, int offset, int length) {
+        if(length == 2) {
+            value = RegisterDecoder.float32(registers, offset, ByteOrder.BigEndian);
+            valid = true;
+            logger.debug("{}: transformed value={}", applianceId, value);
+        }
+        else if(length == 4) {
+            value = RegisterDecoder.float64(registers, offset, ByteOrder.BigEndian);
+            valid = true;
+            logger.debug("{}: transformed value={}", applianceId, value);
+        }
+        else {
+            logger.error("{}: Cannot handle response composed of {} bytes", applianceId, length);
         }
     }
 
     @Override
     public Double getValue() {
+        return valid ? value : null;
+    }
+
+    @Override
+    public boolean hasValue() {
+        return valid;
+    }
+
+    @Override
+    public double getDoubleValue() {
         return value;
     }
 
     @Override
     public boolean valueMatches(String regex) {
-        Double value = getValue();
-        return value != null && regex != null && value.toString().matches(regex);
+        return valid && matches(Double.toString(value), regex);
     }
 }
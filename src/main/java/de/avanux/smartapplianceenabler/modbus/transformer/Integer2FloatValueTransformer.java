@@ -22,9 +22,10 @@ import de.avanux.smartapplianceenabler.modbus.ByteOrder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-public class Integer2FloatValueTransformer extends ValueTransformerBase implements ValueTransformer<Double> {
+public class Integer2FloatValueTransformer extends ValueTransformerBase implements NumericValueTransformer<Double> {
     private Logger logger = LoggerFactory.getLogger(Integer2FloatValueTransformer.class);
-    private Double value = null;
+    private double value;
+    private boolean valid;
     private Double factorToValue = 1.0;
     private ByteOrder byteOrder = ByteOrder.BigEndian;
 
@@ -37,32 +38,42 @@ public class Integer2FloatValueTransformer extends ValueTransformerBase implemen
         }
     }
 
-    public void setByteValues(Integer[] byteValues) {
-        if(byteValues != null) {
-            Integer[] bytesValuesInOrder = getByteValuesInOrder(byteValues);
-            if(byteValues.length == 2) {
-                value = (float) (bytesValuesInOrder[0] << 16 | bytesValuesInOrder[1]) * factorToValue;
-                logger.debug("{}: transformed value={}", applianceId, value);
-            }
-            else {
-                logger.error("{}: Cannot handle response composed of {} bytes", applianceId, byteValues.length);
-            }
+    @Override
+    public void setRegisters(int[] registers, int offset, int length) {
+        if(length == 1) {
+            value = RegisterDecoder.uint16(registers, offset) * factorToValue;
+        }
+        else if(length == 2) {
+            value = (float) RegisterDecoder.int32(registers, offset, byteOrder) * factorToValue;
+        }
+        else if(length == 4) {
+            value = RegisterDecoder.int64(registers, offset, byteOrder) * factorToValue;
         }
+        else {
+            logger.error("{}: Cannot handle response composed of {} bytes", applianceId, length);
+            return;
+        }
+        valid = true;
+        logger.debug("{}: transformed value={}", applianceId, value);
     }
 
-    private Integer[] getByteValuesInOrder(Integer[] byteValues) {
-        return byteOrder == ByteOrder.LittleEndian ?
-                (byteValues.length == 2 ? new Integer[]{byteValues[1], byteValues[0]} : byteValues)
-                : byteValues;
+    @Override
+    public Double getValue() {
+        return valid ? value : null;
     }
 
     @Override
-    public Double getValue() {
+    public boolean hasValue() {
+        return valid;
+    }
+
+    @Override
+    public double getDoubleValue() {
         return value;
     }
 
     @Override
     public boolean valueMatches(String regex) {
-        Double value = getValue();
-        return value != null && regex != null && value.toString().matches(regex);
-    }}
+        return valid && matches(Double.toString(value), regex);
+    }
+}
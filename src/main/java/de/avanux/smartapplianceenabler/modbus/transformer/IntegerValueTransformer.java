@@ -18,37 +18,49 @@
 
 package de.avanux.smartapplianceenabler.modbus.transformer;
 
+import de.avanux.smartapplianceenabler.modbus.ByteOrder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-public class IntegerValueTransformer extends ValueTransformerBase implements ValueTransformer<Integer> {
-    private Logger logger = LoggerFactory.getLogger(FloatValueTransformer.class);
-    private Integer value = null;
-
-    public void setByteValues(Integer[] byteValues) {
-        if(byteValues != null) {
-            if (byteValues.length == 1) {
-                value = byteValues[0];
-            }
-            else if (byteValues.length == 2) {
-                value = byteValues[0] << 16 | byteValues[1];
-                logger.debug("{}: transformed value={}", applianceId, value);
-            }
-            else {
-                logger.error("{}: Cannot handle response composed of {} bytes", applianceId, byteValues.length);
-            }
+public class IntegerValueTransformer extends ValueTransformerBase implements NumericValueTransformer<Integer> {
+    private Logger logger = LoggerFactory.getLogger(IntegerValueTransformer.class);
+    private int value;
+    private boolean valid;
+
+    @Override
+    public void setRegisters(int[] registers, int offset, int length) {
+        if (length == 1) {
+            value = RegisterDecoder.uint16(registers, offset);
+            valid = true;
+        }
+        else if (length == 2) {
+            value = RegisterDecoder.int32(registers, offset, ByteOrder.BigEndian);
+            valid = true;
+            logger.debug("{}: transformed value={}", applianceId, value);
+        }
+        else {
+            logger.error("{}: Cannot handle response composed of {} bytes", applianceId, length);
         }
     }
 
     @Override
     public Integer getValue() {
+        return valid ? value : null;
+    }
+
+    @Override
+    public boolean hasValue() {
+        return valid;
+    }
+
+    @Override
+    public double getDoubleValue() {
         return value;
     }
 
     @Override
     public boolean valueMatches(String regex) {
-        Integer value = getValue();
-        return value != null && regex != null && value.toString().matches(regex);
+        return valid && matches(value, regex);
     }
 
 }
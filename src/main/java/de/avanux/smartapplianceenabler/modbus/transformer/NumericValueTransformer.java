@@ -0,0 +1,44 @@
+/*
+ * Copyright (C) 2021 Axel Müller <axel.mueller@avanux.de>
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package de.avanux.smartapplianceenabler.modbus.transformer;
+
+/**
+ * A value transformer providing its value as primitive so that it can be used without boxing.
+ */
+public interface NumericValueTransformer<T extends Number> extends ValueTransformer<T> {
+
+    /**
+     * Returns true, if a value has been transformed successfully.
+     */
+    boolean hasValue();
+
+    double getDoubleValue();
+
+    default boolean valueEquals(double value) {
+        return hasValue() && getDoubleValue() == value;
+    }
+
+    default boolean valueGreaterThan(double value) {
+        return hasValue() && getDoubleValue() > value;
+    }
+
+    default boolean valueLessThan(double value) {
+        return hasValue() && getDoubleValue() < value;
+    }
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright (C) 2021 Axel Müller <axel.mueller@avanux.de>
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package de.avanux.smartapplianceenabler.modbus.transformer;
+
+import de.avanux.smartapplianceenabler.modbus.ByteOrder;
+
+/**
+ * Decodes numbers from 16 bit registers without creating intermediate objects.
+ * Values spanning multiple registers are expected with the most significant register first for
+ * {@link ByteOrder#BigEndian} and with the least significant register first for {@link ByteOrder#LittleEndian}.
+ */
+public final class RegisterDecoder {
+
+    private RegisterDecoder() {
+    }
+
+    public static int uint16(int[] registers, int offset) {
+        return registers[offset] & 0xFFFF;
+    }
+
+    public static int int16(int[] registers, int offset) {
+        return (short) registers[offset];
+    }
+
+    public static int int32(int[] registers, int offset, ByteOrder byteOrder) {
+        return word(registers, offset, 2, 0, byteOrder) << 16 | word(registers, offset, 2, 1, byteOrder);
+    }
+
+    public static long uint32(int[] registers, int offset, ByteOrder byteOrder) {
+        return int32(registers, offset, byteOrder) & 0xFFFFFFFFL;
+    }
+
+    public static long int64(int[] registers, int offset, ByteOrder byteOrder) {
+        long value = 0;
+        for(int i=0; i<4; i++) {
+            value = value << 16 | word(registers, offset, 4, i, byteOrder);
+        }
+        return value;
+    }
+
+    public static float float32(int[] registers, int offset, ByteOrder byteOrder) {
+        return Float.intBitsToFloat(int32(registers, offset, byteOrder));
+    }
+
+    public static double float64(int[] registers, int offset, ByteOrder byteOrder) {
+        return Double.longBitsToDouble(int64(registers, offset, byteOrder));
+    }
+
+    /**
+     * Returns the register at the given position counted from the most significant register.
+     */
+    private static int word(int[] registers, int offset, int words, int index, ByteOrder byteOrder) {
+        int position = byteOrder == ByteOrder.LittleEndian ? words - 1 - index : index;
+        return registers[offset + position] & 0xFFFF;
+    }
+}
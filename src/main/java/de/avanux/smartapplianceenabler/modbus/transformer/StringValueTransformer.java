@@ -25,10 +25,11 @@ public class StringValueTransformer extends ValueTransformerBase implements Valu
     private Logger logger = LoggerFactory.getLogger(StringValueTransformer.class);
     private String value = null;
 
-    public void setByteValues(Integer[] byteValues) {
-        StringBuilder stringValue = new StringBuilder();
-        for(Integer byteValue : byteValues) {
-            stringValue.append(Character.valueOf((char) byteValue.intValue()));
+    @Override
+    public void setRegisters(int[] registers, int offset, int length) {
+        StringBuilder stringValue = new StringBuilder(length);
+        for(int i=offset; i<offset + length; i++) {
+            stringValue.append((char) registers[i]);
         }
         value = stringValue.toString();
         logger.debug("{}: transformed value={}", applianceId, value);
@@ -41,7 +42,6 @@ public class StringValueTransformer extends ValueTransformerBase implements Valu
 
     @Override
     public boolean valueMatches(String regex) {
-        String value = getValue();
-        return value != null && regex != null && value.matches(regex);
+        return matches(getValue(), regex);
     }
 }
@@ -22,6 +22,21 @@ import de.avanux.smartapplianceenabler.appliance.ApplianceIdConsumer;
 
 public interface ValueTransformer<T> extends ApplianceIdConsumer {
     void setByteValues(Integer[] byteValues);
+
+    /**
+     * Sets the registers read without boxing them. The registers must not be retained since the array is reused.
+     * @param registers the array containing the registers
+     * @param offset the position of the first register
+     * @param length the number of registers
+     */
+    default void setRegisters(int[] registers, int offset, int length) {
+        Integer[] byteValues = new Integer[length];
+        for(int i=0; i<length; i++) {
+            byteValues[i] = registers[offset + i];
+        }
+        setByteValues(byteValues);
+    }
+
     T getValue();
     boolean valueMatches(String regex);
 }
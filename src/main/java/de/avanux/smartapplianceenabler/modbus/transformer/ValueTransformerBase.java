@@ -18,15 +18,59 @@
 
 package de.avanux.smartapplianceenabler.modbus.transformer;
 
-public class ValueTransformerBase {
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+abstract public class ValueTransformerBase {
+    private static final Pattern INTEGER_LITERAL = Pattern.compile("-?(0|[1-9][0-9]*)");
+    private static Map<String, Pattern> patterns = new ConcurrentHashMap<>();
+    private static Map<String, Optional<Long>> integerLiterals = new ConcurrentHashMap<>();
     protected String applianceId;
-    protected Integer[] byteValues;
 
     public void setApplianceId(String applianceId) {
         this.applianceId = applianceId;
     }
 
     public void setByteValues(Integer[] byteValues) {
-        this.byteValues = byteValues;
+        if(byteValues != null) {
+            int[] registers = new int[byteValues.length];
+            for(int i=0; i<byteValues.length; i++) {
+                registers[i] = byteValues[i];
+            }
+            setRegisters(registers, 0, registers.length);
+        }
+    }
+
+    public abstract void setRegisters(int[] registers, int offset, int length);
+
+    /**
+     * Returns true, if the value matches the regular expression which is compiled only once.
+     */
+    protected static boolean matches(String value, String regex) {
+        return value != null && regex != null && patterns.computeIfAbsent(regex, Pattern::compile).matcher(value).matches();
+    }
+
+    /**
+     * Returns true, if the value matches the regular expression. Regular expressions consisting of an integer
+     * literal only are parsed once and compared numerically without converting the value into a string.
+     */
+    protected static boolean matches(long value, String regex) {
+        if(regex == null) {
+            return false;
+        }
+        Optional<Long> integerLiteral = integerLiterals.computeIfAbsent(regex, ValueTransformerBase::parseIntegerLiteral);
+        if(integerLiteral.isPresent()) {
+            return value == integerLiteral.get();
+        }
+        return matches(Long.toString(value), regex);
+    }
+
+    private static Optional<Long> parseIntegerLiteral(String regex) {
+        if(regex.length() < 19 && INTEGER_LITERAL.matcher(regex).matches()) {
+            return Optional.of(Long.parseLong(regex));
+        }
+        return Optional.empty();
     }
 }
@@ -23,4 +23,22 @@ public interface ContentProtocolHandler {
     void parse(String content);
 
     String readValue(String selector);
+
+    /**
+     * Prepares the selector for repeated use.
+     * @param selector
+     */
+    default void compile(String selector) {
+    }
+
+    /**
+     * Reads the value selected from the content. Implementations should avoid parsing the same content again.
+     * @param content
+     * @param selector
+     * @return the value selected or null
+     */
+    default String readValue(String content, String selector) {
+        parse(content);
+        return readValue(selector);
+    }
 }
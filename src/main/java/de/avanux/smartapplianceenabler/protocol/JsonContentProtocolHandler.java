@@ -19,27 +19,71 @@
 package de.avanux.smartapplianceenabler.protocol;
 
 import com.jayway.jsonpath.Configuration;
-import com.jayway.jsonpath.DocumentContext;
 import com.jayway.jsonpath.JsonPath;
 
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Reads values from JSON content using JsonPath selectors. Selectors are compiled once and shared by all handlers.
+ * The document parsed last is kept so that reading several values from the same response parses it only once.
+ */
 public class JsonContentProtocolHandler implements ContentProtocolHandler {
 
-    private DocumentContext context;
+    private static final Configuration configuration = Configuration.defaultConfiguration();
+    private static final Map<String, JsonPath> compiledSelectors = new ConcurrentHashMap<>();
+    private volatile ParsedContent parsedContent;
 
     @Override
     public void parse(String content) {
-        Configuration conf = Configuration.defaultConfiguration();
-        this.context = JsonPath.using(conf).parse(content);
+        getParsedContent(content);
     }
 
     @Override
     public String readValue(String selector) {
-        if(this.context != null) {
-            Object value = this.context.read(selector);
+        return readValue(this.parsedContent, selector);
+    }
+
+    @Override
+    public void compile(String selector) {
+        getCompiledSelector(selector);
+    }
+
+    @Override
+    public String readValue(String content, String selector) {
+        return readValue(getParsedContent(content), selector);
+    }
+
+    private String readValue(ParsedContent parsedContent, String selector) {
+        if(parsedContent != null) {
+            Object value = getCompiledSelector(selector).read(parsedContent.document, configuration);
             if(value != null) {
                 return value.toString();
             }
         }
         return null;
     }
+
+    private JsonPath getCompiledSelector(String selector) {
+        return compiledSelectors.computeIfAbsent(selector, JsonPath::compile);
+    }
+
+    private ParsedContent getParsedContent(String content) {
+        ParsedContent parsed = this.parsedContent;
+        if(parsed == null || (parsed.content != content && ! parsed.content.equals(content))) {
+            parsed = new ParsedContent(content, configuration.jsonProvider().parse(content));
+            this.parsedContent = parsed;
+        }
+        return parsed;
+    }
+
+    private static class ParsedContent {
+        private String content;
+        private Object document;
+
+        ParsedContent(String content, Object document) {
+            this.content = content;
+            this.document = document;
+        }
+    }
 }
@@ -45,6 +45,21 @@ abstract public class AbstractRequest implements Request {
     private transient LocalDateTime controlStatusChangedAt;
     private transient Boolean acceptControlRecommendations;
     private transient TimeframeIntervalStateProvider timeframeIntervalStateProvider;
+    private transient volatile RuntimeSample runtimeSample;
+
+    /**
+     * The runtime determined for a given time. Querying the control may require device access, therefore all
+     * values derived from the runtime for the same time (e.g. min and max) are based on one sample.
+     */
+    private static class RuntimeSample {
+        private LocalDateTime now;
+        private int runtime;
+
+        RuntimeSample(LocalDateTime now, int runtime) {
+            this.now = now;
+            this.runtime = runtime;
+        }
+    }
 
 
     public AbstractRequest() {
@@ -89,7 +104,8 @@ abstract public class AbstractRequest implements Request {
 
     @Override
     public Integer getMinOrMax(LocalDateTime now) {
-        return getMin(now) != null ? getMin(now) : getMax(now);
+        Integer min = getMin(now);
+        return min != null ? min : getMax(now);
     }
 
     @Override
@@ -119,6 +135,7 @@ abstract public class AbstractRequest implements Request {
 
     protected void resetEnabledBefore() {
         this.enabledBefore = false;
+        this.runtimeSample = null;
     }
 
     public boolean isActive() {
@@ -155,13 +172,22 @@ abstract public class AbstractRequest implements Request {
     @Override
     public Integer getRuntime(LocalDateTime now) {
         if(isEnabledBefore()) {
-            return runtimeUntilLastStatusChange + (control.isOn() ? getSecondsSinceStatusChange(now) : 0);
+            RuntimeSample runtimeSample = this.runtimeSample;
+            if(runtimeSample == null || now == null || !runtimeSample.now.equals(now)) {
+                runtimeSample = new RuntimeSample(now,
+                        runtimeUntilLastStatusChange + (control.isOn() ? getSecondsSinceStatusChange(now) : 0));
+                if(now != null) {
+                    this.runtimeSample = runtimeSample;
+                }
+            }
+            return runtimeSample.runtime;
         }
         return 0;
     }
 
     protected void resetRuntime() {
         runtimeUntilLastStatusChange = 0;
+        this.runtimeSample = null;
     }
 
     @Override
@@ -198,6 +224,7 @@ abstract public class AbstractRequest implements Request {
                 runtimeUntilLastStatusChange += getSecondsSinceStatusChange(now);
             }
             controlStatusChangedAt = now;
+            runtimeSample = null;
         }
     }
 
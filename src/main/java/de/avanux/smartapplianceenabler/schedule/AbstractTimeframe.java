@@ -18,19 +18,20 @@
 
 package de.avanux.smartapplianceenabler.schedule;
 
-import org.apache.commons.lang3.SerializationUtils;
-
 import javax.xml.bind.annotation.XmlTransient;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
 
 @XmlTransient
-abstract public class AbstractTimeframe {
-
-    protected TimeframeInterval createTimeframeInterval(Interval interval, Schedule schedule) {
-        Request clonedRequest = SerializationUtils.clone(schedule.getRequest());
-        // "enabled" has to be transient since it is not contained in XML; therefore it has to be set after cloning
-        clonedRequest.setEnabled(true);
+abstract public class AbstractTimeframe implements Timeframe {
 
-        TimeframeInterval timeframeInterval = new TimeframeInterval(interval, clonedRequest);
-        return timeframeInterval;
+    @Override
+    public List<TimeframeInterval> getIntervals(LocalDateTime now) {
+        List<TimeframeInterval> timeframeIntervals = new ArrayList<>();
+        for(Interval interval : expandIntervals(now)) {
+            timeframeIntervals.add(getSchedule().createTimeframeInterval(interval));
+        }
+        return timeframeIntervals;
     }
 }
@@ -59,7 +59,8 @@ public class ConsecutiveDaysTimeframe extends AbstractTimeframe implements Timef
         return schedule;
     }
 
-    public List<TimeframeInterval> getIntervals(LocalDateTime now) {
+    @Override
+    public List<Interval> expandIntervals(LocalDateTime now) {
         if(start != null && end != null) {
             LocalDateTime earliestStartNextOccurrence = start.toNextOccurrence(now);
             LocalDateTime latestEndNextOccurrence = end.toNextOccurrence(now);
@@ -68,11 +69,9 @@ public class ConsecutiveDaysTimeframe extends AbstractTimeframe implements Timef
                 earliestStartDateTime = start.toLastOccurrence(now);
             }
             LocalDateTime latestEndDateTime = end.toNextOccurrence(earliestStartDateTime);
-            Interval interval = new Interval(earliestStartDateTime, latestEndDateTime);
-            TimeframeInterval timeframeInterval = createTimeframeInterval(interval, schedule);
-            return Collections.singletonList(timeframeInterval);
+            return Collections.singletonList(new Interval(earliestStartDateTime, latestEndDateTime));
         }
-        return null;
+        return Collections.emptyList();
     }
 
     @Override
@@ -26,6 +26,7 @@ import java.time.Duration;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 /**
@@ -41,7 +42,10 @@ public class DayTimeframe extends AbstractTimeframe implements Timeframe {
     @XmlElement(name = "DayOfWeek")
     private List<DayOfWeek> daysOfWeek;
     private transient Schedule schedule;
-    private transient List<LocalDate> holidays;
+    private transient HolidayIndex holidays = HolidayIndex.EMPTY;
+    private transient LocalDate cachedFirstDay;
+    private transient HolidayIndex cachedHolidays;
+    private transient List<Interval> cachedIntervals;
 
     public DayTimeframe() {
     }
@@ -111,14 +115,22 @@ public class DayTimeframe extends AbstractTimeframe implements Timeframe {
         return null;
     }
 
+    /**
+     * Returns the intervals of the seven days starting with the first day whose interval has not ended yet.
+     * Since they only depend on this day and the holidays, they are cached until either of them changes.
+     */
     @Override
-    public List<TimeframeInterval> getIntervals(LocalDateTime now) {
-        List<TimeframeInterval> intervals = new ArrayList<>();
-        if(start != null && end != null) {
-            Interval interval = buildMidnightAdjustedInterval(now);
+    public synchronized List<Interval> expandIntervals(LocalDateTime now) {
+        if(start == null || end == null) {
+            return Collections.emptyList();
+        }
+        Interval interval = buildMidnightAdjustedInterval(now);
+        // if today's interval already ended we ignore today
+        int dayOffset = (interval.getEnd().isBefore(now) ? 1 : 0);
+        LocalDate firstDay = interval.getStart().toLocalDate().plusDays(dayOffset);
+        if(cachedIntervals == null || !firstDay.equals(cachedFirstDay) || cachedHolidays != holidays) {
+            List<Interval> intervals = new ArrayList<>();
             List<Integer> dowValues = getDaysOfWeekValues();
-            // if today's interval already ended we ignore today
-            int dayOffset = (interval.getEnd().isBefore(now) ? 1 : 0);
             for(int i=dayOffset;i<7+dayOffset;i++) {
                 LocalDateTime timeFrameStart = interval.getStart().plusDays(i);
                 LocalDateTime timeFrameEnd = interval.getEnd().plusDays(i);
@@ -128,15 +140,18 @@ public class DayTimeframe extends AbstractTimeframe implements Timeframe {
                         dow = DOW_HOLIDAYS;
                     }
                     if(dowValues.contains(dow)) {
-                        intervals.add(createTimeframeInterval(new Interval(timeFrameStart, timeFrameEnd), schedule));
+                        intervals.add(new Interval(timeFrameStart, timeFrameEnd));
                     }
                 }
                 else {
-                    intervals.add(createTimeframeInterval(new Interval(timeFrameStart, timeFrameEnd), schedule));
+                    intervals.add(new Interval(timeFrameStart, timeFrameEnd));
                 }
             }
+            cachedIntervals = Collections.unmodifiableList(intervals);
+            cachedFirstDay = firstDay;
+            cachedHolidays = holidays;
         }
-        return intervals;
+        return cachedIntervals;
     }
 
     /**
@@ -150,14 +165,18 @@ public class DayTimeframe extends AbstractTimeframe implements Timeframe {
     }
 
     public void setHolidays(List<LocalDate> holidays) {
-        this.holidays = holidays;
+        setHolidays(HolidayIndex.of(holidays));
     }
 
-    protected boolean isHoliday(LocalDate date) {
-        if(holidays != null && holidays.contains(date)) {
-            return true;
+    public synchronized void setHolidays(HolidayIndex holidays) {
+        // keep the instance used for the cached intervals if the holidays did not change
+        if(holidays != null && !holidays.equals(this.holidays)) {
+            this.holidays = holidays;
         }
-        return false;
+    }
+
+    protected boolean isHoliday(LocalDate date) {
+        return holidays != null && holidays.contains(date);
     }
 
     private LocalDateTime toDateTimeToday(TimeOfDay timeOfDay) {
@@ -0,0 +1,73 @@
+/*
+ * Copyright (C) 2021 Axel Müller <axel.mueller@avanux.de>
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package de.avanux.smartapplianceenabler.schedule;
+
+import java.time.LocalDate;
+import java.util.BitSet;
+import java.util.Collection;
+
+/**
+ * Immutable set of holidays stored as a bit set indexed by epoch day, so that lookups take constant time.
+ * A single instance is shared by all appliances.
+ */
+public class HolidayIndex {
+    public static final HolidayIndex EMPTY = new HolidayIndex(0, new BitSet());
+    private final long firstEpochDay;
+    private final BitSet days;
+
+    private HolidayIndex(long firstEpochDay, BitSet days) {
+        this.firstEpochDay = firstEpochDay;
+        this.days = days;
+    }
+
+    public static HolidayIndex of(Collection<LocalDate> holidays) {
+        if(holidays == null || holidays.isEmpty()) {
+            return EMPTY;
+        }
+        long firstEpochDay = holidays.stream().mapToLong(LocalDate::toEpochDay).min().getAsLong();
+        BitSet days = new BitSet();
+        for(LocalDate holiday : holidays) {
+            days.set((int) (holiday.toEpochDay() - firstEpochDay));
+        }
+        return new HolidayIndex(firstEpochDay, days);
+    }
+
+    public boolean contains(LocalDate date) {
+        long index = date.toEpochDay() - firstEpochDay;
+        return index >= 0 && index < days.length() && days.get((int) index);
+    }
+
+    public int size() {
+        return days.cardinality();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        HolidayIndex that = (HolidayIndex) o;
+        return (days.isEmpty() && that.days.isEmpty())
+                || (firstEpochDay == that.firstEpochDay && days.equals(that.days));
+    }
+
+    @Override
+    public int hashCode() {
+        return days.isEmpty() ? 0 : Long.hashCode(firstEpochDay) * 31 + days.hashCode();
+    }
+}
@@ -17,6 +17,8 @@
  */
 package de.avanux.smartapplianceenabler.schedule;
 
+import org.apache.commons.lang3.SerializationUtils;
+
 import javax.xml.bind.annotation.*;
 import java.util.List;
 
@@ -86,6 +88,18 @@ public class Schedule {
         return request;
     }
 
+    /**
+     * Creates a timeframe interval for a copy of the interval given using a copy of the request of this schedule.
+     * @param interval
+     * @return
+     */
+    public TimeframeInterval createTimeframeInterval(Interval interval) {
+        Request clonedRequest = SerializationUtils.clone(request);
+        // "enabled" has to be transient since it is not contained in XML; therefore it has to be set after cloning
+        clonedRequest.setEnabled(true);
+        return new TimeframeInterval(new Interval(interval.getStart(), interval.getEnd()), clonedRequest);
+    }
+
     public void setRequest(Request request) {
         this.request = request;
     }
@@ -44,4 +44,11 @@ public interface Timeframe {
      * @return a (possibly empty) list; never null
      */
     List<TimeframeInterval> getIntervals(LocalDateTime now);
+
+    /**
+     * Return all intervals of this timeframe without creating timeframe intervals and requests.
+     * @param now
+     * @return a (possibly empty) list which must not be modified; never null
+     */
+    List<Interval> expandIntervals(LocalDateTime now);
 }
@@ -38,6 +38,7 @@ public class TimeframeInterval implements ApplianceIdConsumer, TimeframeInterval
     private Request request;
     private transient Vector<TimeframeIntervalState> stateHistory = new Vector<>();
     private transient String applianceId;
+    private transient volatile Runnable stateChangedListener;
 
     public TimeframeInterval(Interval interval, Request request) {
         this.interval = interval;
@@ -69,13 +70,30 @@ public class TimeframeInterval implements ApplianceIdConsumer, TimeframeInterval
         return request;
     }
 
+    /**
+     * Sets the listener notified of state transitions, i.e. the {@link TimeframeIntervalQueue} containing this
+     * timeframe interval.
+     */
+    void setStateChangedListener(Runnable stateChangedListener) {
+        this.stateChangedListener = stateChangedListener;
+    }
+
     public void initState(TimeframeIntervalState initialState) {
         this.stateHistory.clear();
         stateHistory.add(initialState != null ? initialState : TimeframeIntervalState.CREATED);
+        notifyStateChanged();
     }
 
     public void stateTransitionTo(LocalDateTime now, TimeframeIntervalState state) {
         this.stateHistory.add(state);
+        notifyStateChanged();
+    }
+
+    private void notifyStateChanged() {
+        Runnable stateChangedListener = this.stateChangedListener;
+        if(stateChangedListener != null) {
+            stateChangedListener.run();
+        }
     }
 
     @Override
@@ -133,10 +151,18 @@ public class TimeframeInterval implements ApplianceIdConsumer, TimeframeInterval
     }
 
     public boolean isIntervalSufficient(LocalDateTime now) {
-        if(getRequest() instanceof AbstractEnergyRequest) {
+        return isIntervalSufficient(now, interval, request);
+    }
+
+    /**
+     * Returns true, if the interval is sufficient to fulfill the request starting now.
+     */
+    public static boolean isIntervalSufficient(LocalDateTime now, Interval interval, Request request) {
+        if(request instanceof AbstractEnergyRequest) {
             return true;
         }
-        LocalDateTime latestStart = getLatestStart(now, LocalDateTime.from(interval.getEnd()), getRequestMinOrMax(now));
+        Integer minOrMax = request.getMinOrMax(now);
+        LocalDateTime latestStart = getLatestStart(now, interval.getEnd(), minOrMax != null ? minOrMax : 0);
         return now.isEqual(latestStart) || now.isBefore(latestStart);
     }
 
@@ -1,40 +0,0 @@
-/*
- * Copyright (C) 2017 Axel Müller <axel.mueller@avanux.de>
- *
- * This program is free software; you can redistribute it and/or modify
- * it under the terms of the GNU General Public License as published by
- * the Free Software Foundation; either version 2 of the License, or
- * (at your option) any later version.
- *
- * This program is distributed in the hope that it will be useful,
- * but WITHOUT ANY WARRANTY; without even the implied warranty of
- * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
- * GNU General Public License for more details.
- *
- * You should have received a copy of the GNU General Public License along
- * with this program; if not, write to the Free Software Foundation, Inc.,
- * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
- */
-
-package de.avanux.smartapplianceenabler.schedule;
-
-import java.util.Comparator;
-
-/**
- * Compares timeframe intervals bei start time.
- */
-public class TimeframeIntervalComparator implements Comparator<TimeframeInterval> {
-
-    @Override
-    public int compare(TimeframeInterval interval1, TimeframeInterval interval2) {
-        if(interval1 != null && interval2 != null) {
-            if(interval1.getInterval().getStart().isBefore(interval2.getInterval().getStart())) {
-                return -1;
-            }
-            if(interval1.getInterval().getStart().isAfter(interval2.getInterval().getStart())) {
-                return 1;
-            }
-        }
-        return 0;
-    }
-}
@@ -27,15 +27,28 @@ import de.avanux.smartapplianceenabler.control.ev.EVChargerState;
 import de.avanux.smartapplianceenabler.control.ev.ElectricVehicle;
 import de.avanux.smartapplianceenabler.control.ev.ElectricVehicleCharger;
 import de.avanux.smartapplianceenabler.control.ev.SocValues;
+import de.avanux.smartapplianceenabler.meter.PowerUpdateListener;
 import de.avanux.smartapplianceenabler.util.GuardedTimerTask;
 import de.avanux.smartapplianceenabler.util.Holder;
+import de.avanux.smartapplianceenabler.util.TaskScheduler;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
 import java.util.*;
-
-public class TimeframeIntervalHandler implements ApplianceIdConsumer, ControlStateChangedListener {
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Maintains the queue of timeframe intervals of an appliance.
+ * <p>
+ * Instead of polling, the queue is updated at the exact time the next timeframe interval becomes activatable,
+ * deactivatable, removable or prolongable and whenever the state of the control or the energy metered changes.
+ * Updates are executed by the {@link TaskScheduler} in the lane of the appliance.
+ */
+public class TimeframeIntervalHandler implements ApplianceIdConsumer, ControlStateChangedListener,
+        PowerUpdateListener {
 
     private Logger logger = LoggerFactory.getLogger(TimeframeIntervalHandler.class);
     public static final int CONSIDERATION_INTERVAL_DAYS = 2;
@@ -45,7 +58,10 @@ public class TimeframeIntervalHandler implements ApplianceIdConsumer, ControlSta
     private List<Schedule> schedules;
     private GuardedTimerTask fillQueueTimerTask;
     private GuardedTimerTask updateQueueTimerTask;
-    private LinkedList<TimeframeInterval> queue = new LinkedList<>();
+    private final Object updateQueueLock = new Object();
+    private final AtomicBoolean queueUpdateRequested = new AtomicBoolean();
+    private volatile TaskScheduler timer;
+    private TimeframeIntervalQueue queue = new TimeframeIntervalQueue();
     private Set<TimeframeIntervalChangedListener> timeframeIntervalChangedListeners = new HashSet<>();
     private Control control;
 
@@ -74,7 +90,7 @@ public class TimeframeIntervalHandler implements ApplianceIdConsumer, ControlSta
         this.timeframeIntervalChangedListeners.remove(listener);
     }
 
-    public void setTimer(Timer timer) {
+    public void setTimer(TaskScheduler timer) {
         if(control != null) {
             this.fillQueueTimerTask = new GuardedTimerTask(this.applianceId, "FillQueueTimerTask",
                     FILL_QUEUE_INTERVAL_SECONDS * 1000) {
@@ -84,34 +100,124 @@ public class TimeframeIntervalHandler implements ApplianceIdConsumer, ControlSta
                 }
             };
             if (timer != null) {
+                this.timer = timer;
                 timer.schedule(fillQueueTimerTask, 0, fillQueueTimerTask.getPeriod());
-            }
-
-            this.updateQueueTimerTask = new GuardedTimerTask(this.applianceId,
-                    "UpdateActiveTimeframeInterval", UPDATE_QUEUE_INTERVAL_SECONDS * 1000) {
-                @Override
-                public void runTask() {
-                    updateQueue(LocalDateTime.now(), false);
-                }
-            };
-            if (timer != null) {
-                timer.schedule(updateQueueTimerTask, 0, updateQueueTimerTask.getPeriod());
+                requestQueueUpdate();
             }
         }
     }
 
     public void cancelTimer() {
         logger.info("{}: Cancel timer tasks", applianceId);
-        if (this.updateQueueTimerTask != null) {
-            this.updateQueueTimerTask.cancel();
+        synchronized(this.updateQueueLock) {
+            this.timer = null;
+            if (this.updateQueueTimerTask != null) {
+                this.updateQueueTimerTask.cancel();
+                this.updateQueueTimerTask = null;
+            }
         }
         if (this.fillQueueTimerTask != null) {
             this.fillQueueTimerTask.cancel();
         }
     }
 
+    /**
+     * Requests the queue to be updated as soon as possible, e.g. because the state of the control or the energy
+     * metered changed. Requests received before the update is executed are coalesced into one.
+     */
+    public void requestQueueUpdate() {
+        synchronized(this.updateQueueLock) {
+            if(this.timer != null && ! this.queueUpdateRequested.getAndSet(true)) {
+                scheduleQueueUpdate(0);
+            }
+        }
+    }
+
+    /**
+     * Schedules the next queue update at the time returned by {@link #getNextQueueUpdate(LocalDateTime)}
+     * replacing the update scheduled before.
+     */
+    private void scheduleQueueUpdate(LocalDateTime now) {
+        if(this.timer != null) {
+            LocalDateTime nextQueueUpdate = getNextQueueUpdate(now);
+            logger.trace("{}: Next queue update scheduled for {}", applianceId, nextQueueUpdate);
+            synchronized(this.updateQueueLock) {
+                // an update requested in the meantime must not be replaced
+                if(! this.queueUpdateRequested.get()) {
+                    scheduleQueueUpdate(Math.max(0, Duration.between(LocalDateTime.now(), nextQueueUpdate).toMillis()));
+                }
+            }
+        }
+    }
+
+    private void scheduleQueueUpdate(long delayMillis) {
+        synchronized(this.updateQueueLock) {
+            if(this.timer != null) {
+                if (this.updateQueueTimerTask != null) {
+                    this.updateQueueTimerTask.cancel();
+                }
+                this.updateQueueTimerTask = new GuardedTimerTask(this.applianceId,
+                        "UpdateActiveTimeframeInterval", 0) {
+                    @Override
+                    public void runTask() {
+                        queueUpdateRequested.set(false);
+                        updateQueue(LocalDateTime.now(), false);
+                    }
+                };
+                this.timer.schedule(this.updateQueueTimerTask, delayMillis);
+            }
+        }
+    }
+
+    /**
+     * Returns the time at which the queue has to be updated next since a timeframe interval becomes
+     * activatable, deactivatable, removable or prolongable. Transitions depending on the state of the control
+     * or the energy metered are triggered by {@link #requestQueueUpdate()}. As a safety net the queue is updated
+     * at least every {@value #UPDATE_QUEUE_INTERVAL_SECONDS} seconds while a timeframe interval is active or
+     * the appliance is switched on.
+     */
+    protected LocalDateTime getNextQueueUpdate(LocalDateTime now) {
+        boolean controlOn = control != null && control.isOn();
+        LocalDateTime next = now.plusSeconds(controlOn ? UPDATE_QUEUE_INTERVAL_SECONDS : FILL_QUEUE_INTERVAL_SECONDS);
+        for(TimeframeInterval timeframeInterval : queue.asList()) {
+            TimeframeIntervalState state = timeframeInterval.getState();
+            if(state == TimeframeIntervalState.QUEUED || state == TimeframeIntervalState.ACTIVE) {
+                Interval interval = timeframeInterval.getInterval();
+                Request request = timeframeInterval.getRequest();
+                if(state == TimeframeIntervalState.QUEUED) {
+                    next = earliestAfter(now, next, interval.getStart());
+                }
+                else {
+                    next = earliestAfter(now, next, now.plusSeconds(UPDATE_QUEUE_INTERVAL_SECONDS));
+                    if(request instanceof RuntimeRequest && controlOn) {
+                        Integer max = request.getMax(now);
+                        next = earliestAfter(now, next, now.plusSeconds(max != null ? max : 0));
+                    }
+                }
+                if(request instanceof RuntimeRequest) {
+                    Integer minOrMax = request.getMinOrMax(now);
+                    next = earliestAfter(now, next, justAfter(
+                            TimeframeInterval.getLatestStart(now, interval.getEnd(), minOrMax != null ? minOrMax : 0)));
+                }
+                next = earliestAfter(now, next, justAfter(interval.getEnd()));
+            }
+        }
+        return next;
+    }
+
+    private LocalDateTime earliestAfter(LocalDateTime now, LocalDateTime next, LocalDateTime candidate) {
+        return candidate.isAfter(now) && candidate.isBefore(next) ? candidate : next;
+    }
+
+    private LocalDateTime justAfter(LocalDateTime timestamp) {
+        return timestamp.plus(1, ChronoUnit.MILLIS);
+    }
+
+    /**
+     * Returns an unmodifiable view of the queue which is not affected by subsequent modifications.
+     */
     public List<TimeframeInterval> getQueue() {
-        return new ArrayList<>(queue);
+        return queue.asList();
     }
 
     public void clearQueue() {
@@ -123,14 +229,17 @@ public class TimeframeIntervalHandler implements ApplianceIdConsumer, ControlSta
         logger.debug("{}: Starting to fill queue", applianceId);
         Interval considerationInterval = new Interval(now, now.plusDays(CONSIDERATION_INTERVAL_DAYS));
         TimeframeInterval lastTimeframeInterval = queue.peekLast();
-        List<TimeframeInterval> timeframeIntervals = findTimeframeIntervals(now, considerationInterval);
-        timeframeIntervals.stream()
-                .filter(timeframeInterval -> (lastTimeframeInterval == null
-                        || timeframeInterval.getInterval().getStart().isAfter(lastTimeframeInterval.getInterval().getEnd()))
-                        && timeframeInterval.isIntervalSufficient(now)
+        List<ScheduledInterval> scheduledIntervals = findScheduledIntervals(now, considerationInterval);
+        scheduledIntervals.stream()
+                .filter(scheduledInterval -> (lastTimeframeInterval == null
+                        || scheduledInterval.interval.getStart().isAfter(lastTimeframeInterval.getInterval().getEnd()))
+                        && TimeframeInterval.isIntervalSufficient(now, scheduledInterval.interval,
+                                scheduledInterval.schedule.getRequest())
                 )
                 .limit(control instanceof StartingCurrentSwitch ? (queue.size() == 0 ? 1 : 0) : Integer.MAX_VALUE)
-                .forEach(timeframeInterval -> {
+                .forEach(scheduledInterval -> {
+                    // the request is created only for timeframe intervals entering the queue
+                    TimeframeInterval timeframeInterval = createTimeframeInterval(scheduledInterval);
                     if(control instanceof StartingCurrentSwitch) {
                         // if appliance is switched off, the starting current has already been detected and the
                         // request has to be enabled therefore
@@ -147,15 +256,13 @@ public class TimeframeIntervalHandler implements ApplianceIdConsumer, ControlSta
         if(ignoreStartTime) {
             logger.warn("{}: Forcing queue update with ignored timeframe interval start time", applianceId);
         }
-        queue.forEach(timeframeInterval -> timeframeInterval.getRequest().update());
+        updateRequests();
         logger.debug("{}: Current Queue{}", applianceId, queue.size() > 0 ? ":" : " is empty");
         logQueue(now);
 
         Optional<TimeframeInterval> prolongableTimeframeInterval = getProlongableTimeframeInterval(now);
         prolongableTimeframeInterval.ifPresent(timeframeInterval -> {
-            int indexProlongableTimeframeInterval = queue.indexOf(timeframeInterval);
-            TimeframeInterval successor = queue.size() > indexProlongableTimeframeInterval + 1 ?
-                    queue.get(indexProlongableTimeframeInterval + 1) : null;
+            TimeframeInterval successor = queue.peek(queue.indexOf(timeframeInterval) + 1);
             if(! prolongOptionalEnergyTimeframeIntervalForEVCharger(now, timeframeInterval, successor)) {
                 moveOptionalEnergyTimeframeIntervalToSecondPosition(now);
             }
@@ -211,14 +318,15 @@ public class TimeframeIntervalHandler implements ApplianceIdConsumer, ControlSta
         Optional<TimeframeInterval> removableTimeframeInterval = getRemovableTimeframeInterval(now);
         removableTimeframeInterval.ifPresent(timeframeInterval -> removeTimeframeInterval(now, timeframeInterval));
 
-        for(int i=0; i<queue.size(); i++) {
-            queue.get(i).getRequest().setNext(i == 0);
+        List<TimeframeInterval> timeframeIntervals = queue.asList();
+        for(int i=0; i<timeframeIntervals.size(); i++) {
+            timeframeIntervals.get(i).getRequest().setNext(i == 0);
         }
 
         if(deactivatableTimeframeInterval.isPresent()
                 || activatableTimeframeInterval.isPresent()
                 || removableTimeframeInterval.isPresent()) {
-            queue.forEach(timeframeInterval -> timeframeInterval.getRequest().update());
+            updateRequests();
             logger.debug("{}: Updated queue:", applianceId);
             logQueue(now);
         }
@@ -235,10 +343,11 @@ public class TimeframeIntervalHandler implements ApplianceIdConsumer, ControlSta
                                 .orElse(false));
             }
         }
+        scheduleQueueUpdate(now);
     }
 
     private void logQueue(LocalDateTime now) {
-        queue.forEach(timeframeInterval -> logger.debug("{}: {}",
+        queue.asList().forEach(timeframeInterval -> logger.debug("{}: {}",
                 applianceId,
                 timeframeInterval.toString(now)));
     }
@@ -247,27 +356,49 @@ public class TimeframeIntervalHandler implements ApplianceIdConsumer, ControlSta
         if(hasActiveTimeframeInterval()) {
             return Optional.empty();
         }
-        return queue.stream()
-                .filter(timeframeInterval -> timeframeInterval.isActivatable(now, ignoreStartTime))
-                .findFirst();
+        for(TimeframeInterval timeframeInterval : queue.asList()) {
+            if(timeframeInterval.isActivatable(now, ignoreStartTime)) {
+                return Optional.of(timeframeInterval);
+            }
+        }
+        return Optional.empty();
     }
 
     private Optional<TimeframeInterval> getDeactivatableTimeframeInterval(LocalDateTime now) {
-        return queue.stream()
-                .filter(timeframeInterval -> timeframeInterval.isDeactivatable(now))
-                .findFirst();
+        // only active timeframe intervals can be deactivated
+        if(hasActiveTimeframeInterval()) {
+            for(TimeframeInterval timeframeInterval : queue.asList()) {
+                if(timeframeInterval.isDeactivatable(now)) {
+                    return Optional.of(timeframeInterval);
+                }
+            }
+        }
+        return Optional.empty();
     }
 
     private Optional<TimeframeInterval> getRemovableTimeframeInterval(LocalDateTime now) {
-        return queue.stream()
-                .filter(timeframeInterval -> timeframeInterval.isRemovable(now))
-                .findFirst();
+        for(TimeframeInterval timeframeInterval : queue.asList()) {
+            if(timeframeInterval.isRemovable(now)) {
+                return Optional.of(timeframeInterval);
+            }
+        }
+        return Optional.empty();
     }
 
     private Optional<TimeframeInterval> getProlongableTimeframeInterval(LocalDateTime now) {
-        return queue.stream()
-                .filter(timeframeInterval -> timeframeInterval.isProlongable(now))
-                .findFirst();
+        // only active timeframe intervals can be prolonged
+        if(hasActiveTimeframeInterval()) {
+            for(TimeframeInterval timeframeInterval : queue.asList()) {
+                if(timeframeInterval.isProlongable(now)) {
+                    return Optional.of(timeframeInterval);
+                }
+            }
+        }
+        return Optional.empty();
+    }
+
+    private void updateRequests() {
+        queue.asList().forEach(timeframeInterval -> timeframeInterval.getRequest().update());
     }
 
     public void addTimeframeInterval(LocalDateTime now, TimeframeInterval timeframeInterval, boolean asFirst, boolean updateQueue) {
@@ -290,7 +421,7 @@ public class TimeframeIntervalHandler implements ApplianceIdConsumer, ControlSta
                     activeTimeframeInterval.setInterval(firstIntervalAdjusted);
                 }
             }
-            queue.addFirst(timeframeInterval);
+            queue.add(0, timeframeInterval);
         } else {
             queue.add(timeframeInterval);
         }
@@ -327,21 +458,24 @@ public class TimeframeIntervalHandler implements ApplianceIdConsumer, ControlSta
     }
 
     public TimeframeInterval getActiveTimeframeInterval() {
-        return queue.stream()
-                .filter(timeframeInterval -> timeframeInterval.getState() == TimeframeIntervalState.ACTIVE)
-                .findFirst().orElse(null);
+        return queue.getFirst(TimeframeIntervalState.ACTIVE);
     }
 
     public TimeframeInterval getFirstTimeframeInterval(TimeframeIntervalState... states) {
-        if(states.length > 0) {
-            return queue.stream()
-                    .filter(timeframeInterval -> Arrays.stream(states).anyMatch(state -> state == timeframeInterval.getState()))
-                    .findFirst().orElse(null);
+        if(states.length == 1) {
+            return queue.getFirst(states[0]);
         }
-        if(queue.size() > 0) {
-            return queue.get(0);
+        if(states.length > 0) {
+            for(TimeframeInterval timeframeInterval : queue.asList()) {
+                for(TimeframeIntervalState state : states) {
+                    if(state == timeframeInterval.getState()) {
+                        return timeframeInterval;
+                    }
+                }
+            }
+            return null;
         }
-        return null;
+        return queue.peekFirst();
     }
 
     /**
@@ -354,28 +488,61 @@ public class TimeframeIntervalHandler implements ApplianceIdConsumer, ControlSta
      */
     protected List<TimeframeInterval> findTimeframeIntervals(LocalDateTime now, Interval considerationInterval) {
         List<TimeframeInterval> timeframeIntervals = new ArrayList<>();
-        if (schedules != null) {
-            schedules
-                    .stream()
-                    .filter(Schedule::isEnabled)
-                    .forEach(schedule -> {
-                        Timeframe timeframe = schedule.getTimeframe();
-                        timeframe.getIntervals(now).forEach(timeframeInterval -> {
-                            if (considerationInterval == null
-                                    || considerationInterval.contains(timeframeInterval.getInterval().getStart())
-                                    || timeframeInterval.getInterval().contains(considerationInterval.getStart())
-                            ) {
-                                timeframeInterval.setApplianceId(applianceId);
-                                timeframeInterval.getRequest().setApplianceId(applianceId);
-                                timeframeIntervals.add(timeframeInterval);
-                            }
-                        });
-                    });
-        }
-        timeframeIntervals.sort(new TimeframeIntervalComparator());
+        for(ScheduledInterval scheduledInterval : findScheduledIntervals(now, considerationInterval)) {
+            timeframeIntervals.add(createTimeframeInterval(scheduledInterval));
+        }
         return timeframeIntervals;
     }
 
+    /**
+     * Returns the intervals of the enabled schedules starting within a consideration interval without creating
+     * timeframe intervals and requests.
+     * If not consideration interval is given, all intervals are returned.
+     *
+     * @param now
+     * @param considerationInterval intervals have to start within this interval
+     * @return a (possibly empty) list of intervals sorted by starting time
+     */
+    private List<ScheduledInterval> findScheduledIntervals(LocalDateTime now, Interval considerationInterval) {
+        List<ScheduledInterval> scheduledIntervals = new ArrayList<>();
+        if (schedules != null) {
+            for(Schedule schedule : schedules) {
+                if(schedule.isEnabled()) {
+                    for(Interval interval : schedule.getTimeframe().expandIntervals(now)) {
+                        if (considerationInterval == null
+                                || considerationInterval.contains(interval.getStart())
+                                || interval.contains(considerationInterval.getStart())
+                        ) {
+                            scheduledIntervals.add(new ScheduledInterval(schedule, interval));
+                        }
+                    }
+                }
+            }
+        }
+        scheduledIntervals.sort(Comparator.comparing(scheduledInterval -> scheduledInterval.interval.getStart()));
+        return scheduledIntervals;
+    }
+
+    private TimeframeInterval createTimeframeInterval(ScheduledInterval scheduledInterval) {
+        TimeframeInterval timeframeInterval = scheduledInterval.schedule.createTimeframeInterval(scheduledInterval.interval);
+        timeframeInterval.setApplianceId(applianceId);
+        timeframeInterval.getRequest().setApplianceId(applianceId);
+        return timeframeInterval;
+    }
+
+    /**
+     * An interval of a schedule for which no timeframe interval has been created yet.
+     */
+    private static class ScheduledInterval {
+        private Schedule schedule;
+        private Interval interval;
+
+        ScheduledInterval(Schedule schedule, Interval interval) {
+            this.schedule = schedule;
+            this.interval = interval;
+        }
+    }
+
     public List<TimeframeInterval> findTimeframeIntervalsUntilFirstGap() {
         List<TimeframeInterval> intervals = new ArrayList<>();
         TimeframeInterval firstTimeframeInterval = getFirstTimeframeInterval();
@@ -392,14 +559,17 @@ public class TimeframeIntervalHandler implements ApplianceIdConsumer, ControlSta
     }
 
     private TimeframeInterval findOptionalEnergyIntervalForEVCharger() {
-        return queue.stream()
-                .filter(timeframeInterval -> timeframeInterval.getRequest() instanceof OptionalEnergySocRequest)
-                .findFirst().orElse(null);
+        for(TimeframeInterval timeframeInterval : queue.asList()) {
+            if(timeframeInterval.getRequest() instanceof OptionalEnergySocRequest) {
+                return timeframeInterval;
+            }
+        }
+        return null;
     }
 
     private TimeframeInterval createOptionalEnergyTimeframeIntervalForEVCharger(LocalDateTime now, Integer evId) {
         Interval interval = createOptionalEnergyIntervalForEVCharger(now, null,
-                queue.size() > 0 ? queue.get(0) : null);
+                queue.peekFirst());
         if(interval == null) {
             return null;
         }
@@ -474,12 +644,11 @@ public class TimeframeIntervalHandler implements ApplianceIdConsumer, ControlSta
     private void moveOptionalEnergyTimeframeIntervalToSecondPosition(LocalDateTime now) {
         TimeframeInterval activeTimeframeInterval = getActiveTimeframeInterval();
         logger.debug("{}: Moving to second place in queue: {}", applianceId, getActiveTimeframeInterval().toString(now));
-        queue.remove(activeTimeframeInterval);
-        queue.add(1, activeTimeframeInterval);
+        queue.move(activeTimeframeInterval, 1);
         activeTimeframeInterval.stateTransitionTo(now, TimeframeIntervalState.QUEUED);
         activeTimeframeInterval.setInterval(
                 createOptionalEnergyIntervalForEVCharger(queue.get(0).getInterval().getEnd().plusSeconds(1),
-                        null, queue.size() > 2 ? queue.get(2) : null));
+                        null, queue.peek(2)));
     }
 
     public void adjustOptionalEnergyTimeframeIntervalStart() {
@@ -510,6 +679,14 @@ public class TimeframeIntervalHandler implements ApplianceIdConsumer, ControlSta
 
     @Override
     public void controlStateChanged(LocalDateTime now, boolean switchOn) {
+        requestQueueUpdate();
+    }
+
+    @Override
+    public void onPowerUpdate(int averagePower) {
+        if(hasActiveTimeframeInterval()) {
+            requestQueueUpdate();
+        }
     }
 
     @Override
@@ -517,7 +694,7 @@ public class TimeframeIntervalHandler implements ApplianceIdConsumer, ControlSta
                                         ElectricVehicle ev) {
         if(newState == EVChargerState.VEHICLE_CONNECTED) {
             if(ev != null) {
-                queue.stream()
+                queue.asList().stream()
                         .filter(timeframeInterval -> timeframeInterval.getRequest() instanceof SocRequest)
                         .filter(timeframeInterval -> !(timeframeInterval.getRequest() instanceof OptionalEnergySocRequest))
                         .forEach(timeframeInterval ->
@@ -534,11 +711,13 @@ public class TimeframeIntervalHandler implements ApplianceIdConsumer, ControlSta
                 }
             }
         }
+        requestQueueUpdate();
     }
 
     @Override
     public void onEVChargerSocChanged(LocalDateTime now, SocValues socValues) {
 //        queue.forEach(timeframeInterval -> timeframeInterval.getRequest().onEVChargerSocChanged(now ,soc));
+        requestQueueUpdate();
     }
 
     public Integer suggestRuntime() {
@@ -0,0 +1,147 @@
+/*
+ * Copyright (C) 2021 Axel Müller <axel.mueller@avanux.de>
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package de.avanux.smartapplianceenabler.schedule;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The queue of timeframe intervals of an appliance. The position of a timeframe interval is determined by the
+ * {@link TimeframeIntervalHandler} and not necessarily by its start.
+ * <p>
+ * The queue is kept in an immutable array-backed list which is replaced on each modification. Reading therefore
+ * neither requires locking nor copying and access by position takes constant time. The first timeframe interval
+ * of each {@link TimeframeIntervalState} is indexed and updated on modifications of the queue and state
+ * transitions of the timeframe intervals contained.
+ */
+public class TimeframeIntervalQueue {
+    private volatile List<TimeframeInterval> timeframeIntervals = Collections.emptyList();
+    private volatile Map<TimeframeIntervalState, TimeframeInterval> firstByState
+            = new EnumMap<>(TimeframeIntervalState.class);
+    private final Runnable stateChangedListener = this::updateIndex;
+
+    /**
+     * Returns an unmodifiable view of the queue which is not affected by subsequent modifications.
+     */
+    public List<TimeframeInterval> asList() {
+        return timeframeIntervals;
+    }
+
+    public int size() {
+        return timeframeIntervals.size();
+    }
+
+    public boolean isEmpty() {
+        return timeframeIntervals.isEmpty();
+    }
+
+    public TimeframeInterval get(int index) {
+        return timeframeIntervals.get(index);
+    }
+
+    /**
+     * Returns the timeframe interval at the given position or null if the queue is shorter.
+     */
+    public TimeframeInterval peek(int index) {
+        List<TimeframeInterval> timeframeIntervals = this.timeframeIntervals;
+        return index < timeframeIntervals.size() ? timeframeIntervals.get(index) : null;
+    }
+
+    public TimeframeInterval peekFirst() {
+        return peek(0);
+    }
+
+    public TimeframeInterval peekLast() {
+        List<TimeframeInterval> timeframeIntervals = this.timeframeIntervals;
+        return timeframeIntervals.isEmpty() ? null : timeframeIntervals.get(timeframeIntervals.size() - 1);
+    }
+
+    public int indexOf(TimeframeInterval timeframeInterval) {
+        List<TimeframeInterval> timeframeIntervals = this.timeframeIntervals;
+        for(int i=0; i<timeframeIntervals.size(); i++) {
+            if(timeframeIntervals.get(i) == timeframeInterval) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the first timeframe interval in the given state or null if there is none.
+     */
+    public TimeframeInterval getFirst(TimeframeIntervalState state) {
+        return firstByState.get(state);
+    }
+
+    public synchronized void add(TimeframeInterval timeframeInterval) {
+        add(timeframeIntervals.size(), timeframeInterval);
+    }
+
+    public synchronized void add(int index, TimeframeInterval timeframeInterval) {
+        List<TimeframeInterval> modified = new ArrayList<>(timeframeIntervals.size() + 1);
+        modified.addAll(timeframeIntervals);
+        modified.add(index, timeframeInterval);
+        timeframeInterval.setStateChangedListener(stateChangedListener);
+        publish(modified);
+    }
+
+    public synchronized boolean remove(TimeframeInterval timeframeInterval) {
+        int index = indexOf(timeframeInterval);
+        if(index < 0) {
+            return false;
+        }
+        List<TimeframeInterval> modified = new ArrayList<>(timeframeIntervals);
+        modified.remove(index);
+        timeframeInterval.setStateChangedListener(null);
+        publish(modified);
+        return true;
+    }
+
+    /**
+     * Moves a timeframe interval contained in the queue to the given position.
+     */
+    public synchronized void move(TimeframeInterval timeframeInterval, int index) {
+        List<TimeframeInterval> modified = new ArrayList<>(timeframeIntervals);
+        if(modified.remove(timeframeInterval)) {
+            modified.add(index, timeframeInterval);
+            publish(modified);
+        }
+    }
+
+    public synchronized void clear() {
+        timeframeIntervals.forEach(timeframeInterval -> timeframeInterval.setStateChangedListener(null));
+        publish(new ArrayList<>());
+    }
+
+    private void publish(List<TimeframeInterval> modified) {
+        this.timeframeIntervals = Collections.unmodifiableList(modified);
+        updateIndex();
+    }
+
+    private synchronized void updateIndex() {
+        Map<TimeframeIntervalState, TimeframeInterval> firstByState = new EnumMap<>(TimeframeIntervalState.class);
+        for(TimeframeInterval timeframeInterval : timeframeIntervals) {
+            firstByState.putIfAbsent(timeframeInterval.getState(), timeframeInterval);
+        }
+        this.firstByState = firstByState;
+    }
+}
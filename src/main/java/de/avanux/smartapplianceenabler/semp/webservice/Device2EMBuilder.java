@@ -0,0 +1,207 @@
+/*
+ * Copyright (C) 2021 Axel Müller <axel.mueller@avanux.de>
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package de.avanux.smartapplianceenabler.semp.webservice;
+
+import de.avanux.smartapplianceenabler.appliance.Appliance;
+import de.avanux.smartapplianceenabler.appliance.ApplianceManager;
+import de.avanux.smartapplianceenabler.control.Control;
+import de.avanux.smartapplianceenabler.control.ev.ElectricVehicleCharger;
+import de.avanux.smartapplianceenabler.meter.Meter;
+import de.avanux.smartapplianceenabler.schedule.AbstractEnergyRequest;
+import de.avanux.smartapplianceenabler.schedule.TimeframeInterval;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Creates the SEMP representation of the appliances by querying their meters, controls and timeframe intervals.
+ * The objects created are new ones: neither the {@link DeviceInfo}s managed by {@link ApplianceManager} nor
+ * objects returned before are modified.
+ */
+public class Device2EMBuilder {
+    private Logger logger = LoggerFactory.getLogger(Device2EMBuilder.class);
+
+    public Device2EM createDevice2EM(LocalDateTime now) {
+        List<DeviceInfo> deviceInfos = new ArrayList<>();
+        List<DeviceStatus> deviceStatuses = new ArrayList<>();
+        List<PlanningRequest> planningRequests = new ArrayList<>();
+        if(ApplianceManager.getInstance().isInitializationCompleted()) {
+            for (Appliance appliance : ApplianceManager.getInstance().getAppliances()) {
+                DeviceInfo deviceInfo = createDeviceInfo(now, appliance);
+                if(deviceInfo != null) {
+                    deviceInfos.add(deviceInfo);
+                }
+                deviceStatuses.add(createDeviceStatus(appliance));
+                PlanningRequest planningRequest = createPlanningRequest(now, appliance);
+                if (planningRequest != null) {
+                    planningRequests.add(planningRequest);
+                }
+            }
+        }
+        Device2EM device2EM = new Device2EM();
+        device2EM.setDeviceInfo(deviceInfos);
+        device2EM.setDeviceStatus(deviceStatuses);
+        device2EM.setPlanningRequest(planningRequests);
+        return device2EM;
+    }
+
+    public DeviceInfo createDeviceInfo(LocalDateTime now, Appliance appliance) {
+        DeviceInfo configuredDeviceInfo = ApplianceManager.getInstance().getDeviceInfo(appliance.getId());
+        if(configuredDeviceInfo == null) {
+            return null;
+        }
+        DeviceInfo deviceInfo = new DeviceInfo();
+        deviceInfo.setIdentification(configuredDeviceInfo.getIdentification());
+        deviceInfo.setCharacteristics(configuredDeviceInfo.getCharacteristics());
+        deviceInfo.setCapabilities(createCapabilities(configuredDeviceInfo, appliance.getMeter() != null,
+                appliance.canConsumeOptionalEnergy(now), appliance.getControl() instanceof ElectricVehicleCharger));
+        return deviceInfo;
+    }
+
+    private Capabilities createCapabilities(DeviceInfo deviceInfo, boolean hasMeter, boolean canConsumeOptionalEnergy, boolean isEvCharger) {
+        Capabilities capabilities = new Capabilities();
+        if (deviceInfo.getCapabilities() != null) {
+            capabilities.setInterruptionsAllowed(deviceInfo.getCapabilities().getInterruptionsAllowed());
+        }
+        capabilities.setAbsoluteTimestamps(false);
+        if (hasMeter) {
+            capabilities.setCurrentPowerMethod(CurrentPowerMethod.Measurement);
+        } else {
+            capabilities.setCurrentPowerMethod(CurrentPowerMethod.Estimation);
+        }
+        capabilities.setOptionalEnergy(canConsumeOptionalEnergy);
+        return capabilities;
+    }
+
+    public DeviceStatus createDeviceStatus(Appliance appliance) {
+        DeviceStatus deviceStatus = new DeviceStatus();
+        deviceStatus.setDeviceId(appliance.getId());
+        Meter meter = appliance.getMeter();
+
+        Control control = appliance.getControl();
+        if (control != null) {
+            deviceStatus.setStatus(control.isOn() ? Status.On : Status.Off);
+            deviceStatus.setEMSignalsAccepted(appliance.isAcceptControlRecommendations());
+            logger.debug("{}: Reporting device status from control", appliance.getId());
+        } else {
+            // ... and no meter; we have to assume the appliance is switched off
+            deviceStatus.setStatus(Status.Offline);
+            logger.debug("{}: Appliance has neither control nor meter.", appliance.getId());
+
+            // an appliance without control cannot be controlled ;-)
+            deviceStatus.setEMSignalsAccepted(false);
+        }
+        logger.debug("{}: {}", appliance.getId(), deviceStatus.toString());
+
+        PowerInfo powerInfo = new PowerInfo();
+        if (meter != null) {
+            logger.debug("{}: Reporting power info from meter.", appliance.getId());
+            powerInfo.setAveragePower(meter.getAveragePower());
+//            powerInfo.setMinPower(meter.getMinPower());
+//            powerInfo.setMaxPower(meter.getMaxPower());
+            powerInfo.setAveragingInterval(60); // always report 60 for SEMP regardless of real averaging interval
+        } else {
+            logger.debug("{}: Reporting power info from device characteristics.", appliance.getId());
+            DeviceInfo deviceInfo = ApplianceManager.getInstance().getDeviceInfo(appliance.getId());
+            if (deviceStatus.getStatus() == Status.On) {
+                powerInfo.setAveragePower(deviceInfo.getCharacteristics().getMaxPowerConsumption());
+            } else {
+                powerInfo.setAveragePower(0);
+            }
+            powerInfo.setAveragingInterval(60);
+        }
+        powerInfo.setTimestamp(0);
+        logger.debug("{}: {}", appliance.getId(), powerInfo.toString());
+
+        PowerConsumption powerConsumption = new PowerConsumption();
+        powerConsumption.setPowerInfo(Collections.singletonList(powerInfo));
+
+        deviceStatus.setPowerConsumption(Collections.singletonList(powerConsumption));
+        return deviceStatus;
+    }
+
+    public PlanningRequest createPlanningRequest(LocalDateTime now, Appliance appliance) {
+        List<Timeframe> sempTimeFrames = new ArrayList<>();
+        if(appliance.getTimeframeIntervalHandler() != null) {
+            List<TimeframeInterval> queue = appliance.getTimeframeIntervalHandler().getQueue();
+            queue.stream()
+                    .filter(timeframeInterval -> {
+                        if(timeframeInterval.getRequest().isEnabled()) {
+                            Integer max = timeframeInterval.getRequest().getMax(now);
+                            return max != null && max > 0;
+                        }
+                        return false;
+                    })
+                    .forEach(timeframeInterval -> {
+                        Timeframe sempTimeFrame = createSempTimeFrame(now, appliance.getId(), timeframeInterval);
+                        sempTimeFrames.add(sempTimeFrame);
+                        logger.debug("{}: Timeframe added to PlanningRequest: {}", appliance.getId(), sempTimeFrame);
+                    });
+        }
+        final PlanningRequest planningRequest = new PlanningRequest();
+        planningRequest.setTimeframes(sempTimeFrames);
+        return sempTimeFrames.size() > 0 ? planningRequest : null;
+    }
+
+    protected Timeframe createSempTimeFrame(LocalDateTime now, String deviceId, TimeframeInterval timeframeInterval) {
+        Integer earliestStartSeconds = timeframeInterval.getEarliestStartSeconds(now);
+        Integer latestEndSeconds = timeframeInterval.getLatestEndSeconds(now);
+        Integer minRunningTime = timeframeInterval.getRequest().getMin(now);
+        Integer maxRunningTime = timeframeInterval.getRequest().getMax(now);
+        if (maxRunningTime == null) {
+            maxRunningTime = 0;
+        }
+        if(maxRunningTime > latestEndSeconds) {
+            maxRunningTime = latestEndSeconds;
+        }
+        if (minRunningTime == null) {
+            minRunningTime = maxRunningTime;
+        }
+        if (minRunningTime.equals(maxRunningTime)) {
+            /** WORKAROUND:
+             * For unknown reason the SunnyPortal displays the scheduled times only
+             * if maxRunningTime AND minRunningTime are returned and are NOT EQUAL
+             * Therefore we ensure that they are not equal by reducing minRunningTime by 1 second
+             */
+            minRunningTime = minRunningTime >= 1 ? minRunningTime - 1 : 0;
+        } else {
+            // according to spec minRunningTime only has to be returned if different from maxRunningTime
+            minRunningTime = minRunningTime >= 0 ? minRunningTime : 0;
+        }
+        maxRunningTime = maxRunningTime >= 0 ? maxRunningTime : 0;
+
+        Timeframe timeFrame = new Timeframe();
+        timeFrame.setDeviceId(deviceId);
+        timeFrame.setEarliestStart(earliestStartSeconds);
+        timeFrame.setLatestEnd(latestEndSeconds);
+        if (timeframeInterval.getRequest() instanceof AbstractEnergyRequest) {
+            timeFrame.setMinEnergy(timeframeInterval.getRequest().getMin(now));
+            timeFrame.setMaxEnergy(timeframeInterval.getRequest().getMax(now));
+        } else {
+            timeFrame.setMinRunningTime(minRunningTime);
+            timeFrame.setMaxRunningTime(maxRunningTime);
+        }
+        logger.debug("{}: Timeframe created: {}", deviceId, timeFrame);
+        return timeFrame;
+    }
+}
@@ -0,0 +1,144 @@
+/*
+ * Copyright (C) 2021 Axel Müller <axel.mueller@avanux.de>
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package de.avanux.smartapplianceenabler.semp.webservice;
+
+import de.avanux.smartapplianceenabler.meter.Meter;
+import de.avanux.smartapplianceenabler.util.BackgroundSnapshot;
+import de.avanux.smartapplianceenabler.util.TaskScheduler;
+
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Holds the SEMP representation of all appliances built in advance, so that requests of the energy manager
+ * are answered by a {@link BackgroundSnapshot}.
+ * <p>
+ * A new snapshot is built periodically at the end of each averaging interval and whenever the state of an appliance
+ * changes.
+ */
+public class Device2EMSnapshot {
+    private static Device2EMSnapshot instance;
+    private Device2EMBuilder builder = new Device2EMBuilder();
+    private BackgroundSnapshot<Snapshot> snapshot = new BackgroundSnapshot<>("Device2EM",
+            (now, previous) -> new Snapshot(now, builder.createDevice2EM(now)));
+
+    protected Device2EMSnapshot() {
+    }
+
+    public static synchronized Device2EMSnapshot getInstance() {
+        if(instance == null) {
+            instance = new Device2EMSnapshot();
+        }
+        return instance;
+    }
+
+    /**
+     * The immutable SEMP representation of all appliances at a given time.
+     */
+    public static class Snapshot {
+        private LocalDateTime timestamp;
+        private Device2EM device2EM;
+        private Map<String, DeviceInfo> deviceInfos = new HashMap<>();
+        private Map<String, DeviceStatus> deviceStatuses = new HashMap<>();
+        private Map<String, PlanningRequest> planningRequests = new HashMap<>();
+
+        private Snapshot(LocalDateTime timestamp, Device2EM device2EM) {
+            this.timestamp = timestamp;
+            device2EM.getDeviceInfo().forEach(
+                    deviceInfo -> deviceInfos.put(deviceInfo.getIdentification().getDeviceId(), deviceInfo));
+            device2EM.getDeviceStatus().forEach(
+                    deviceStatus -> deviceStatuses.put(deviceStatus.getDeviceId(), deviceStatus));
+            device2EM.getPlanningRequest().forEach(
+                    planningRequest -> planningRequests.put(planningRequest.getTimeframes().get(0).getDeviceId(),
+                            planningRequest));
+            device2EM.setDeviceInfo(Collections.unmodifiableList(device2EM.getDeviceInfo()));
+            device2EM.setDeviceStatus(Collections.unmodifiableList(device2EM.getDeviceStatus()));
+            device2EM.setPlanningRequest(Collections.unmodifiableList(device2EM.getPlanningRequest()));
+            this.device2EM = device2EM;
+        }
+
+        public LocalDateTime getTimestamp() {
+            return timestamp;
+        }
+
+        public Device2EM getDevice2EM() {
+            return device2EM;
+        }
+
+        public List<DeviceInfo> getDeviceInfos() {
+            return device2EM.getDeviceInfo();
+        }
+
+        public DeviceInfo getDeviceInfo(String deviceId) {
+            return deviceInfos.get(deviceId);
+        }
+
+        public List<DeviceStatus> getDeviceStatuses() {
+            return device2EM.getDeviceStatus();
+        }
+
+        public DeviceStatus getDeviceStatus(String deviceId) {
+            return deviceStatuses.get(deviceId);
+        }
+
+        public List<PlanningRequest> getPlanningRequests() {
+            return device2EM.getPlanningRequest();
+        }
+
+        public PlanningRequest getPlanningRequest(String deviceId) {
+            return planningRequests.get(deviceId);
+        }
+    }
+
+    /**
+     * Starts building snapshots in the background.
+     */
+    public void start(TaskScheduler timer) {
+        this.snapshot.start(timer, Meter.averagingInterval * 1000L);
+    }
+
+    public void stop() {
+        this.snapshot.stop();
+    }
+
+    /**
+     * Returns the latest snapshot. If no snapshot is built in the background, a new snapshot is built.
+     */
+    public Snapshot get() {
+        return this.snapshot.get();
+    }
+
+    /**
+     * Requests a new snapshot to be built in the background, e.g. because the state of an appliance changed.
+     */
+    public void requestUpdate() {
+        this.snapshot.requestUpdate();
+    }
+
+    /**
+     * Schedules a new snapshot to be built shortly before the energy manager is expected to request it again.
+     * @param delaySeconds
+     */
+    public void scheduleUpdate(int delaySeconds) {
+        this.snapshot.scheduleUpdate(delaySeconds * 1000L);
+    }
+}
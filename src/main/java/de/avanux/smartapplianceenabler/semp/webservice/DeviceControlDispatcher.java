@@ -0,0 +1,270 @@
+/*
+ * Copyright (C) 2021 Axel Müller <axel.mueller@avanux.de>
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package de.avanux.smartapplianceenabler.semp.webservice;
+
+import de.avanux.smartapplianceenabler.util.LatencyStatistics;
+import de.avanux.smartapplianceenabler.util.MetricsLogger;
+import de.avanux.smartapplianceenabler.util.NamedThreadFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Executes the device controls received from the energy manager asynchronously, so that the energy manager receives
+ * its response immediately and a slow device does not delay the controls of other devices.
+ * <p>
+ * Each device has its own queue holding only the latest control: a control received while the previous one has
+ * not been executed yet supersedes it. The controls of a device are executed one after another on a worker thread
+ * of their own. A control failing (i.e. the handler returns false or throws an exception) is retried with increasing
+ * delay up to the number of attempts set by the system property {@value #MAX_ATTEMPTS_PROPERTY} unless it has been
+ * superseded in the meantime.
+ * The metrics of the queues are logged periodically by {@link MetricsLogger}.
+ */
+public class DeviceControlDispatcher {
+    public static final String MAX_ATTEMPTS_PROPERTY = "sae.semp.controlAttempts";
+    private static final int DEFAULT_MAX_ATTEMPTS = 3;
+    private static final long RETRY_DELAY_MILLIS = 1000;
+    private transient Logger logger = LoggerFactory.getLogger(DeviceControlDispatcher.class);
+    private Handler handler;
+    private Executor executor;
+    private int maxAttempts = Integer.getInteger(MAX_ATTEMPTS_PROPERTY, DEFAULT_MAX_ATTEMPTS);
+    private long retryDelayMillis = RETRY_DELAY_MILLIS;
+    private Map<String, DeviceControlQueue> queues = new ConcurrentHashMap<>();
+
+    /**
+     * @param handler executes a device control at the given time
+     */
+    public DeviceControlDispatcher(Handler handler) {
+        this(handler, Executors.newCachedThreadPool(new NamedThreadFactory("DeviceControl", true)));
+        MetricsLogger.getInstance().register("DeviceControl", this::toString);
+    }
+
+    protected DeviceControlDispatcher(Handler handler, Executor executor) {
+        this.handler = handler;
+        this.executor = executor;
+    }
+
+    protected void setRetryDelayMillis(long retryDelayMillis) {
+        this.retryDelayMillis = retryDelayMillis;
+    }
+
+    /**
+     * Queues the device control for execution superseding a control of the same device not executed yet.
+     */
+    public void dispatch(DeviceControl deviceControl) {
+        this.queues.computeIfAbsent(deviceControl.getDeviceId(), DeviceControlQueue::new).offer(deviceControl);
+    }
+
+    public Collection<DeviceControlQueue> getQueues() {
+        return this.queues.values();
+    }
+
+    public DeviceControlQueue getQueue(String deviceId) {
+        return this.queues.get(deviceId);
+    }
+
+    @Override
+    public String toString() {
+        return this.queues.values().stream().map(DeviceControlQueue::toString)
+                .collect(Collectors.joining(" ", "DeviceControl ", ""));
+    }
+
+    /**
+     * Executes the device controls.
+     */
+    public interface Handler {
+        /**
+         * Prepares the execution of the device control. Called once per control and not repeated on retries.
+         */
+        default void prepare(LocalDateTime now, DeviceControl deviceControl) {
+        }
+
+        /**
+         * Executes the device control.
+         * @return false, if the control failed and should be retried
+         */
+        boolean execute(LocalDateTime now, DeviceControl deviceControl);
+    }
+
+    private static class PendingControl {
+        private DeviceControl deviceControl;
+        private long receivedNanos;
+
+        PendingControl(DeviceControl deviceControl, long receivedNanos) {
+            this.deviceControl = deviceControl;
+            this.receivedNanos = receivedNanos;
+        }
+    }
+
+    /**
+     * Queue of the latest device control of one device and its metrics.
+     */
+    public class DeviceControlQueue implements Runnable {
+        private String deviceId;
+        private PendingControl pendingControl;
+        private boolean running;
+        private AtomicLong received = new AtomicLong();
+        private AtomicLong superseded = new AtomicLong();
+        private AtomicLong retried = new AtomicLong();
+        private AtomicLong failed = new AtomicLong();
+        private LatencyStatistics latencies = new LatencyStatistics();
+
+        private DeviceControlQueue(String deviceId) {
+            this.deviceId = deviceId;
+        }
+
+        public String getDeviceId() {
+            return deviceId;
+        }
+
+        void offer(DeviceControl deviceControl) {
+            received.incrementAndGet();
+            synchronized(this) {
+                if(pendingControl != null) {
+                    logger.debug("{}: Control superseded: {}", deviceId, pendingControl.deviceControl);
+                    superseded.incrementAndGet();
+                }
+                pendingControl = new PendingControl(deviceControl, System.nanoTime());
+                if(running) {
+                    return;
+                }
+                running = true;
+            }
+            try {
+                executor.execute(this);
+            }
+            catch(RejectedExecutionException e) {
+                logger.warn("{}: Control rejected: {}", deviceId, deviceControl);
+                synchronized(this) {
+                    running = false;
+                }
+            }
+        }
+
+        private synchronized PendingControl poll() {
+            PendingControl pendingControl = this.pendingControl;
+            this.pendingControl = null;
+            if(pendingControl == null) {
+                running = false;
+            }
+            return pendingControl;
+        }
+
+        private synchronized boolean isSuperseded() {
+            return this.pendingControl != null;
+        }
+
+        @Override
+        public void run() {
+            PendingControl pendingControl;
+            while((pendingControl = poll()) != null) {
+                execute(pendingControl);
+            }
+        }
+
+        private void execute(PendingControl pendingControl) {
+            try {
+                handler.prepare(LocalDateTime.now(), pendingControl.deviceControl);
+            }
+            catch(Exception e) {
+                logger.error("{}: Error preparing control: {}", deviceId, pendingControl.deviceControl, e);
+            }
+            for(int attempt = 1; attempt <= maxAttempts; attempt++) {
+                Exception exception = null;
+                try {
+                    if(handler.execute(LocalDateTime.now(), pendingControl.deviceControl)) {
+                        long latencyNanos = System.nanoTime() - pendingControl.receivedNanos;
+                        latencies.record(latencyNanos);
+                        logger.debug("{}: Control executed {}ms after receipt", deviceId, latencyNanos / 1000000);
+                        return;
+                    }
+                }
+                catch(Exception e) {
+                    exception = e;
+                }
+                if(attempt == maxAttempts) {
+                    logger.error("{}: Control failed after {} attempt(s): {}", deviceId, attempt,
+                            pendingControl.deviceControl, exception);
+                    failed.incrementAndGet();
+                    return;
+                }
+                logger.warn("{}: Control failed - retrying: {}", deviceId, pendingControl.deviceControl, exception);
+                try {
+                    Thread.sleep(retryDelayMillis * attempt);
+                }
+                catch(InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                if(isSuperseded()) {
+                    logger.debug("{}: Failed control superseded: {}", deviceId, pendingControl.deviceControl);
+                    superseded.incrementAndGet();
+                    return;
+                }
+                retried.incrementAndGet();
+            }
+        }
+
+        public long getReceivedCount() {
+            return received.get();
+        }
+
+        /**
+         * Returns the number of controls replaced by a more recent control before being executed successfully.
+         */
+        public long getSupersededCount() {
+            return superseded.get();
+        }
+
+        public long getExecutedCount() {
+            return latencies.getCount();
+        }
+
+        public long getRetriedCount() {
+            return retried.get();
+        }
+
+        public long getFailedCount() {
+            return failed.get();
+        }
+
+        /**
+         * Returns the time in milliseconds between receipt and completion of the controls.
+         */
+        public LatencyStatistics getLatencies() {
+            return latencies;
+        }
+
+        @Override
+        public String toString() {
+            return deviceId + "[received=" + getReceivedCount() + " superseded=" + getSupersededCount()
+                    + " executed=" + getExecutedCount() + " retried=" + getRetriedCount()
+                    + " failed=" + getFailedCount() + " " + latencies + "]";
+        }
+    }
+}
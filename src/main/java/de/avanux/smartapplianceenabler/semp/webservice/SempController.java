@@ -19,25 +19,22 @@ package de.avanux.smartapplianceenabler.semp.webservice;
 
 import de.avanux.smartapplianceenabler.appliance.Appliance;
 import de.avanux.smartapplianceenabler.appliance.ApplianceManager;
-import de.avanux.smartapplianceenabler.control.Control;
-import de.avanux.smartapplianceenabler.control.ev.ElectricVehicleCharger;
-import de.avanux.smartapplianceenabler.meter.Meter;
-import de.avanux.smartapplianceenabler.schedule.AbstractEnergyRequest;
 import de.avanux.smartapplianceenabler.schedule.TimeframeInterval;
 import de.avanux.smartapplianceenabler.schedule.TimeframeIntervalHandler;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import javax.servlet.http.HttpServletResponse;
-import javax.xml.bind.JAXBContext;
 import javax.xml.bind.JAXBException;
-import javax.xml.bind.Marshaller;
-import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
 import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.List;
 
 @RestController
@@ -46,64 +43,68 @@ public class SempController {
     private static final String BASE_URL = "/semp";
     private static final String CROSS_ORIGIN_URL = "http://localhost:4200";
     public static final String SCHEMA_LOCATION = "http://www.sma.de/communication/schema/SEMP/v1";
+    private static final MediaType XML_UTF8 = new MediaType(MediaType.APPLICATION_XML, StandardCharsets.UTF_8);
+    private static final String GZIP = "gzip";
     private Logger logger = LoggerFactory.getLogger(SempController.class);
+    private Device2EMBuilder device2EMBuilder = new Device2EMBuilder();
+    private DeviceControlDispatcher deviceControlDispatcher = new DeviceControlDispatcher(
+            new DeviceControlDispatcher.Handler() {
+                @Override
+                public void prepare(LocalDateTime now, DeviceControl deviceControl) {
+                    prepareControl(now, deviceControl);
+                }
+
+                @Override
+                public boolean execute(LocalDateTime now, DeviceControl deviceControl) {
+                    return executeControl(now, deviceControl);
+                }
+            });
 
     public SempController() {
         logger.info("SEMP controller created.");
     }
 
     @RequestMapping(value = BASE_URL, method = RequestMethod.GET, produces = "application/xml")
-    public String device2EM(HttpServletResponse response) {
+    public ResponseEntity<byte[]> device2EM(
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
         if(ApplianceManager.getInstance().isInitializationCompleted()) {
             try {
                 logger.debug("Device info/status/planning requested.");
-                return marshall(createDevice2EM(LocalDateTime.now()));
+                LocalDateTime now = LocalDateTime.now();
+                SempSerializer.CachedResponse device2EM
+                        = SempSerializer.getInstance().serialize(Device2EMSnapshot.getInstance().get());
+                ApplianceManager.getInstance().startMeterAveragingInterval(LocalDateTime.now(),
+                        (int) Duration.between(now, LocalDateTime.now()).toSeconds());
+                // the body depends on Accept-Encoding and must not be served to other clients by intermediaries
+                ResponseEntity.BodyBuilder response = ResponseEntity.ok().contentType(XML_UTF8)
+                        .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+                if(acceptEncoding != null && acceptEncoding.contains(GZIP)) {
+                    return response.header(HttpHeaders.CONTENT_ENCODING, GZIP).body(device2EM.getGzippedBytes());
+                }
+                return response.body(device2EM.getBytes());
             } catch (Throwable e) {
                 logger.error("Error in " + getClass().getSimpleName(), e);
             }
         }
-        response.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
-        return null;
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
     }
 
     public Device2EM createDevice2EM(LocalDateTime now) {
-        List<DeviceStatus> deviceStatuses = new ArrayList<DeviceStatus>();
-        List<PlanningRequest> planningRequests = new ArrayList<PlanningRequest>();
-        if(ApplianceManager.getInstance().isInitializationCompleted()) {
-            List<Appliance> appliances = ApplianceManager.getInstance().getAppliances();
-            for (Appliance appliance : appliances) {
-                DeviceStatus deviceStatus = createDeviceStatus(appliance);
-                deviceStatuses.add(deviceStatus);
-                PlanningRequest planningRequest = createPlanningRequest(now, appliance);
-                if (planningRequest != null) {
-                    planningRequests.add(planningRequest);
-                }
-            }
-            ApplianceManager.getInstance().startMeterAveragingInterval(LocalDateTime.now(),
-                    (int) Duration.between(now, LocalDateTime.now()).toSeconds());
-        }
-        Device2EM device2EM = ApplianceManager.getInstance().getDevice2EM();
-        device2EM.setDeviceInfo(createDeviceInfo(now));
-        device2EM.setDeviceStatus(deviceStatuses);
-        device2EM.setPlanningRequest(planningRequests);
-        return device2EM;
+        return device2EMBuilder.createDevice2EM(now);
     }
 
     @RequestMapping(value = BASE_URL + "/DeviceInfo", method = RequestMethod.GET, produces = "application/xml")
     public String deviceInfo(HttpServletResponse response, @RequestParam(value = "DeviceId", required = false) String deviceId) {
         if(ApplianceManager.getInstance().isInitializationCompleted()) {
             try {
-                LocalDateTime now = LocalDateTime.now();
+                Device2EMSnapshot.Snapshot snapshot = Device2EMSnapshot.getInstance().get();
                 List<DeviceInfo> deviceInfos = new ArrayList<>();
                 if (deviceId != null) {
                     logger.debug("{}: Device info requested", deviceId);
-                    deviceInfos.add(createDeviceInfo(now, deviceId));
+                    addIfNotNull(deviceInfos, snapshot.getDeviceInfo(deviceId));
                 } else {
                     logger.debug("Device info requested of all devices");
-                    List<Appliance> appliances = ApplianceManager.getInstance().getAppliances();
-                    for (Appliance appliance : appliances) {
-                        deviceInfos.add(createDeviceInfo(now, appliance.getId()));
-                    }
+                    deviceInfos.addAll(snapshot.getDeviceInfos());
                 }
                 Device2EM device2EM = new Device2EM();
                 device2EM.setDeviceInfo(deviceInfos);
@@ -116,61 +117,18 @@ public class SempController {
         return null;
     }
 
-    protected DeviceInfo createDeviceInfo(LocalDateTime now, String deviceId) {
-        if (deviceId != null) {
-            DeviceInfo deviceInfo = ApplianceManager.getInstance().getDeviceInfo(deviceId);
-            Appliance appliance = ApplianceManager.getInstance().findAppliance(deviceId);
-            deviceInfo.setCapabilities(createCapabilities(deviceInfo, appliance.getMeter() != null,
-                    appliance.canConsumeOptionalEnergy(now), appliance.getControl() instanceof ElectricVehicleCharger));
-            return deviceInfo;
-        }
-        return null;
-    }
-
-    private List<DeviceInfo> createDeviceInfo(LocalDateTime now) {
-        List<DeviceInfo> deviceInfos = new ArrayList<DeviceInfo>();
-        List<Appliance> appliances = ApplianceManager.getInstance().getAppliances();
-        for (Appliance appliance : appliances) {
-            DeviceInfo deviceInfo = ApplianceManager.getInstance().getDeviceInfo(appliance.getId());
-            deviceInfo.setCapabilities(createCapabilities(deviceInfo, appliance.getMeter() != null,
-                    appliance.canConsumeOptionalEnergy(now), appliance.getControl() instanceof ElectricVehicleCharger));
-            deviceInfos.add(deviceInfo);
-        }
-        return deviceInfos;
-    }
-
-    private Capabilities createCapabilities(DeviceInfo deviceInfo, boolean hasMeter, boolean canConsumeOptionalEnergy, boolean isEvCharger) {
-        Capabilities capabilities = deviceInfo.getCapabilities();
-        if (capabilities == null) {
-            capabilities = new Capabilities();
-        }
-        capabilities.setAbsoluteTimestamps(false);
-        if (hasMeter) {
-            capabilities.setCurrentPowerMethod(CurrentPowerMethod.Measurement);
-        } else {
-            capabilities.setCurrentPowerMethod(CurrentPowerMethod.Estimation);
-        }
-        capabilities.setOptionalEnergy(canConsumeOptionalEnergy);
-        return capabilities;
-    }
-
     @RequestMapping(value = BASE_URL + "/DeviceStatus", method = RequestMethod.GET, produces = "application/xml")
     public String deviceStatus(HttpServletResponse response, @RequestParam(value = "DeviceId", required = false) String deviceId) {
         if(ApplianceManager.getInstance().isInitializationCompleted()) {
             try {
+                Device2EMSnapshot.Snapshot snapshot = Device2EMSnapshot.getInstance().get();
                 List<DeviceStatus> deviceStatuses = new ArrayList<DeviceStatus>();
                 if (deviceId != null) {
                     logger.debug("{}: Device status requested", deviceId);
-                    Appliance appliance = ApplianceManager.getInstance().findAppliance(deviceId);
-                    DeviceStatus deviceStatus = createDeviceStatus(appliance);
-                    deviceStatuses.add(deviceStatus);
+                    addIfNotNull(deviceStatuses, snapshot.getDeviceStatus(deviceId));
                 } else {
                     logger.debug("Device status requested of all devices");
-                    List<Appliance> appliances = ApplianceManager.getInstance().getAppliances();
-                    for (Appliance appliance : appliances) {
-                        DeviceStatus deviceStatus = createDeviceStatus(appliance);
-                        deviceStatuses.add(deviceStatus);
-                    }
+                    deviceStatuses.addAll(snapshot.getDeviceStatuses());
                 }
                 Device2EM device2EM = new Device2EM();
                 device2EM.setDeviceStatus(deviceStatuses);
@@ -187,20 +145,14 @@ public class SempController {
     public String planningRequest(HttpServletResponse response, @RequestParam(value = "DeviceId", required = false) String deviceId) {
         if(ApplianceManager.getInstance().isInitializationCompleted()) {
             try {
-                LocalDateTime now = LocalDateTime.now();
+                Device2EMSnapshot.Snapshot snapshot = Device2EMSnapshot.getInstance().get();
                 List<PlanningRequest> planningRequests = new ArrayList<PlanningRequest>();
                 if (deviceId != null) {
                     logger.debug("{}: Planning request requested", deviceId);
-                    Appliance appliance = ApplianceManager.getInstance().findAppliance(deviceId);
-                    PlanningRequest planningRequest = createPlanningRequest(now, appliance);
-                    addPlanningRequest(planningRequests, planningRequest);
+                    addIfNotNull(planningRequests, snapshot.getPlanningRequest(deviceId));
                 } else {
                     logger.debug("Planning request requested of all devices");
-                    List<Appliance> appliances = ApplianceManager.getInstance().getAppliances();
-                    for (Appliance appliance : appliances) {
-                        PlanningRequest planningRequest = createPlanningRequest(now, appliance);
-                        addPlanningRequest(planningRequests, planningRequest);
-                    }
+                    planningRequests.addAll(snapshot.getPlanningRequests());
                 }
                 Device2EM device2EM = new Device2EM();
                 if (planningRequests.size() > 0) {
@@ -215,9 +167,9 @@ public class SempController {
         return null;
     }
 
-    private void addPlanningRequest(List<PlanningRequest> planningRequests, PlanningRequest planningRequest) {
-        if (planningRequest != null) {
-            planningRequests.add(planningRequest);
+    private <T> void addIfNotNull(List<T> list, T element) {
+        if (element != null) {
+            list.add(element);
         }
     }
 
@@ -225,7 +177,15 @@ public class SempController {
     @CrossOrigin(origins = CROSS_ORIGIN_URL)
     public void em2Device(@RequestBody EM2Device em2Device) {
         try {
-            em2Device(LocalDateTime.now(), em2Device);
+            for (DeviceControl deviceControl : em2Device.getDeviceControl()) {
+                logger.debug("{}: Received control request: {}", deviceControl.getDeviceId(), deviceControl);
+                if(ApplianceManager.getInstance().findAppliance(deviceControl.getDeviceId()) != null) {
+                    deviceControlDispatcher.dispatch(deviceControl);
+                }
+                else {
+                    logger.warn("{}: No appliance configured for device id", deviceControl.getDeviceId());
+                }
+            }
         } catch (Throwable e) {
             logger.error("Error in " + getClass().getSimpleName(), e);
         }
@@ -235,148 +195,51 @@ public class SempController {
         List<DeviceControl> deviceControls = em2Device.getDeviceControl();
         for (DeviceControl deviceControl : deviceControls) {
             logger.debug("{}: Received control request: {}", deviceControl.getDeviceId(), deviceControl);
-            Appliance appliance = ApplianceManager.getInstance().findAppliance(deviceControl.getDeviceId());
-            if (appliance != null) {
-                // Work-around: if SHM sends switch-on command before timeframe interval start we have
-                // to force activation of timeframe interval
-                if(deviceControl.isOn()) {
-                    TimeframeIntervalHandler timeframeIntervalHandler = appliance.getTimeframeIntervalHandler();
-                    if(timeframeIntervalHandler != null) {
-                        TimeframeInterval activeTimeframeInterval = timeframeIntervalHandler.getActiveTimeframeInterval();
-                        if(activeTimeframeInterval == null) {
-                            timeframeIntervalHandler.updateQueue(now, true);
-                        }
-                    }
-                }
-                appliance.setApplianceState(now, deviceControl.isOn(),
-                        deviceControl.getRecommendedPowerConsumption(),
-                        "Setting appliance state to " + (deviceControl.isOn() ? "ON" : "OFF"));
-            } else {
-                logger.warn("{}: No appliance configured for device id", deviceControl.getDeviceId());
-            }
+            em2Device(now, deviceControl);
         }
     }
 
-    private DeviceStatus createDeviceStatus(Appliance appliance) {
-        DeviceStatus deviceStatus = new DeviceStatus();
-        deviceStatus.setDeviceId(appliance.getId());
-        Meter meter = appliance.getMeter();
-
-        Control control = appliance.getControl();
-        if (control != null) {
-            deviceStatus.setStatus(control.isOn() ? Status.On : Status.Off);
-            deviceStatus.setEMSignalsAccepted(appliance.isAcceptControlRecommendations());
-            logger.debug("{}: Reporting device status from control", appliance.getId());
-        } else {
-            // ... and no meter; we have to assume the appliance is switched off
-            deviceStatus.setStatus(Status.Offline);
-            logger.debug("{}: Appliance has neither control nor meter.", appliance.getId());
-
-            // an appliance without control cannot be controlled ;-)
-            deviceStatus.setEMSignalsAccepted(false);
-        }
-        logger.debug("{}: {}", appliance.getId(), deviceStatus.toString());
-
-        PowerInfo powerInfo = new PowerInfo();
-        if (meter != null) {
-            logger.debug("{}: Reporting power info from meter.", appliance.getId());
-            powerInfo.setAveragePower(meter.getAveragePower());
-//            powerInfo.setMinPower(meter.getMinPower());
-//            powerInfo.setMaxPower(meter.getMaxPower());
-            powerInfo.setAveragingInterval(60); // always report 60 for SEMP regardless of real averaging interval
-        } else {
-            logger.debug("{}: Reporting power info from device characteristics.", appliance.getId());
-            DeviceInfo deviceInfo = ApplianceManager.getInstance().getDeviceInfo(appliance.getId());
-            if (deviceStatus.getStatus() == Status.On) {
-                powerInfo.setAveragePower(deviceInfo.getCharacteristics().getMaxPowerConsumption());
-            } else {
-                powerInfo.setAveragePower(0);
-            }
-            powerInfo.setAveragingInterval(60);
-        }
-        powerInfo.setTimestamp(0);
-        logger.debug("{}: {}", appliance.getId(), powerInfo.toString());
-
-        PowerConsumption powerConsumption = new PowerConsumption();
-        powerConsumption.setPowerInfo(Collections.singletonList(powerInfo));
-
-        deviceStatus.setPowerConsumption(Collections.singletonList(powerConsumption));
-        return deviceStatus;
+    public void em2Device(LocalDateTime now, DeviceControl deviceControl) {
+        prepareControl(now, deviceControl);
+        executeControl(now, deviceControl);
     }
 
-    private PlanningRequest createPlanningRequest(LocalDateTime now, Appliance appliance) {
-        List<de.avanux.smartapplianceenabler.semp.webservice.Timeframe> sempTimeFrames
-                = new ArrayList<de.avanux.smartapplianceenabler.semp.webservice.Timeframe>();
-        if(appliance.getTimeframeIntervalHandler() != null) {
-            List<TimeframeInterval> queue = appliance.getTimeframeIntervalHandler().getQueue();
-            queue.stream()
-                    .filter(timeframeInterval -> timeframeInterval.getRequest().isEnabled()
-                            && timeframeInterval.getRequest().getMax(now) != null
-                            && timeframeInterval.getRequest().getMax(now) > 0
-                    )
-                    .forEach(timeframeInterval -> {
-                        Timeframe sempTimeFrame = createSempTimeFrame(now, appliance.getId(), timeframeInterval);
-                        sempTimeFrames.add(sempTimeFrame);
-                        logger.debug("{}: Timeframe added to PlanningRequest: {}", appliance.getId(), sempTimeFrame);
-                    });
+    private void prepareControl(LocalDateTime now, DeviceControl deviceControl) {
+        Appliance appliance = ApplianceManager.getInstance().findAppliance(deviceControl.getDeviceId());
+        // Work-around: if SHM sends switch-on command before timeframe interval start we have
+        // to force activation of timeframe interval
+        if(appliance != null && deviceControl.isOn()) {
+            TimeframeIntervalHandler timeframeIntervalHandler = appliance.getTimeframeIntervalHandler();
+            if(timeframeIntervalHandler != null) {
+                TimeframeInterval activeTimeframeInterval = timeframeIntervalHandler.getActiveTimeframeInterval();
+                if(activeTimeframeInterval == null) {
+                    timeframeIntervalHandler.updateQueue(now, true);
+                }
+            }
         }
-        final PlanningRequest planningRequest = new PlanningRequest();
-        planningRequest.setTimeframes(sempTimeFrames);
-        return sempTimeFrames.size() > 0 ? planningRequest : null;
     }
 
-    protected de.avanux.smartapplianceenabler.semp.webservice.Timeframe
-    createSempTimeFrame(LocalDateTime now, String deviceId, TimeframeInterval timeframeInterval) {
-        Integer earliestStartSeconds = timeframeInterval.getEarliestStartSeconds(now);
-        Integer latestEndSeconds = timeframeInterval.getLatestEndSeconds(now);
-        Integer minRunningTime = timeframeInterval.getRequest().getMin(now);
-        Integer maxRunningTime = timeframeInterval.getRequest().getMax(now);
-        if (maxRunningTime == null) {
-            maxRunningTime = 0;
-        }
-        if(maxRunningTime > latestEndSeconds) {
-            maxRunningTime = latestEndSeconds;
-        }
-        if (minRunningTime == null) {
-            minRunningTime = maxRunningTime;
-        }
-        if (minRunningTime.equals(maxRunningTime)) {
-            /** WORKAROUND:
-             * For unknown reason the SunnyPortal displays the scheduled times only
-             * if maxRunningTime AND minRunningTime are returned and are NOT EQUAL
-             * Therefore we ensure that they are not equal by reducing minRunningTime by 1 second
-             */
-            minRunningTime = minRunningTime >= 1 ? minRunningTime - 1 : 0;
+    private boolean executeControl(LocalDateTime now, DeviceControl deviceControl) {
+        boolean executed = false;
+        Appliance appliance = ApplianceManager.getInstance().findAppliance(deviceControl.getDeviceId());
+        if (appliance != null) {
+            executed = appliance.setApplianceState(now, deviceControl.isOn(),
+                    deviceControl.getRecommendedPowerConsumption(),
+                    "Setting appliance state to " + (deviceControl.isOn() ? "ON" : "OFF"));
         } else {
-            // according to spec minRunningTime only has to be returned if different from maxRunningTime
-            minRunningTime = minRunningTime >= 0 ? minRunningTime : 0;
+            logger.warn("{}: No appliance configured for device id", deviceControl.getDeviceId());
         }
-        maxRunningTime = maxRunningTime >= 0 ? maxRunningTime : 0;
+        Device2EMSnapshot.getInstance().requestUpdate();
+        return executed;
+    }
 
-        de.avanux.smartapplianceenabler.semp.webservice.Timeframe timeFrame
-                = new de.avanux.smartapplianceenabler.semp.webservice.Timeframe();
-        timeFrame.setDeviceId(deviceId);
-        timeFrame.setEarliestStart(earliestStartSeconds);
-        timeFrame.setLatestEnd(latestEndSeconds);
-        if (timeframeInterval.getRequest() instanceof AbstractEnergyRequest) {
-            timeFrame.setMinEnergy(timeframeInterval.getRequest().getMin(now));
-            timeFrame.setMaxEnergy(timeframeInterval.getRequest().getMax(now));
-        } else {
-            timeFrame.setMinRunningTime(minRunningTime);
-            timeFrame.setMaxRunningTime(maxRunningTime);
-        }
-        logger.debug("{}: Timeframe created: {}", deviceId, timeFrame);
-        return timeFrame;
+    public DeviceControlDispatcher getDeviceControlDispatcher() {
+        return deviceControlDispatcher;
     }
 
     private String marshall(Device2EM device2EM) {
-        StringWriter writer = new StringWriter();
         try {
-            JAXBContext context = JAXBContext.newInstance(Device2EM.class);
-            Marshaller marshaller = context.createMarshaller();
-            marshaller.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, Boolean.TRUE);
-            marshaller.marshal(device2EM, writer);
-            return writer.toString();
+            return SempSerializer.getInstance().toString(device2EM);
         } catch (JAXBException e) {
             logger.error("Error marshalling", e);
         }
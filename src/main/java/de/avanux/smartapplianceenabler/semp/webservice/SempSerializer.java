@@ -0,0 +1,116 @@
+/*
+ * Copyright (C) 2021 Axel Müller <axel.mueller@avanux.de>
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package de.avanux.smartapplianceenabler.semp.webservice;
+
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Marshaller;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Serializes {@link Device2EM} into compact XML.
+ * <p>
+ * The JAXB context is created once and each thread reuses its own marshaller. The response created last is kept
+ * as bytes (and gzip compressed bytes on demand) and is returned again as long as the same model is serialized,
+ * i.e. until a new {@link Device2EMSnapshot} is published.
+ */
+public class SempSerializer {
+    private static SempSerializer instance;
+    private JAXBContext context;
+    private ThreadLocal<Marshaller> marshallers;
+    private volatile CachedResponse cachedResponse;
+
+    protected SempSerializer() throws JAXBException {
+        this.context = JAXBContext.newInstance(Device2EM.class);
+        this.marshallers = ThreadLocal.withInitial(() -> {
+            try {
+                Marshaller marshaller = context.createMarshaller();
+                marshaller.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, Boolean.FALSE);
+                marshaller.setProperty(Marshaller.JAXB_ENCODING, StandardCharsets.UTF_8.name());
+                return marshaller;
+            }
+            catch(JAXBException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+    }
+
+    public static synchronized SempSerializer getInstance() throws JAXBException {
+        if(instance == null) {
+            instance = new SempSerializer();
+        }
+        return instance;
+    }
+
+    /**
+     * The serialized form of a model.
+     */
+    public static class CachedResponse {
+        private Object model;
+        private byte[] bytes;
+        private volatile byte[] gzippedBytes;
+
+        private CachedResponse(Object model, byte[] bytes) {
+            this.model = model;
+            this.bytes = bytes;
+        }
+
+        public byte[] getBytes() {
+            return bytes;
+        }
+
+        public byte[] getGzippedBytes() throws IOException {
+            byte[] gzippedBytes = this.gzippedBytes;
+            if(gzippedBytes == null) {
+                ByteArrayOutputStream out = new ByteArrayOutputStream(bytes.length / 4 + 64);
+                try(GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+                    gzip.write(bytes);
+                }
+                gzippedBytes = out.toByteArray();
+                this.gzippedBytes = gzippedBytes;
+            }
+            return gzippedBytes;
+        }
+    }
+
+    /**
+     * Returns the serialized snapshot reusing the bytes of the previous call if the snapshot is the same.
+     */
+    public CachedResponse serialize(Device2EMSnapshot.Snapshot snapshot) throws JAXBException {
+        CachedResponse cachedResponse = this.cachedResponse;
+        if(cachedResponse == null || cachedResponse.model != snapshot) {
+            cachedResponse = new CachedResponse(snapshot, toBytes(snapshot.getDevice2EM()));
+            this.cachedResponse = cachedResponse;
+        }
+        return cachedResponse;
+    }
+
+    public byte[] toBytes(Device2EM device2EM) throws JAXBException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(4096);
+        this.marshallers.get().marshal(device2EM, out);
+        return out.toByteArray();
+    }
+
+    public String toString(Device2EM device2EM) throws JAXBException {
+        return new String(toBytes(device2EM), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright (C) 2021 Axel Müller <axel.mueller@avanux.de>
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package de.avanux.smartapplianceenabler.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.LocalDateTime;
+import java.util.function.BiFunction;
+
+/**
+ * Holds an immutable snapshot built in advance, so that requests are answered without locking and without
+ * querying any device.
+ * <p>
+ * Once started, a new snapshot is built periodically and whenever requested, e.g. because the state of an appliance
+ * changed. Building takes place on a separate thread; requests for a new snapshot received while building are
+ * coalesced into one. The snapshot is published atomically and never modified afterwards.
+ * <p>
+ * As long as it has not been started (e.g. in tests) each snapshot requested is built synchronously.
+ *
+ * @param <T> the type of the snapshot
+ */
+public class BackgroundSnapshot<T> {
+    private Logger logger = LoggerFactory.getLogger(BackgroundSnapshot.class);
+    private String name;
+    private BiFunction<LocalDateTime, T, T> builder;
+    private final Object updateLock = new Object();
+    private volatile T snapshot;
+    private volatile TaskScheduler timer;
+    private GuardedTimerTask updateTimerTask;
+    private volatile EventBus.Subscription<LocalDateTime> updateRequests;
+
+    /**
+     * @param name the name used for logging
+     * @param builder builds a new snapshot at the given time from the previous snapshot (which may be null).
+     *                It is never called concurrently.
+     */
+    public BackgroundSnapshot(String name, BiFunction<LocalDateTime, T, T> builder) {
+        this.name = name;
+        this.builder = builder;
+    }
+
+    /**
+     * Starts building snapshots in the background.
+     * @param timer
+     * @param updateIntervalMillis the interval in milliseconds for building new snapshots
+     */
+    public synchronized void start(TaskScheduler timer, long updateIntervalMillis) {
+        stop();
+        this.timer = timer;
+        this.updateRequests = EventBus.getInstance().subscribe(this.name + "Snapshot", (key, now) -> update(now));
+        this.updateTimerTask = new GuardedTimerTask(null, this.name + "Snapshot", updateIntervalMillis) {
+            @Override
+            public void runTask() {
+                update(LocalDateTime.now());
+            }
+        };
+        timer.schedule(this.updateTimerTask, 0, this.updateTimerTask.getPeriod());
+    }
+
+    public synchronized void stop() {
+        if(this.updateTimerTask != null) {
+            this.updateTimerTask.cancel();
+            this.updateTimerTask = null;
+        }
+        if(this.updateRequests != null) {
+            EventBus.getInstance().unsubscribe(this.updateRequests);
+            this.updateRequests = null;
+        }
+        this.timer = null;
+        this.snapshot = null;
+    }
+
+    /**
+     * Returns the latest snapshot. If no snapshot is built in the background, a new snapshot is built.
+     */
+    public T get() {
+        T snapshot = this.snapshot;
+        if(snapshot == null || this.updateRequests == null) {
+            snapshot = update(LocalDateTime.now());
+        }
+        return snapshot;
+    }
+
+    /**
+     * Requests a new snapshot to be built in the background.
+     */
+    public void requestUpdate() {
+        EventBus.Subscription<LocalDateTime> updateRequests = this.updateRequests;
+        if(updateRequests != null) {
+            updateRequests.publish(this.name, LocalDateTime.now());
+        }
+    }
+
+    /**
+     * Requests a new snapshot to be built in the background after the given delay.
+     * @param delayMillis delay in milliseconds
+     */
+    public synchronized void scheduleUpdate(long delayMillis) {
+        if(this.timer != null) {
+            this.timer.schedule(new GuardedTimerTask(null, this.name + "SnapshotScheduled", 0) {
+                @Override
+                public void runTask() {
+                    requestUpdate();
+                }
+            }, delayMillis);
+        }
+    }
+
+    private T update(LocalDateTime now) {
+        synchronized(this.updateLock) {
+            long startMillis = System.currentTimeMillis();
+            T snapshot = this.builder.apply(now, this.snapshot);
+            this.snapshot = snapshot;
+            logger.debug("{} snapshot built in {}ms", this.name, System.currentTimeMillis() - startMillis);
+            return snapshot;
+        }
+    }
+}
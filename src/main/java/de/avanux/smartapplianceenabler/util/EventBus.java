@@ -0,0 +1,248 @@
+/*
+ * Copyright (C) 2021 Axel Müller <axel.mueller@avanux.de>
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package de.avanux.smartapplianceenabler.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+
+/**
+ * Delivers events to subscribers asynchronously so that publishers (e.g. meter poll tasks) are never blocked by
+ * slow subscribers.
+ * <p>
+ * Each subscription has its own queue holding only the latest event per key (usually the appliance id): an event
+ * published while the previous event with the same key has not been delivered yet replaces it. The queue is
+ * therefore bounded by the number of keys. Events of a subscription are delivered one after another on a shared
+ * pool of daemon threads whose size can be set with the system property {@value #POOL_SIZE_PROPERTY} unless the
+ * subscriber provides its own executor.
+ * The metrics of the subscriptions are logged periodically by {@link MetricsLogger}.
+ */
+public class EventBus {
+    public static final String POOL_SIZE_PROPERTY = "sae.eventbus.threads";
+    private static final int DEFAULT_POOL_SIZE = 2;
+    private static final long SLOW_DISPATCH_MILLIS = 1000;
+    private static EventBus instance;
+    private transient Logger logger = LoggerFactory.getLogger(EventBus.class);
+    private Executor executor;
+
+    protected EventBus(Executor executor) {
+        this.executor = executor;
+    }
+
+    public static synchronized EventBus getInstance() {
+        if(instance == null) {
+            int poolSize = Integer.getInteger(POOL_SIZE_PROPERTY, DEFAULT_POOL_SIZE);
+            instance = new EventBus(Executors.newFixedThreadPool(poolSize, new NamedThreadFactory("EventBus", true)));
+        }
+        return instance;
+    }
+
+    /**
+     * Creates a subscription delivering the events published to it to the handler.
+     * @param name the name of the subscription used for logging
+     * @param handler receives the key and the event
+     */
+    public <E> Subscription<E> subscribe(String name, BiConsumer<String, E> handler) {
+        return subscribe(name, handler, null);
+    }
+
+    /**
+     * Creates a subscription delivering the events published to it to the handler.
+     * @param name the name of the subscription used for logging
+     * @param handler receives the key and the event
+     * @param dispatcher executes the delivery of the events or null for the shared pool
+     */
+    public <E> Subscription<E> subscribe(String name, BiConsumer<String, E> handler, Executor dispatcher) {
+        Subscription<E> subscription = new Subscription<>(name, handler,
+                dispatcher != null ? dispatcher : this.executor);
+        MetricsLogger.getInstance().register(getMetricsName(name), subscription::toString);
+        return subscription;
+    }
+
+    /**
+     * Discards the undelivered events of the subscription and ignores events published to it afterwards.
+     */
+    public void unsubscribe(Subscription<?> subscription) {
+        subscription.close();
+        MetricsLogger.getInstance().unregister(getMetricsName(subscription.getName()));
+    }
+
+    private String getMetricsName(String name) {
+        return "EventBus." + name;
+    }
+
+    private static class PendingEvent<E> {
+        private E event;
+        private long publishedNanos;
+
+        PendingEvent(E event, long publishedNanos) {
+            this.event = event;
+            this.publishedNanos = publishedNanos;
+        }
+    }
+
+    /**
+     * Queue of the latest event per key of one subscriber and its metrics.
+     */
+    public class Subscription<E> implements Runnable {
+        private String name;
+        private BiConsumer<String, E> handler;
+        private Executor dispatcher;
+        private Map<String, PendingEvent<E>> pendingEvents = new LinkedHashMap<>();
+        private boolean dispatching;
+        private boolean closed;
+        private int maxQueueDepth;
+        private AtomicLong published = new AtomicLong();
+        private AtomicLong coalesced = new AtomicLong();
+        private LatencyStatistics dispatchLatencies = new LatencyStatistics();
+
+        private Subscription(String name, BiConsumer<String, E> handler, Executor dispatcher) {
+            this.name = name;
+            this.handler = handler;
+            this.dispatcher = dispatcher;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * Queues the event for delivery replacing an undelivered event with the same key.
+         */
+        public void publish(String key, E event) {
+            boolean startDispatching;
+            synchronized(this) {
+                if(closed) {
+                    return;
+                }
+                PendingEvent<E> replaced = pendingEvents.put(key, new PendingEvent<>(event, System.nanoTime()));
+                if(replaced != null) {
+                    // keep the position in the queue and the time the key has been waiting for delivery
+                    pendingEvents.get(key).publishedNanos = replaced.publishedNanos;
+                    coalesced.incrementAndGet();
+                }
+                maxQueueDepth = Math.max(maxQueueDepth, pendingEvents.size());
+                startDispatching = ! dispatching;
+                dispatching = true;
+            }
+            published.incrementAndGet();
+            if(startDispatching) {
+                try {
+                    dispatcher.execute(this);
+                }
+                catch(RejectedExecutionException e) {
+                    logger.warn("{}: Event dispatch rejected", name);
+                    synchronized(this) {
+                        dispatching = false;
+                    }
+                }
+            }
+        }
+
+        /**
+         * Delivers the queued events until the queue is empty.
+         */
+        @Override
+        public void run() {
+            while(true) {
+                String key;
+                PendingEvent<E> pendingEvent;
+                synchronized(this) {
+                    Iterator<Map.Entry<String, PendingEvent<E>>> iterator = pendingEvents.entrySet().iterator();
+                    if(! iterator.hasNext()) {
+                        dispatching = false;
+                        return;
+                    }
+                    Map.Entry<String, PendingEvent<E>> entry = iterator.next();
+                    iterator.remove();
+                    key = entry.getKey();
+                    pendingEvent = entry.getValue();
+                }
+                long latencyNanos = System.nanoTime() - pendingEvent.publishedNanos;
+                dispatchLatencies.record(latencyNanos);
+                if(latencyNanos / 1000000 > SLOW_DISPATCH_MILLIS) {
+                    logger.warn("{}: {} event delivered {}ms after publishing", key, name, latencyNanos / 1000000);
+                }
+                try {
+                    handler.accept(key, pendingEvent.event);
+                }
+                catch(Throwable e) {
+                    logger.error("{}: Error delivering {} event", key, name, e);
+                }
+            }
+        }
+
+        private synchronized void close() {
+            closed = true;
+            pendingEvents.clear();
+        }
+
+        public synchronized boolean isClosed() {
+            return closed;
+        }
+
+        /**
+         * Returns the number of events waiting for delivery.
+         */
+        public synchronized int getQueueDepth() {
+            return pendingEvents.size();
+        }
+
+        public synchronized int getMaxQueueDepth() {
+            return maxQueueDepth;
+        }
+
+        public long getPublishedCount() {
+            return published.get();
+        }
+
+        /**
+         * Returns the number of events replaced by a more recent event before being delivered.
+         */
+        public long getCoalescedCount() {
+            return coalesced.get();
+        }
+
+        public long getDispatchedCount() {
+            return dispatchLatencies.getCount();
+        }
+
+        /**
+         * Returns the time in milliseconds between publishing and delivering the events.
+         */
+        public LatencyStatistics getDispatchLatencies() {
+            return dispatchLatencies;
+        }
+
+        @Override
+        public String toString() {
+            return "EventBus " + name + "[queueDepth=" + getQueueDepth() + " maxQueueDepth=" + getMaxQueueDepth()
+                    + " published=" + getPublishedCount() + " coalesced=" + getCoalescedCount()
+                    + " dispatched=" + getDispatchedCount() + " " + dispatchLatencies + "]";
+        }
+    }
+}
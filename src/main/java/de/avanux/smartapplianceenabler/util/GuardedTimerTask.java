@@ -21,17 +21,21 @@ package de.avanux.smartapplianceenabler.util;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.TimerTask;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
- * The GuardedTimerTask maintains parameters passed to the Timer as well as details to identify itself.
+ * The GuardedTimerTask maintains parameters passed to the {@link TaskScheduler} as well as details to identify itself.
  * It also ensures, the errors during execution will be logged appropriately. Cancellation is logged as well.
  */
-abstract public class GuardedTimerTask extends TimerTask {
+abstract public class GuardedTimerTask implements Runnable {
     private transient Logger logger = LoggerFactory.getLogger(GuardedTimerTask.class);
     private String applianceId;
     private String taskName;
     private long period;
+    private transient volatile ScheduledFuture<?> future;
+    private transient volatile boolean cancelled;
+    private transient AtomicBoolean pending = new AtomicBoolean();
 
     public GuardedTimerTask(String applianceId, String taskName, long period) {
         this.applianceId = applianceId;
@@ -41,6 +45,10 @@ abstract public class GuardedTimerTask extends TimerTask {
                 taskName, period, this.hashCode());
     }
 
+    public String getApplianceId() {
+        return applianceId;
+    }
+
     public String getTaskName() {
         return taskName;
     }
@@ -61,11 +69,42 @@ abstract public class GuardedTimerTask extends TimerTask {
         }
     }
 
-    @Override
     public boolean cancel() {
         logger.trace("{}: Cancel timer task name={} id={}", this.applianceId != null ? this.applianceId : "",
                 taskName, this.hashCode());
-        return super.cancel();
+        boolean wasCancelled = this.cancelled;
+        this.cancelled = true;
+        if(this.future != null) {
+            return this.future.cancel(false);
+        }
+        return !wasCancelled;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    protected void setFuture(ScheduledFuture<?> future) {
+        this.future = future;
+        if(this.cancelled) {
+            future.cancel(false);
+        }
+    }
+
+    protected ScheduledFuture<?> getFuture() {
+        return future;
+    }
+
+    /**
+     * Marks the task as submitted for execution.
+     * @return false, if the previous execution has not been completed yet
+     */
+    protected boolean markPending() {
+        return this.pending.compareAndSet(false, true);
+    }
+
+    protected void clearPending() {
+        this.pending.set(false);
     }
 
     /**
@@ -0,0 +1,62 @@
+/*
+ * Copyright (C) 2021 Axel Müller <axel.mueller@avanux.de>
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package de.avanux.smartapplianceenabler.util;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Count, average, maximum and last value of latencies recorded by concurrent threads.
+ */
+public class LatencyStatistics {
+    private AtomicLong count = new AtomicLong();
+    private AtomicLong sumNanos = new AtomicLong();
+    private AtomicLong maxNanos = new AtomicLong();
+    private volatile long lastNanos;
+
+    public void record(long latencyNanos) {
+        count.incrementAndGet();
+        sumNanos.addAndGet(latencyNanos);
+        maxNanos.accumulateAndGet(latencyNanos, Math::max);
+        lastNanos = latencyNanos;
+    }
+
+    public long getCount() {
+        return count.get();
+    }
+
+    public double getAverageMillis() {
+        long count = this.count.get();
+        return count > 0 ? sumNanos.get() / 1000000.0 / count : 0.0;
+    }
+
+    public double getMaxMillis() {
+        return maxNanos.get() / 1000000.0;
+    }
+
+    public double getLastMillis() {
+        return lastNanos / 1000000.0;
+    }
+
+    @Override
+    public String toString() {
+        return "averageLatency=" + String.format(Locale.ROOT, "%.3f", getAverageMillis()) + "ms"
+                + " maxLatency=" + String.format(Locale.ROOT, "%.3f", getMaxMillis()) + "ms";
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright (C) 2021 Axel Müller <axel.mueller@avanux.de>
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package de.avanux.smartapplianceenabler.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Supplier;
+
+/**
+ * Logs the metrics of queues and request lanes periodically, so that queueing, load shedding and latencies
+ * can be observed in production. Components register a source providing a one-line summary of their metrics.
+ * The interval in seconds can be set with the system property {@value #INTERVAL_PROPERTY}; 0 disables logging.
+ */
+public class MetricsLogger {
+    public static final String INTERVAL_PROPERTY = "sae.metrics.logInterval";
+    private static final int DEFAULT_INTERVAL_SECONDS = 600;
+    private static MetricsLogger instance;
+    private transient Logger logger = LoggerFactory.getLogger(MetricsLogger.class);
+    private Map<String, Supplier<String>> sources = new ConcurrentSkipListMap<>();
+    private GuardedTimerTask logTimerTask;
+
+    protected MetricsLogger() {
+    }
+
+    public static synchronized MetricsLogger getInstance() {
+        if(instance == null) {
+            instance = new MetricsLogger();
+        }
+        return instance;
+    }
+
+    /**
+     * Registers a source of metrics replacing a source registered with the same name.
+     * @param name the name used to order and replace sources
+     * @param source returns the metrics as one line of text
+     */
+    public void register(String name, Supplier<String> source) {
+        this.sources.put(name, source);
+    }
+
+    public void unregister(String name) {
+        this.sources.remove(name);
+    }
+
+    /**
+     * Returns the current metrics of all sources ordered by name.
+     */
+    public List<String> getMetrics() {
+        List<String> metrics = new ArrayList<>();
+        for(Map.Entry<String, Supplier<String>> entry : this.sources.entrySet()) {
+            try {
+                metrics.add(entry.getValue().get());
+            }
+            catch(Exception e) {
+                logger.error("Error getting metrics of {}", entry.getKey(), e);
+            }
+        }
+        return metrics;
+    }
+
+    public void log() {
+        getMetrics().forEach(metrics -> logger.info("Metrics: {}", metrics));
+    }
+
+    public synchronized void start(TaskScheduler timer) {
+        stop();
+        int intervalSeconds = Integer.getInteger(INTERVAL_PROPERTY, DEFAULT_INTERVAL_SECONDS);
+        if(intervalSeconds > 0) {
+            this.logTimerTask = new GuardedTimerTask(null, getClass().getSimpleName(), intervalSeconds * 1000L) {
+                @Override
+                public void runTask() {
+                    log();
+                }
+            };
+            timer.schedule(this.logTimerTask, this.logTimerTask.getPeriod(), this.logTimerTask.getPeriod());
+        }
+    }
+
+    public synchronized void stop() {
+        if(this.logTimerTask != null) {
+            this.logTimerTask.cancel();
+            this.logTimerTask = null;
+        }
+    }
+}
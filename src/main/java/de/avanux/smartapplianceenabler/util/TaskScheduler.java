@@ -0,0 +1,170 @@
+/*
+ * Copyright (C) 2021 Axel Müller <axel.mueller@avanux.de>
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package de.avanux.smartapplianceenabler.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.*;
+
+/**
+ * Executes {@link GuardedTimerTask}s on a bounded pool of worker threads.
+ * <p>
+ * A single scheduler thread only triggers the tasks while the tasks themselves are executed by the workers.
+ * Tasks of the same appliance are executed in a serial lane so that they never overlap while tasks of
+ * different appliances run independently of each other. A slow device therefore only delays the tasks of
+ * its own appliance.
+ * <p>
+ * Periodic tasks are executed at fixed rate. If an execution is due while the previous execution of the same task
+ * has not been completed yet (or the trigger itself is late by more than one period) the execution is skipped
+ * instead of being executed afterwards.
+ */
+public class TaskScheduler {
+    public static final String POOL_SIZE_PROPERTY = "sae.scheduler.threads";
+    private static final int DEFAULT_POOL_SIZE = 4;
+    private static final String DEFAULT_LANE = "";
+    private transient Logger logger = LoggerFactory.getLogger(TaskScheduler.class);
+    private ScheduledExecutorService trigger;
+    private ExecutorService workers;
+    private Map<String, Lane> lanes = new ConcurrentHashMap<>();
+
+    public TaskScheduler() {
+        this(Integer.getInteger(POOL_SIZE_PROPERTY, DEFAULT_POOL_SIZE));
+    }
+
+    public TaskScheduler(int poolSize) {
+        this.trigger = Executors.newSingleThreadScheduledExecutor(new NamedThreadFactory("TaskScheduler", false));
+        this.workers = Executors.newFixedThreadPool(poolSize, new NamedThreadFactory("TaskWorker", false));
+        logger.debug("Task scheduler created with {} worker threads", poolSize);
+    }
+
+    /**
+     * Schedules the task for a single execution after the given delay.
+     * @param task
+     * @param delay delay in milliseconds
+     */
+    public void schedule(GuardedTimerTask task, long delay) {
+        task.setFuture(this.trigger.schedule(() -> dispatch(task, 0), delay, TimeUnit.MILLISECONDS));
+    }
+
+    /**
+     * Schedules the task for repeated fixed-rate execution after the given delay.
+     * @param task
+     * @param delay delay in milliseconds
+     * @param period period in milliseconds
+     */
+    public void schedule(GuardedTimerTask task, long delay, long period) {
+        task.setFuture(this.trigger.scheduleAtFixedRate(() -> dispatch(task, period), delay, period,
+                TimeUnit.MILLISECONDS));
+    }
+
+    /**
+     * Returns the serial lane of the appliance so that work submitted to it never overlaps with the timer tasks
+     * of that appliance.
+     * @param applianceId the appliance id or null for the lane of tasks without appliance
+     */
+    public Executor getLane(String applianceId) {
+        return this.lanes.computeIfAbsent(applianceId != null ? applianceId : DEFAULT_LANE, Lane::new);
+    }
+
+    /**
+     * Terminates the scheduler discarding all scheduled tasks.
+     */
+    public void cancel() {
+        this.trigger.shutdownNow();
+        this.workers.shutdownNow();
+    }
+
+    private void dispatch(GuardedTimerTask task, long period) {
+        if(task.isCancelled()) {
+            return;
+        }
+        ScheduledFuture<?> future = task.getFuture();
+        if(period > 0 && future != null && - future.getDelay(TimeUnit.MILLISECONDS) >= period) {
+            logger.debug("{}: Skipping missed execution of timer task name={} id={}", getLaneName(task),
+                    task.getTaskName(), task.hashCode());
+            return;
+        }
+        if(! task.markPending()) {
+            logger.warn("{}: Skipping execution of timer task name={} id={} since previous execution is still pending",
+                    getLaneName(task), task.getTaskName(), task.hashCode());
+            return;
+        }
+        Lane lane = this.lanes.computeIfAbsent(getLaneName(task), Lane::new);
+        lane.execute(() -> {
+            try {
+                if(! task.isCancelled()) {
+                    task.run();
+                }
+            }
+            finally {
+                task.clearPending();
+            }
+        });
+    }
+
+    private String getLaneName(GuardedTimerTask task) {
+        return task.getApplianceId() != null ? task.getApplianceId() : DEFAULT_LANE;
+    }
+
+    /**
+     * Executes the submitted tasks one after another using the shared worker pool.
+     */
+    private class Lane implements Executor {
+        private String name;
+        private Queue<Runnable> tasks = new ArrayDeque<>();
+        private Runnable active;
+
+        public Lane(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public synchronized void execute(Runnable task) {
+            this.tasks.offer(() -> {
+                try {
+                    task.run();
+                }
+                finally {
+                    next();
+                }
+            });
+            if(this.active == null) {
+                next();
+            }
+        }
+
+        private synchronized void next() {
+            this.active = this.tasks.poll();
+            if(this.active != null) {
+                try {
+                    workers.execute(this.active);
+                }
+                catch(RejectedExecutionException e) {
+                    logger.debug("{}: Task rejected since scheduler has been cancelled", this.name);
+                    this.tasks.clear();
+                    this.active = null;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,180 @@
+/*
+ * Copyright (C) 2021 Axel Müller <axel.mueller@avanux.de>
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package de.avanux.smartapplianceenabler.util;
+
+import de.avanux.smartapplianceenabler.appliance.ApplianceIdConsumer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * Time series of values ordered by timestamp kept in a {@link TimestampValueDeque}.
+ * <p>
+ * Values older than the maximum age (relative to the latest value added) are removed from the head when a value
+ * is added, optionally keeping the last expired values. Adding values and accessing the last value take constant
+ * time and values within a time range can be iterated without creating objects. The buffer grows if necessary
+ * and is reused otherwise.
+ */
+public class TimeSeries implements ApplianceIdConsumer {
+
+    private transient Logger logger = LoggerFactory.getLogger(TimeSeries.class);
+    private String name;
+    private String applianceId;
+    private TimestampValueDeque values = new TimestampValueDeque();
+    private long maxAgeMillis;
+    private int keepLastExpired;
+
+    /**
+     * Receives the values of a time series.
+     */
+    @FunctionalInterface
+    public interface ValueConsumer {
+        void accept(long timestampMillis, double value);
+    }
+
+    public TimeSeries(String name) {
+        this.name = name;
+    }
+
+    public synchronized void setMaxAgeSeconds(int maxAgeSeconds) {
+        this.maxAgeMillis = maxAgeSeconds * 1000L;
+    }
+
+    public synchronized int getMaxAgeSeconds() {
+        return (int) (maxAgeMillis / 1000);
+    }
+
+    public synchronized void setKeepLastExpired(int entriesToKeep) {
+        this.keepLastExpired = entriesToKeep;
+    }
+
+    @Override
+    public void setApplianceId(String applianceId) {
+        this.applianceId = applianceId;
+    }
+
+    /**
+     * Returns the timestamp in milliseconds used by the time series without creating objects.
+     */
+    public static long toMillis(LocalDateTime timestamp) {
+        return timestamp.toEpochSecond(ZoneOffset.UTC) * 1000 + timestamp.getNano() / 1000000;
+    }
+
+    public void addValue(LocalDateTime timestamp, double value) {
+        addValue(toMillis(timestamp), value);
+    }
+
+    public synchronized void addValue(long timestampMillis, double value) {
+        int removed = removeExpired(timestampMillis);
+        if(! values.isEmpty() && timestampMillis <= values.lastTimestamp()) {
+            insert(timestampMillis, value);
+        }
+        else {
+            values.addLast(timestampMillis, value);
+        }
+        if(logger.isTraceEnabled()) {
+            logger.trace("{}: time series={} added value={} timestamp={}  removed/total: {}/{}",
+                    applianceId, name, value, timestampMillis, removed, values.size());
+        }
+    }
+
+    /**
+     * Removes values expired relative to the timestamp from the head keeping the last expired values requested.
+     * @return the number of values removed
+     */
+    private int removeExpired(long timestampMillis) {
+        int expired = 0;
+        // a value is expired if it is older than max age in full seconds
+        while(expired < values.size() && timestampMillis - values.timestampAt(expired) >= maxAgeMillis + 1000) {
+            expired++;
+        }
+        int removed = Math.max(0, expired - keepLastExpired);
+        values.removeFirst(removed);
+        return removed;
+    }
+
+    /**
+     * Inserts a value not being the latest one at its position or replaces the value with the same timestamp.
+     */
+    private void insert(long timestampMillis, double value) {
+        int position = values.size();
+        while(position > 0 && values.timestampAt(position - 1) > timestampMillis) {
+            position--;
+        }
+        if(position > 0 && values.timestampAt(position - 1) == timestampMillis) {
+            values.setValueAt(position - 1, value);
+            return;
+        }
+        values.insert(position, timestampMillis, value);
+    }
+
+    public synchronized void clear() {
+        values.clear();
+    }
+
+    public synchronized int size() {
+        return values.size();
+    }
+
+    public synchronized boolean isEmpty() {
+        return values.isEmpty();
+    }
+
+    /**
+     * Returns the value added last or NaN if the time series is empty.
+     */
+    public synchronized double getLastValue() {
+        return values.isEmpty() ? Double.NaN : values.lastValue();
+    }
+
+    /**
+     * Returns the timestamp of the value added last or 0 if the time series is empty.
+     */
+    public synchronized long getLastTimestamp() {
+        return values.isEmpty() ? 0 : values.lastTimestamp();
+    }
+
+    /**
+     * Passes all values in ascending order of their timestamps to the consumer.
+     */
+    public synchronized void forEach(ValueConsumer consumer) {
+        for(int i=0; i<values.size(); i++) {
+            consumer.accept(values.timestampAt(i), values.valueAt(i));
+        }
+    }
+
+    /**
+     * Passes the values not expired at the given time in ascending order of their timestamps to the consumer.
+     */
+    public void forEachNotExpired(LocalDateTime now, ValueConsumer consumer) {
+        forEachAfter(toMillis(now) - maxAgeMillis, consumer);
+    }
+
+    /**
+     * Passes the values with a timestamp after the given one in ascending order of their timestamps to the consumer.
+     */
+    public synchronized void forEachAfter(long timestampMillis, ValueConsumer consumer) {
+        for(int i=0; i<values.size(); i++) {
+            if(values.timestampAt(i) > timestampMillis) {
+                consumer.accept(values.timestampAt(i), values.valueAt(i));
+            }
+        }
+    }
+}
@@ -0,0 +1,136 @@
+/*
+ * Copyright (C) 2021 Axel Müller <axel.mueller@avanux.de>
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package de.avanux.smartapplianceenabler.util;
+
+/**
+ * Double ended queue of timestamps with values based on ring buffers of primitives.
+ * The buffers grow if necessary and are reused otherwise. The queue is not thread-safe.
+ */
+public class TimestampValueDeque {
+    private static final int INITIAL_CAPACITY = 16;
+    private long[] timestamps = new long[INITIAL_CAPACITY];
+    private double[] values = new double[INITIAL_CAPACITY];
+    private int head;
+    private int size;
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int capacity() {
+        return timestamps.length;
+    }
+
+    public void addLast(long timestamp, double value) {
+        ensureCapacity();
+        timestamps[index(size)] = timestamp;
+        values[index(size)] = value;
+        size++;
+    }
+
+    /**
+     * Inserts the value at the given position moving the following values towards the tail.
+     */
+    public void insert(int position, long timestamp, double value) {
+        ensureCapacity();
+        for(int i=size; i>position; i--) {
+            timestamps[index(i)] = timestamps[index(i - 1)];
+            values[index(i)] = values[index(i - 1)];
+        }
+        timestamps[index(position)] = timestamp;
+        values[index(position)] = value;
+        size++;
+    }
+
+    public void removeFirst() {
+        removeFirst(1);
+    }
+
+    public void removeFirst(int count) {
+        head = index(count);
+        size -= count;
+    }
+
+    public void removeLast() {
+        size--;
+    }
+
+    public void clear() {
+        head = 0;
+        size = 0;
+    }
+
+    public long timestampAt(int position) {
+        return timestamps[index(position)];
+    }
+
+    public double valueAt(int position) {
+        return values[index(position)];
+    }
+
+    public void setValueAt(int position, double value) {
+        values[index(position)] = value;
+    }
+
+    public long firstTimestamp() {
+        return timestamps[head];
+    }
+
+    public double firstValue() {
+        return values[head];
+    }
+
+    public long lastTimestamp() {
+        return timestamps[index(size - 1)];
+    }
+
+    public double lastValue() {
+        return values[index(size - 1)];
+    }
+
+    public double sum() {
+        double sum = 0.0;
+        for(int i=0; i<size; i++) {
+            sum += values[index(i)];
+        }
+        return sum;
+    }
+
+    private void ensureCapacity() {
+        if(size == timestamps.length) {
+            long[] grownTimestamps = new long[size * 2];
+            double[] grownValues = new double[size * 2];
+            for(int i=0; i<size; i++) {
+                grownTimestamps[i] = timestamps[index(i)];
+                grownValues[i] = values[index(i)];
+            }
+            timestamps = grownTimestamps;
+            values = grownValues;
+            head = 0;
+        }
+    }
+
+    private int index(int position) {
+        return (head + position) % timestamps.length;
+    }
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright (C) 2021 Axel Müller <axel.mueller@avanux.de>
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package de.avanux.smartapplianceenabler.webservice;
+
+import de.avanux.smartapplianceenabler.appliance.Appliance;
+import de.avanux.smartapplianceenabler.appliance.ApplianceManager;
+import de.avanux.smartapplianceenabler.control.Control;
+import de.avanux.smartapplianceenabler.control.ev.ElectricVehicleCharger;
+import de.avanux.smartapplianceenabler.meter.Meter;
+import de.avanux.smartapplianceenabler.schedule.AbstractEnergyRequest;
+import de.avanux.smartapplianceenabler.schedule.TimeframeInterval;
+import de.avanux.smartapplianceenabler.schedule.TimeframeIntervalState;
+import de.avanux.smartapplianceenabler.semp.webservice.DeviceInfo;
+import de.avanux.smartapplianceenabler.semp.webservice.Identification;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Creates the {@link ApplianceStatus} of the appliances by querying their meters, controls and timeframe intervals.
+ */
+public class ApplianceStatusBuilder {
+
+    public List<ApplianceStatus> createApplianceStatuses(LocalDateTime now) {
+        List<ApplianceStatus> applianceStatuses = new ArrayList<>();
+        for (Appliance appliance : ApplianceManager.getInstance().getAppliances()) {
+            applianceStatuses.add(createApplianceStatus(now, appliance));
+        }
+        return applianceStatuses;
+    }
+
+    private DeviceInfo getDeviceInfo(String applianceId) {
+        return ApplianceManager.getInstance().getDeviceInfo(applianceId);
+    }
+
+    private ApplianceStatus createApplianceStatus(LocalDateTime now, Appliance appliance) {
+        DeviceInfo deviceInfo = getDeviceInfo(appliance.getId());
+        Identification identification = null;
+        if (deviceInfo != null) {
+            identification = deviceInfo.getIdentification();
+        }
+
+        ApplianceStatus applianceStatus = new ApplianceStatus();
+        applianceStatus.setId(appliance.getId());
+        if (identification != null) {
+            applianceStatus.setName(identification.getDeviceName());
+            applianceStatus.setVendor(identification.getDeviceVendor());
+            applianceStatus.setType(identification.getDeviceType());
+        }
+
+        if (appliance.isControllable()) {
+            applianceStatus.setControllable(true);
+            Control control = appliance.getControl();
+            Meter meter = appliance.getMeter();
+            boolean on = control.isOn();
+            applianceStatus.setOn(on);
+            List<TimeframeInterval> queue = appliance.getTimeframeIntervalHandler().getQueue();
+            TimeframeInterval nextTimeframeInterval = queue.size() > 0 ? queue.get(0) : null;
+            if (nextTimeframeInterval != null) {
+                applianceStatus.setPlanningRequested(true);
+                if(nextTimeframeInterval.getRequest().isEnabled()) {
+                    applianceStatus.setEarliestStart(nextTimeframeInterval.getEarliestStartSeconds(now));
+                    applianceStatus.setLatestStart(nextTimeframeInterval.getLatestStartSeconds(now));
+                }
+                applianceStatus.setOptionalEnergy(nextTimeframeInterval.getRequest().isUsingOptionalEnergy(now));
+                if (nextTimeframeInterval.getState() == TimeframeIntervalState.QUEUED) {
+                    applianceStatus.setRunningTime(0);
+                    applianceStatus.setRemainingMinRunningTime(nextTimeframeInterval.getRequest().getMin(now));
+                    applianceStatus.setRemainingMaxRunningTime(nextTimeframeInterval.getRequest().getMax(now));
+                }
+            }
+            if (control instanceof ElectricVehicleCharger) {
+                ElectricVehicleCharger evCharger = (ElectricVehicleCharger) control;
+                applianceStatus.setState(evCharger.getState().name());
+                if(!evCharger.isVehicleNotConnected()) {
+                    applianceStatus.setEvIdCharging(evCharger.getConnectedVehicleId());
+                    ZonedDateTime zdt = ZonedDateTime.of(evCharger.getStateLastChangedTimestamp(), ZoneId.systemDefault());
+                    applianceStatus.setStateLastChangedTimestamp(zdt.toInstant().toEpochMilli());
+                    applianceStatus.setSocInitial(evCharger.getSocInitial());
+                    applianceStatus.setSocInitialTimestamp(evCharger.getSocInitialTimestamp());
+                    applianceStatus.setSoc(evCharger.getSocCurrent());
+
+                    int whAlreadyCharged = 0;
+                    Integer chargePower = evCharger.getChargePower();
+                    if (meter != null) {
+                        whAlreadyCharged = Float.valueOf(meter.getEnergy(Meter.averagingInterval) * 1000.0f).intValue();
+                        chargePower = meter.getAveragePower();
+                    }
+                    if (on) {
+                        applianceStatus.setCurrentChargePower(chargePower);
+                    }
+                    applianceStatus.setChargedEnergyAmount(whAlreadyCharged);
+                    int whRemainingToCharge = 0;
+                    if(nextTimeframeInterval != null
+                            && nextTimeframeInterval.getRequest() instanceof AbstractEnergyRequest) {
+                        Integer max = nextTimeframeInterval.getRequest().getMax(now);
+                        whRemainingToCharge = max != null ? max : 0;
+                    }
+                    if (nextTimeframeInterval != null && !nextTimeframeInterval.getRequest().isUsingOptionalEnergy(now)) {
+                        applianceStatus.setPlannedEnergyAmount(whAlreadyCharged + whRemainingToCharge);
+                        applianceStatus.setLatestEnd(nextTimeframeInterval.getLatestEndSeconds(now));
+                    }
+                }
+            }
+            if (nextTimeframeInterval != null && nextTimeframeInterval.getState() == TimeframeIntervalState.ACTIVE) {
+                applianceStatus.setPlanningRequested(true);
+                applianceStatus.setRunningTime(nextTimeframeInterval.getRequest().getRuntime(now));
+                applianceStatus.setRemainingMinRunningTime(nextTimeframeInterval.getRequest().getMin(now));
+                applianceStatus.setRemainingMaxRunningTime(nextTimeframeInterval.getRequest().getMax(now));
+                if (! nextTimeframeInterval.getRequest().isEnabled() && nextTimeframeInterval.getRequest().isEnabledBefore()) {
+                    applianceStatus.setInterruptedSince(
+                        Long.valueOf(
+                                Duration.between(nextTimeframeInterval.getRequest().getControlStatusChangedAt(), now).toSeconds()
+                        ).intValue());
+                }
+            }
+        }
+        return applianceStatus;
+    }
+}
@@ -0,0 +1,146 @@
+/*
+ * Copyright (C) 2021 Axel Müller <axel.mueller@avanux.de>
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package de.avanux.smartapplianceenabler.webservice;
+
+import de.avanux.smartapplianceenabler.util.BackgroundSnapshot;
+import de.avanux.smartapplianceenabler.util.TaskScheduler;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Holds the {@link ApplianceStatus} of all appliances built in advance together with its JSON representation
+ * (as written by {@link GensonHttpMessageConverter}), so that status requests of the web application are answered
+ * by a {@link BackgroundSnapshot}.
+ * <p>
+ * A new snapshot is built periodically (interval in seconds set by the system property
+ * {@value #UPDATE_INTERVAL_PROPERTY}) and whenever the state of an appliance changes. Its ETag only changes if the
+ * JSON representation differs from the one of the previous snapshot.
+ */
+public class ApplianceStatusSnapshot {
+    public static final String UPDATE_INTERVAL_PROPERTY = "sae.status.updateInterval";
+    private static final int DEFAULT_UPDATE_INTERVAL_SECONDS = 20;
+    private static ApplianceStatusSnapshot instance;
+    private ApplianceStatusBuilder builder = new ApplianceStatusBuilder();
+    private final String etagPrefix = Long.toHexString(System.currentTimeMillis());
+    private long version;
+    private BackgroundSnapshot<Snapshot> snapshot = new BackgroundSnapshot<>("ApplianceStatus", this::build);
+
+    protected ApplianceStatusSnapshot() {
+    }
+
+    public static synchronized ApplianceStatusSnapshot getInstance() {
+        if(instance == null) {
+            instance = new ApplianceStatusSnapshot();
+        }
+        return instance;
+    }
+
+    /**
+     * The immutable status of all appliances at a given time.
+     */
+    public static class Snapshot {
+        private LocalDateTime timestamp;
+        private List<ApplianceStatus> applianceStatuses;
+        private byte[] bytes;
+        private String etag;
+
+        private Snapshot(LocalDateTime timestamp, List<ApplianceStatus> applianceStatuses, byte[] bytes, String etag) {
+            this.timestamp = timestamp;
+            this.applianceStatuses = Collections.unmodifiableList(applianceStatuses);
+            this.bytes = bytes;
+            this.etag = etag;
+        }
+
+        public LocalDateTime getTimestamp() {
+            return timestamp;
+        }
+
+        public List<ApplianceStatus> getApplianceStatuses() {
+            return applianceStatuses;
+        }
+
+        /**
+         * Returns the JSON representation. The array returned must not be modified.
+         */
+        public byte[] getBytes() {
+            return bytes;
+        }
+
+        /**
+         * Returns the quoted entity tag of the JSON representation.
+         */
+        public String getEtag() {
+            return etag;
+        }
+
+        /**
+         * Returns true, if the value of an If-None-Match header matches the entity tag of this snapshot.
+         */
+        public boolean matches(String ifNoneMatch) {
+            if(ifNoneMatch == null) {
+                return false;
+            }
+            for(String etag : ifNoneMatch.split(",")) {
+                String trimmed = etag.trim();
+                if(trimmed.equals("*") || trimmed.equals(this.etag) || trimmed.equals("W/" + this.etag)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Starts building snapshots in the background.
+     */
+    public void start(TaskScheduler timer) {
+        int updateIntervalSeconds = Integer.getInteger(UPDATE_INTERVAL_PROPERTY, DEFAULT_UPDATE_INTERVAL_SECONDS);
+        this.snapshot.start(timer, updateIntervalSeconds * 1000L);
+    }
+
+    public void stop() {
+        this.snapshot.stop();
+    }
+
+    /**
+     * Returns the latest snapshot. If no snapshot is built in the background, a new snapshot is built.
+     */
+    public Snapshot get() {
+        return this.snapshot.get();
+    }
+
+    /**
+     * Requests a new snapshot to be built in the background, e.g. because the state of an appliance changed.
+     */
+    public void requestUpdate() {
+        this.snapshot.requestUpdate();
+    }
+
+    private Snapshot build(LocalDateTime now, Snapshot previous) {
+        List<ApplianceStatus> applianceStatuses = builder.createApplianceStatuses(now);
+        byte[] bytes = GensonHttpMessageConverter.serialize(applianceStatuses);
+        if(previous == null || ! Arrays.equals(previous.getBytes(), bytes)) {
+            version++;
+        }
+        return new Snapshot(now, applianceStatuses, bytes, "\"" + etagPrefix + "-" + version + "\"");
+    }
+}
@@ -43,20 +43,25 @@ public class GensonHttpMessageConverter implements HttpMessageConverter {
 
     private Logger logger = LoggerFactory.getLogger(GensonHttpMessageConverter.class);
     public static final Charset DEFAULT_CHARSET = Charset.forName("UTF-8");
+    private static final Genson genson = new GensonBuilder()
+            .useFields(true, VisibilityFilter.PRIVATE)
+            .useMethods(false)
+            .useClassMetadata(true)
+            .useRuntimeType(true)
+            .create();
     private List<MediaType> supportedMediaTypes = new ArrayList<>();
-    private Genson genson;
 
     public GensonHttpMessageConverter() {
         this.supportedMediaTypes.add(MediaType.APPLICATION_JSON);
         this.supportedMediaTypes.add(MediaType.APPLICATION_JSON_UTF8);
         this.supportedMediaTypes.add(new MediaType("application", "*+json", DEFAULT_CHARSET));
+    }
 
-        this.genson = new GensonBuilder()
-                .useFields(true, VisibilityFilter.PRIVATE)
-                .useMethods(false)
-                .useClassMetadata(true)
-                .useRuntimeType(true)
-                .create();
+    /**
+     * Returns the JSON representation of the object exactly as written by this converter.
+     */
+    public static byte[] serialize(Object object) {
+        return genson.serialize(object).getBytes();
     }
 
     @Override
@@ -78,13 +83,12 @@ public class GensonHttpMessageConverter implements HttpMessageConverter {
     public Object read(Class toType, HttpInputMessage httpInputMessage) throws IOException, HttpMessageNotReadableException {
         logger.trace("Deserializing JSON to " + toType);
         String body = StreamUtils.copyToString(httpInputMessage.getBody(), Charset.defaultCharset());
-        return this.genson.deserialize(body, toType);
+        return genson.deserialize(body, toType);
     }
 
     @Override
     public void write(Object object, MediaType mediaType, HttpOutputMessage httpOutputMessage) throws IOException, HttpMessageNotWritableException {
         logger.trace("Serializing " + object.getClass() + " to JSON");
-        String json = this.genson.serialize(object);
-        httpOutputMessage.getBody().write(json.getBytes());
+        httpOutputMessage.getBody().write(serialize(object));
     }
 }
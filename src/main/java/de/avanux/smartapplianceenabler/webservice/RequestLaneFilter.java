@@ -0,0 +1,244 @@
+/*
+ * Copyright (C) 2021 Axel Müller <axel.mueller@avanux.de>
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package de.avanux.smartapplianceenabler.webservice;
+
+import de.avanux.smartapplianceenabler.util.LatencyStatistics;
+import de.avanux.smartapplianceenabler.util.MetricsLogger;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Separates the requests of the energy manager (SEMP) from the requests of the web UI by processing them in lanes
+ * of their own, so that UI traffic cannot delay SEMP requests. Only requests of the REST API of the web UI
+ * are processed in the UI lane; static resources of the web UI are not limited.
+ * <p>
+ * Each lane limits the number of requests processed concurrently. Requests exceeding the limit wait for a bounded
+ * time in a bounded queue. The UI lane sheds load: requests not admitted are answered with 503 (Service Unavailable)
+ * and a Retry-After header immediately, which keeps the worker threads of the web server available for SEMP.
+ * The limits can be set with system properties: {@value #SEMP_THREADS_PROPERTY}, {@value #UI_THREADS_PROPERTY},
+ * {@value #UI_QUEUE_SIZE_PROPERTY} and {@value #UI_QUEUE_TIMEOUT_PROPERTY} (milliseconds).
+ * The metrics of the lanes are logged periodically by {@link MetricsLogger}.
+ */
+public class RequestLaneFilter implements Filter {
+    public static final String SEMP_THREADS_PROPERTY = "sae.lane.semp.threads";
+    public static final String UI_THREADS_PROPERTY = "sae.lane.ui.threads";
+    public static final String UI_QUEUE_SIZE_PROPERTY = "sae.lane.ui.queueSize";
+    public static final String UI_QUEUE_TIMEOUT_PROPERTY = "sae.lane.ui.queueTimeout";
+    private static final String SEMP_PATH = "/semp";
+    private static final String UI_API_PATH = "/sae";
+    private static final int DEFAULT_SEMP_THREADS = 4;
+    private static final int DEFAULT_SEMP_QUEUE_SIZE = 32;
+    private static final long DEFAULT_SEMP_QUEUE_TIMEOUT_MILLIS = 30000;
+    private static final int DEFAULT_UI_THREADS = 4;
+    private static final int DEFAULT_UI_QUEUE_SIZE = 16;
+    private static final long DEFAULT_UI_QUEUE_TIMEOUT_MILLIS = 2000;
+    private static final int RETRY_AFTER_SECONDS = 1;
+    private transient Logger logger = LoggerFactory.getLogger(RequestLaneFilter.class);
+    private RequestLane sempLane;
+    private RequestLane uiLane;
+
+    public RequestLaneFilter() {
+        this(new RequestLane("SEMP", Integer.getInteger(SEMP_THREADS_PROPERTY, DEFAULT_SEMP_THREADS),
+                        DEFAULT_SEMP_QUEUE_SIZE, DEFAULT_SEMP_QUEUE_TIMEOUT_MILLIS),
+                new RequestLane("UI", Integer.getInteger(UI_THREADS_PROPERTY, DEFAULT_UI_THREADS),
+                        Integer.getInteger(UI_QUEUE_SIZE_PROPERTY, DEFAULT_UI_QUEUE_SIZE),
+                        Long.getLong(UI_QUEUE_TIMEOUT_PROPERTY, DEFAULT_UI_QUEUE_TIMEOUT_MILLIS)));
+        MetricsLogger.getInstance().register("RequestLane.SEMP", this.sempLane::toString);
+        MetricsLogger.getInstance().register("RequestLane.UI", this.uiLane::toString);
+    }
+
+    public RequestLaneFilter(RequestLane sempLane, RequestLane uiLane) {
+        this.sempLane = sempLane;
+        this.uiLane = uiLane;
+    }
+
+    public RequestLane getSempLane() {
+        return sempLane;
+    }
+
+    public RequestLane getUiLane() {
+        return uiLane;
+    }
+
+    @Override
+    public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain)
+            throws IOException, ServletException {
+        RequestLane lane = getLane((HttpServletRequest) request);
+        if(lane == null) {
+            chain.doFilter(request, response);
+            return;
+        }
+        long startNanos = System.nanoTime();
+        if(! lane.enter()) {
+            logger.warn("{} lane overloaded - rejecting request {}", lane.getName(),
+                    ((HttpServletRequest) request).getRequestURI());
+            HttpServletResponse httpResponse = (HttpServletResponse) response;
+            httpResponse.setHeader("Retry-After", String.valueOf(RETRY_AFTER_SECONDS));
+            httpResponse.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+            return;
+        }
+        try {
+            chain.doFilter(request, response);
+        }
+        finally {
+            lane.exit(startNanos);
+        }
+    }
+
+    /**
+     * Returns the lane of the request or null if the request is not processed in a lane.
+     */
+    private RequestLane getLane(HttpServletRequest request) {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        if(isPathWithin(path, SEMP_PATH)) {
+            return sempLane;
+        }
+        if(isPathWithin(path, UI_API_PATH)) {
+            return uiLane;
+        }
+        return null;
+    }
+
+    private boolean isPathWithin(String path, String basePath) {
+        return path.startsWith(basePath)
+                && (path.length() == basePath.length() || path.charAt(basePath.length()) == '/');
+    }
+
+    /**
+     * Limits the number of requests processed concurrently and records the latency of the requests processed.
+     */
+    public static class RequestLane {
+        private String name;
+        private int threads;
+        private Semaphore permits;
+        private int maxQueueSize;
+        private long queueTimeoutMillis;
+        private AtomicInteger queued = new AtomicInteger();
+        private AtomicInteger active = new AtomicInteger();
+        private volatile int maxActive;
+        private AtomicLong rejected = new AtomicLong();
+        private LatencyStatistics latencies = new LatencyStatistics();
+
+        public RequestLane(String name, int threads, int maxQueueSize, long queueTimeoutMillis) {
+            this.name = name;
+            this.threads = threads;
+            this.permits = new Semaphore(threads, true);
+            this.maxQueueSize = maxQueueSize;
+            this.queueTimeoutMillis = queueTimeoutMillis;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * Admits a request to the lane waiting for a free slot if necessary.
+         * @return false, if the request has not been admitted and has to be rejected
+         */
+        boolean enter() {
+            if(! permits.tryAcquire()) {
+                if(queued.incrementAndGet() > maxQueueSize) {
+                    queued.decrementAndGet();
+                    rejected.incrementAndGet();
+                    return false;
+                }
+                try {
+                    if(! permits.tryAcquire(queueTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                        rejected.incrementAndGet();
+                        return false;
+                    }
+                }
+                catch(InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    rejected.incrementAndGet();
+                    return false;
+                }
+                finally {
+                    queued.decrementAndGet();
+                }
+            }
+            int active = this.active.incrementAndGet();
+            if(active > maxActive) {
+                maxActive = active;
+            }
+            return true;
+        }
+
+        /**
+         * Leaves the lane recording the latency of the request including the time waited for admission.
+         */
+        void exit(long startNanos) {
+            active.decrementAndGet();
+            permits.release();
+            latencies.record(System.nanoTime() - startNanos);
+        }
+
+        public int getThreads() {
+            return threads;
+        }
+
+        public int getActiveCount() {
+            return active.get();
+        }
+
+        public int getMaxActiveCount() {
+            return maxActive;
+        }
+
+        public int getQueuedCount() {
+            return queued.get();
+        }
+
+        public long getCompletedCount() {
+            return latencies.getCount();
+        }
+
+        public long getRejectedCount() {
+            return rejected.get();
+        }
+
+        /**
+         * Returns the time in milliseconds between arrival and completion of the requests.
+         */
+        public LatencyStatistics getLatencies() {
+            return latencies;
+        }
+
+        @Override
+        public String toString() {
+            return "RequestLane " + name + "[threads=" + getThreads() + " active=" + getActiveCount()
+                    + " maxActive=" + getMaxActiveCount() + " queued=" + getQueuedCount()
+                    + " completed=" + getCompletedCount() + " rejected=" + getRejectedCount()
+                    + " " + latencies + "]";
+        }
+    }
+}
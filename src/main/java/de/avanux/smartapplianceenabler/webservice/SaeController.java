@@ -39,12 +39,15 @@ import de.avanux.smartapplianceenabler.notification.NotificationHandler;
 import de.avanux.smartapplianceenabler.schedule.*;
 import de.avanux.smartapplianceenabler.semp.webservice.*;
 
-import java.time.Duration;
 import java.time.LocalDateTime;
 
 import de.avanux.smartapplianceenabler.util.FileHandler;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import javax.servlet.http.HttpServletResponse;
@@ -79,6 +82,7 @@ public class SaeController {
     private Logger logger = LoggerFactory.getLogger(SaeController.class);
     // the lock ensures that no data is changed or read while appliances are restarted
     private final Object lock = new Object();
+    private ApplianceStatusBuilder applianceStatusBuilder = new ApplianceStatusBuilder();
 
     public SaeController() {
         logger.info("SAE controller created.");
@@ -91,12 +95,7 @@ public class SaeController {
      * @return
      */
     private DeviceInfo getDeviceInfo(String applianceId) {
-        for (DeviceInfo deviceInfo : ApplianceManager.getInstance().getDevice2EM().getDeviceInfo()) {
-            if (deviceInfo.getIdentification().getDeviceId().equals(applianceId)) {
-                return deviceInfo;
-            }
-        }
-        return null;
+        return ApplianceManager.getInstance().getDeviceInfo(applianceId);
     }
 
     private ApplianceHeader toApplianceHeader(Appliance appliance, DeviceInfo deviceInfo) {
@@ -188,18 +187,16 @@ public class SaeController {
         synchronized (lock) {
             try {
                 logger.debug("{}: Received request for ApplianceInfo", applianceId);
-                Device2EM device2EM = ApplianceManager.getInstance().getDevice2EM();
-                for (DeviceInfo deviceInfo : device2EM.getDeviceInfo()) {
-                    if (deviceInfo.getIdentification().getDeviceId().equals(applianceId)) {
-                        ApplianceInfo applianceInfo = toApplianceInfo(deviceInfo);
+                DeviceInfo deviceInfo = getDeviceInfo(applianceId);
+                if (deviceInfo != null) {
+                    ApplianceInfo applianceInfo = toApplianceInfo(deviceInfo);
 
-                        Appliance appliance = ApplianceManager.getInstance().getAppliance(applianceId);
-                        if(appliance != null && appliance.getNotification() != null) {
-                            applianceInfo.setNotificationSenderId(appliance.getNotification().getSenderId());
-                        }
-                        logger.debug("{}: Returning ApplianceInfo {}", applianceId, applianceInfo);
-                        return applianceInfo;
+                    Appliance appliance = ApplianceManager.getInstance().getAppliance(applianceId);
+                    if(appliance != null && appliance.getNotification() != null) {
+                        applianceInfo.setNotificationSenderId(appliance.getNotification().getSenderId());
                     }
+                    logger.debug("{}: Returning ApplianceInfo {}", applianceId, applianceInfo);
+                    return applianceInfo;
                 }
                 logger.error("{}: Appliance not found.", applianceId);
                 response.setStatus(HttpServletResponse.SC_NOT_FOUND);
@@ -834,113 +831,35 @@ public class SaeController {
 
     @RequestMapping(value = STATUS_URL, method = RequestMethod.GET, produces = "application/json")
     @CrossOrigin(origins = CROSS_ORIGIN_URL)
-    public List<ApplianceStatus> getApplianceStatus(HttpServletResponse response) {
-        synchronized (lock) {
+    public ResponseEntity<byte[]> getApplianceStatus(
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        if(ApplianceManager.getInstance().isInitializationCompleted()) {
             try {
-                return getApplianceStatus(LocalDateTime.now(), response);
+                logger.debug("Received request for ApplianceStatus");
+                ApplianceStatusSnapshot.Snapshot snapshot = ApplianceStatusSnapshot.getInstance().get();
+                if(snapshot.matches(ifNoneMatch)) {
+                    return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(snapshot.getEtag()).build();
+                }
+                return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).eTag(snapshot.getEtag())
+                        .body(snapshot.getBytes());
             } catch (Throwable e) {
                 logger.error("Error in " + getClass().getSimpleName(), e);
+                return null;
             }
         }
-        return null;
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).contentType(MediaType.APPLICATION_JSON)
+                .body("[]".getBytes());
     }
 
     public List<ApplianceStatus> getApplianceStatus(LocalDateTime now, HttpServletResponse response) {
         logger.debug("Received request for ApplianceStatus");
-        List<ApplianceStatus> applianceStatuses = new ArrayList<>();
         if(!ApplianceManager.getInstance().isInitializationCompleted()) {
             if(response != null) {
                 response.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
             }
-            return applianceStatuses;
-        }
-        for (Appliance appliance : ApplianceManager.getInstance().getAppliances()) {
-            DeviceInfo deviceInfo = getDeviceInfo(appliance.getId());
-            Identification identification = null;
-            if (deviceInfo != null) {
-                identification = deviceInfo.getIdentification();
-            }
-
-            ApplianceStatus applianceStatus = new ApplianceStatus();
-            applianceStatus.setId(appliance.getId());
-            if (identification != null) {
-                applianceStatus.setName(identification.getDeviceName());
-                applianceStatus.setVendor(identification.getDeviceVendor());
-                applianceStatus.setType(identification.getDeviceType());
-            }
-
-            if (appliance.isControllable()) {
-                applianceStatus.setControllable(true);
-                Control control = appliance.getControl();
-                Meter meter = appliance.getMeter();
-                applianceStatus.setOn(control.isOn());
-                TimeframeInterval nextTimeframeInterval
-                        = appliance.getTimeframeIntervalHandler().getQueue().size() > 0
-                        ? appliance.getTimeframeIntervalHandler().getQueue().get(0)
-                        : null;
-                if (nextTimeframeInterval != null) {
-                    applianceStatus.setPlanningRequested(true);
-                    if(nextTimeframeInterval.getRequest().isEnabled()) {
-                        applianceStatus.setEarliestStart(nextTimeframeInterval.getEarliestStartSeconds(now));
-                        applianceStatus.setLatestStart(nextTimeframeInterval.getLatestStartSeconds(now));
-                    }
-                    applianceStatus.setOptionalEnergy(nextTimeframeInterval.getRequest().isUsingOptionalEnergy(now));
-                    if (nextTimeframeInterval.getState() == TimeframeIntervalState.QUEUED) {
-                        applianceStatus.setRunningTime(0);
-                        applianceStatus.setRemainingMinRunningTime(nextTimeframeInterval.getRequest().getMin(now));
-                        applianceStatus.setRemainingMaxRunningTime(nextTimeframeInterval.getRequest().getMax(now));
-                    }
-                }
-                if (control instanceof ElectricVehicleCharger) {
-                    ElectricVehicleCharger evCharger = (ElectricVehicleCharger) control;
-                    applianceStatus.setState(evCharger.getState().name());
-                    if(!evCharger.isVehicleNotConnected()) {
-                        applianceStatus.setEvIdCharging(evCharger.getConnectedVehicleId());
-                        ZonedDateTime zdt = ZonedDateTime.of(evCharger.getStateLastChangedTimestamp(), ZoneId.systemDefault());
-                        applianceStatus.setStateLastChangedTimestamp(zdt.toInstant().toEpochMilli());
-                        applianceStatus.setSocInitial(evCharger.getSocInitial());
-                        applianceStatus.setSocInitialTimestamp(evCharger.getSocInitialTimestamp());
-                        applianceStatus.setSoc(evCharger.getSocCurrent());
-
-                        int whAlreadyCharged = 0;
-                        Integer chargePower = evCharger.getChargePower();
-                        if (meter != null) {
-                            whAlreadyCharged = Float.valueOf(meter.getEnergy() * 1000.0f).intValue();
-                            chargePower = meter.getAveragePower();
-                        }
-                        if (control.isOn()) {
-                            applianceStatus.setCurrentChargePower(chargePower);
-                        }
-                        applianceStatus.setChargedEnergyAmount(whAlreadyCharged);
-                        int whRemainingToCharge = 0;
-                        if(nextTimeframeInterval != null
-                                && nextTimeframeInterval.getRequest() instanceof AbstractEnergyRequest) {
-                            Integer max = nextTimeframeInterval.getRequest().getMax(now);
-                            whRemainingToCharge = max != null ? max : 0;
-                        }
-                        if (nextTimeframeInterval != null && !nextTimeframeInterval.getRequest().isUsingOptionalEnergy(now)) {
-                            applianceStatus.setPlannedEnergyAmount(whAlreadyCharged + whRemainingToCharge);
-                            applianceStatus.setLatestEnd(nextTimeframeInterval.getLatestEndSeconds(now));
-                        }
-                    }
-                }
-                if (nextTimeframeInterval != null && nextTimeframeInterval.getState() == TimeframeIntervalState.ACTIVE) {
-                    applianceStatus.setPlanningRequested(true);
-                    applianceStatus.setRunningTime(nextTimeframeInterval.getRequest().getRuntime(now));
-                    applianceStatus.setRemainingMinRunningTime(nextTimeframeInterval.getRequest().getMin(now));
-                    applianceStatus.setRemainingMaxRunningTime(nextTimeframeInterval.getRequest().getMax(now));
-                    if (! nextTimeframeInterval.getRequest().isEnabled() && nextTimeframeInterval.getRequest().isEnabledBefore()) {
-                        applianceStatus.setInterruptedSince(
-                            Long.valueOf(
-                                    Duration.between(nextTimeframeInterval.getRequest().getControlStatusChangedAt(), now).toSeconds()
-                            ).intValue());
-                    }
-                }
-            }
-
-            applianceStatuses.add(applianceStatus);
+            return new ArrayList<>();
         }
-        return applianceStatuses;
+        return applianceStatusBuilder.createApplianceStatuses(now);
     }
 
     @RequestMapping(value = FILE_URL, method = RequestMethod.GET)
@@ -22,9 +22,11 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.autoconfigure.http.HttpMessageConverters;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.ComponentScan;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
 import org.springframework.core.io.Resource;
 import org.springframework.http.CacheControl;
 import org.springframework.http.converter.HttpMessageConverter;
@@ -53,6 +55,14 @@ public class WebConfig implements WebMvcConfigurer {
         return new InternalResourceViewResolver();
     }
 
+    @Bean
+    public FilterRegistrationBean<RequestLaneFilter> requestLaneFilter() {
+        FilterRegistrationBean<RequestLaneFilter> registration = new FilterRegistrationBean<>(new RequestLaneFilter());
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE);
+        logger.debug("Registered " + RequestLaneFilter.class.getName());
+        return registration;
+    }
+
     @Override
     public void addViewControllers(ViewControllerRegistry registry) {
         registry.addViewController("/").setViewName("forward:/static/index.html");
@@ -0,0 +1,83 @@
+/*
+ * Copyright (C) 2021 Axel Müller <axel.mueller@avanux.de>
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package de.avanux.smartapplianceenabler.appliance;
+
+import de.avanux.smartapplianceenabler.semp.webservice.Device2EM;
+import de.avanux.smartapplianceenabler.semp.webservice.DeviceInfo;
+import de.avanux.smartapplianceenabler.semp.webservice.Identification;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ApplianceRegistryTest {
+
+    private Appliance buildAppliance(String id) {
+        Appliance appliance = new Appliance();
+        appliance.setId(id);
+        return appliance;
+    }
+
+    private DeviceInfo buildDeviceInfo(String deviceId) {
+        Identification identification = new Identification();
+        identification.setDeviceId(deviceId);
+        DeviceInfo deviceInfo = new DeviceInfo();
+        deviceInfo.setIdentification(identification);
+        return deviceInfo;
+    }
+
+    @Test
+    public void lookupById() {
+        Appliance appliance1 = buildAppliance("F-001");
+        Appliance appliance2 = buildAppliance("F-002");
+        DeviceInfo deviceInfo2 = buildDeviceInfo("F-002");
+        Device2EM device2EM = new Device2EM();
+        device2EM.setDeviceInfo(Arrays.asList(buildDeviceInfo("F-001"), deviceInfo2));
+
+        ApplianceRegistry registry = new ApplianceRegistry(Arrays.asList(appliance1, appliance2), device2EM);
+        assertSame(appliance2, registry.getAppliance("F-002"));
+        assertSame(deviceInfo2, registry.getDeviceInfo("F-002"));
+        assertNull(registry.getAppliance("F-003"));
+        assertNull(registry.getDeviceInfo(null));
+        assertNull(registry.getDeviceStatus("F-001"));
+        assertEquals(Arrays.asList(appliance1, appliance2), registry.getAppliances());
+    }
+
+    @Test
+    public void duplicateIds_firstWins() {
+        Appliance appliance1 = buildAppliance("F-001");
+        ApplianceRegistry registry = new ApplianceRegistry(Arrays.asList(appliance1, buildAppliance("F-001")), null);
+        assertSame(appliance1, registry.getAppliance("F-001"));
+        assertEquals(2, registry.size());
+    }
+
+    @Test
+    public void immutable() {
+        List<Appliance> appliances = new ArrayList<>(Arrays.asList(buildAppliance("F-001")));
+        ApplianceRegistry registry = new ApplianceRegistry(appliances, null);
+        appliances.add(buildAppliance("F-002"));
+        assertEquals(1, registry.getAppliances().size());
+        assertNull(registry.getAppliance("F-002"));
+        assertThrows(UnsupportedOperationException.class, () -> registry.getAppliances().clear());
+        assertTrue(ApplianceRegistry.EMPTY.getDeviceInfos().isEmpty());
+    }
+}
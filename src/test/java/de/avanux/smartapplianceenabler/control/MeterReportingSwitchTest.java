@@ -21,10 +21,10 @@ package de.avanux.smartapplianceenabler.control;
 import de.avanux.smartapplianceenabler.meter.Meter;
 import de.avanux.smartapplianceenabler.notification.NotificationHandler;
 import de.avanux.smartapplianceenabler.notification.NotificationType;
+import de.avanux.smartapplianceenabler.util.TaskScheduler;
 import org.junit.jupiter.api.*;
 
 import java.time.LocalDateTime;
-import java.util.Timer;
 
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
@@ -46,7 +46,7 @@ public class MeterReportingSwitchTest {
         meterReportingSwitch.setNotificationHandler(notificationHandler);
         meterReportingSwitch.setApplianceId("F-001");
         meterReportingSwitch.init();
-        meterReportingSwitch.start(now, mock(Timer.class));
+        meterReportingSwitch.start(now, mock(TaskScheduler.class));
     }
 
     @AfterEach
@@ -0,0 +1,107 @@
+/*
+ * Copyright (C) 2021 Axel Müller <axel.mueller@avanux.de>
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package de.avanux.smartapplianceenabler.http;
+
+import com.sun.net.httpserver.BasicAuthenticator;
+import com.sun.net.httpserver.HttpContext;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class HttpClientPoolTest {
+
+    private HttpServer server;
+    private Set<Integer> clientPorts = Collections.synchronizedSet(new HashSet<>());
+    private AtomicInteger unauthorizedCount = new AtomicInteger();
+    private String baseUrl;
+
+    @BeforeEach
+    public void setup() throws Exception {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/status", exchange -> {
+            clientPorts.add(exchange.getRemoteAddress().getPort());
+            respond(exchange);
+        });
+        HttpContext secured = server.createContext("/secured", this::respond);
+        secured.setAuthenticator(new BasicAuthenticator("sae") {
+            @Override
+            public Result authenticate(HttpExchange exchange) {
+                Result result = super.authenticate(exchange);
+                if(result instanceof Retry) {
+                    unauthorizedCount.incrementAndGet();
+                }
+                return result;
+            }
+
+            @Override
+            public boolean checkCredentials(String username, String password) {
+                return "admin".equals(username) && "secret".equals(password);
+            }
+        });
+        server.start();
+        baseUrl = "http://localhost:" + server.getAddress().getPort();
+    }
+
+    private void respond(HttpExchange exchange) throws IOException {
+        byte[] body = "{\"power\":42}".getBytes(StandardCharsets.UTF_8);
+        exchange.sendResponseHeaders(200, body.length);
+        try(OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    @AfterEach
+    public void tearDown() {
+        server.stop(0);
+    }
+
+    @Test
+    public void execute_connectionReused() {
+        HttpTransactionExecutor executor = new HttpTransactionExecutor();
+        for(int i=0; i<3; i++) {
+            assertEquals("{\"power\":42}", executor.execute(HttpMethod.GET, baseUrl + "/status", null));
+        }
+        assertEquals(1, clientPorts.size());
+    }
+
+    @Test
+    public void execute_credentialsCached() {
+        HttpTransactionExecutor executor = new HttpTransactionExecutor();
+        executor.setConfiguration(new HttpConfiguration(null, "admin", "secret"));
+        for(int i=0; i<3; i++) {
+            assertNotNull(executor.execute(HttpMethod.GET, baseUrl + "/secured", null));
+        }
+        // only the first request has to wait for the authentication challenge
+        assertEquals(1, unauthorizedCount.get());
+    }
+}
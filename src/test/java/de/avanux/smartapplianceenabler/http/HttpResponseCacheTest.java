@@ -0,0 +1,112 @@
+/*
+ * Copyright (C) 2021 Axel Müller <axel.mueller@avanux.de>
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package de.avanux.smartapplianceenabler.http;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class HttpResponseCacheTest {
+
+    private static final String URL = "http://192.168.1.1/status";
+    private AtomicInteger requests = new AtomicInteger();
+
+    @Test
+    public void get_concurrentRequestsShareResponse() throws Exception {
+        HttpResponseCache cut = new HttpResponseCache(0);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<String> first = CompletableFuture.supplyAsync(() ->
+                cut.get(HttpMethod.GET, URL, null, null, () -> {
+                    requests.incrementAndGet();
+                    await(release);
+                    return "first";
+                }));
+        while(requests.get() == 0) {
+            Thread.sleep(5);
+        }
+        CompletableFuture<String> second = CompletableFuture.supplyAsync(() ->
+                cut.get(HttpMethod.GET, URL, null, null, this::load));
+        Thread.sleep(50);
+        release.countDown();
+        assertEquals("first", first.get(2, TimeUnit.SECONDS));
+        assertEquals("first", second.get(2, TimeUnit.SECONDS));
+        assertEquals(1, requests.get());
+    }
+
+    @Test
+    public void get_freshResponseShared() {
+        HttpResponseCache cut = new HttpResponseCache(60000);
+        assertEquals("1", cut.get(HttpMethod.GET, URL, null, null, this::load));
+        assertEquals("1", cut.get(HttpMethod.GET, URL, null, null, this::load));
+        assertEquals(1, requests.get());
+    }
+
+    @Test
+    public void get_differentCredentialsNotShared() {
+        HttpResponseCache cut = new HttpResponseCache(60000);
+        assertEquals("1", cut.get(HttpMethod.GET, URL, null,
+                new HttpConfiguration(null, "admin", "secret"), this::load));
+        assertEquals("2", cut.get(HttpMethod.GET, URL, null,
+                new HttpConfiguration(null, "admin", "other"), this::load));
+    }
+
+    @Test
+    public void get_expiredResponseNotShared() throws Exception {
+        HttpResponseCache cut = new HttpResponseCache(10);
+        assertEquals("1", cut.get(HttpMethod.GET, URL, null, null, this::load));
+        Thread.sleep(20);
+        assertEquals("2", cut.get(HttpMethod.GET, URL, null, null, this::load));
+    }
+
+    @Test
+    public void get_failedRequestNotShared() {
+        HttpResponseCache cut = new HttpResponseCache(60000);
+        assertNull(cut.get(HttpMethod.GET, URL, null, null, () -> null));
+        assertEquals("1", cut.get(HttpMethod.GET, URL, null, null, this::load));
+    }
+
+    @Test
+    public void invalidate_responsesOfHostOnly() {
+        HttpResponseCache cut = new HttpResponseCache(60000);
+        String otherUrl = "http://192.168.1.2/status";
+        assertEquals("1", cut.get(HttpMethod.GET, URL, null, null, this::load));
+        assertEquals("2", cut.get(HttpMethod.GET, otherUrl, null, null, this::load));
+        cut.invalidate("http://192.168.1.1/relay/0?turn=on");
+        assertEquals("3", cut.get(HttpMethod.GET, URL, null, null, this::load));
+        assertEquals("2", cut.get(HttpMethod.GET, otherUrl, null, null, this::load));
+    }
+
+    private String load() {
+        return String.valueOf(requests.incrementAndGet());
+    }
+
+    private void await(CountDownLatch latch) {
+        try {
+            latch.await(2, TimeUnit.SECONDS);
+        }
+        catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
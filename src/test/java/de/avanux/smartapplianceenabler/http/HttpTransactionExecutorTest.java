@@ -0,0 +1,82 @@
+/*
+ * Copyright (C) 2021 Axel Müller <axel.mueller@avanux.de>
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package de.avanux.smartapplianceenabler.http;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class HttpTransactionExecutorTest {
+
+    private HttpServer server;
+    private String baseUrl;
+    private volatile boolean on;
+
+    @BeforeEach
+    public void setup() throws Exception {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/status", exchange -> respond(exchange, "{\"ison\":" + on + "}"));
+        server.createContext("/relay", exchange -> {
+            on = exchange.getRequestURI().getQuery().equals("turn=on");
+            respond(exchange, "{}");
+        });
+        server.start();
+        baseUrl = "http://localhost:" + server.getAddress().getPort();
+    }
+
+    private void respond(HttpExchange exchange, String response) throws IOException {
+        byte[] body = response.getBytes(StandardCharsets.UTF_8);
+        exchange.sendResponseHeaders(200, body.length);
+        try(OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    @AfterEach
+    public void tearDown() {
+        server.stop(0);
+    }
+
+    @Test
+    public void executeRead_afterExecuteLeaveOpen() {
+        HttpTransactionExecutor executor = new HttpTransactionExecutor();
+        assertEquals("{\"ison\":false}", executor.executeRead(HttpMethod.GET, baseUrl + "/status", null));
+        executor.closeResponse(executor.executeLeaveOpen(HttpMethod.GET, baseUrl + "/relay?turn=on", null));
+        assertEquals("{\"ison\":true}", executor.executeRead(HttpMethod.GET, baseUrl + "/status", null));
+    }
+
+    @Test
+    public void executeRead_afterExecute() {
+        HttpTransactionExecutor executor = new HttpTransactionExecutor();
+        executor.execute(HttpMethod.GET, baseUrl + "/relay?turn=on", null);
+        assertEquals("{\"ison\":true}", executor.executeRead(HttpMethod.GET, baseUrl + "/status", null));
+        executor.execute(HttpMethod.GET, baseUrl + "/relay?turn=off", null);
+        assertEquals("{\"ison\":false}", executor.executeRead(HttpMethod.GET, baseUrl + "/status", null));
+    }
+}
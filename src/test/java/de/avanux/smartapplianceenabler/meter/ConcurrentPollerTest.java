@@ -0,0 +1,86 @@
+/*
+ * Copyright (C) 2021 Axel Müller <axel.mueller@avanux.de>
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package de.avanux.smartapplianceenabler.meter;
+
+import de.avanux.smartapplianceenabler.util.TaskScheduler;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ConcurrentPollerTest {
+
+    private TaskScheduler timer;
+
+    @BeforeEach
+    public void setup() {
+        timer = new TaskScheduler(2);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        timer.cancel();
+    }
+
+    @Test
+    public void poll_withoutTimer() {
+        ConcurrentPoller cut = new ConcurrentPoller("F-001", "Test", 1000);
+        CompletableFuture<Double> result = new CompletableFuture<>();
+        cut.poll(null, () -> 42.0, result::complete);
+        assertEquals(42.0, result.getNow(null));
+    }
+
+    @Test
+    public void poll_withinDeadline() throws Exception {
+        ConcurrentPoller cut = new ConcurrentPoller("F-001", "Test", 1000);
+        CompletableFuture<Double> result = new CompletableFuture<>();
+        cut.poll(timer, () -> 42.0, result::complete);
+        assertEquals(42.0, result.get(2, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void poll_deadlineMissed() throws Exception {
+        ConcurrentPoller cut = new ConcurrentPoller("F-001", "Test", 100);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<Double> result = new CompletableFuture<>();
+        long start = System.currentTimeMillis();
+        cut.poll(timer, () -> {
+            try {
+                release.await(2, TimeUnit.SECONDS);
+            }
+            catch(InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return 42.0;
+        }, result::complete);
+        assertNull(result.get(2, TimeUnit.SECONDS));
+        assertTrue(System.currentTimeMillis() - start < 1000);
+
+        // the device has not answered yet - the next poll must not pile up
+        CompletableFuture<Double> nextResult = new CompletableFuture<>();
+        cut.poll(timer, () -> 43.0, nextResult::complete);
+        assertNull(nextResult.get(2, TimeUnit.SECONDS));
+        release.countDown();
+    }
+}
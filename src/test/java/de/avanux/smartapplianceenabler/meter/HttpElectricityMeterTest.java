@@ -54,7 +54,7 @@ public class HttpElectricityMeterTest extends TestBase {
         HttpReadValue powerReadValue = new HttpReadValue(MeterValueName.Power.name(), null, "<?xml version=\"1.0\" encoding=\"UTF8\"?><SMARTPLUG id=\"edimax\"><CMD id=\"get\"><NOW_POWER><Device.System.Power.NowCurrent></Device.System.Power.NowCurrent><Device.System.Power.NowPower></Device.System.Power.NowPower></NOW_POWER></CMD></SMARTPLUG>", ".*NowPower.(\\d+).*", null);
         read.setReadValues(Collections.singletonList(powerReadValue));
         meter.setHttpReads(Collections.singletonList(read));
-        Mockito.doReturn(edimaxSP2101WResponse).when(executorMock).execute(Mockito.any(), Mockito.any(), Mockito.any());
+        Mockito.doReturn(edimaxSP2101WResponse).when(executorMock).executeRead(Mockito.any(), Mockito.any(), Mockito.any());
         assertEquals(52.0, meter.pollPower(), 0.01);
     }
 
@@ -64,7 +64,7 @@ public class HttpElectricityMeterTest extends TestBase {
         HttpReadValue powerReadValue = new HttpReadValue(MeterValueName.Power.name(), null, null, ".*Power.:(\\d+).*", null);
         powerReadSpy.setReadValues(Collections.singletonList(powerReadValue));
         meter.setHttpReads(Collections.singletonList(powerReadSpy));
-        Mockito.doReturn(sonoffPowResponse).when(executorMock).execute(Mockito.any(), Mockito.any(), Mockito.any());
+        Mockito.doReturn(sonoffPowResponse).when(executorMock).executeRead(Mockito.any(), Mockito.any(), Mockito.any());
         assertEquals(26.0, meter.pollPower(), 0.01);
     }
 
@@ -74,7 +74,7 @@ public class HttpElectricityMeterTest extends TestBase {
         HttpReadValue powerReadValue = new HttpReadValue(MeterValueName.Power.name(), null, null, ".*RealPower.*\\n(\\d+\\,\\d{2}) kW.*Energy \\(present session\\).*", null);
         powerReadSpy.setReadValues(Collections.singletonList(powerReadValue));
         meter.setHttpReads(Collections.singletonList(powerReadSpy));
-        Mockito.doReturn(keContactP30Response).when(executorMock).execute(Mockito.any(), Mockito.any(), Mockito.any());
+        Mockito.doReturn(keContactP30Response).when(executorMock).executeRead(Mockito.any(), Mockito.any(), Mockito.any());
         assertEquals(12.34, meter.pollPower(), 0.01);
     }
 
@@ -90,11 +90,11 @@ public class HttpElectricityMeterTest extends TestBase {
         LocalDateTime now = LocalDateTime.now();
 
         String response = goEChargerStatus.replace((CharSequence) "dws\":\"0", (CharSequence) "dws\":\"360000"); // 1.0 kWh
-        Mockito.doReturn(response).when(executorMock).execute(Mockito.any(), Mockito.any(), Mockito.any());
+        Mockito.doReturn(response).when(executorMock).executeRead(Mockito.any(), Mockito.any(), Mockito.any());
         meter.getPollEnergyMeter().addValue(now);
 
         response = goEChargerStatus.replace((CharSequence) "dws\":\"0", (CharSequence) "dws\":\"366000");  // (1 + 1/60) * 1.0 kWh
-        Mockito.doReturn(response).when(executorMock).execute(Mockito.any(), Mockito.any(), Mockito.any());
+        Mockito.doReturn(response).when(executorMock).executeRead(Mockito.any(), Mockito.any(), Mockito.any());
         meter.getPollEnergyMeter().addValue(now.plusSeconds(60));
 
         assertEquals(1000, this.meter.getAveragePower());
@@ -116,11 +116,11 @@ public class HttpElectricityMeterTest extends TestBase {
         meter.setHttpReads(Collections.singletonList(energyReadSpy));
 
         String startResponse = goEChargerStatus.replace((CharSequence) "dws\":\"0", (CharSequence) "dws\":\"360000"); // 1.0 kWh
-        Mockito.doReturn(startResponse).when(executorMock).execute(Mockito.any(), Mockito.any(), Mockito.any());
+        Mockito.doReturn(startResponse).when(executorMock).executeRead(Mockito.any(), Mockito.any(), Mockito.any());
 
         this.meter.startEnergyMeter();
         String stopResponse = goEChargerStatus.replace((CharSequence) "dws\":\"0", (CharSequence) "dws\":\"720000"); // 2.0 kWh
-        Mockito.doReturn(stopResponse).when(executorMock).execute(Mockito.any(), Mockito.any(), Mockito.any());
+        Mockito.doReturn(stopResponse).when(executorMock).executeRead(Mockito.any(), Mockito.any(), Mockito.any());
         this.meter.stopEnergyMeter();
 
         assertEquals(1, this.meter.getEnergy(), 0.01);
@@ -51,6 +51,26 @@ public class PollEnergyMeterTest {
         assertEquals(6000, this.pollEnergyMeter.getAveragePower(), 1.5);
     }
 
+    @Test
+    public void getAveragePower_minMax() {
+        LocalDateTime now = LocalDateTime.now().minusSeconds(60);
+        this.pollEnergyMeter.addValue(now                , 1.1);
+        this.pollEnergyMeter.addValue(now.plusSeconds(30), 1.15);  // 6000W
+        this.pollEnergyMeter.addValue(now.plusSeconds(60), 1.175); // 3000W
+        assertEquals(3000, this.pollEnergyMeter.getAveragePower(), 1.5);
+        assertEquals(3000, this.pollEnergyMeter.getMinPower(), 1.5);
+        assertEquals(6000, this.pollEnergyMeter.getMaxPower(), 1.5);
+    }
+
+    @Test
+    public void getAveragePower_counterReset() {
+        LocalDateTime now = LocalDateTime.now();
+        this.pollEnergyMeter.addValue(now                , 5.0);
+        // counter restarted from 0 and has counted 0.1 kWh since
+        this.pollEnergyMeter.addValue(now.plusSeconds(60), 0.1);
+        assertEquals(6000, this.pollEnergyMeter.getAveragePower(), 1.5);
+    }
+
     @Test
     public void getEnergy_pollValueIncreases() {
         this.testPollEnergyExecutor.addEnergy(10.0f);
@@ -77,6 +97,19 @@ public class PollEnergyMeterTest {
         assertEquals(15.0f, this.pollEnergyMeter.getEnergy(), 0.01f);
     }
 
+    @Test
+    public void getEnergy_maxAge_servedFromPolledValue() {
+        this.pollEnergyMeter.startEnergyCounter();
+        this.pollEnergyMeter.addValue(LocalDateTime.now(), 105.0);
+        int polls = this.testPollEnergyExecutor.polls;
+        this.testPollEnergyExecutor.addEnergy(10.0f);
+        assertEquals(5.0f, this.pollEnergyMeter.getEnergy(60), 0.01f);
+        assertEquals(polls, this.testPollEnergyExecutor.polls);
+        // without timer the refresh of a value which is too old is done immediately
+        assertEquals(10.0f, this.pollEnergyMeter.getEnergy(-1), 0.01f);
+        assertEquals(polls + 1, this.testPollEnergyExecutor.polls);
+    }
+
     @Test
     public void calculatePower_afterReset() {
         LocalDateTime now = LocalDateTime.now();
@@ -90,6 +123,7 @@ public class PollEnergyMeterTest {
 
         public static final float INITIAL_POLL_VALUE = 100.0f;
         private double value = INITIAL_POLL_VALUE;
+        private int polls;
 
 
         public void addEnergy(double energy) {
@@ -98,6 +132,7 @@ public class PollEnergyMeterTest {
 
         @Override
         public Double pollEnergy(LocalDateTime now) {
+            this.polls++;
             return this.value;
         }
     }
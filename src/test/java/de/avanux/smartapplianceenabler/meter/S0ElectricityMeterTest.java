@@ -24,6 +24,8 @@ import com.pi4j.io.gpio.PinPullResistance;
 import com.pi4j.io.gpio.PinState;
 import org.junit.jupiter.api.Test;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.Mockito.*;
 
 public class S0ElectricityMeterTest {
@@ -50,6 +52,7 @@ public class S0ElectricityMeterTest {
     public void handleEvent_PullDown() {
         this.meter.handleEvent(gpioPin, PinState.HIGH, PinPullResistance.PULL_DOWN, timestamp);
         this.meter.handleEvent(gpioPin, PinState.LOW, PinPullResistance.PULL_DOWN, 90l);
+        this.meter.processPulses();
         verify(pulsePowerMeter).addTimestamp(timestamp);
         verify(pulseEnergyMeter).increasePulseCounter();
     }
@@ -58,6 +61,7 @@ public class S0ElectricityMeterTest {
     public void handleEvent_PullUp() {
         this.meter.handleEvent(gpioPin, PinState.LOW, PinPullResistance.PULL_UP, timestamp);
         this.meter.handleEvent(gpioPin, PinState.HIGH, PinPullResistance.PULL_UP, 90l);
+        this.meter.processPulses();
         verify(pulsePowerMeter).addTimestamp(timestamp);
         verify(pulseEnergyMeter).increasePulseCounter();
     }
@@ -66,6 +70,7 @@ public class S0ElectricityMeterTest {
     public void handleEvent_PullDown_ImpulseDurationTooShort() {
         this.meter.handleEvent(gpioPin, PinState.HIGH, PinPullResistance.PULL_DOWN, timestamp);
         this.meter.handleEvent(gpioPin, PinState.LOW, PinPullResistance.PULL_DOWN, 10l);
+        this.meter.processPulses();
         verify(pulsePowerMeter, never()).addTimestamp(timestamp);
         verify(pulseEnergyMeter, never()).increasePulseCounter();
     }
@@ -74,7 +79,67 @@ public class S0ElectricityMeterTest {
     public void handleEvent_PullUp_ImpulseDurationTooShort() {
         this.meter.handleEvent(gpioPin, PinState.LOW, PinPullResistance.PULL_UP, timestamp);
         this.meter.handleEvent(gpioPin, PinState.HIGH, PinPullResistance.PULL_UP, 10l);
+        this.meter.processPulses();
         verify(pulsePowerMeter, never()).addTimestamp(timestamp);
         verify(pulseEnergyMeter, never()).increasePulseCounter();
     }
+
+    @Test
+    public void notifyPowerUpdateListeners_coalesced() {
+        PowerUpdateListener listener = mock(PowerUpdateListener.class);
+        this.meter.addPowerUpdateListener(listener);
+        for(int i=0; i<3; i++) {
+            this.meter.handleEvent(gpioPin, PinState.HIGH, PinPullResistance.PULL_DOWN, i * 1000L);
+            this.meter.handleEvent(gpioPin, PinState.LOW, PinPullResistance.PULL_DOWN, i * 1000L + 90L);
+        }
+        this.meter.notifyPowerUpdateListeners();
+        this.meter.notifyPowerUpdateListeners();
+        verify(pulseEnergyMeter, times(3)).increasePulseCounter();
+        verify(listener, timeout(1000).times(1)).onPowerUpdate(33);
+    }
+
+    @Test
+    public void pulsePipeline_highRate() throws Exception {
+        int impulsesPerKwh = 10000;
+        int power = 11000;
+        // 60s at 11kW with 10000 imp/kWh is 1833 impulses - more than the ring buffer can hold without draining
+        int pulses = 1833;
+        PulsePowerMeter realPulsePowerMeter = new PulsePowerMeter();
+        realPulsePowerMeter.setImpulsesPerKwh(impulsesPerKwh);
+        PulseEnergyMeter realPulseEnergyMeter = new PulseEnergyMeter();
+        realPulseEnergyMeter.setImpulsesPerKwh(impulsesPerKwh);
+        realPulseEnergyMeter.startEnergyCounter();
+        S0ElectricityMeter meter = new S0ElectricityMeter();
+        meter.setApplianceId(getClass().getSimpleName());
+        meter.setPulsePowerMeter(realPulsePowerMeter);
+        meter.setPulseEnergyMeter(realPulseEnergyMeter);
+        PowerUpdateListener listener = mock(PowerUpdateListener.class);
+        meter.addPowerUpdateListener(listener);
+
+        S0PulseGenerator generator = new S0PulseGenerator(meter, gpioPin, power, impulsesPerKwh);
+        long startMillis = System.currentTimeMillis() - 60000;
+        Thread producer = new Thread(() -> {
+            for(int i=0; i<pulses; i += 100) {
+                generator.generate(startMillis + Math.round(i * 3600.0 * 1000000.0 / (power * impulsesPerKwh)),
+                        Math.min(100, pulses - i));
+                try {
+                    Thread.sleep(1);
+                }
+                catch(InterruptedException e) {
+                    return;
+                }
+            }
+        });
+        producer.start();
+        while(producer.isAlive()) {
+            meter.notifyPowerUpdateListeners();
+        }
+        producer.join();
+        meter.notifyPowerUpdateListeners();
+
+        assertEquals(pulses / (float) impulsesPerKwh, meter.getEnergy(), 0.00001);
+        int averagePower = meter.getAveragePower();
+        assertTrue(Math.abs(averagePower - power) < power * 0.01, "averagePower=" + averagePower);
+        verify(listener, timeout(1000).atLeastOnce()).onPowerUpdate(anyInt());
+    }
 }
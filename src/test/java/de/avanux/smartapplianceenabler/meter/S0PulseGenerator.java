@@ -0,0 +1,54 @@
+/*
+ * Copyright (C) 2021 Axel Müller <axel.mueller@avanux.de>
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package de.avanux.smartapplianceenabler.meter;
+
+import com.pi4j.io.gpio.GpioPin;
+import com.pi4j.io.gpio.PinPullResistance;
+import com.pi4j.io.gpio.PinState;
+
+/**
+ * Drives the GPIO events of a {@link S0ElectricityMeter} with pulled down input as caused by a constant power.
+ */
+public class S0PulseGenerator {
+    private static final long PULSE_DURATION_MILLIS = 16;
+    private S0ElectricityMeter meter;
+    private GpioPin pin;
+    private double pulseIntervalMillis;
+
+    public S0PulseGenerator(S0ElectricityMeter meter, GpioPin pin, int power, int impulsesPerKwh) {
+        this.meter = meter;
+        this.pin = pin;
+        // 3600s * 1000ms/s * 1000 W/kW / (W * imp/kWh)
+        this.pulseIntervalMillis = 3600.0 * 1000.0 * 1000.0 / ((double) power * impulsesPerKwh);
+    }
+
+    /**
+     * Generates the impulses starting at the given time.
+     * @return the timestamp of the last impulse
+     */
+    public long generate(long startMillis, int pulses) {
+        long pulseTimestamp = startMillis;
+        for(int i=0; i<pulses; i++) {
+            pulseTimestamp = startMillis + Math.round(i * pulseIntervalMillis);
+            meter.handleEvent(pin, PinState.HIGH, PinPullResistance.PULL_DOWN, pulseTimestamp);
+            meter.handleEvent(pin, PinState.LOW, PinPullResistance.PULL_DOWN, pulseTimestamp + PULSE_DURATION_MILLIS);
+        }
+        return pulseTimestamp;
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright (C) 2021 Axel Müller <axel.mueller@avanux.de>
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package de.avanux.smartapplianceenabler.meter;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class SlidingWindowStatisticsTest {
+
+    @Test
+    public void emptyWindow() {
+        SlidingWindowStatistics cut = new SlidingWindowStatistics(60);
+        cut.addValue(0, 100.0);
+        assertEquals(0.0, cut.getAverage(60000));
+        assertEquals(0.0, cut.getMin(60000));
+        assertEquals(0.0, cut.getMax(60000));
+    }
+
+    @Test
+    public void boundedWithoutReads() {
+        SlidingWindowStatistics cut = new SlidingWindowStatistics(60);
+        for(int second=0; second<10000; second++) {
+            cut.addValue(second * 1000L, second);
+        }
+        // reading with a timestamp before the latest value does not expire anything itself
+        assertEquals(60, cut.getCount(0));
+        assertEquals(9940.0, cut.getMin(9999000));
+    }
+
+    @Test
+    public void matchesRecalculation() {
+        int windowSeconds = 300;
+        SlidingWindowStatistics cut = new SlidingWindowStatistics(windowSeconds);
+        Random random = new Random(42);
+        double[] values = new double[1800];
+        for(int second=0; second<values.length; second++) {
+            values[second] = random.nextInt(3000);
+            cut.addValue(second * 1000L, values[second]);
+            if(second % 7 == 0) {
+                double sum = 0.0;
+                double min = Double.MAX_VALUE;
+                double max = - Double.MAX_VALUE;
+                int first = Math.max(0, second - windowSeconds + 1);
+                for(int i=first; i<=second; i++) {
+                    sum += values[i];
+                    min = Math.min(min, values[i]);
+                    max = Math.max(max, values[i]);
+                }
+                long now = second * 1000L;
+                assertEquals(sum / (second - first + 1), cut.getAverage(now), 0.0001);
+                assertEquals(min, cut.getMin(now));
+                assertEquals(max, cut.getMax(now));
+            }
+        }
+    }
+}
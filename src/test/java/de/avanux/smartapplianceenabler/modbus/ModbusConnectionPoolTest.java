@@ -0,0 +1,265 @@
+/*
+ * Copyright (C) 2021 Axel Müller <axel.mueller@avanux.de>
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package de.avanux.smartapplianceenabler.modbus;
+
+import com.ghgande.j2mod.modbus.ModbusException;
+import com.ghgande.j2mod.modbus.ModbusIOException;
+import com.ghgande.j2mod.modbus.net.TCPMasterConnection;
+import de.avanux.smartapplianceenabler.modbus.executor.ModbusTransactionExecutor;
+import de.avanux.smartapplianceenabler.modbus.executor.ReadHoldingRegisterExecutor;
+import de.avanux.smartapplianceenabler.modbus.transformer.IntegerValueTransformer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ModbusConnectionPoolTest {
+
+    private ModbusConnectionPool cut = new ModbusConnectionPool();
+    private ServerSocket serverSocket;
+    private List<Socket> accepted = Collections.synchronizedList(new ArrayList<>());
+    private List<TCPMasterConnection> usedConnections = new ArrayList<>();
+    private AtomicInteger acceptCount = new AtomicInteger();
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        cut.close();
+        if(serverSocket != null) {
+            serverSocket.close();
+        }
+        for(Socket socket : new ArrayList<>(accepted)) {
+            socket.close();
+        }
+    }
+
+    @Test
+    public void execute_connectionReused() throws Exception {
+        ModbusTcp modbusTcp = startServer();
+        startAcceptor();
+
+        cut.execute("F-001", modbusTcp, new RecordingExecutor(), 1);
+        cut.execute("F-002", modbusTcp, new RecordingExecutor(), 2);
+
+        assertEquals(2, usedConnections.size());
+        assertSame(usedConnections.get(0), usedConnections.get(1));
+        Thread.sleep(50);
+        assertEquals(1, acceptCount.get());
+    }
+
+    @Test
+    public void close() throws Exception {
+        ModbusTcp modbusTcp = startServer();
+        startAcceptor();
+
+        cut.execute("F-001", modbusTcp, new RecordingExecutor(), 1);
+        cut.close();
+        assertFalse(usedConnections.get(0).isConnected());
+        cut.execute("F-001", modbusTcp, new RecordingExecutor(), 1);
+
+        assertEquals(2, usedConnections.size());
+        assertNotSame(usedConnections.get(0), usedConnections.get(1));
+        assertTrue(usedConnections.get(1).isConnected());
+    }
+
+    @Test
+    public void execute_reconnectDelayedAfterFailure() throws Exception {
+        ModbusTcp modbusTcp = startServer();
+        serverSocket.close();
+
+        assertThrows(Exception.class, () -> cut.execute("F-001", modbusTcp, new RecordingExecutor(), 1));
+        ModbusIOException e = assertThrows(ModbusConnectionPool.ReconnectDelayedException.class,
+                () -> cut.execute("F-001", modbusTcp, new RecordingExecutor(), 1));
+        assertTrue(e.getMessage().startsWith("Waiting"));
+        assertTrue(usedConnections.isEmpty());
+    }
+
+    @Test
+    public void execute_reconnectAfterOutage() throws Exception {
+        ModbusTcp modbusTcp = startServer();
+        int port = serverSocket.getLocalPort();
+        serverSocket.close();
+        assertThrows(Exception.class, () -> cut.execute("F-001", modbusTcp, new RecordingExecutor(), 1));
+
+        // device is back while polls keep arriving within the backoff which must not extend it
+        serverSocket = new ServerSocket();
+        serverSocket.setReuseAddress(true);
+        serverSocket.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+        startAcceptor();
+        long timeoutMillis = System.currentTimeMillis() + 3000;
+        while(usedConnections.isEmpty() && System.currentTimeMillis() < timeoutMillis) {
+            try {
+                cut.execute("F-001", modbusTcp, new RecordingExecutor(), 1);
+            }
+            catch(ModbusConnectionPool.ReconnectDelayedException e) {
+                Thread.sleep(200);
+            }
+        }
+        assertEquals(1, usedConnections.size());
+    }
+
+    @Test
+    public void execute_pipelined() throws Exception {
+        ModbusTcp modbusTcp = startModbusServer(true);
+        List<ReadHoldingRegisterExecutor> executors = readExecutors(10);
+
+        cut.execute("F-001", modbusTcp, executors, 1);
+
+        for(int i=0; i<executors.size(); i++) {
+            assertEquals(i * 10, executors.get(i).getValueTransformer().getValue());
+        }
+        assertEquals(1, acceptCount.get());
+    }
+
+    @Test
+    public void execute_serialFallback() throws Exception {
+        ModbusTcp modbusTcp = startModbusServer(false);
+
+        List<ReadHoldingRegisterExecutor> executors = readExecutors(3);
+        cut.execute("F-001", modbusTcp, executors, 1);
+        for(int i=0; i<executors.size(); i++) {
+            assertEquals(i * 10, executors.get(i).getValueTransformer().getValue());
+        }
+        assertEquals(2, acceptCount.get());
+
+        executors = readExecutors(3);
+        cut.execute("F-001", modbusTcp, executors, 1);
+        assertEquals(20, executors.get(2).getValueTransformer().getValue());
+        assertEquals(2, acceptCount.get());
+    }
+
+    private void startAcceptor() {
+        ServerSocket serverSocket = this.serverSocket;
+        Thread acceptor = new Thread(() -> {
+            try {
+                while(true) {
+                    accepted.add(serverSocket.accept());
+                    acceptCount.incrementAndGet();
+                }
+            }
+            catch(IOException e) {
+                // server socket closed
+            }
+        });
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    private List<ReadHoldingRegisterExecutor> readExecutors(int count) {
+        List<ReadHoldingRegisterExecutor> executors = new ArrayList<>();
+        for(int i=0; i<count; i++) {
+            executors.add(new ReadHoldingRegisterExecutor(String.valueOf(i * 10), 1, new IntegerValueTransformer()));
+        }
+        return executors;
+    }
+
+    /**
+     * Starts a server responding to "read holding registers" requests with the register address as value.
+     * @param pipelining if false, the connection is closed if a request is received before the previous one
+     * has been answered
+     */
+    private ModbusTcp startModbusServer(boolean pipelining) throws IOException {
+        ModbusTcp modbusTcp = startServer();
+        Thread acceptor = new Thread(() -> {
+            try {
+                while(true) {
+                    Socket socket = serverSocket.accept();
+                    accepted.add(socket);
+                    acceptCount.incrementAndGet();
+                    Thread handler = new Thread(() -> serve(socket, pipelining));
+                    handler.setDaemon(true);
+                    handler.start();
+                }
+            }
+            catch(IOException e) {
+                // server socket closed
+            }
+        });
+        acceptor.setDaemon(true);
+        acceptor.start();
+        return modbusTcp;
+    }
+
+    private void serve(Socket socket, boolean pipelining) {
+        try {
+            DataInputStream in = new DataInputStream(socket.getInputStream());
+            DataOutputStream out = new DataOutputStream(socket.getOutputStream());
+            while(true) {
+                int transactionId = in.readUnsignedShort();
+                int protocolId = in.readUnsignedShort();
+                in.readUnsignedShort();
+                int unitId = in.readUnsignedByte();
+                int functionCode = in.readUnsignedByte();
+                int address = in.readUnsignedShort();
+                int words = in.readUnsignedShort();
+                if(! pipelining) {
+                    Thread.sleep(50);
+                    if(in.available() > 0) {
+                        socket.close();
+                        return;
+                    }
+                }
+                out.writeShort(transactionId);
+                out.writeShort(protocolId);
+                out.writeShort(3 + 2 * words);
+                out.writeByte(unitId);
+                out.writeByte(functionCode);
+                out.writeByte(2 * words);
+                for(int i=0; i<words; i++) {
+                    out.writeShort(address + i);
+                }
+                out.flush();
+            }
+        }
+        catch(IOException | InterruptedException e) {
+            // connection closed
+        }
+    }
+
+    private ModbusTcp startServer() throws IOException {
+        serverSocket = new ServerSocket(0, 10, InetAddress.getLoopbackAddress());
+        ModbusTcp modbusTcp = new ModbusTcp();
+        modbusTcp.setId("modbus");
+        modbusTcp.setHost(InetAddress.getLoopbackAddress().getHostAddress());
+        modbusTcp.setPort(serverSocket.getLocalPort());
+        return modbusTcp;
+    }
+
+    private class RecordingExecutor implements ModbusTransactionExecutor {
+        @Override
+        public void execute(TCPMasterConnection con, int slaveAddress) throws ModbusException {
+            usedConnections.add(con);
+        }
+
+        @Override
+        public void setApplianceId(String applianceId) {
+        }
+    }
+}
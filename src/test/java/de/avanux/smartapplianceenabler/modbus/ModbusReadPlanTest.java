@@ -0,0 +1,145 @@
+/*
+ * Copyright (C) 2021 Axel Müller <axel.mueller@avanux.de>
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package de.avanux.smartapplianceenabler.modbus;
+
+import com.ghgande.j2mod.modbus.ModbusSlaveException;
+import de.avanux.smartapplianceenabler.modbus.executor.BaseTransactionExecutor;
+import de.avanux.smartapplianceenabler.modbus.executor.ModbusReadTransactionExecutor;
+import de.avanux.smartapplianceenabler.modbus.executor.ModbusTransactionExecutor;
+import de.avanux.smartapplianceenabler.modbus.executor.ReadHoldingRegisterExecutor;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ModbusReadPlanTest {
+
+    private List<String> transactions = new ArrayList<>();
+    private boolean rejectBlockReads;
+    private Integer rejectedAddress;
+
+    private ModbusSlave slave = new ModbusSlave() {
+        @Override
+        protected Map<ModbusTransactionExecutor, ModbusSlaveException> executeTransactions(
+                List<? extends ModbusTransactionExecutor> executors) {
+            Map<ModbusTransactionExecutor, ModbusSlaveException> rejected = new HashMap<>();
+            for(ModbusTransactionExecutor executor : executors) {
+                BaseTransactionExecutor registerExecutor = (BaseTransactionExecutor) executor;
+                int address = registerExecutor.getAddress();
+                int words = registerExecutor.getRequestWords();
+                String type = executor instanceof ReadHoldingRegisterExecutor ? "Holding" : "Input";
+                transactions.add(type + "@" + address + "/" + words);
+                if(rejectBlockReads && words > 2 || Integer.valueOf(address).equals(rejectedAddress)) {
+                    rejected.put(executor, new ModbusSlaveException(2));
+                    continue;
+                }
+                Integer[] registers = new Integer[words];
+                for(int i=0; i<words; i++) {
+                    registers[i] = address + i;
+                }
+                ((ModbusReadTransactionExecutor) executor).getValueTransformer().setByteValues(registers);
+            }
+            return rejected;
+        }
+    };
+
+    @Test
+    public void execute_adjacentRegistersReadTogether() throws Exception {
+        ModbusRead power = read(ReadRegisterType.Input, "10", RegisterValueType.Integer, 2);
+        ModbusRead energy = read(ReadRegisterType.Input, "0x0C", RegisterValueType.Integer, 1);
+        ModbusRead distant = read(ReadRegisterType.Input, "200", RegisterValueType.Integer, 1);
+        ModbusRead holding = read(ReadRegisterType.Holding, "11", RegisterValueType.Integer, 1);
+        ModbusReadPlan cut = new ModbusReadPlan("F-001", Arrays.asList(power, energy, distant, holding));
+
+        Map<ModbusRead, ModbusReadTransactionExecutor> executors = cut.execute(slave);
+
+        assertEquals(Arrays.asList("Input@10/3", "Input@200/1", "Holding@11/1"), transactions);
+        assertEquals(10 << 16 | 11, executors.get(power).getValueTransformer().getValue());
+        assertEquals(12, executors.get(energy).getValueTransformer().getValue());
+        assertEquals(200, executors.get(distant).getValueTransformer().getValue());
+        assertEquals(11, executors.get(holding).getValueTransformer().getValue());
+    }
+
+    @Test
+    public void execute_blockLimitedToMaxRegisters() throws Exception {
+        ModbusRead first = read(ReadRegisterType.Holding, "0", RegisterValueType.Integer, 1);
+        ModbusRead last = read(ReadRegisterType.Holding, "125", RegisterValueType.Integer, 1);
+        ModbusReadPlan cut = new ModbusReadPlan("F-001", Arrays.asList(first, last));
+
+        cut.execute(slave);
+
+        assertEquals(Arrays.asList("Holding@0/1", "Holding@125/1"), transactions);
+    }
+
+    @Test
+    public void execute_rejectedBlockReadIndividually() throws Exception {
+        ModbusRead power = read(ReadRegisterType.Input, "10", RegisterValueType.Integer, 1);
+        ModbusRead energy = read(ReadRegisterType.Input, "15", RegisterValueType.Integer, 1);
+        ModbusReadPlan cut = new ModbusReadPlan("F-001", Arrays.asList(power, energy));
+        rejectBlockReads = true;
+
+        Map<ModbusRead, ModbusReadTransactionExecutor> executors = cut.execute(slave);
+        assertEquals(Arrays.asList("Input@10/6", "Input@10/1", "Input@15/1"), transactions);
+        assertEquals(15, executors.get(energy).getValueTransformer().getValue());
+
+        transactions.clear();
+        cut.execute(slave);
+        assertEquals(Arrays.asList("Input@10/1", "Input@15/1"), transactions);
+    }
+
+    @Test
+    public void execute_blockLimitedToSmallGaps() throws Exception {
+        ModbusRead power = read(ReadRegisterType.Input, "10", RegisterValueType.Integer, 1);
+        ModbusRead nearby = read(ReadRegisterType.Input, "19", RegisterValueType.Integer, 1);
+        ModbusRead distant = read(ReadRegisterType.Input, "29", RegisterValueType.Integer, 1);
+        ModbusReadPlan cut = new ModbusReadPlan("F-001", Arrays.asList(power, nearby, distant));
+
+        cut.execute(slave);
+
+        assertEquals(Arrays.asList("Input@10/10", "Input@29/1"), transactions);
+    }
+
+    @Test
+    public void execute_rejectedReadDoesNotAffectOthers() throws Exception {
+        ModbusRead power = read(ReadRegisterType.Input, "10", RegisterValueType.Integer, 1);
+        ModbusRead optional = read(ReadRegisterType.Input, "100", RegisterValueType.Integer, 1);
+        ModbusReadPlan cut = new ModbusReadPlan("F-001", Arrays.asList(power, optional));
+        rejectedAddress = 100;
+
+        Map<ModbusRead, ModbusReadTransactionExecutor> executors = cut.execute(slave);
+
+        assertEquals(10, executors.get(power).getValueTransformer().getValue());
+        cut.verify(power);
+        assertThrows(ModbusSlaveException.class, () -> cut.verify(optional));
+    }
+
+    private ModbusRead read(ReadRegisterType type, String address, RegisterValueType valueType, int words) {
+        ModbusRead read = new ModbusRead();
+        read.setType(type.name());
+        read.setAddress(address);
+        read.setValueType(valueType.name());
+        read.setWords(words);
+        return read;
+    }
+}
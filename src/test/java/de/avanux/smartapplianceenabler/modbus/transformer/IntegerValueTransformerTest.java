@@ -21,7 +21,7 @@ package de.avanux.smartapplianceenabler.modbus.transformer;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
-import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.*;
 
 public class IntegerValueTransformerTest {
     private IntegerValueTransformer sut;
@@ -37,4 +37,16 @@ public class IntegerValueTransformerTest {
         sut.setByteValues(byteValues);
         assertEquals(3, sut.getValue());
     }
+
+    @Test
+    public void setRegisters() {
+        sut.setRegisters(new int[] {9, 0, 3, 9}, 1, 2);
+        assertEquals(3, sut.getValue());
+        assertTrue(sut.valueEquals(3));
+        assertTrue(sut.valueMatches("3"));
+        assertFalse(sut.valueMatches("03"));
+        assertTrue(sut.valueMatches("[0-3]"));
+        assertTrue(sut.valueMatches("3"));
+        assertFalse(sut.valueMatches("-3"));
+    }
 }
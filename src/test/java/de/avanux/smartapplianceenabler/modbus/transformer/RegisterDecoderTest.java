@@ -0,0 +1,63 @@
+/*
+ * Copyright (C) 2021 Axel Müller <axel.mueller@avanux.de>
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package de.avanux.smartapplianceenabler.modbus.transformer;
+
+import de.avanux.smartapplianceenabler.modbus.ByteOrder;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class RegisterDecoderTest {
+
+    @Test
+    public void int16() {
+        int[] registers = {0, 0xFFFE};
+        assertEquals(-2, RegisterDecoder.int16(registers, 1));
+        assertEquals(65534, RegisterDecoder.uint16(registers, 1));
+    }
+
+    @Test
+    public void int32() {
+        int[] registers = {7, 0xFFFF, 0xFFFE};
+        assertEquals(-2, RegisterDecoder.int32(registers, 1, ByteOrder.BigEndian));
+        assertEquals(0xFFFFFFFEL, RegisterDecoder.uint32(registers, 1, ByteOrder.BigEndian));
+        assertEquals(0xFFFEFFFF, RegisterDecoder.int32(registers, 1, ByteOrder.LittleEndian));
+    }
+
+    @Test
+    public void int64() {
+        int[] registers = {0x0001, 0x0002, 0x0003, 0x0004};
+        assertEquals(0x0001000200030004L, RegisterDecoder.int64(registers, 0, ByteOrder.BigEndian));
+        assertEquals(0x0004000300020001L, RegisterDecoder.int64(registers, 0, ByteOrder.LittleEndian));
+    }
+
+    @Test
+    public void float32() {
+        int[] registers = {17676, 21823};
+        assertEquals(2245.328, RegisterDecoder.float32(registers, 0, ByteOrder.BigEndian), 0.001);
+    }
+
+    @Test
+    public void float64() {
+        long bits = Double.doubleToLongBits(2245.328);
+        int[] registers = {(int) (bits >>> 48) & 0xFFFF, (int) (bits >>> 32) & 0xFFFF,
+                (int) (bits >>> 16) & 0xFFFF, (int) bits & 0xFFFF};
+        assertEquals(2245.328, RegisterDecoder.float64(registers, 0, ByteOrder.BigEndian), 0.0);
+    }
+}
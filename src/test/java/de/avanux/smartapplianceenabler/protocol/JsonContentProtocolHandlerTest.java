@@ -18,9 +18,11 @@
 
 package de.avanux.smartapplianceenabler.protocol;
 
+import com.jayway.jsonpath.InvalidPathException;
 import org.junit.jupiter.api.Test;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 
 public class JsonContentProtocolHandlerTest {
     private ContentProtocolHandler contentProtocolHandler;
@@ -36,4 +38,17 @@ public class JsonContentProtocolHandlerTest {
         this.contentProtocolHandler.parse(content);
         assertEquals("0.123", this.contentProtocolHandler.readValue(selector));
     }
+
+    @Test
+    public void readValue_severalSelectorsFromSameContent() {
+        String content = "{\"car\":\"2\",\"err\":\"0\",\"dws\":\"360000\"}";
+        assertEquals("2", this.contentProtocolHandler.readValue(content, "$.car"));
+        assertEquals("0", this.contentProtocolHandler.readValue(content, "$.err"));
+        assertEquals("3", this.contentProtocolHandler.readValue(content.replace("\"2\"", "\"3\""), "$.car"));
+    }
+
+    @Test
+    public void compile_invalidSelector() {
+        assertThrows(InvalidPathException.class, () -> this.contentProtocolHandler.compile("$.[car"));
+    }
 }
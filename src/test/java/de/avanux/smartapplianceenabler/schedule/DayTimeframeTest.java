@@ -26,7 +26,7 @@ import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 
-import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.*;
 
 public class DayTimeframeTest extends TestBase {
 
@@ -138,6 +138,24 @@ public class DayTimeframeTest extends TestBase {
         assertEquals(new Interval(toDayOfWeek(now, 7, 10, 0, 0), toDayOfWeek(now, 7, 12, 0, 0)), intervals.get(1).getInterval());
     }
 
+    @Test
+    public void expandIntervals_cachedUntilDayOrHolidaysChange() {
+        DayTimeframe timeframe = new DayTimeframe(new TimeOfDay(10, 0, 0), new TimeOfDay(12, 0, 0), Arrays.asList(7,8));
+        timeframe.setSchedule(buildScheduleWithRequest());
+        LocalDateTime now = toDayOfWeek(1, 9, 0, 0);
+        List<Interval> intervals = timeframe.expandIntervals(now);
+        assertSame(intervals, timeframe.expandIntervals(now.plusMinutes(30)));
+
+        timeframe.setHolidays(Collections.singletonList(now.toLocalDate().plusDays(3)));
+        List<Interval> intervalsWithHoliday = timeframe.expandIntervals(now);
+        assertEquals(2, intervalsWithHoliday.size());
+        timeframe.setHolidays(Collections.singletonList(now.toLocalDate().plusDays(3)));
+        assertSame(intervalsWithHoliday, timeframe.expandIntervals(now));
+
+        // today's interval has ended
+        assertNotSame(intervalsWithHoliday, timeframe.expandIntervals(now.plusHours(4)));
+    }
+
     @Test
     public void buildMidnightAdjustedInterval_NotOverMidnight() {
         DayTimeframe timeframe = new DayTimeframe(new TimeOfDay(22, 0, 0), new TimeOfDay(23, 0, 0));
@@ -0,0 +1,54 @@
+/*
+ * Copyright (C) 2021 Axel Müller <axel.mueller@avanux.de>
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package de.avanux.smartapplianceenabler.schedule;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class HolidayIndexTest {
+
+    @Test
+    public void contains() {
+        LocalDate newYear = LocalDate.of(2021, 1, 1);
+        LocalDate christmas = LocalDate.of(2021, 12, 25);
+        HolidayIndex holidays = HolidayIndex.of(Arrays.asList(christmas, newYear));
+        assertEquals(2, holidays.size());
+        assertTrue(holidays.contains(newYear));
+        assertTrue(holidays.contains(christmas));
+        assertFalse(holidays.contains(newYear.minusDays(1)));
+        assertFalse(holidays.contains(newYear.plusDays(1)));
+        assertFalse(holidays.contains(christmas.plusDays(1)));
+        assertFalse(HolidayIndex.of(Collections.emptyList()).contains(newYear));
+    }
+
+    @Test
+    public void equals() {
+        LocalDate newYear = LocalDate.of(2021, 1, 1);
+        assertEquals(HolidayIndex.of(Collections.singletonList(newYear)),
+                HolidayIndex.of(Collections.singletonList(newYear)));
+        assertNotEquals(HolidayIndex.of(Collections.singletonList(newYear)),
+                HolidayIndex.of(Collections.singletonList(newYear.plusDays(1))));
+        assertEquals(HolidayIndex.EMPTY, HolidayIndex.of(null));
+    }
+}
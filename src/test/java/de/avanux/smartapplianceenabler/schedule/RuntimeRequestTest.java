@@ -0,0 +1,68 @@
+/*
+ * Copyright (C) 2021 Axel Müller <axel.mueller@avanux.de>
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package de.avanux.smartapplianceenabler.schedule;
+
+import de.avanux.smartapplianceenabler.TestBase;
+import de.avanux.smartapplianceenabler.control.Control;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.*;
+
+public class RuntimeRequestTest extends TestBase {
+
+    private RuntimeRequest request;
+    private Control control;
+
+    @BeforeEach
+    public void setup() {
+        control = mock(Control.class);
+        request = new RuntimeRequest(1800, 3600);
+        request.setControl(control);
+        new TimeframeInterval(TimeframeIntervalState.ACTIVE, toIntervalToday(10, 0, 16, 0), request);
+        request.controlStateChanged(toToday(11, 0), true);
+    }
+
+    @Test
+    public void getMinMax_controlQueriedOncePerTick() {
+        when(control.isOn()).thenReturn(true);
+        LocalDateTime now = toToday(11, 10);
+        assertEquals(1200, request.getMin(now).intValue());
+        assertEquals(3000, request.getMax(now).intValue());
+        assertEquals(1200, request.getMinOrMax(now).intValue());
+        verify(control, times(1)).isOn();
+
+        assertEquals(2400, request.getMax(toToday(11, 20)).intValue());
+        verify(control, times(2)).isOn();
+    }
+
+    @Test
+    public void getMax_runtimeResetWithinTick() {
+        when(control.isOn()).thenReturn(true);
+        LocalDateTime now = toToday(11, 10);
+        assertEquals(3000, request.getMax(now).intValue());
+
+        request.startingCurrentDetected(now);
+        request.controlStateChanged(now, true);
+        assertEquals(3600, request.getMax(now).intValue());
+    }
+}
@@ -99,4 +99,33 @@ public class TimeframeIntervalHandlerTest extends TestBase {
         assertEquals(toIntervalByDow(now,5,14,0,5, 16, 0),
                 timeframeIntervals.get(4).getInterval());
     }
+
+    @Test
+    public void getNextQueueUpdate_queued() {
+        LocalDateTime now = toToday(9, 0);
+        TimeframeIntervalHandler handler = buildTimeframeIntervalHandler(new ArrayList<>());
+        handler.addTimeframeInterval(now, new TimeframeInterval(
+                new Interval(now.plusMinutes(30), now.plusHours(5)), new RuntimeRequest(null, 3600)),
+                false, false);
+        assertEquals(now.plusMinutes(30), handler.getNextQueueUpdate(now));
+    }
+
+    @Test
+    public void getNextQueueUpdate_activeUntilLatestStart() {
+        LocalDateTime now = toToday(9, 0);
+        TimeframeIntervalHandler handler = buildTimeframeIntervalHandler(new ArrayList<>());
+        TimeframeInterval timeframeInterval = new TimeframeInterval(
+                new Interval(now.minusHours(1), now.plusSeconds(10)), new RuntimeRequest(null, 5));
+        handler.addTimeframeInterval(now, timeframeInterval, false, false);
+        timeframeInterval.stateTransitionTo(now, TimeframeIntervalState.ACTIVE);
+        assertEquals(now.plusSeconds(5).plusNanos(1000000), handler.getNextQueueUpdate(now));
+    }
+
+    @Test
+    public void getNextQueueUpdate_idle() {
+        LocalDateTime now = toToday(9, 0);
+        TimeframeIntervalHandler handler = buildTimeframeIntervalHandler(new ArrayList<>());
+        assertEquals(now.plusSeconds(TimeframeIntervalHandler.FILL_QUEUE_INTERVAL_SECONDS),
+                handler.getNextQueueUpdate(now));
+    }
 }
@@ -0,0 +1,78 @@
+/*
+ * Copyright (C) 2021 Axel Müller <axel.mueller@avanux.de>
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package de.avanux.smartapplianceenabler.schedule;
+
+import de.avanux.smartapplianceenabler.TestBase;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TimeframeIntervalQueueTest extends TestBase {
+    private TimeframeIntervalQueue cut;
+    private LocalDateTime now;
+    private TimeframeInterval first;
+    private TimeframeInterval second;
+
+    @BeforeEach
+    public void setup() {
+        cut = new TimeframeIntervalQueue();
+        now = toToday(9, 0);
+        first = new TimeframeInterval(new Interval(now, now.plusHours(1)), new RuntimeRequest(null, 600));
+        second = new TimeframeInterval(new Interval(now.plusHours(2), now.plusHours(3)), new RuntimeRequest(null, 600));
+    }
+
+    @Test
+    public void stateIndex() {
+        cut.add(first);
+        cut.add(second);
+        first.stateTransitionTo(now, TimeframeIntervalState.QUEUED);
+        second.stateTransitionTo(now, TimeframeIntervalState.QUEUED);
+        assertSame(first, cut.getFirst(TimeframeIntervalState.QUEUED));
+        assertNull(cut.getFirst(TimeframeIntervalState.ACTIVE));
+
+        second.stateTransitionTo(now, TimeframeIntervalState.ACTIVE);
+        assertSame(second, cut.getFirst(TimeframeIntervalState.ACTIVE));
+
+        cut.remove(second);
+        assertNull(cut.getFirst(TimeframeIntervalState.ACTIVE));
+        // removed timeframe intervals no longer affect the index
+        second.stateTransitionTo(now, TimeframeIntervalState.ACTIVE);
+        assertNull(cut.getFirst(TimeframeIntervalState.ACTIVE));
+    }
+
+    @Test
+    public void asList_unaffectedByModification() {
+        cut.add(first);
+        List<TimeframeInterval> view = cut.asList();
+        cut.add(0, second);
+        assertEquals(1, view.size());
+        assertSame(second, cut.peekFirst());
+        assertSame(first, cut.peekLast());
+        assertThrows(UnsupportedOperationException.class, () -> view.clear());
+
+        cut.move(second, 1);
+        assertSame(first, cut.get(0));
+        assertSame(second, cut.get(1));
+        assertNull(cut.peek(2));
+    }
+}
@@ -0,0 +1,162 @@
+/*
+ * Copyright (C) 2021 Axel Müller <axel.mueller@avanux.de>
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package de.avanux.smartapplianceenabler.semp.webservice;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DeviceControlDispatcherTest {
+    private static final String DEVICE_ID = "F-00000001-000000000001-00";
+    private static final String DEVICE_ID2 = "F-00000001-000000000002-00";
+    private ExecutorService executor = Executors.newCachedThreadPool();
+
+    @AfterEach
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void dispatch_latestControlWins() throws Exception {
+        CountDownLatch firstControlReceived = new CountDownLatch(1);
+        CountDownLatch releaseHandler = new CountDownLatch(1);
+        CountDownLatch allControlsExecuted = new CountDownLatch(2);
+        List<String> executed = Collections.synchronizedList(new ArrayList<>());
+        DeviceControlDispatcher dispatcher = new DeviceControlDispatcher((now, deviceControl) -> {
+            executed.add(deviceControl.isOn() + "/" + deviceControl.getRecommendedPowerConsumption());
+            firstControlReceived.countDown();
+            await(releaseHandler);
+            allControlsExecuted.countDown();
+            return true;
+        }, executor);
+
+        dispatcher.dispatch(createDeviceControl(DEVICE_ID, true, 1000));
+        assertTrue(firstControlReceived.await(5, TimeUnit.SECONDS));
+        dispatcher.dispatch(createDeviceControl(DEVICE_ID, true, 2000));
+        dispatcher.dispatch(createDeviceControl(DEVICE_ID, false, null));
+        releaseHandler.countDown();
+
+        assertTrue(allControlsExecuted.await(5, TimeUnit.SECONDS));
+        assertEquals(Arrays.asList("true/1000", "false/null"), executed);
+        DeviceControlDispatcher.DeviceControlQueue queue = dispatcher.getQueue(DEVICE_ID);
+        assertEquals(3, queue.getReceivedCount());
+        assertEquals(1, queue.getSupersededCount());
+        assertTrue(queue.getLatencies().getMaxMillis() > 0.0);
+        assertTrue(dispatcher.toString().startsWith("DeviceControl " + DEVICE_ID + "[received=3 superseded=1"));
+    }
+
+    @Test
+    public void dispatch_slowDeviceDoesNotDelayOthers() throws Exception {
+        CountDownLatch releaseSlowDevice = new CountDownLatch(1);
+        CountDownLatch otherDeviceExecuted = new CountDownLatch(1);
+        DeviceControlDispatcher dispatcher = new DeviceControlDispatcher((now, deviceControl) -> {
+            if(deviceControl.getDeviceId().equals(DEVICE_ID)) {
+                await(releaseSlowDevice);
+            }
+            else {
+                otherDeviceExecuted.countDown();
+            }
+            return true;
+        }, executor);
+        dispatcher.dispatch(createDeviceControl(DEVICE_ID, true, null));
+        dispatcher.dispatch(createDeviceControl(DEVICE_ID2, true, null));
+        assertTrue(otherDeviceExecuted.await(5, TimeUnit.SECONDS));
+        releaseSlowDevice.countDown();
+    }
+
+    @Test
+    public void dispatch_retry() throws Exception {
+        AtomicInteger attempts = new AtomicInteger();
+        CountDownLatch executed = new CountDownLatch(1);
+        DeviceControlDispatcher dispatcher = new DeviceControlDispatcher((now, deviceControl) -> {
+            if(attempts.incrementAndGet() < 2) {
+                throw new IllegalStateException("Test");
+            }
+            executed.countDown();
+            return true;
+        }, executor);
+        dispatcher.setRetryDelayMillis(1);
+        dispatcher.dispatch(createDeviceControl(DEVICE_ID, true, null));
+        assertTrue(executed.await(5, TimeUnit.SECONDS));
+        DeviceControlDispatcher.DeviceControlQueue queue = dispatcher.getQueue(DEVICE_ID);
+        assertEquals(1, queue.getRetriedCount());
+        assertEquals(0, queue.getFailedCount());
+    }
+
+    @Test
+    public void dispatch_retryFailedControlWithoutPreparation() throws Exception {
+        AtomicInteger preparations = new AtomicInteger();
+        AtomicInteger attempts = new AtomicInteger();
+        CountDownLatch failed = new CountDownLatch(3);
+        DeviceControlDispatcher dispatcher = new DeviceControlDispatcher(new DeviceControlDispatcher.Handler() {
+            @Override
+            public void prepare(LocalDateTime now, DeviceControl deviceControl) {
+                preparations.incrementAndGet();
+            }
+
+            @Override
+            public boolean execute(LocalDateTime now, DeviceControl deviceControl) {
+                attempts.incrementAndGet();
+                failed.countDown();
+                return false;
+            }
+        }, executor);
+        dispatcher.setRetryDelayMillis(1);
+        dispatcher.dispatch(createDeviceControl(DEVICE_ID, true, null));
+        assertTrue(failed.await(5, TimeUnit.SECONDS));
+        DeviceControlDispatcher.DeviceControlQueue queue = dispatcher.getQueue(DEVICE_ID);
+        for(int i = 0; i < 50 && queue.getFailedCount() == 0; i++) {
+            Thread.sleep(10);
+        }
+        assertEquals(1, preparations.get());
+        assertEquals(3, attempts.get());
+        assertEquals(2, queue.getRetriedCount());
+        assertEquals(1, queue.getFailedCount());
+        assertEquals(0, queue.getExecutedCount());
+    }
+
+    private DeviceControl createDeviceControl(String deviceId, boolean on, Integer recommendedPowerConsumption) {
+        DeviceControl deviceControl = new DeviceControl();
+        deviceControl.setDeviceId(deviceId);
+        deviceControl.setOn(on);
+        deviceControl.setRecommendedPowerConsumption(recommendedPowerConsumption);
+        return deviceControl;
+    }
+
+    private void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        }
+        catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
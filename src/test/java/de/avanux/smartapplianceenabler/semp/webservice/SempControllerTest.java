@@ -6,12 +6,14 @@ import de.avanux.smartapplianceenabler.appliance.ApplianceManager;
 import de.avanux.smartapplianceenabler.appliance.ApplianceBuilder;
 import java.time.LocalDateTime;
 import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
 
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 
-import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.*;
 
 public class SempControllerTest extends TestBase {
 
@@ -62,6 +64,43 @@ public class SempControllerTest extends TestBase {
         assertTimeframe(timeframes.get(0), 2 * 3600,  6 * 3600, 1000, 1800);
     }
 
+    @Test
+    public void snapshot() {
+        LocalDateTime now = LocalDateTime.now();
+        new ApplianceBuilder(DEVICE_ID)
+                .withMockSwitch(false)
+                .withRuntimeRequest(now, now.plusHours(1), now.plusHours(5), null, 3600, true)
+                .build(true);
+        DeviceInfo configuredDeviceInfo = ApplianceManager.getInstanceWithoutTimer().getDeviceInfo(DEVICE_ID);
+        Capabilities configuredCapabilities = configuredDeviceInfo.getCapabilities();
+
+        Device2EMSnapshot.Snapshot snapshot = Device2EMSnapshot.getInstance().get();
+        assertEquals(1, snapshot.getDeviceStatuses().size());
+        assertEquals(Status.Off, snapshot.getDeviceStatus(DEVICE_ID).getStatus());
+        assertNotNull(snapshot.getDeviceInfo(DEVICE_ID));
+        assertNotNull(snapshot.getPlanningRequest(DEVICE_ID));
+        assertNull(snapshot.getDeviceStatus(DEVICE_ID2));
+        // the configured device info is not modified
+        assertNotSame(configuredDeviceInfo, snapshot.getDeviceInfo(DEVICE_ID));
+        assertSame(configuredCapabilities, configuredDeviceInfo.getCapabilities());
+        assertThrows(UnsupportedOperationException.class, () -> snapshot.getDeviceStatuses().clear());
+    }
+
+    @Test
+    public void device2EM_varyAcceptEncoding() {
+        new ApplianceBuilder(DEVICE_ID)
+                .withMockSwitch(false)
+                .build(true);
+
+        ResponseEntity<byte[]> gzipped = sempController.device2EM("gzip, deflate");
+        assertEquals("gzip", gzipped.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING));
+        assertEquals(HttpHeaders.ACCEPT_ENCODING, gzipped.getHeaders().getFirst(HttpHeaders.VARY));
+
+        ResponseEntity<byte[]> identity = sempController.device2EM(null);
+        assertNull(identity.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING));
+        assertEquals(HttpHeaders.ACCEPT_ENCODING, identity.getHeaders().getFirst(HttpHeaders.VARY));
+    }
+
     private void assertTimeframe(Timeframe timeframe, Integer earliestStart, Integer latestEnd, Integer minRuningTime, Integer maxRunningTime) {
         assertEquals(earliestStart, timeframe.getEarliestStart());
         assertEquals(latestEnd, timeframe.getLatestEnd());
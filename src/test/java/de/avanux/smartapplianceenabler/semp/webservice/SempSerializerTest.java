@@ -0,0 +1,119 @@
+/*
+ * Copyright (C) 2021 Axel Müller <axel.mueller@avanux.de>
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package de.avanux.smartapplianceenabler.semp.webservice;
+
+import de.avanux.smartapplianceenabler.TestBase;
+import de.avanux.smartapplianceenabler.appliance.ApplianceBuilder;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.Marshaller;
+import java.io.ByteArrayInputStream;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SempSerializerTest extends TestBase {
+
+    private SempSerializer serializer;
+
+    public SempSerializerTest() throws Exception {
+        serializer = SempSerializer.getInstance();
+    }
+
+    @Test
+    public void toBytes_sameContentAsFormatted() throws Exception {
+        Device2EM device2EM = createSnapshot().getDevice2EM();
+        String compact = serializer.toString(device2EM);
+        assertTrue(compact.contains("<DeviceStatus>"));
+        assertEquals(marshallFormatted(device2EM).replaceAll(">\\s+<", "><").trim(), compact.trim());
+    }
+
+    @Test
+    public void serialize_cachedWhileSnapshotUnchanged() throws Exception {
+        Device2EMSnapshot.Snapshot snapshot = createSnapshot();
+        SempSerializer.CachedResponse response = serializer.serialize(snapshot);
+        assertSame(response, serializer.serialize(snapshot));
+        assertNotSame(response, serializer.serialize(Device2EMSnapshot.getInstance().get()));
+
+        byte[] gzippedBytes = response.getGzippedBytes();
+        assertSame(gzippedBytes, response.getGzippedBytes());
+        try(GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(gzippedBytes))) {
+            assertArrayEquals(response.getBytes(), in.readAllBytes());
+        }
+    }
+
+    /**
+     * Compares the throughput of the serializer with marshalling as implemented before.
+     * Run with -Dsae.benchmark=true
+     */
+    @Test
+    @EnabledIfSystemProperty(named = "sae.benchmark", matches = "true")
+    public void benchmark() throws Exception {
+        Device2EMSnapshot.Snapshot snapshot = createSnapshot();
+        Device2EM device2EM = snapshot.getDevice2EM();
+        int iterations = 2000;
+        for(int warmup=0; warmup<2; warmup++) {
+            long marshallNanos = measure(iterations, () -> marshallFormatted(device2EM).getBytes(StandardCharsets.UTF_8));
+            long toBytesNanos = measure(iterations, () -> serializer.toBytes(device2EM));
+            long cachedNanos = measure(iterations, () -> serializer.serialize(snapshot).getBytes());
+            long cachedGzipNanos = measure(iterations, () -> serializer.serialize(snapshot).getGzippedBytes());
+            System.out.printf("SEMP serialization per request: marshall=%dus toBytes=%dus cached=%dus cachedGzip=%dus%n",
+                    marshallNanos / iterations / 1000, toBytesNanos / iterations / 1000,
+                    cachedNanos / iterations / 1000, cachedGzipNanos / iterations / 1000);
+        }
+    }
+
+    private interface Serialization {
+        Object serialize() throws Exception;
+    }
+
+    private long measure(int iterations, Serialization serialization) throws Exception {
+        long start = System.nanoTime();
+        for(int i=0; i<iterations; i++) {
+            assertNotNull(serialization.serialize());
+        }
+        return System.nanoTime() - start;
+    }
+
+    private Device2EMSnapshot.Snapshot createSnapshot() {
+        LocalDateTime now = LocalDateTime.now();
+        new ApplianceBuilder("F-00000001-000000000001-00")
+                .withMockSwitch(false)
+                .withRuntimeRequest(now, now.plusHours(1), now.plusHours(5), null, 3600, true)
+                .build(true);
+        return Device2EMSnapshot.getInstance().get();
+    }
+
+    /**
+     * Marshalling as done by SempController before the serializer was introduced.
+     */
+    private String marshallFormatted(Device2EM device2EM) throws Exception {
+        StringWriter writer = new StringWriter();
+        JAXBContext context = JAXBContext.newInstance(Device2EM.class);
+        Marshaller marshaller = context.createMarshaller();
+        marshaller.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, Boolean.TRUE);
+        marshaller.marshal(device2EM, writer);
+        return writer.toString();
+    }
+}
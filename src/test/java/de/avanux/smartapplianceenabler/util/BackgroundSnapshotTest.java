@@ -0,0 +1,63 @@
+/*
+ * Copyright (C) 2021 Axel Müller <axel.mueller@avanux.de>
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package de.avanux.smartapplianceenabler.util;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BackgroundSnapshotTest {
+    private AtomicInteger builds = new AtomicInteger();
+    private BackgroundSnapshot<Integer> snapshot = new BackgroundSnapshot<>("Test",
+            (now, previous) -> builds.incrementAndGet());
+    private TaskScheduler timer = new TaskScheduler(1);
+
+    @AfterEach
+    public void tearDown() {
+        snapshot.stop();
+        timer.cancel();
+    }
+
+    @Test
+    public void get_notStarted() {
+        assertEquals(1, snapshot.get().intValue());
+        assertEquals(2, snapshot.get().intValue());
+    }
+
+    @Test
+    public void requestUpdate() throws Exception {
+        snapshot.start(timer, 60000);
+        waitForBuilds(1);
+        int built = snapshot.get();
+        assertEquals(built, snapshot.get().intValue());
+
+        snapshot.requestUpdate();
+        waitForBuilds(built + 1);
+        assertTrue(snapshot.get() > built);
+    }
+
+    private void waitForBuilds(int count) throws InterruptedException {
+        for(int i = 0; i < 500 && builds.get() < count; i++) {
+            Thread.sleep(10);
+        }
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright (C) 2021 Axel Müller <axel.mueller@avanux.de>
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package de.avanux.smartapplianceenabler.util;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class EventBusTest {
+
+    private ExecutorService executor = Executors.newSingleThreadExecutor();
+    private EventBus eventBus = new EventBus(executor);
+
+    @AfterEach
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void publish_latestEventPerKey() throws Exception {
+        CountDownLatch firstEventReceived = new CountDownLatch(1);
+        CountDownLatch releaseHandler = new CountDownLatch(1);
+        CountDownLatch allEventsReceived = new CountDownLatch(3);
+        List<String> received = Collections.synchronizedList(new ArrayList<>());
+        EventBus.Subscription<Integer> subscription = eventBus.subscribe("Test", (key, event) -> {
+            received.add(key + "=" + event);
+            firstEventReceived.countDown();
+            try {
+                releaseHandler.await(5, TimeUnit.SECONDS);
+            }
+            catch(InterruptedException e) {
+                return;
+            }
+            allEventsReceived.countDown();
+        });
+
+        subscription.publish("A", 1);
+        Assertions.assertTrue(firstEventReceived.await(5, TimeUnit.SECONDS));
+        // the handler is blocked: events queue up with only the latest one per key being kept
+        subscription.publish("A", 2);
+        subscription.publish("B", 1);
+        subscription.publish("A", 3);
+        Assertions.assertEquals(2, subscription.getQueueDepth());
+        releaseHandler.countDown();
+
+        Assertions.assertTrue(allEventsReceived.await(5, TimeUnit.SECONDS));
+        Assertions.assertEquals(Arrays.asList("A=1", "A=3", "B=1"), received);
+        Assertions.assertEquals(4, subscription.getPublishedCount());
+        Assertions.assertEquals(1, subscription.getCoalescedCount());
+        Assertions.assertEquals(3, subscription.getDispatchedCount());
+        Assertions.assertEquals(2, subscription.getMaxQueueDepth());
+        Assertions.assertTrue(subscription.getDispatchLatencies().getMaxMillis() > 0.0);
+        Assertions.assertTrue(MetricsLogger.getInstance().getMetrics().contains(subscription.toString()));
+    }
+
+    @Test
+    public void publish_handlerFailureDoesNotStopDispatching() throws Exception {
+        CountDownLatch eventsReceived = new CountDownLatch(2);
+        EventBus.Subscription<Integer> subscription = eventBus.subscribe("Test", (key, event) -> {
+            eventsReceived.countDown();
+            throw new IllegalStateException("Test");
+        });
+        subscription.publish("A", 1);
+        subscription.publish("B", 1);
+        Assertions.assertTrue(eventsReceived.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void publish_dispatcherOfSubscription() throws Exception {
+        AtomicInteger dispatches = new AtomicInteger();
+        Executor dispatcher = task -> {
+            dispatches.incrementAndGet();
+            executor.execute(task);
+        };
+        CountDownLatch eventReceived = new CountDownLatch(1);
+        EventBus.Subscription<Integer> subscription = eventBus.subscribe("Test", (key, event) -> eventReceived.countDown(),
+                dispatcher);
+        subscription.publish("A", 1);
+        Assertions.assertTrue(eventReceived.await(5, TimeUnit.SECONDS));
+        Assertions.assertEquals(1, dispatches.get());
+    }
+
+    @Test
+    public void unsubscribe() {
+        List<String> received = Collections.synchronizedList(new ArrayList<>());
+        EventBus.Subscription<Integer> subscription = eventBus.subscribe("Unsubscribed",
+                (key, event) -> received.add(key + "=" + event), task -> {});
+        subscription.publish("A", 1);
+        eventBus.unsubscribe(subscription);
+        subscription.publish("A", 2);
+        Assertions.assertTrue(subscription.isClosed());
+        Assertions.assertEquals(0, subscription.getQueueDepth());
+        Assertions.assertEquals(1, subscription.getPublishedCount());
+        Assertions.assertTrue(received.isEmpty());
+        Assertions.assertFalse(MetricsLogger.getInstance().getMetrics().stream()
+                .anyMatch(metrics -> metrics.startsWith("EventBus Unsubscribed[")));
+    }
+}
@@ -0,0 +1,56 @@
+/*
+ * Copyright (C) 2021 Axel Müller <axel.mueller@avanux.de>
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package de.avanux.smartapplianceenabler.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class MetricsLoggerTest {
+
+    @Test
+    public void getMetrics() {
+        MetricsLogger cut = new MetricsLogger();
+        cut.register("b", () -> "B1");
+        cut.register("a", () -> "A");
+        cut.register("b", () -> "B2");
+        cut.register("c", () -> {
+            throw new IllegalStateException();
+        });
+        assertEquals(Arrays.asList("A", "B2"), cut.getMetrics());
+
+        cut.unregister("a");
+        assertEquals(Arrays.asList("B2"), cut.getMetrics());
+    }
+
+    @Test
+    public void latencyStatistics() {
+        LatencyStatistics latencies = new LatencyStatistics();
+        latencies.record(2000000);
+        latencies.record(4000000);
+        latencies.record(3000000);
+        assertEquals(3, latencies.getCount());
+        assertEquals(3.0, latencies.getAverageMillis(), 0.0001);
+        assertEquals(4.0, latencies.getMaxMillis(), 0.0001);
+        assertEquals(3.0, latencies.getLastMillis(), 0.0001);
+        assertEquals("averageLatency=3.000ms maxLatency=4.000ms", latencies.toString());
+    }
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright (C) 2021 Axel Müller <axel.mueller@avanux.de>
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package de.avanux.smartapplianceenabler.util;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TaskSchedulerTest {
+
+    private TaskScheduler cut;
+
+    @BeforeEach
+    public void setup() {
+        cut = new TaskScheduler(2);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        cut.cancel();
+    }
+
+    @Test
+    public void slowApplianceDoesNotDelayOtherAppliance() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch fastExecuted = new CountDownLatch(1);
+        cut.schedule(new GuardedTimerTask("F-001", "Slow", 0) {
+            @Override
+            public void runTask() {
+                await(release);
+            }
+        }, 0);
+        cut.schedule(new GuardedTimerTask("F-002", "Fast", 0) {
+            @Override
+            public void runTask() {
+                fastExecuted.countDown();
+            }
+        }, 10);
+        assertTrue(fastExecuted.await(2, TimeUnit.SECONDS));
+        release.countDown();
+    }
+
+    @Test
+    public void tasksOfSameApplianceDoNotOverlap() throws Exception {
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        CountDownLatch executed = new CountDownLatch(4);
+        for(int i=0; i<4; i++) {
+            cut.schedule(new GuardedTimerTask("F-001", "Task" + i, 0) {
+                @Override
+                public void runTask() {
+                    maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                    sleep(20);
+                    running.decrementAndGet();
+                    executed.countDown();
+                }
+            }, 0);
+        }
+        assertTrue(executed.await(2, TimeUnit.SECONDS));
+        assertEquals(1, maxRunning.get());
+    }
+
+    @Test
+    public void pendingExecutionIsSkipped() throws Exception {
+        AtomicInteger executions = new AtomicInteger();
+        GuardedTimerTask task = new GuardedTimerTask("F-001", "Periodic", 10) {
+            @Override
+            public void runTask() {
+                executions.incrementAndGet();
+                sleep(200);
+            }
+        };
+        cut.schedule(task, 0, task.getPeriod());
+        sleep(300);
+        task.cancel();
+        assertTrue(executions.get() <= 2, "executions=" + executions.get());
+    }
+
+    @Test
+    public void cancelledTaskIsNotExecuted() throws Exception {
+        AtomicInteger executions = new AtomicInteger();
+        GuardedTimerTask task = new GuardedTimerTask("F-001", "Cancelled", 10) {
+            @Override
+            public void runTask() {
+                executions.incrementAndGet();
+            }
+        };
+        cut.schedule(task, 50, task.getPeriod());
+        task.cancel();
+        sleep(100);
+        assertEquals(0, executions.get());
+    }
+
+    private void await(CountDownLatch latch) {
+        try {
+            latch.await(2, TimeUnit.SECONDS);
+        }
+        catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        }
+        catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright (C) 2021 Axel Müller <axel.mueller@avanux.de>
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package de.avanux.smartapplianceenabler.util;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.TreeMap;
+
+public class TimeSeriesTest {
+
+    private TimeSeries cut;
+    private TreeMap<LocalDateTime, Double> expectedTimestampsWithValue;
+    private LocalDateTime now;
+
+    @BeforeEach
+    public void setup() throws Exception {
+        cut = new TimeSeries("Test");
+        cut.setMaxAgeSeconds(60);
+        expectedTimestampsWithValue = new TreeMap<>();
+        now = LocalDateTime.now();
+    }
+
+    @Test
+    public void addValue() {
+        cut.addValue(now, 1);
+        cut.addValue(now.plusSeconds(25), 2);
+        cut.addValue(now.plusSeconds(50), 3);
+        cut.addValue(now.plusSeconds(75), 4);
+        cut.addValue(now.plusSeconds(100), 5);
+        expectedTimestampsWithValue.put(now.plusSeconds(50), 3.0);
+        expectedTimestampsWithValue.put(now.plusSeconds(75), 4.0);
+        expectedTimestampsWithValue.put(now.plusSeconds(100), 5.0);
+        Assertions.assertEquals(expectedTimestampsWithValue, toMap(cut));
+    }
+
+    @Test
+    public void addValue_keepLastExpired1() {
+        cut.setKeepLastExpired(1);
+        cut.addValue(now, 1);
+        cut.addValue(now.plusSeconds(25), 2);
+        cut.addValue(now.plusSeconds(50), 3);
+        cut.addValue(now.plusSeconds(75), 4);
+        cut.addValue(now.plusSeconds(100), 5);
+        expectedTimestampsWithValue.put(now.plusSeconds(25), 2.0);
+        expectedTimestampsWithValue.put(now.plusSeconds(50), 3.0);
+        expectedTimestampsWithValue.put(now.plusSeconds(75), 4.0);
+        expectedTimestampsWithValue.put(now.plusSeconds(100), 5.0);
+        Assertions.assertEquals(expectedTimestampsWithValue, toMap(cut));
+    }
+
+    @Test
+    public void addValue_outOfOrder() {
+        cut.addValue(now.plusSeconds(20), 2);
+        cut.addValue(now, 1);
+        cut.addValue(now.plusSeconds(20), 3);
+        expectedTimestampsWithValue.put(now, 1.0);
+        expectedTimestampsWithValue.put(now.plusSeconds(20), 3.0);
+        Assertions.assertEquals(expectedTimestampsWithValue, toMap(cut));
+        Assertions.assertEquals(3.0, cut.getLastValue());
+    }
+
+    @Test
+    public void addValue_bufferWrapsAndGrows() {
+        for(int i=0; i<1000; i++) {
+            cut.addValue(now.plusSeconds(i), i);
+        }
+        Assertions.assertEquals(61, cut.size());
+        Assertions.assertEquals(999.0, cut.getLastValue());
+        for(int i=1000; i<1100; i++) {
+            cut.addValue(now.plusSeconds(1001).plusNanos((i - 1000) * 1000000L), i);
+        }
+        Assertions.assertEquals(159, cut.size());
+    }
+
+    @Test
+    public void forEachNotExpired() {
+        cut.addValue(now, 1);
+        cut.addValue(now.plusSeconds(30), 2);
+        cut.addValue(now.plusSeconds(60), 3);
+        double[] sum = new double[1];
+        cut.forEachNotExpired(now.plusSeconds(75), (timestamp, value) -> sum[0] += value);
+        Assertions.assertEquals(5.0, sum[0]);
+    }
+
+    private TreeMap<LocalDateTime, Double> toMap(TimeSeries timeSeries) {
+        TreeMap<LocalDateTime, Double> timestampsWithValue = new TreeMap<>();
+        long nowMillis = TimeSeries.toMillis(now);
+        timeSeries.forEach((timestamp, value) ->
+                timestampsWithValue.put(now.plusNanos((timestamp - nowMillis) * 1000000), value));
+        return timestampsWithValue;
+    }
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright (C) 2021 Axel Müller <axel.mueller@avanux.de>
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package de.avanux.smartapplianceenabler.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TimestampValueDequeTest {
+
+    @Test
+    public void addLast_wrapAroundAndGrow() {
+        TimestampValueDeque deque = new TimestampValueDeque();
+        for(int i=0; i<10; i++) {
+            deque.addLast(i, i);
+        }
+        deque.removeFirst(8);
+        for(int i=10; i<30; i++) {
+            deque.addLast(i, i);
+        }
+        assertEquals(22, deque.size());
+        assertEquals(32, deque.capacity());
+        for(int i=0; i<deque.size(); i++) {
+            assertEquals(i + 8, deque.timestampAt(i));
+            assertEquals(i + 8, deque.valueAt(i), 0.01);
+        }
+        deque.removeLast();
+        assertEquals(28, deque.lastTimestamp());
+        assertEquals(8, deque.firstValue(), 0.01);
+    }
+
+    @Test
+    public void insert() {
+        TimestampValueDeque deque = new TimestampValueDeque();
+        deque.addLast(1, 1.0);
+        deque.addLast(3, 3.0);
+        deque.insert(1, 2, 2.0);
+        deque.setValueAt(2, 4.0);
+        assertEquals(3, deque.size());
+        assertEquals(2, deque.timestampAt(1));
+        assertEquals(7.0, deque.sum(), 0.01);
+    }
+}
@@ -0,0 +1,56 @@
+/*
+ * Copyright (C) 2021 Axel Müller <axel.mueller@avanux.de>
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package de.avanux.smartapplianceenabler.webservice;
+
+import de.avanux.smartapplianceenabler.appliance.Appliance;
+import de.avanux.smartapplianceenabler.appliance.ApplianceBuilder;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ApplianceStatusSnapshotTest {
+    private static final String DEVICE_ID = "F-00000001-000000000001-00";
+
+    @Test
+    public void etag() {
+        Appliance appliance = new ApplianceBuilder(DEVICE_ID)
+                .withMockSwitch(false)
+                .build(true);
+
+        ApplianceStatusSnapshot.Snapshot snapshot = ApplianceStatusSnapshot.getInstance().get();
+        assertEquals(1, snapshot.getApplianceStatuses().size());
+        assertFalse(snapshot.getApplianceStatuses().get(0).isOn());
+        assertThrows(UnsupportedOperationException.class, () -> snapshot.getApplianceStatuses().clear());
+        assertTrue(new String(snapshot.getBytes()).contains("\"@class\":\"" + ApplianceStatus.class.getName() + "\""));
+
+        ApplianceStatusSnapshot.Snapshot unchangedSnapshot = ApplianceStatusSnapshot.getInstance().get();
+        assertEquals(snapshot.getEtag(), unchangedSnapshot.getEtag());
+        assertTrue(unchangedSnapshot.matches(snapshot.getEtag()));
+        assertTrue(unchangedSnapshot.matches("\"other\", W/" + snapshot.getEtag()));
+        assertFalse(unchangedSnapshot.matches(null));
+
+        appliance.getControl().on(LocalDateTime.now(), true);
+        ApplianceStatusSnapshot.Snapshot changedSnapshot = ApplianceStatusSnapshot.getInstance().get();
+        assertTrue(changedSnapshot.getApplianceStatuses().get(0).isOn());
+        assertNotEquals(snapshot.getEtag(), changedSnapshot.getEtag());
+        assertFalse(changedSnapshot.matches(snapshot.getEtag()));
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright (C) 2021 Axel Müller <axel.mueller@avanux.de>
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package de.avanux.smartapplianceenabler.webservice;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import javax.servlet.FilterChain;
+import javax.servlet.http.HttpServletResponse;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RequestLaneFilterTest {
+
+    private RequestLaneFilter filter = new RequestLaneFilter(
+            new RequestLaneFilter.RequestLane("SEMP", 1, 1, 1000),
+            new RequestLaneFilter.RequestLane("UI", 1, 1, 50));
+
+    @Test
+    public void doFilter_sempNotDelayedByUi() throws Exception {
+        CountDownLatch uiRequestProcessing = new CountDownLatch(1);
+        CountDownLatch releaseUiRequest = new CountDownLatch(1);
+        FilterChain blockingChain = (request, response) -> {
+            uiRequestProcessing.countDown();
+            try {
+                releaseUiRequest.await(5, TimeUnit.SECONDS);
+            }
+            catch(InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        };
+        Thread uiThread = new Thread(() -> {
+            try {
+                filter.doFilter(new MockHttpServletRequest("GET", "/sae/status"), new MockHttpServletResponse(),
+                        blockingChain);
+            }
+            catch(Exception e) {
+                fail(e);
+            }
+        });
+        uiThread.start();
+        assertTrue(uiRequestProcessing.await(5, TimeUnit.SECONDS));
+
+        // the UI lane is busy: the next UI request waits in the queue until it times out and is rejected
+        MockHttpServletResponse rejectedResponse = new MockHttpServletResponse();
+        filter.doFilter(new MockHttpServletRequest("GET", "/sae/status"), rejectedResponse,
+                (request, response) -> fail("Request should have been rejected"));
+        assertEquals(HttpServletResponse.SC_SERVICE_UNAVAILABLE, rejectedResponse.getStatus());
+        assertEquals("1", rejectedResponse.getHeader("Retry-After"));
+
+        // SEMP requests are processed in their own lane
+        MockHttpServletResponse sempResponse = new MockHttpServletResponse();
+        filter.doFilter(new MockHttpServletRequest("GET", "/semp"), sempResponse,
+                (request, response) -> ((HttpServletResponse) response).setStatus(HttpServletResponse.SC_OK));
+        assertEquals(HttpServletResponse.SC_OK, sempResponse.getStatus());
+
+        releaseUiRequest.countDown();
+        uiThread.join(5000);
+        assertEquals(1, filter.getSempLane().getCompletedCount());
+        assertEquals(0, filter.getSempLane().getRejectedCount());
+        assertEquals(1, filter.getUiLane().getCompletedCount());
+        assertEquals(1, filter.getUiLane().getRejectedCount());
+        assertEquals(0, filter.getUiLane().getActiveCount());
+        assertTrue(filter.getSempLane().getLatencies().getMaxMillis()
+                < filter.getUiLane().getLatencies().getMaxMillis());
+    }
+
+    @Test
+    public void doFilter_staticResourcesNotLimited() throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(new MockHttpServletRequest("GET", "/static/main.js"), response,
+                (req, resp) -> ((HttpServletResponse) resp).setStatus(HttpServletResponse.SC_OK));
+        filter.doFilter(new MockHttpServletRequest("GET", "/saeicon.png"), response,
+                (req, resp) -> ((HttpServletResponse) resp).setStatus(HttpServletResponse.SC_OK));
+        assertEquals(HttpServletResponse.SC_OK, response.getStatus());
+        assertEquals(0, filter.getUiLane().getCompletedCount());
+        assertEquals(0, filter.getSempLane().getCompletedCount());
+    }
+}